@@ -13,12 +13,14 @@ import com.facebook.common.logging.FLog;
 import com.facebook.common.references.CloseableReference;
 import com.facebook.fresco.animation.bitmap.BitmapFrameCache;
 import com.facebook.fresco.animation.bitmap.BitmapFrameRenderer;
+import com.facebook.fresco.animation.bitmap.BitmapFrameRendererWithCaches;
 import com.facebook.imagepipeline.animated.base.AnimatedDrawableBackend;
 import com.facebook.imagepipeline.animated.impl.AnimatedImageCompositor;
 import javax.annotation.Nullable;
 
 /** {@link BitmapFrameRenderer} that wraps around an {@link AnimatedDrawableBackend}. */
-public class AnimatedDrawableBackendFrameRenderer implements BitmapFrameRenderer {
+public class AnimatedDrawableBackendFrameRenderer
+    implements BitmapFrameRenderer, BitmapFrameRendererWithCaches {
 
   private static final Class<?> TAG = AnimatedDrawableBackendFrameRenderer.class;
 
@@ -78,4 +80,11 @@ public class AnimatedDrawableBackendFrameRenderer implements BitmapFrameRenderer
     }
     return true;
   }
+
+  @Override
+  public int dropCaches() {
+    int memoryUsage = mAnimatedDrawableBackend.getMemoryUsage();
+    mAnimatedDrawableBackend.dropCaches();
+    return Math.max(0, memoryUsage - mAnimatedDrawableBackend.getMemoryUsage());
+  }
 }
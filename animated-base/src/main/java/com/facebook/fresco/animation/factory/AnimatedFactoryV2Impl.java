@@ -10,13 +10,19 @@ package com.facebook.fresco.animation.factory;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Rect;
+import android.os.Build;
 import com.facebook.cache.common.CacheKey;
 import com.facebook.common.executors.DefaultSerialExecutorService;
 import com.facebook.common.executors.SerialExecutorService;
 import com.facebook.common.executors.UiThreadImmediateExecutorService;
 import com.facebook.common.internal.DoNotStrip;
 import com.facebook.common.internal.Supplier;
+import com.facebook.common.internal.Suppliers;
+import com.facebook.common.memory.MemoryTrimmableRegistry;
+import com.facebook.common.memory.NoOpMemoryTrimmableRegistry;
+import com.facebook.common.references.CloseableReference;
 import com.facebook.common.time.RealtimeSinceBootClock;
+import com.facebook.common.util.ByteConstants;
 import com.facebook.fresco.animation.drawable.AnimatedDrawable2;
 import com.facebook.imagepipeline.animated.base.AnimatedDrawableBackend;
 import com.facebook.imagepipeline.animated.base.AnimatedImageResult;
@@ -26,15 +32,21 @@ import com.facebook.imagepipeline.animated.factory.AnimatedImageFactoryImpl;
 import com.facebook.imagepipeline.animated.impl.AnimatedDrawableBackendImpl;
 import com.facebook.imagepipeline.animated.impl.AnimatedDrawableBackendProvider;
 import com.facebook.imagepipeline.animated.util.AnimatedDrawableUtil;
+import com.facebook.imagepipeline.bitmaps.ArtBitmapFactory;
 import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
 import com.facebook.imagepipeline.cache.CountingMemoryCache;
 import com.facebook.imagepipeline.common.ImageDecodeOptions;
+import com.facebook.imagepipeline.core.CloseableReferenceFactory;
 import com.facebook.imagepipeline.core.ExecutorSupplier;
+import com.facebook.imagepipeline.debug.NoOpCloseableReferenceLeakTracker;
 import com.facebook.imagepipeline.decoder.ImageDecoder;
 import com.facebook.imagepipeline.drawable.DrawableFactory;
 import com.facebook.imagepipeline.image.CloseableImage;
 import com.facebook.imagepipeline.image.EncodedImage;
 import com.facebook.imagepipeline.image.QualityInfo;
+import com.facebook.imagepipeline.memory.BitmapPool;
+import com.facebook.imagepipeline.memory.LruBitmapPool;
+import com.facebook.imagepipeline.memory.NoOpPoolStatsTracker;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
@@ -44,11 +56,15 @@ import javax.annotation.concurrent.NotThreadSafe;
 public class AnimatedFactoryV2Impl implements AnimatedFactory {
 
   private static final int NUMBER_OF_FRAMES_TO_PREPARE = 3;
+  private static final int FRAME_BITMAP_POOL_MAX_SIZE = 8 * ByteConstants.MB;
 
   private final PlatformBitmapFactory mPlatformBitmapFactory;
   private final ExecutorSupplier mExecutorSupplier;
   private final CountingMemoryCache<CacheKey, CloseableImage> mBackingCache;
+  private final MemoryTrimmableRegistry mMemoryTrimmableRegistry;
   private final boolean mDownscaleFrameToDrawableDimensions;
+  private final boolean mReleaseResourcesOnInactive;
+  private final @Nullable CloseableReference.LeakHandler mLeakHandler;
 
   private @Nullable AnimatedImageFactory mAnimatedImageFactory;
   private @Nullable AnimatedDrawableBackendProvider mAnimatedDrawableBackendProvider;
@@ -61,10 +77,32 @@ public class AnimatedFactoryV2Impl implements AnimatedFactory {
       ExecutorSupplier executorSupplier,
       CountingMemoryCache<CacheKey, CloseableImage> backingCache,
       boolean downscaleFrameToDrawableDimensions) {
+    this(
+        platformBitmapFactory,
+        executorSupplier,
+        backingCache,
+        NoOpMemoryTrimmableRegistry.getInstance(),
+        downscaleFrameToDrawableDimensions,
+        false,
+        null);
+  }
+
+  @DoNotStrip
+  public AnimatedFactoryV2Impl(
+      PlatformBitmapFactory platformBitmapFactory,
+      ExecutorSupplier executorSupplier,
+      CountingMemoryCache<CacheKey, CloseableImage> backingCache,
+      MemoryTrimmableRegistry memoryTrimmableRegistry,
+      boolean downscaleFrameToDrawableDimensions,
+      boolean releaseResourcesOnInactive,
+      @Nullable CloseableReference.LeakHandler leakHandler) {
     mPlatformBitmapFactory = platformBitmapFactory;
     mExecutorSupplier = executorSupplier;
     mBackingCache = backingCache;
+    mMemoryTrimmableRegistry = memoryTrimmableRegistry;
     mDownscaleFrameToDrawableDimensions = downscaleFrameToDrawableDimensions;
+    mReleaseResourcesOnInactive = releaseResourcesOnInactive;
+    mLeakHandler = leakHandler;
   }
 
   @Nullable
@@ -130,10 +168,35 @@ public class AnimatedFactoryV2Impl implements AnimatedFactory {
         UiThreadImmediateExecutorService.getInstance(),
         serialExecutorServiceForFramePreparing,
         RealtimeSinceBootClock.get(),
-        mPlatformBitmapFactory,
+        createFrameBitmapFactory(),
         mBackingCache,
         cachingStrategySupplier,
-        numberOfFramesToPrepareSupplier);
+        numberOfFramesToPrepareSupplier,
+        Suppliers.of(mReleaseResourcesOnInactive));
+  }
+
+  /**
+   * Frame bitmaps are released to a pool that is shared by all animations, so that animations with
+   * the same frame size reuse each other's bitmaps instead of allocating new ones. The bitmap pool
+   * of the image pipeline does not keep free bitmaps by default, so a separate pool is used. The
+   * pool is registered with the pipeline's {@link MemoryTrimmableRegistry} so that it is trimmed
+   * on low memory.
+   */
+  private PlatformBitmapFactory createFrameBitmapFactory() {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+      return mPlatformBitmapFactory;
+    }
+    BitmapPool frameBitmapPool =
+        new LruBitmapPool(
+            FRAME_BITMAP_POOL_MAX_SIZE,
+            FRAME_BITMAP_POOL_MAX_SIZE,
+            NoOpPoolStatsTracker.getInstance(),
+            mMemoryTrimmableRegistry);
+    CloseableReferenceFactory closeableReferenceFactory =
+        mLeakHandler != null
+            ? new CloseableReferenceFactory(mLeakHandler)
+            : new CloseableReferenceFactory(new NoOpCloseableReferenceLeakTracker());
+    return new ArtBitmapFactory(frameBitmapPool, closeableReferenceFactory);
   }
 
   private AnimatedDrawableUtil getAnimatedDrawableUtil() {
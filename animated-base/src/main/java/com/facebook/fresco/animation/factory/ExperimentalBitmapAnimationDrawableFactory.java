@@ -17,6 +17,7 @@ import com.facebook.fresco.animation.backend.AnimationBackendDelegateWithInactiv
 import com.facebook.fresco.animation.bitmap.BitmapAnimationBackend;
 import com.facebook.fresco.animation.bitmap.BitmapFrameCache;
 import com.facebook.fresco.animation.bitmap.BitmapFrameRenderer;
+import com.facebook.fresco.animation.bitmap.FrameTypeCounters;
 import com.facebook.fresco.animation.bitmap.cache.AnimationFrameCacheKey;
 import com.facebook.fresco.animation.bitmap.cache.FrescoFrameCache;
 import com.facebook.fresco.animation.bitmap.cache.KeepLastFrameCache;
@@ -57,6 +58,8 @@ public class ExperimentalBitmapAnimationDrawableFactory implements DrawableFacto
   private final CountingMemoryCache<CacheKey, CloseableImage> mBackingCache;
   private final Supplier<Integer> mCachingStrategySupplier;
   private final Supplier<Integer> mNumberOfFramesToPrepareSupplier;
+  private final Supplier<Boolean> mReleaseResourcesOnInactiveSupplier;
+  private final FrameTypeCounters mFrameTypeCounters = new FrameTypeCounters();
 
   public ExperimentalBitmapAnimationDrawableFactory(
       AnimatedDrawableBackendProvider animatedDrawableBackendProvider,
@@ -66,7 +69,8 @@ public class ExperimentalBitmapAnimationDrawableFactory implements DrawableFacto
       PlatformBitmapFactory platformBitmapFactory,
       CountingMemoryCache<CacheKey, CloseableImage> backingCache,
       Supplier<Integer> cachingStrategySupplier,
-      Supplier<Integer> numberOfFramesToPrepareSupplier) {
+      Supplier<Integer> numberOfFramesToPrepareSupplier,
+      Supplier<Boolean> releaseResourcesOnInactiveSupplier) {
     mAnimatedDrawableBackendProvider = animatedDrawableBackendProvider;
     mScheduledExecutorServiceForUiThread = scheduledExecutorServiceForUiThread;
     mExecutorServiceForFramePreparing = executorServiceForFramePreparing;
@@ -75,6 +79,12 @@ public class ExperimentalBitmapAnimationDrawableFactory implements DrawableFacto
     mBackingCache = backingCache;
     mCachingStrategySupplier = cachingStrategySupplier;
     mNumberOfFramesToPrepareSupplier = numberOfFramesToPrepareSupplier;
+    mReleaseResourcesOnInactiveSupplier = releaseResourcesOnInactiveSupplier;
+  }
+
+  /** @return frame type counters for all animations created by this factory */
+  public FrameTypeCounters getFrameTypeCounters() {
+    return mFrameTypeCounters;
   }
 
   @Override
@@ -113,6 +123,9 @@ public class ExperimentalBitmapAnimationDrawableFactory implements DrawableFacto
             bitmapFrameRenderer,
             bitmapFramePreparationStrategy,
             bitmapFramePreparer);
+    bitmapAnimationBackend.setReleaseResourcesOnInactive(
+        mReleaseResourcesOnInactiveSupplier.get());
+    bitmapAnimationBackend.setFrameListener(mFrameTypeCounters);
 
     return AnimationBackendDelegateWithInactivityCheck.createForBackend(
         bitmapAnimationBackend, mMonotonicClock, mScheduledExecutorServiceForUiThread);
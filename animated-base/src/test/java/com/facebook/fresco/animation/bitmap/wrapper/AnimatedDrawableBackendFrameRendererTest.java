@@ -98,4 +98,14 @@ public class AnimatedDrawableBackendFrameRendererTest {
 
     assertThat(rendered).isFalse();
   }
+
+  @Test
+  public void testDropCaches() {
+    when(mAnimatedDrawableBackend.getMemoryUsage()).thenReturn(1500, 500);
+
+    int releasedBytes = mAnimatedDrawableBackendFrameRenderer.dropCaches();
+
+    verify(mAnimatedDrawableBackend).dropCaches();
+    assertThat(releasedBytes).isEqualTo(1000);
+  }
 }
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.animation.backend;
+
+/**
+ * Optional interface of animation backends that can limit their frame rate themselves. Frames that
+ * are skipped because of the limit report a duration of 0 ms, so that they are neither drawn nor
+ * prepared ahead of time.
+ */
+public interface FrameRateLimitedAnimationBackend extends AnimationBackend {
+
+  /**
+   * Limits the number of frames per second of the animation, replacing any previous limit.
+   *
+   * @param maxFrameRate the maximum number of frames per second or 0 for no limit
+   */
+  void setMaxFrameRate(int maxFrameRate);
+}
@@ -22,8 +22,11 @@ import com.facebook.common.references.CloseableReference;
 import com.facebook.fresco.animation.backend.AnimationBackend;
 import com.facebook.fresco.animation.backend.AnimationBackendDelegateWithInactivityCheck;
 import com.facebook.fresco.animation.backend.AnimationInformation;
+import com.facebook.fresco.animation.backend.FrameRateLimitedAnimationBackend;
 import com.facebook.fresco.animation.bitmap.preparation.BitmapFramePreparationStrategy;
 import com.facebook.fresco.animation.bitmap.preparation.BitmapFramePreparer;
+import com.facebook.fresco.animation.bitmap.preparation.CancellableBitmapFramePreparer;
+import com.facebook.fresco.animation.frame.FrameRateCappedAnimationInformation;
 import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
 import java.lang.annotation.Retention;
 import javax.annotation.Nullable;
@@ -37,7 +40,8 @@ import javax.annotation.Nullable;
  * BitmapFrameCache}.
  */
 public class BitmapAnimationBackend
-    implements AnimationBackend, AnimationBackendDelegateWithInactivityCheck.InactivityListener {
+    implements FrameRateLimitedAnimationBackend,
+        AnimationBackendDelegateWithInactivityCheck.InactivityListener {
 
   public interface FrameListener {
 
@@ -67,6 +71,18 @@ public class BitmapAnimationBackend
     void onFrameDropped(BitmapAnimationBackend backend, int frameNumber);
   }
 
+  /** Listener that is notified when the backend released its resources because it was inactive. */
+  public interface InactivityReleaseListener {
+
+    /**
+     * Called after the backend released all frames and temporary bitmaps.
+     *
+     * @param backend the backend
+     * @param releasedBytes the number of bytes that have been released
+     */
+    void onResourcesReleased(BitmapAnimationBackend backend, int releasedBytes);
+  }
+
   /** Frame type that has been drawn. Can be used for logging. */
   @Retention(SOURCE)
   @IntDef({
@@ -88,7 +104,8 @@ public class BitmapAnimationBackend
 
   private final PlatformBitmapFactory mPlatformBitmapFactory;
   private final BitmapFrameCache mBitmapFrameCache;
-  private final AnimationInformation mAnimationInformation;
+  private final AnimationInformation mOriginalAnimationInformation;
+  private AnimationInformation mAnimationInformation;
   private final BitmapFrameRenderer mBitmapFrameRenderer;
   @Nullable private final BitmapFramePreparationStrategy mBitmapFramePreparationStrategy;
   @Nullable private final BitmapFramePreparer mBitmapFramePreparer;
@@ -99,6 +116,8 @@ public class BitmapAnimationBackend
   private int mBitmapHeight;
   private Bitmap.Config mBitmapConfig = Bitmap.Config.ARGB_8888;
   @Nullable private FrameListener mFrameListener;
+  private boolean mReleaseResourcesOnInactive;
+  @Nullable private InactivityReleaseListener mInactivityReleaseListener;
 
   public BitmapAnimationBackend(
       PlatformBitmapFactory platformBitmapFactory,
@@ -109,6 +128,7 @@ public class BitmapAnimationBackend
       @Nullable BitmapFramePreparer bitmapFramePreparer) {
     mPlatformBitmapFactory = platformBitmapFactory;
     mBitmapFrameCache = bitmapFrameCache;
+    mOriginalAnimationInformation = animationInformation;
     mAnimationInformation = animationInformation;
     mBitmapFrameRenderer = bitmapFrameRenderer;
     mBitmapFramePreparationStrategy = bitmapFramePreparationStrategy;
@@ -131,6 +151,33 @@ public class BitmapAnimationBackend
     mFrameListener = frameListener;
   }
 
+  /**
+   * Set whether all resources should be released when the backend becomes inactive, see {@link
+   * #releaseResources()}. By default, only the frame cache is cleared.
+   *
+   * @param releaseResourcesOnInactive true if all resources should be released
+   */
+  public void setReleaseResourcesOnInactive(boolean releaseResourcesOnInactive) {
+    mReleaseResourcesOnInactive = releaseResourcesOnInactive;
+  }
+
+  public void setInactivityReleaseListener(
+      @Nullable InactivityReleaseListener inactivityReleaseListener) {
+    mInactivityReleaseListener = inactivityReleaseListener;
+  }
+
+  /**
+   * Limits the frame rate of the animation. The frame preparation strategy sees the skipped frames
+   * with a duration of 0 ms and does not prepare them.
+   */
+  @Override
+  public void setMaxFrameRate(int maxFrameRate) {
+    mAnimationInformation =
+        maxFrameRate > 0
+            ? new FrameRateCappedAnimationInformation(mOriginalAnimationInformation, maxFrameRate)
+            : mOriginalAnimationInformation;
+  }
+
   @Override
   public int getFrameCount() {
     return mAnimationInformation.getFrameCount();
@@ -266,7 +313,36 @@ public class BitmapAnimationBackend
 
   @Override
   public void onInactive() {
-    clear();
+    if (!mReleaseResourcesOnInactive) {
+      clear();
+      return;
+    }
+    int releasedBytes = releaseResources();
+    FLog.v(TAG, "Released %d bytes after inactivity", releasedBytes);
+    if (mInactivityReleaseListener != null) {
+      mInactivityReleaseListener.onResourcesReleased(this, releasedBytes);
+    }
+  }
+
+  /**
+   * Release all resources held by this backend: pending frame preparation jobs are cancelled, the
+   * frame cache is cleared and the renderer drops its temporary bitmaps, if the preparer and the
+   * renderer support it (see {@link CancellableBitmapFramePreparer} and {@link
+   * BitmapFrameRendererWithCaches}). Everything is recreated lazily when the next frame is drawn.
+   *
+   * @return the number of bytes that have been released
+   */
+  public int releaseResources() {
+    // Cancel first so that pending jobs do not add frames to the cache after it has been cleared
+    if (mBitmapFramePreparer instanceof CancellableBitmapFramePreparer) {
+      ((CancellableBitmapFramePreparer) mBitmapFramePreparer).cancelPendingFrames(this);
+    }
+    int releasedBytes = mBitmapFrameCache.getSizeInBytes();
+    mBitmapFrameCache.clear();
+    if (mBitmapFrameRenderer instanceof BitmapFrameRendererWithCaches) {
+      releasedBytes += ((BitmapFrameRendererWithCaches) mBitmapFrameRenderer).dropCaches();
+    }
+    return releasedBytes;
   }
 
   private void updateBitmapDimensions() {
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.animation.bitmap;
+
+/**
+ * Optional interface of {@link BitmapFrameRenderer}s that hold on to temporary resources between
+ * frames. {@link BitmapAnimationBackend#releaseResources()} drops them if the renderer implements
+ * this interface.
+ */
+public interface BitmapFrameRendererWithCaches {
+
+  /**
+   * Release temporary resources, like intermediate bitmaps, that the renderer holds on to between
+   * frames. They are recreated lazily when the next frame is rendered.
+   *
+   * @return the number of bytes that have been released
+   */
+  int dropCaches();
+}
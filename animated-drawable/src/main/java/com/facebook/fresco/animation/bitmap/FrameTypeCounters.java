@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.animation.bitmap;
+
+import com.facebook.imagepipeline.metrics.PipelineMetrics;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@link BitmapAnimationBackend.FrameListener} that counts drawn frames per {@link
+ * BitmapAnimationBackend.FrameType} as well as dropped frames. One instance can be shared by many
+ * backends to get the totals for all animations.
+ *
+ * <p>The counters are reported with the snapshots of {@link PipelineMetrics} once the instance is
+ * added as a counter source, e.g. the one of the animations of the pipeline with {@code
+ * metrics.addCounterSource(((ExperimentalBitmapAnimationDrawableFactory)
+ * Fresco.getImagePipelineFactory().getAnimatedDrawableFactory(context)).getFrameTypeCounters())}.
+ */
+@ThreadSafe
+public class FrameTypeCounters
+    implements BitmapAnimationBackend.FrameListener, PipelineMetrics.CounterSource {
+
+  public static final String METRIC_FRAMES_CACHED = "animation_frames_cached";
+  public static final String METRIC_FRAMES_REUSED = "animation_frames_reused";
+  public static final String METRIC_FRAMES_CREATED = "animation_frames_created";
+  public static final String METRIC_FRAMES_FALLBACK = "animation_frames_fallback";
+  public static final String METRIC_FRAMES_DROPPED = "animation_frames_dropped";
+
+  private static final int FRAME_TYPE_COUNT = BitmapAnimationBackend.FRAME_TYPE_FALLBACK + 1;
+
+  private final AtomicLongArray mDrawnFrames = new AtomicLongArray(FRAME_TYPE_COUNT);
+  private final AtomicLong mDroppedFrames = new AtomicLong();
+
+  @Override
+  public void onDrawFrameStart(BitmapAnimationBackend backend, int frameNumber) {}
+
+  @Override
+  public void onFrameDrawn(
+      BitmapAnimationBackend backend,
+      int frameNumber,
+      @BitmapAnimationBackend.FrameType int frameType) {
+    if (frameType >= 0 && frameType < FRAME_TYPE_COUNT) {
+      mDrawnFrames.incrementAndGet(frameType);
+    }
+  }
+
+  @Override
+  public void onFrameDropped(BitmapAnimationBackend backend, int frameNumber) {
+    mDroppedFrames.incrementAndGet();
+  }
+
+  /**
+   * @param frameType the frame type
+   * @return the number of frames drawn with the given frame type
+   */
+  public long getDrawnFrameCount(@BitmapAnimationBackend.FrameType int frameType) {
+    if (frameType < 0 || frameType >= FRAME_TYPE_COUNT) {
+      return 0;
+    }
+    return mDrawnFrames.get(frameType);
+  }
+
+  public long getDroppedFrameCount() {
+    return mDroppedFrames.get();
+  }
+
+  /** @return a snapshot of all counters, keyed by metric name */
+  public Map<String, Long> getMetrics() {
+    return getCounters(false);
+  }
+
+  @Override
+  public Map<String, Long> getCounters(boolean reset) {
+    Map<String, Long> metrics = new HashMap<>();
+    metrics.put(METRIC_FRAMES_CACHED, get(BitmapAnimationBackend.FRAME_TYPE_CACHED, reset));
+    metrics.put(METRIC_FRAMES_REUSED, get(BitmapAnimationBackend.FRAME_TYPE_REUSED, reset));
+    metrics.put(METRIC_FRAMES_CREATED, get(BitmapAnimationBackend.FRAME_TYPE_CREATED, reset));
+    metrics.put(METRIC_FRAMES_FALLBACK, get(BitmapAnimationBackend.FRAME_TYPE_FALLBACK, reset));
+    metrics.put(
+        METRIC_FRAMES_DROPPED, reset ? mDroppedFrames.getAndSet(0) : mDroppedFrames.get());
+    return metrics;
+  }
+
+  private long get(@BitmapAnimationBackend.FrameType int frameType, boolean reset) {
+    return reset ? mDrawnFrames.getAndSet(frameType, 0) : mDrawnFrames.get(frameType);
+  }
+
+  public void reset() {
+    for (int i = 0; i < FRAME_TYPE_COUNT; i++) {
+      mDrawnFrames.set(i, 0);
+    }
+    mDroppedFrames.set(0);
+  }
+}
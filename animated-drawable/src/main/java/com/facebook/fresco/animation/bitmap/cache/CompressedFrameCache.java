@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.animation.bitmap.cache;
+
+import android.graphics.Bitmap;
+import android.util.SparseArray;
+import com.facebook.common.logging.FLog;
+import com.facebook.common.memory.ByteArrayPool;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.fresco.animation.bitmap.BitmapAnimationBackend;
+import com.facebook.fresco.animation.bitmap.BitmapFrameCache;
+import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
+import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Bitmap frame cache that adds a compressed tier below another {@link BitmapFrameCache}.
+ *
+ * <p>Every rendered or prepared frame is handed to the delegate cache as usual. In addition, a copy
+ * of every prepared frame is compressed with the given {@link FrameCompressor} into a byte array
+ * obtained from the given {@link ByteArrayPool}. Rendered frames are not compressed, as they are
+ * rendered while drawing; prepared frames are compressed on the thread of the frame preparer. If
+ * the delegate cache does not have a frame anymore, the frame is restored from the compressed copy
+ * into a reusable bitmap, which is a lot cheaper than rendering the frame again.
+ *
+ * <p>The compressed tier keeps at most the given number of bytes. If a new frame does not fit, the
+ * frames that were added or restored most recently are evicted first: an animation loops through
+ * its frames, so these are the frames that it needs again last. Frames larger than the whole tier
+ * are not compressed and have to be rendered as usual.
+ */
+public class CompressedFrameCache implements BitmapFrameCache {
+
+  private static final Class<?> TAG = CompressedFrameCache.class;
+
+  private static final int BYTES_PER_PIXEL = 4;
+
+  private final BitmapFrameCache mDelegate;
+  private final FrameCompressor mFrameCompressor;
+  private final ByteArrayPool mByteArrayPool;
+  private final PlatformBitmapFactory mPlatformBitmapFactory;
+  private final int mMaxCompressedSizeInBytes;
+
+  @GuardedBy("this")
+  private final SparseArray<CompressedFrame> mCompressedFrames = new SparseArray<>();
+
+  @GuardedBy("this")
+  private int mCompressedSizeInBytes;
+
+  @GuardedBy("this")
+  private long mLastUseCount;
+
+  public CompressedFrameCache(
+      BitmapFrameCache delegate,
+      FrameCompressor frameCompressor,
+      ByteArrayPool byteArrayPool,
+      PlatformBitmapFactory platformBitmapFactory,
+      int maxCompressedSizeInBytes) {
+    mDelegate = delegate;
+    mFrameCompressor = frameCompressor;
+    mByteArrayPool = byteArrayPool;
+    mPlatformBitmapFactory = platformBitmapFactory;
+    mMaxCompressedSizeInBytes = maxCompressedSizeInBytes;
+  }
+
+  @Nullable
+  @Override
+  public CloseableReference<Bitmap> getCachedFrame(int frameNumber) {
+    CloseableReference<Bitmap> cachedFrame = mDelegate.getCachedFrame(frameNumber);
+    if (cachedFrame != null) {
+      return cachedFrame;
+    }
+    return decompressFrame(frameNumber);
+  }
+
+  @Nullable
+  @Override
+  public CloseableReference<Bitmap> getFallbackFrame(int frameNumber) {
+    return mDelegate.getFallbackFrame(frameNumber);
+  }
+
+  @Nullable
+  @Override
+  public CloseableReference<Bitmap> getBitmapToReuseForFrame(
+      int frameNumber, int width, int height) {
+    return mDelegate.getBitmapToReuseForFrame(frameNumber, width, height);
+  }
+
+  @Override
+  public synchronized boolean contains(int frameNumber) {
+    return mDelegate.contains(frameNumber) || mCompressedFrames.get(frameNumber) != null;
+  }
+
+  @Override
+  public synchronized int getSizeInBytes() {
+    return mDelegate.getSizeInBytes() + mCompressedSizeInBytes;
+  }
+
+  /** @return the size in bytes of the compressed tier */
+  public synchronized int getCompressedSizeInBytes() {
+    return mCompressedSizeInBytes;
+  }
+
+  @Override
+  public synchronized void clear() {
+    mDelegate.clear();
+    for (int i = 0; i < mCompressedFrames.size(); i++) {
+      mCompressedFrames.valueAt(i).close();
+    }
+    mCompressedFrames.clear();
+    mCompressedSizeInBytes = 0;
+  }
+
+  @Override
+  public void onFrameRendered(
+      int frameNumber,
+      CloseableReference<Bitmap> bitmapReference,
+      @BitmapAnimationBackend.FrameType int frameType) {
+    mDelegate.onFrameRendered(frameNumber, bitmapReference, frameType);
+  }
+
+  @Override
+  public void onFramePrepared(
+      int frameNumber,
+      CloseableReference<Bitmap> bitmapReference,
+      @BitmapAnimationBackend.FrameType int frameType) {
+    mDelegate.onFramePrepared(frameNumber, bitmapReference, frameType);
+    compressFrame(frameNumber, bitmapReference);
+  }
+
+  @Override
+  public void setFrameCacheListener(FrameCacheListener frameCacheListener) {
+    mDelegate.setFrameCacheListener(frameCacheListener);
+  }
+
+  /** Compresses the frame without holding the lock, which is only taken to add the frame. */
+  private void compressFrame(int frameNumber, CloseableReference<Bitmap> bitmapReference) {
+    if (!CloseableReference.isValid(bitmapReference)) {
+      return;
+    }
+    Bitmap bitmap = bitmapReference.get();
+    if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+      return;
+    }
+    int width = bitmap.getWidth();
+    int height = bitmap.getHeight();
+    int rawLength = width * height * BYTES_PER_PIXEL;
+    if (rawLength == 0 || !canAddCompressedFrame(frameNumber, 0)) {
+      return;
+    }
+
+    byte[] raw = mByteArrayPool.get(rawLength);
+    byte[] scratch = mByteArrayPool.get(mFrameCompressor.getMaxCompressedLength(rawLength));
+    try {
+      bitmap.copyPixelsToBuffer(ByteBuffer.wrap(raw, 0, rawLength));
+      int compressedLength = mFrameCompressor.compress(raw, rawLength, scratch);
+      if (!canAddCompressedFrame(frameNumber, compressedLength)) {
+        return;
+      }
+      // Only keep as many bytes as needed, the scratch buffer is as large as the raw frame
+      byte[] compressed = mByteArrayPool.get(compressedLength);
+      System.arraycopy(scratch, 0, compressed, 0, compressedLength);
+      CompressedFrame compressedFrame =
+          new CompressedFrame(
+              CloseableReference.of(compressed, mByteArrayPool), compressedLength, width, height);
+      if (!addCompressedFrame(frameNumber, compressedFrame)) {
+        compressedFrame.close();
+        return;
+      }
+      FLog.v(
+          TAG,
+          "compressFrame(%d) compressed %d bytes to %d bytes",
+          frameNumber,
+          rawLength,
+          compressedLength);
+    } catch (RuntimeException e) {
+      FLog.w(TAG, "Failed to compress frame " + frameNumber, e);
+    } finally {
+      mByteArrayPool.release(raw);
+      mByteArrayPool.release(scratch);
+    }
+  }
+
+  /**
+   * Returns whether a frame of the given compressed size could be added to the tier, evicting other
+   * frames if needed.
+   */
+  private synchronized boolean canAddCompressedFrame(int frameNumber, int compressedLength) {
+    return mCompressedFrames.get(frameNumber) == null
+        && compressedLength <= mMaxCompressedSizeInBytes;
+  }
+
+  /** Adds the frame unless another thread added it meanwhile, evicting frames to make room. */
+  private synchronized boolean addCompressedFrame(
+      int frameNumber, CompressedFrame compressedFrame) {
+    int sizeInBytes = compressedFrame.data.get().length;
+    if (!canAddCompressedFrame(frameNumber, sizeInBytes)) {
+      return false;
+    }
+    while (mCompressedSizeInBytes + sizeInBytes > mMaxCompressedSizeInBytes) {
+      evictMostRecentlyUsedFrame();
+    }
+    compressedFrame.lastUse = ++mLastUseCount;
+    mCompressedFrames.put(frameNumber, compressedFrame);
+    mCompressedSizeInBytes += sizeInBytes;
+    return true;
+  }
+
+  @GuardedBy("this")
+  private void evictMostRecentlyUsedFrame() {
+    int evictedIndex = 0;
+    for (int i = 1; i < mCompressedFrames.size(); i++) {
+      if (mCompressedFrames.valueAt(i).lastUse > mCompressedFrames.valueAt(evictedIndex).lastUse) {
+        evictedIndex = i;
+      }
+    }
+    CompressedFrame evictedFrame = mCompressedFrames.valueAt(evictedIndex);
+    FLog.v(TAG, "Evicting compressed frame %d", mCompressedFrames.keyAt(evictedIndex));
+    mCompressedFrames.removeAt(evictedIndex);
+    mCompressedSizeInBytes -= evictedFrame.data.get().length;
+    evictedFrame.close();
+  }
+
+  /** Returns a copy of the compressed frame that stays valid if the tier is cleared meanwhile. */
+  @Nullable
+  private synchronized CompressedFrame getCompressedFrame(int frameNumber) {
+    CompressedFrame compressedFrame = mCompressedFrames.get(frameNumber);
+    if (compressedFrame == null) {
+      return null;
+    }
+    compressedFrame.lastUse = ++mLastUseCount;
+    return compressedFrame.cloneOrNull();
+  }
+
+  @Nullable
+  private CloseableReference<Bitmap> decompressFrame(int frameNumber) {
+    CompressedFrame compressedFrame = getCompressedFrame(frameNumber);
+    if (compressedFrame == null) {
+      return null;
+    }
+    try {
+      CloseableReference<Bitmap> bitmapReference =
+          obtainBitmap(frameNumber, compressedFrame.width, compressedFrame.height);
+      if (bitmapReference == null) {
+        return null;
+      }
+      int rawLength = compressedFrame.width * compressedFrame.height * BYTES_PER_PIXEL;
+      byte[] raw = mByteArrayPool.get(rawLength);
+      try {
+        mFrameCompressor.decompress(
+            compressedFrame.data.get(), compressedFrame.length, raw, rawLength);
+        bitmapReference.get().copyPixelsFromBuffer(ByteBuffer.wrap(raw, 0, rawLength));
+        return bitmapReference;
+      } catch (RuntimeException e) {
+        FLog.w(TAG, "Failed to decompress frame " + frameNumber, e);
+        CloseableReference.closeSafely(bitmapReference);
+        return null;
+      } finally {
+        mByteArrayPool.release(raw);
+      }
+    } finally {
+      compressedFrame.close();
+    }
+  }
+
+  @Nullable
+  private CloseableReference<Bitmap> obtainBitmap(int frameNumber, int width, int height) {
+    CloseableReference<Bitmap> bitmapReference =
+        mDelegate.getBitmapToReuseForFrame(frameNumber, width, height);
+    if (CloseableReference.isValid(bitmapReference)) {
+      Bitmap bitmap = bitmapReference.get();
+      if (bitmap.getWidth() == width
+          && bitmap.getHeight() == height
+          && bitmap.getConfig() == Bitmap.Config.ARGB_8888) {
+        return bitmapReference;
+      }
+    }
+    CloseableReference.closeSafely(bitmapReference);
+    try {
+      return mPlatformBitmapFactory.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    } catch (RuntimeException e) {
+      FLog.w(TAG, "Failed to create frame bitmap", e);
+      return null;
+    }
+  }
+
+  private static class CompressedFrame {
+
+    final CloseableReference<byte[]> data;
+    final int length;
+    final int width;
+    final int height;
+
+    /** Guarded by the lock of the cache that holds this frame */
+    long lastUse;
+
+    CompressedFrame(CloseableReference<byte[]> data, int length, int width, int height) {
+      this.data = data;
+      this.length = length;
+      this.width = width;
+      this.height = height;
+    }
+
+    @Nullable
+    CompressedFrame cloneOrNull() {
+      CloseableReference<byte[]> dataClone = CloseableReference.cloneOrNull(data);
+      return dataClone == null ? null : new CompressedFrame(dataClone, length, width, height);
+    }
+
+    void close() {
+      CloseableReference.closeSafely(data);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.animation.bitmap.cache;
+
+/**
+ * Compresses the raw pixel data of an ARGB_8888 frame (as produced by {@link
+ * android.graphics.Bitmap#copyPixelsToBuffer(java.nio.Buffer)}) into a more compact representation
+ * and restores it again.
+ *
+ * <p>Implementations do not need to be thread-safe, callers are expected to synchronize access.
+ */
+public interface FrameCompressor {
+
+  /**
+   * Returns the maximum number of bytes {@link #compress(byte[], int, byte[])} may write for the
+   * given input length.
+   *
+   * @param rawLength the number of raw pixel bytes
+   * @return the maximum compressed length
+   */
+  int getMaxCompressedLength(int rawLength);
+
+  /**
+   * Compress the given raw pixel data.
+   *
+   * @param raw the raw ARGB_8888 pixel bytes
+   * @param rawLength the number of valid bytes in raw
+   * @param compressed the output buffer, at least {@link #getMaxCompressedLength(int)} bytes long
+   * @return the number of bytes written to compressed
+   */
+  int compress(byte[] raw, int rawLength, byte[] compressed);
+
+  /**
+   * Restore raw pixel data from the given compressed data.
+   *
+   * @param compressed the compressed data
+   * @param compressedLength the number of valid bytes in compressed
+   * @param raw the output buffer for the ARGB_8888 pixel bytes
+   * @param rawLength the number of raw bytes to restore
+   */
+  void decompress(byte[] compressed, int compressedLength, byte[] raw, int rawLength);
+}
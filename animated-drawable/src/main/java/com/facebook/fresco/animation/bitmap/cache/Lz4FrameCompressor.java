@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.animation.bitmap.cache;
+
+import java.util.Arrays;
+
+/**
+ * Lossless {@link FrameCompressor} that writes the LZ4 block format.
+ *
+ * <p>This is a simple greedy single-pass compressor: it does not reach the compression ratio of the
+ * reference implementation, but animation frames usually contain large uniform areas and repeated
+ * rows that compress well, and decompression is little more than a sequence of array copies.
+ */
+public class Lz4FrameCompressor implements FrameCompressor {
+
+  private static final int MIN_MATCH = 4;
+  private static final int LAST_LITERALS = 5;
+  private static final int MF_LIMIT = 12;
+  private static final int MAX_DISTANCE = 0xFFFF;
+  private static final int RUN_MASK = 0xF;
+  private static final int HASH_LOG = 12;
+  private static final int HASH_MULTIPLIER = -1640531535;
+
+  private final int[] mHashTable = new int[1 << HASH_LOG];
+
+  @Override
+  public int getMaxCompressedLength(int rawLength) {
+    return rawLength + rawLength / 255 + 16;
+  }
+
+  @Override
+  public int compress(byte[] raw, int rawLength, byte[] compressed) {
+    Arrays.fill(mHashTable, -1);
+    int anchor = 0;
+    int ip = 0;
+    int op = 0;
+    final int matchLimit = rawLength - MF_LIMIT;
+    final int literalsLimit = rawLength - LAST_LITERALS;
+
+    while (ip < matchLimit) {
+      int sequence = readInt(raw, ip);
+      int hash = (sequence * HASH_MULTIPLIER) >>> (32 - HASH_LOG);
+      int ref = mHashTable[hash];
+      mHashTable[hash] = ip;
+      if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(raw, ref) != sequence) {
+        ip++;
+        continue;
+      }
+
+      // Extend the match backwards into the pending literals
+      while (ip > anchor && ref > 0 && raw[ip - 1] == raw[ref - 1]) {
+        ip--;
+        ref--;
+      }
+      // Extend the match forwards
+      int matchLength = MIN_MATCH;
+      while (ip + matchLength < literalsLimit && raw[ip + matchLength] == raw[ref + matchLength]) {
+        matchLength++;
+      }
+
+      op = writeSequence(raw, anchor, ip - anchor, ip - ref, matchLength, compressed, op);
+      ip += matchLength;
+      anchor = ip;
+    }
+
+    return writeLastLiterals(raw, anchor, rawLength - anchor, compressed, op);
+  }
+
+  @Override
+  public void decompress(byte[] compressed, int compressedLength, byte[] raw, int rawLength) {
+    int ip = 0;
+    int op = 0;
+    while (ip < compressedLength) {
+      int token = compressed[ip++] & 0xFF;
+
+      int literalLength = token >>> 4;
+      if (literalLength == RUN_MASK) {
+        int value;
+        do {
+          value = compressed[ip++] & 0xFF;
+          literalLength += value;
+        } while (value == 0xFF);
+      }
+      System.arraycopy(compressed, ip, raw, op, literalLength);
+      ip += literalLength;
+      op += literalLength;
+      if (ip >= compressedLength) {
+        // The last sequence only contains literals
+        break;
+      }
+
+      int offset = (compressed[ip] & 0xFF) | ((compressed[ip + 1] & 0xFF) << 8);
+      ip += 2;
+      int matchLength = token & RUN_MASK;
+      if (matchLength == RUN_MASK) {
+        int value;
+        do {
+          value = compressed[ip++] & 0xFF;
+          matchLength += value;
+        } while (value == 0xFF);
+      }
+      matchLength += MIN_MATCH;
+
+      int ref = op - offset;
+      if (offset >= matchLength) {
+        System.arraycopy(raw, ref, raw, op, matchLength);
+        op += matchLength;
+      } else {
+        // Overlapping copy, e.g. a run of a repeated pixel
+        for (int i = 0; i < matchLength; i++) {
+          raw[op++] = raw[ref++];
+        }
+      }
+    }
+    if (op != rawLength) {
+      throw new IllegalArgumentException(
+          "Decompressed " + op + " bytes, but expected " + rawLength + " bytes");
+    }
+  }
+
+  private static int writeSequence(
+      byte[] raw,
+      int literalStart,
+      int literalLength,
+      int offset,
+      int matchLength,
+      byte[] compressed,
+      int op) {
+    int tokenPosition = op++;
+    int token;
+    if (literalLength >= RUN_MASK) {
+      token = RUN_MASK << 4;
+      op = writeLength(literalLength - RUN_MASK, compressed, op);
+    } else {
+      token = literalLength << 4;
+    }
+    System.arraycopy(raw, literalStart, compressed, op, literalLength);
+    op += literalLength;
+
+    compressed[op++] = (byte) offset;
+    compressed[op++] = (byte) (offset >>> 8);
+
+    int encodedMatchLength = matchLength - MIN_MATCH;
+    if (encodedMatchLength >= RUN_MASK) {
+      token |= RUN_MASK;
+      op = writeLength(encodedMatchLength - RUN_MASK, compressed, op);
+    } else {
+      token |= encodedMatchLength;
+    }
+    compressed[tokenPosition] = (byte) token;
+    return op;
+  }
+
+  private static int writeLastLiterals(
+      byte[] raw, int literalStart, int literalLength, byte[] compressed, int op) {
+    if (literalLength >= RUN_MASK) {
+      compressed[op++] = (byte) (RUN_MASK << 4);
+      op = writeLength(literalLength - RUN_MASK, compressed, op);
+    } else {
+      compressed[op++] = (byte) (literalLength << 4);
+    }
+    System.arraycopy(raw, literalStart, compressed, op, literalLength);
+    return op + literalLength;
+  }
+
+  private static int writeLength(int length, byte[] compressed, int op) {
+    while (length >= 0xFF) {
+      compressed[op++] = (byte) 0xFF;
+      length -= 0xFF;
+    }
+    compressed[op++] = (byte) length;
+    return op;
+  }
+
+  private static int readInt(byte[] buffer, int position) {
+    return (buffer[position] & 0xFF)
+        | ((buffer[position + 1] & 0xFF) << 8)
+        | ((buffer[position + 2] & 0xFF) << 16)
+        | ((buffer[position + 3] & 0xFF) << 24);
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.animation.bitmap.cache;
+
+/**
+ * Lossy {@link FrameCompressor} that packs every pixel into 16 bits (RGB565), halving the size of
+ * the frame. The alpha channel is dropped, so this should only be used for opaque animations.
+ */
+public class Rgb565FrameCompressor implements FrameCompressor {
+
+  private static final int BYTES_PER_PIXEL_ARGB_8888 = 4;
+  private static final int BYTES_PER_PIXEL_RGB_565 = 2;
+
+  @Override
+  public int getMaxCompressedLength(int rawLength) {
+    return rawLength / BYTES_PER_PIXEL_ARGB_8888 * BYTES_PER_PIXEL_RGB_565;
+  }
+
+  @Override
+  public int compress(byte[] raw, int rawLength, byte[] compressed) {
+    int op = 0;
+    for (int ip = 0; ip + BYTES_PER_PIXEL_ARGB_8888 <= rawLength; ip += BYTES_PER_PIXEL_ARGB_8888) {
+      int r = raw[ip] & 0xFF;
+      int g = raw[ip + 1] & 0xFF;
+      int b = raw[ip + 2] & 0xFF;
+      int packed = ((r >> 3) << 11) | ((g >> 2) << 5) | (b >> 3);
+      compressed[op++] = (byte) packed;
+      compressed[op++] = (byte) (packed >> 8);
+    }
+    return op;
+  }
+
+  @Override
+  public void decompress(byte[] compressed, int compressedLength, byte[] raw, int rawLength) {
+    int op = 0;
+    for (int ip = 0;
+        ip + BYTES_PER_PIXEL_RGB_565 <= compressedLength && op < rawLength;
+        ip += BYTES_PER_PIXEL_RGB_565) {
+      int packed = (compressed[ip] & 0xFF) | ((compressed[ip + 1] & 0xFF) << 8);
+      int r = (packed >> 11) & 0x1F;
+      int g = (packed >> 5) & 0x3F;
+      int b = packed & 0x1F;
+      // Replicate the high bits into the low bits so that 0x1F maps to 0xFF
+      raw[op++] = (byte) ((r << 3) | (r >> 2));
+      raw[op++] = (byte) ((g << 2) | (g >> 4));
+      raw[op++] = (byte) ((b << 3) | (b >> 2));
+      raw[op++] = (byte) 0xFF;
+    }
+  }
+}
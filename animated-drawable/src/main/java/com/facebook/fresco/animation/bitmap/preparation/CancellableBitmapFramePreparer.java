@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.animation.bitmap.preparation;
+
+import com.facebook.fresco.animation.backend.AnimationBackend;
+
+/**
+ * Optional interface of {@link BitmapFramePreparer}s that can cancel frame preparation jobs that
+ * have been scheduled but have not completed yet.
+ */
+public interface CancellableBitmapFramePreparer {
+
+  /**
+   * Cancel all frame preparation jobs for the given backend that have not completed yet. Cancelled
+   * jobs will not add frames to the cache anymore.
+   *
+   * @param animationBackend the backend to cancel the jobs for
+   */
+  void cancelPendingFrames(AnimationBackend animationBackend);
+}
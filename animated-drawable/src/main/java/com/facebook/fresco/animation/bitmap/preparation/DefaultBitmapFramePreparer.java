@@ -16,13 +16,17 @@ import com.facebook.fresco.animation.bitmap.BitmapAnimationBackend;
 import com.facebook.fresco.animation.bitmap.BitmapFrameCache;
 import com.facebook.fresco.animation.bitmap.BitmapFrameRenderer;
 import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
+import javax.annotation.concurrent.GuardedBy;
 
 /**
  * Default bitmap frame preparer that uses the given {@link ExecutorService} to schedule jobs. An
  * instance of this class can be shared between multiple animated images.
  */
-public class DefaultBitmapFramePreparer implements BitmapFramePreparer {
+public class DefaultBitmapFramePreparer
+    implements BitmapFramePreparer, CancellableBitmapFramePreparer {
 
   private static final Class<?> TAG = DefaultBitmapFramePreparer.class;
 
@@ -30,7 +34,7 @@ public class DefaultBitmapFramePreparer implements BitmapFramePreparer {
   private final BitmapFrameRenderer mBitmapFrameRenderer;
   private final Bitmap.Config mBitmapConfig;
   private final ExecutorService mExecutorService;
-  private final SparseArray<Runnable> mPendingFrameDecodeJobs;
+  private final SparseArray<FrameDecodeRunnable> mPendingFrameDecodeJobs;
 
   public DefaultBitmapFramePreparer(
       PlatformBitmapFactory platformBitmapFactory,
@@ -60,7 +64,7 @@ public class DefaultBitmapFramePreparer implements BitmapFramePreparer {
         FLog.v(TAG, "Frame %d is cached already.", frameNumber);
         return true;
       }
-      Runnable frameDecodeRunnable =
+      FrameDecodeRunnable frameDecodeRunnable =
           new FrameDecodeRunnable(animationBackend, bitmapFrameCache, frameNumber, frameId);
       mPendingFrameDecodeJobs.put(frameId, frameDecodeRunnable);
       mExecutorService.execute(frameDecodeRunnable);
@@ -68,6 +72,25 @@ public class DefaultBitmapFramePreparer implements BitmapFramePreparer {
     return true;
   }
 
+  @Override
+  public void cancelPendingFrames(AnimationBackend animationBackend) {
+    List<FrameDecodeRunnable> cancelledJobs = new ArrayList<>();
+    synchronized (mPendingFrameDecodeJobs) {
+      for (int i = mPendingFrameDecodeJobs.size() - 1; i >= 0; i--) {
+        FrameDecodeRunnable frameDecodeRunnable = mPendingFrameDecodeJobs.valueAt(i);
+        if (frameDecodeRunnable.mAnimationBackend == animationBackend) {
+          cancelledJobs.add(frameDecodeRunnable);
+          mPendingFrameDecodeJobs.removeAt(i);
+        }
+      }
+    }
+    // Waits for jobs that are adding their frame to the cache right now, so that no frames are
+    // added once this method returns. prepareFrame() does not wait for that.
+    for (FrameDecodeRunnable frameDecodeRunnable : cancelledJobs) {
+      frameDecodeRunnable.cancel();
+    }
+  }
+
   private static int getUniqueId(AnimationBackend backend, int frameNumber) {
     int result = backend.hashCode();
     result = 31 * result + frameNumber;
@@ -81,6 +104,9 @@ public class DefaultBitmapFramePreparer implements BitmapFramePreparer {
     private final int mFrameNumber;
     private final int mHashCode;
 
+    @GuardedBy("this")
+    private boolean mCancelled;
+
     public FrameDecodeRunnable(
         AnimationBackend animationBackend,
         BitmapFrameCache bitmapFrameCache,
@@ -95,6 +121,10 @@ public class DefaultBitmapFramePreparer implements BitmapFramePreparer {
     @Override
     public void run() {
       try {
+        if (isCancelled()) {
+          FLog.v(TAG, "Decode job for frame %d has been cancelled.", mFrameNumber);
+          return;
+        }
         // If we have a cached frame already, we don't need to do anything.
         if (mBitmapFrameCache.contains(mFrameNumber)) {
           FLog.v(TAG, "Frame %d is cached already.", mFrameNumber);
@@ -109,17 +139,31 @@ public class DefaultBitmapFramePreparer implements BitmapFramePreparer {
         }
       } finally {
         synchronized (mPendingFrameDecodeJobs) {
-          mPendingFrameDecodeJobs.remove(mHashCode);
+          // A new job might have been scheduled for the same frame after this one was cancelled
+          if (mPendingFrameDecodeJobs.get(mHashCode) == this) {
+            mPendingFrameDecodeJobs.remove(mHashCode);
+          }
         }
       }
     }
 
+    private synchronized void cancel() {
+      mCancelled = true;
+    }
+
+    private synchronized boolean isCancelled() {
+      return mCancelled;
+    }
+
     private boolean prepareFrameAndCache(
         int frameNumber, @BitmapAnimationBackend.FrameType int frameType) {
       CloseableReference<Bitmap> bitmapReference = null;
       boolean created;
       int nextFrameType;
 
+      if (isCancelled()) {
+        return false;
+      }
       try {
         switch (frameType) {
           case BitmapAnimationBackend.FRAME_TYPE_REUSED:
@@ -175,8 +219,12 @@ public class DefaultBitmapFramePreparer implements BitmapFramePreparer {
         return false;
       }
       FLog.v(TAG, "Frame %d ready.", mFrameNumber);
-      // Cache the frame
-      synchronized (mPendingFrameDecodeJobs) {
+      // Cache the frame. The cache might compress the frame, so this must not hold the lock of
+      // the pending jobs, which prepareFrame() takes while drawing.
+      synchronized (this) {
+        if (mCancelled) {
+          return false;
+        }
         mBitmapFrameCache.onFramePrepared(mFrameNumber, bitmapReference, frameType);
       }
       return true;
@@ -11,7 +11,10 @@ import com.facebook.common.logging.FLog;
 import com.facebook.fresco.animation.backend.AnimationBackend;
 import com.facebook.fresco.animation.bitmap.BitmapFrameCache;
 
-/** Frame preparation strategy to prepare the next n frames */
+/**
+ * Frame preparation strategy to prepare the next n frames. Frames with a duration of 0 ms are never
+ * displayed, e.g. frames skipped because of a frame rate limit, so they are not prepared.
+ */
 public class FixedNumberBitmapFramePreparationStrategy implements BitmapFramePreparationStrategy {
 
   private static final Class<?> TAG = FixedNumberBitmapFramePreparationStrategy.class;
@@ -33,8 +36,9 @@ public class FixedNumberBitmapFramePreparationStrategy implements BitmapFramePre
       BitmapFrameCache bitmapFrameCache,
       AnimationBackend animationBackend,
       int lastDrawnFrameNumber) {
+    int nextFrameNumber = lastDrawnFrameNumber;
     for (int i = 1; i <= mFramesToPrepare; i++) {
-      int nextFrameNumber = (lastDrawnFrameNumber + i) % animationBackend.getFrameCount();
+      nextFrameNumber = getNextDisplayedFrameNumber(animationBackend, nextFrameNumber);
       if (FLog.isLoggable(FLog.VERBOSE)) {
         FLog.v(TAG, "Preparing frame %d, last drawn: %d", nextFrameNumber, lastDrawnFrameNumber);
       }
@@ -44,4 +48,17 @@ public class FixedNumberBitmapFramePreparationStrategy implements BitmapFramePre
       }
     }
   }
+
+  private static int getNextDisplayedFrameNumber(
+      AnimationBackend animationBackend, int frameNumber) {
+    int frameCount = animationBackend.getFrameCount();
+    for (int i = 1; i < frameCount; i++) {
+      int nextFrameNumber = (frameNumber + i) % frameCount;
+      if (animationBackend.getFrameDurationMs(nextFrameNumber) > 0) {
+        return nextFrameNumber;
+      }
+    }
+    // No frame durations available, simply prepare the next frame
+    return (frameNumber + 1) % frameCount;
+  }
 }
@@ -18,8 +18,11 @@ import com.facebook.common.logging.FLog;
 import com.facebook.drawable.base.DrawableWithCaches;
 import com.facebook.drawee.drawable.DrawableProperties;
 import com.facebook.fresco.animation.backend.AnimationBackend;
+import com.facebook.fresco.animation.backend.AnimationBackendDelegate;
 import com.facebook.fresco.animation.backend.AnimationInformation;
+import com.facebook.fresco.animation.backend.FrameRateLimitedAnimationBackend;
 import com.facebook.fresco.animation.frame.DropFramesFrameScheduler;
+import com.facebook.fresco.animation.frame.FrameRateCappedAnimationInformation;
 import com.facebook.fresco.animation.frame.FrameScheduler;
 import javax.annotation.Nullable;
 
@@ -49,12 +52,18 @@ public class AnimatedDrawable2 extends Drawable implements Animatable, DrawableW
         long scheduledRenderTimeForNextFrameMs);
   }
 
+  /** Max frame rate value that does not limit the frame rate of the animation. */
+  public static final int MAX_FRAME_RATE_UNLIMITED = 0;
+
   private static final Class<?> TAG = AnimatedDrawable2.class;
 
   private static final AnimationListener NO_OP_LISTENER = new BaseAnimationListener();
 
   private static final int DEFAULT_FRAME_SCHEDULING_DELAY_MS = 8;
   private static final int DEFAULT_FRAME_SCHEDULING_OFFSET_MS = 0;
+  private static final int MAX_FRAME_RATE_USE_DEFAULT = -1;
+
+  private static volatile int sDefaultMaxFrameRate = MAX_FRAME_RATE_UNLIMITED;
 
   @Nullable private AnimationBackend mAnimationBackend;
   @Nullable private FrameScheduler mFrameScheduler;
@@ -73,6 +82,7 @@ public class AnimatedDrawable2 extends Drawable implements Animatable, DrawableW
 
   private long mFrameSchedulingDelayMs = DEFAULT_FRAME_SCHEDULING_DELAY_MS;
   private long mFrameSchedulingOffsetMs = DEFAULT_FRAME_SCHEDULING_OFFSET_MS;
+  private int mMaxFrameRate = MAX_FRAME_RATE_USE_DEFAULT;
 
   // Animation statistics
   private int mDroppedFrames;
@@ -402,6 +412,44 @@ public class AnimatedDrawable2 extends Drawable implements Animatable, DrawableW
     mFrameSchedulingOffsetMs = frameSchedulingOffsetMs;
   }
 
+  /**
+   * Set the maximum frame rate for all animated drawables that do not have their own maximum frame
+   * rate set. Only applies to animations that are set up after this call. A drawable can still
+   * raise, lower or remove the limit for itself with {@link #setMaxFrameRate(int)}.
+   *
+   * @param maxFrameRate the maximum number of frames per second or {@link
+   *     #MAX_FRAME_RATE_UNLIMITED}
+   */
+  public static void setDefaultMaxFrameRate(int maxFrameRate) {
+    sDefaultMaxFrameRate = maxFrameRate;
+  }
+
+  public static int getDefaultMaxFrameRate() {
+    return sDefaultMaxFrameRate;
+  }
+
+  /**
+   * Limit the number of frames per second that are drawn for this animation. Frames that would be
+   * displayed too soon after the previous frame are skipped and the previous frame is displayed
+   * longer instead, so that the loop duration does not change.
+   *
+   * <p>If the animation backend is a {@link FrameRateLimitedAnimationBackend}, for example for
+   * animated images decoded by the image pipeline, the limit is applied by the backend, which then
+   * also skips preparing the frames that are not drawn.
+   *
+   * @param maxFrameRate the maximum number of frames per second or {@link
+   *     #MAX_FRAME_RATE_UNLIMITED}
+   */
+  public void setMaxFrameRate(int maxFrameRate) {
+    mMaxFrameRate = maxFrameRate;
+    mFrameScheduler = createSchedulerForBackendAndDelayMethod(mAnimationBackend);
+  }
+
+  /** @return the maximum frame rate or {@link #MAX_FRAME_RATE_UNLIMITED} */
+  public int getMaxFrameRate() {
+    return mMaxFrameRate == MAX_FRAME_RATE_USE_DEFAULT ? sDefaultMaxFrameRate : mMaxFrameRate;
+  }
+
   /**
    * Set an animation listener that is notified for various animation events.
    *
@@ -446,14 +494,34 @@ public class AnimatedDrawable2 extends Drawable implements Animatable, DrawableW
   }
 
   @Nullable
-  private static FrameScheduler createSchedulerForBackendAndDelayMethod(
+  private FrameScheduler createSchedulerForBackendAndDelayMethod(
       @Nullable AnimationBackend animationBackend) {
     if (animationBackend == null) {
       return null;
     }
+    int maxFrameRate = getMaxFrameRate();
+    FrameRateLimitedAnimationBackend frameRateLimitedBackend =
+        getFrameRateLimitedAnimationBackend(animationBackend);
+    if (frameRateLimitedBackend != null) {
+      frameRateLimitedBackend.setMaxFrameRate(Math.max(maxFrameRate, MAX_FRAME_RATE_UNLIMITED));
+    } else if (maxFrameRate > 0) {
+      return new DropFramesFrameScheduler(
+          new FrameRateCappedAnimationInformation(animationBackend, maxFrameRate));
+    }
     return new DropFramesFrameScheduler(animationBackend);
   }
 
+  @Nullable
+  private static FrameRateLimitedAnimationBackend getFrameRateLimitedAnimationBackend(
+      @Nullable AnimationBackend animationBackend) {
+    while (animationBackend instanceof AnimationBackendDelegate) {
+      animationBackend = ((AnimationBackendDelegate<?>) animationBackend).getAnimationBackend();
+    }
+    return animationBackend instanceof FrameRateLimitedAnimationBackend
+        ? (FrameRateLimitedAnimationBackend) animationBackend
+        : null;
+  }
+
   /**
    * Set the animation to the given level. The level represents the animation time in ms. If the
    * animation time is greater than the last frame time for the last loop, the last frame will be
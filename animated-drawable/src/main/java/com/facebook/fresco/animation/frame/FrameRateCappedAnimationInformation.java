@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.animation.frame;
+
+import com.facebook.common.internal.Preconditions;
+import com.facebook.fresco.animation.backend.AnimationInformation;
+
+/**
+ * Animation information that limits the frame rate of another {@link AnimationInformation}.
+ *
+ * <p>A loop of the animation keeps as many frames as fit into its duration at the maximum frame
+ * rate. The loop is divided into that many slots of equal length and in every slot only the first
+ * frame that starts in it is displayed. The other frames are skipped: they report a duration of 0
+ * ms and their duration is added to the frame displayed before them. Slots are at least 1 /
+ * maxFrameRate seconds long and line up with the end of the loop, so the limit also holds on
+ * average for source frames that are not a multiple of it long and when the animation loops.
+ *
+ * <p>Frame numbers, frame count and loop duration stay the same, so a {@link
+ * DropFramesFrameScheduler} using this information never selects skipped frames while the
+ * animation keeps its original speed.
+ */
+public class FrameRateCappedAnimationInformation implements AnimationInformation {
+
+  private static final int MS_PER_SECOND = 1000;
+
+  private final AnimationInformation mAnimationInformation;
+  private final int[] mFrameDurationsMs;
+
+  public FrameRateCappedAnimationInformation(
+      AnimationInformation animationInformation, int maxFrameRate) {
+    Preconditions.checkArgument(maxFrameRate > 0);
+    mAnimationInformation = animationInformation;
+    mFrameDurationsMs = computeFrameDurations(animationInformation, maxFrameRate);
+  }
+
+  @Override
+  public int getFrameCount() {
+    return mFrameDurationsMs.length;
+  }
+
+  @Override
+  public int getFrameDurationMs(int frameNumber) {
+    return mFrameDurationsMs[frameNumber];
+  }
+
+  @Override
+  public int getLoopCount() {
+    return mAnimationInformation.getLoopCount();
+  }
+
+  private static int[] computeFrameDurations(
+      AnimationInformation animationInformation, int maxFrameRate) {
+    int frameCount = animationInformation.getFrameCount();
+    int[] frameDurationsMs = new int[frameCount];
+    long loopDurationMs = 0;
+    for (int i = 0; i < frameCount; i++) {
+      loopDurationMs += animationInformation.getFrameDurationMs(i);
+    }
+    if (loopDurationMs <= 0) {
+      for (int i = 0; i < frameCount; i++) {
+        frameDurationsMs[i] = animationInformation.getFrameDurationMs(i);
+      }
+      return frameDurationsMs;
+    }
+    // Computed in whole slots so that no rounding error adds up over the loop
+    long slotCount = Math.max(1, loopDurationMs * maxFrameRate / MS_PER_SECOND);
+    int lastDisplayedFrame = 0;
+    long lastDisplayedSlot = 0;
+    long frameStartMs = 0;
+    for (int i = 0; i < frameCount; i++) {
+      int frameDurationMs = animationInformation.getFrameDurationMs(i);
+      if (i > 0 && frameDurationMs > 0) {
+        long slot = frameStartMs * slotCount / loopDurationMs;
+        if (slot > lastDisplayedSlot) {
+          lastDisplayedFrame = i;
+          lastDisplayedSlot = slot;
+        }
+      }
+      // Skipped frames extend the frame that is displayed instead of them
+      frameDurationsMs[lastDisplayedFrame] += frameDurationMs;
+      frameStartMs += frameDurationMs;
+    }
+    return frameDurationsMs;
+  }
+}
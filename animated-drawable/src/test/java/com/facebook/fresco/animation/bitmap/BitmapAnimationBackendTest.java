@@ -12,6 +12,8 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -28,12 +30,14 @@ import com.facebook.fresco.animation.backend.AnimationBackend;
 import com.facebook.fresco.animation.backend.AnimationInformation;
 import com.facebook.fresco.animation.bitmap.preparation.BitmapFramePreparationStrategy;
 import com.facebook.fresco.animation.bitmap.preparation.BitmapFramePreparer;
+import com.facebook.fresco.animation.bitmap.preparation.CancellableBitmapFramePreparer;
 import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
@@ -45,7 +49,8 @@ public class BitmapAnimationBackendTest {
   @Mock public PlatformBitmapFactory mPlatformBitmapFactory;
   @Mock public BitmapFrameCache mBitmapFrameCache;
   @Mock public AnimationInformation mAnimationInformation;
-  @Mock public BitmapFrameRenderer mBitmapFrameRenderer;
+  @Mock(extraInterfaces = BitmapFrameRendererWithCaches.class)
+  public BitmapFrameRenderer mBitmapFrameRenderer;
   @Mock public Rect mBounds;
   @Mock public Drawable mParentDrawable;
   @Mock public Canvas mCanvas;
@@ -53,7 +58,8 @@ public class BitmapAnimationBackendTest {
   @Mock public ResourceReleaser<Bitmap> mBitmapResourceReleaser;
   @Mock public BitmapAnimationBackend.FrameListener mFrameListener;
   @Mock public BitmapFramePreparationStrategy mBitmapFramePreparationStrategy;
-  @Mock public BitmapFramePreparer mBitmapFramePreparer;
+  @Mock(extraInterfaces = CancellableBitmapFramePreparer.class)
+  public BitmapFramePreparer mBitmapFramePreparer;
 
   @Captor public ArgumentCaptor<CloseableReference<Bitmap>> mCapturedBitmapReference;
 
@@ -367,6 +373,73 @@ public class BitmapAnimationBackendTest {
     verify(mFrameListener).onFrameDropped(mBitmapAnimationBackend, 4);
   }
 
+  @Test
+  public void testOnInactive_whenReleaseNotEnabled_thenClearCacheOnly() {
+    mBitmapAnimationBackend.onInactive();
+
+    verify(mBitmapFrameCache).clear();
+    verify((BitmapFrameRendererWithCaches) mBitmapFrameRenderer, never()).dropCaches();
+    verify((CancellableBitmapFramePreparer) mBitmapFramePreparer, never())
+        .cancelPendingFrames(any(AnimationBackend.class));
+  }
+
+  @Test
+  public void testOnInactive_whenReleaseEnabled_thenReleaseAllResources() {
+    BitmapAnimationBackend.InactivityReleaseListener inactivityReleaseListener =
+        mock(BitmapAnimationBackend.InactivityReleaseListener.class);
+    mBitmapAnimationBackend.setReleaseResourcesOnInactive(true);
+    mBitmapAnimationBackend.setInactivityReleaseListener(inactivityReleaseListener);
+    when(mBitmapFrameCache.getSizeInBytes()).thenReturn(4000);
+    when(((BitmapFrameRendererWithCaches) mBitmapFrameRenderer).dropCaches()).thenReturn(1000);
+
+    mBitmapAnimationBackend.onInactive();
+
+    InOrder inOrder = inOrder(mBitmapFramePreparer, mBitmapFrameCache);
+    inOrder
+        .verify((CancellableBitmapFramePreparer) mBitmapFramePreparer)
+        .cancelPendingFrames(mBitmapAnimationBackend);
+    inOrder.verify(mBitmapFrameCache).clear();
+    verify((BitmapFrameRendererWithCaches) mBitmapFrameRenderer).dropCaches();
+    verify(inactivityReleaseListener).onResourcesReleased(mBitmapAnimationBackend, 5000);
+  }
+
+  @Test
+  public void testOnInactive_whenRendererHasNoCaches_thenReleaseFrameCacheOnly() {
+    BitmapAnimationBackend.InactivityReleaseListener inactivityReleaseListener =
+        mock(BitmapAnimationBackend.InactivityReleaseListener.class);
+    mBitmapAnimationBackend =
+        new BitmapAnimationBackend(
+            mPlatformBitmapFactory,
+            mBitmapFrameCache,
+            mAnimationInformation,
+            mock(BitmapFrameRenderer.class),
+            mBitmapFramePreparationStrategy,
+            mock(BitmapFramePreparer.class));
+    mBitmapAnimationBackend.setReleaseResourcesOnInactive(true);
+    mBitmapAnimationBackend.setInactivityReleaseListener(inactivityReleaseListener);
+    when(mBitmapFrameCache.getSizeInBytes()).thenReturn(4000);
+
+    mBitmapAnimationBackend.onInactive();
+
+    verify(mBitmapFrameCache).clear();
+    verify(inactivityReleaseListener).onResourcesReleased(mBitmapAnimationBackend, 4000);
+  }
+
+  @Test
+  public void testDrawFrameAfterReleaseResources() {
+    when(mBitmapFrameCache.getCachedFrame(anyInt())).thenReturn(null);
+    when(mBitmapFrameCache.getBitmapToReuseForFrame(anyInt(), anyInt(), anyInt()))
+        .thenReturn(mBitmapRefererence);
+    when(mBitmapFrameRenderer.renderFrame(anyInt(), any(Bitmap.class))).thenReturn(true);
+
+    mBitmapAnimationBackend.releaseResources();
+    mBitmapAnimationBackend.drawFrame(mParentDrawable, mCanvas, 1);
+
+    verify(mBitmapFrameRenderer).renderFrame(1, mBitmap);
+    verifyListenersAndCacheNotified(1, BitmapAnimationBackend.FRAME_TYPE_REUSED);
+    verifyFramePreparationStrategyCalled(1);
+  }
+
   private void verifyFramePreparationStrategyCalled(int frameNumber) {
     verify(mBitmapFramePreparationStrategy)
         .prepareFrames(
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.animation.bitmap;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Tests {@link FrameTypeCounters} */
+@RunWith(RobolectricTestRunner.class)
+public class FrameTypeCountersTest {
+
+  private BitmapAnimationBackend mBackend;
+  private FrameTypeCounters mFrameTypeCounters;
+
+  @Before
+  public void setup() {
+    mBackend = mock(BitmapAnimationBackend.class);
+    mFrameTypeCounters = new FrameTypeCounters();
+  }
+
+  @Test
+  public void testCountFrameTypes() {
+    mFrameTypeCounters.onFrameDrawn(mBackend, 0, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+    mFrameTypeCounters.onFrameDrawn(mBackend, 1, BitmapAnimationBackend.FRAME_TYPE_REUSED);
+    mFrameTypeCounters.onFrameDrawn(mBackend, 2, BitmapAnimationBackend.FRAME_TYPE_REUSED);
+    mFrameTypeCounters.onFrameDrawn(mBackend, 0, BitmapAnimationBackend.FRAME_TYPE_CACHED);
+    mFrameTypeCounters.onFrameDropped(mBackend, 1);
+    mFrameTypeCounters.onFrameDrawn(mBackend, 1, BitmapAnimationBackend.FRAME_TYPE_UNKNOWN);
+
+    assertThat(mFrameTypeCounters.getDrawnFrameCount(BitmapAnimationBackend.FRAME_TYPE_CACHED))
+        .isEqualTo(1);
+    assertThat(mFrameTypeCounters.getDrawnFrameCount(BitmapAnimationBackend.FRAME_TYPE_REUSED))
+        .isEqualTo(2);
+    assertThat(mFrameTypeCounters.getDrawnFrameCount(BitmapAnimationBackend.FRAME_TYPE_CREATED))
+        .isEqualTo(1);
+    assertThat(mFrameTypeCounters.getDrawnFrameCount(BitmapAnimationBackend.FRAME_TYPE_FALLBACK))
+        .isEqualTo(0);
+    assertThat(mFrameTypeCounters.getDrawnFrameCount(BitmapAnimationBackend.FRAME_TYPE_UNKNOWN))
+        .isEqualTo(0);
+    assertThat(mFrameTypeCounters.getDroppedFrameCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testGetMetrics() {
+    mFrameTypeCounters.onFrameDrawn(mBackend, 0, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+    mFrameTypeCounters.onFrameDropped(mBackend, 1);
+
+    Map<String, Long> metrics = mFrameTypeCounters.getMetrics();
+
+    assertThat(metrics.get(FrameTypeCounters.METRIC_FRAMES_CREATED)).isEqualTo(1L);
+    assertThat(metrics.get(FrameTypeCounters.METRIC_FRAMES_CACHED)).isEqualTo(0L);
+    assertThat(metrics.get(FrameTypeCounters.METRIC_FRAMES_DROPPED)).isEqualTo(1L);
+  }
+
+  @Test
+  public void testGetCounters_whenReset_thenCountersStartAgain() {
+    mFrameTypeCounters.onFrameDrawn(mBackend, 0, BitmapAnimationBackend.FRAME_TYPE_REUSED);
+    mFrameTypeCounters.onFrameDropped(mBackend, 1);
+
+    Map<String, Long> counters = mFrameTypeCounters.getCounters(true);
+
+    assertThat(counters.get(FrameTypeCounters.METRIC_FRAMES_REUSED)).isEqualTo(1L);
+    assertThat(counters.get(FrameTypeCounters.METRIC_FRAMES_DROPPED)).isEqualTo(1L);
+    assertThat(mFrameTypeCounters.getDrawnFrameCount(BitmapAnimationBackend.FRAME_TYPE_REUSED))
+        .isEqualTo(0);
+    assertThat(mFrameTypeCounters.getDroppedFrameCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testReset() {
+    mFrameTypeCounters.onFrameDrawn(mBackend, 0, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+    mFrameTypeCounters.onFrameDropped(mBackend, 1);
+
+    mFrameTypeCounters.reset();
+
+    assertThat(mFrameTypeCounters.getDrawnFrameCount(BitmapAnimationBackend.FRAME_TYPE_CREATED))
+        .isEqualTo(0);
+    assertThat(mFrameTypeCounters.getDroppedFrameCount()).isEqualTo(0);
+  }
+}
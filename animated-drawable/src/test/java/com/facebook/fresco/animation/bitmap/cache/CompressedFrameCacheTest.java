@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.animation.bitmap.cache;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import com.facebook.common.memory.ByteArrayPool;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.common.references.ResourceReleaser;
+import com.facebook.fresco.animation.bitmap.BitmapAnimationBackend;
+import com.facebook.fresco.animation.bitmap.BitmapFrameCache;
+import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
+import java.nio.Buffer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+
+/** Tests {@link CompressedFrameCache}. */
+@RunWith(RobolectricTestRunner.class)
+public class CompressedFrameCacheTest {
+
+  private static final int WIDTH = 10;
+  private static final int HEIGHT = 20;
+  private static final int FRAME_SIZE_BYTES = WIDTH * HEIGHT * 4;
+
+  @Mock public BitmapFrameCache mDelegate;
+  @Mock public ByteArrayPool mByteArrayPool;
+  @Mock public PlatformBitmapFactory mPlatformBitmapFactory;
+  @Mock public Bitmap mBitmap;
+  @Mock public Bitmap mReusedBitmap;
+  @Mock public ResourceReleaser<Bitmap> mBitmapResourceReleaser;
+
+  private CloseableReference<Bitmap> mBitmapReference;
+  private CompressedFrameCache mCompressedFrameCache;
+
+  @Before
+  public void setup() {
+    MockitoAnnotations.initMocks(this);
+    when(mByteArrayPool.get(anyInt()))
+        .thenAnswer(
+            new Answer<byte[]>() {
+              @Override
+              public byte[] answer(InvocationOnMock invocation) throws Throwable {
+                return new byte[(Integer) invocation.getArguments()[0]];
+              }
+            });
+    setupBitmap(mBitmap);
+    setupBitmap(mReusedBitmap);
+    mBitmapReference = CloseableReference.of(mBitmap, mBitmapResourceReleaser);
+
+    mCompressedFrameCache =
+        new CompressedFrameCache(
+            mDelegate,
+            new Lz4FrameCompressor(),
+            mByteArrayPool,
+            mPlatformBitmapFactory,
+            FRAME_SIZE_BYTES * 10);
+  }
+
+  @Test
+  public void testOnFrameRendered_ForwardsToDelegateWithoutCompressing() {
+    mCompressedFrameCache.onFrameRendered(
+        1, mBitmapReference, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+
+    verify(mDelegate)
+        .onFrameRendered(1, mBitmapReference, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+    verify(mBitmap, never()).copyPixelsToBuffer(any(Buffer.class));
+    assertThat(mCompressedFrameCache.contains(1)).isFalse();
+    assertThat(mCompressedFrameCache.getCompressedSizeInBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testOnFramePrepared_ForwardsToDelegateAndCompresses() {
+    mCompressedFrameCache.onFramePrepared(
+        1, mBitmapReference, BitmapAnimationBackend.FRAME_TYPE_REUSED);
+
+    verify(mDelegate)
+        .onFramePrepared(1, mBitmapReference, BitmapAnimationBackend.FRAME_TYPE_REUSED);
+    verify(mBitmap).copyPixelsToBuffer(any(Buffer.class));
+    assertThat(mCompressedFrameCache.contains(1)).isTrue();
+    assertThat(mCompressedFrameCache.contains(2)).isFalse();
+    assertThat(mCompressedFrameCache.getCompressedSizeInBytes()).isGreaterThan(0);
+    assertThat(mCompressedFrameCache.getCompressedSizeInBytes()).isLessThan(FRAME_SIZE_BYTES);
+  }
+
+  @Test
+  public void testGetCachedFrame_WhenCachedByDelegate() {
+    CloseableReference<Bitmap> cachedFrame =
+        CloseableReference.of(mReusedBitmap, mBitmapResourceReleaser);
+    when(mDelegate.getCachedFrame(1)).thenReturn(cachedFrame);
+
+    assertThat(mCompressedFrameCache.getCachedFrame(1)).isSameAs(cachedFrame);
+  }
+
+  @Test
+  public void testGetCachedFrame_WhenNotCached() {
+    assertThat(mCompressedFrameCache.getCachedFrame(1)).isNull();
+  }
+
+  @Test
+  public void testGetCachedFrame_DecompressesIntoReusedBitmap() {
+    mCompressedFrameCache.onFramePrepared(
+        1, mBitmapReference, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+    CloseableReference<Bitmap> reusedBitmap =
+        CloseableReference.of(mReusedBitmap, mBitmapResourceReleaser);
+    when(mDelegate.getBitmapToReuseForFrame(1, WIDTH, HEIGHT)).thenReturn(reusedBitmap);
+
+    CloseableReference<Bitmap> cachedFrame = mCompressedFrameCache.getCachedFrame(1);
+
+    assertThat(cachedFrame).isSameAs(reusedBitmap);
+    verify(mReusedBitmap).copyPixelsFromBuffer(any(Buffer.class));
+    verify(mPlatformBitmapFactory, never())
+        .createBitmap(anyInt(), anyInt(), any(Bitmap.Config.class));
+  }
+
+  @Test
+  public void testGetCachedFrame_DecompressesIntoNewBitmap() {
+    mCompressedFrameCache.onFramePrepared(
+        1, mBitmapReference, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+    CloseableReference<Bitmap> newBitmap =
+        CloseableReference.of(mReusedBitmap, mBitmapResourceReleaser);
+    when(mPlatformBitmapFactory.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888))
+        .thenReturn(newBitmap);
+
+    assertThat(mCompressedFrameCache.getCachedFrame(1)).isSameAs(newBitmap);
+    verify(mReusedBitmap).copyPixelsFromBuffer(any(Buffer.class));
+  }
+
+  @Test
+  public void testFrameNotCompressedWhenOverBudget() {
+    mCompressedFrameCache =
+        new CompressedFrameCache(
+            mDelegate, new Rgb565FrameCompressor(), mByteArrayPool, mPlatformBitmapFactory, 10);
+
+    mCompressedFrameCache.onFramePrepared(
+        1, mBitmapReference, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+
+    assertThat(mCompressedFrameCache.contains(1)).isFalse();
+    assertThat(mCompressedFrameCache.getCompressedSizeInBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testEvictsMostRecentlyUsedFrameWhenFull() {
+    mCompressedFrameCache.onFramePrepared(
+        1, mBitmapReference, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+    int compressedFrameSize = mCompressedFrameCache.getCompressedSizeInBytes();
+    mCompressedFrameCache =
+        new CompressedFrameCache(
+            mDelegate,
+            new Lz4FrameCompressor(),
+            mByteArrayPool,
+            mPlatformBitmapFactory,
+            compressedFrameSize * 2);
+    mCompressedFrameCache.onFramePrepared(
+        1, mBitmapReference, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+    mCompressedFrameCache.onFramePrepared(
+        2, mBitmapReference, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+    // Restoring frame 1 makes it the frame that the animation needs again last
+    mCompressedFrameCache.getCachedFrame(1);
+
+    mCompressedFrameCache.onFramePrepared(
+        3, mBitmapReference, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+
+    assertThat(mCompressedFrameCache.contains(1)).isFalse();
+    assertThat(mCompressedFrameCache.contains(2)).isTrue();
+    assertThat(mCompressedFrameCache.contains(3)).isTrue();
+    assertThat(mCompressedFrameCache.getCompressedSizeInBytes())
+        .isEqualTo(compressedFrameSize * 2);
+  }
+
+  @Test
+  public void testClear() {
+    mCompressedFrameCache.onFramePrepared(
+        1, mBitmapReference, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+
+    mCompressedFrameCache.clear();
+
+    verify(mDelegate).clear();
+    // The raw and scratch buffers are released right away, the compressed frame on clear
+    verify(mByteArrayPool, times(3)).release(any(byte[].class));
+    assertThat(mCompressedFrameCache.contains(1)).isFalse();
+    assertThat(mCompressedFrameCache.getCompressedSizeInBytes()).isEqualTo(0);
+  }
+
+  private static void setupBitmap(Bitmap bitmap) {
+    when(bitmap.getWidth()).thenReturn(WIDTH);
+    when(bitmap.getHeight()).thenReturn(HEIGHT);
+    when(bitmap.getConfig()).thenReturn(Bitmap.Config.ARGB_8888);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.animation.bitmap.cache;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests {@link Lz4FrameCompressor}. */
+public class Lz4FrameCompressorTest {
+
+  private Lz4FrameCompressor mFrameCompressor;
+
+  @Before
+  public void setup() {
+    mFrameCompressor = new Lz4FrameCompressor();
+  }
+
+  @Test
+  public void testRoundTrip_Empty() {
+    assertRoundTrip(new byte[0]);
+  }
+
+  @Test
+  public void testRoundTrip_ShorterThanMinimumMatch() {
+    assertRoundTrip(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11});
+  }
+
+  @Test
+  public void testRoundTrip_SolidColorFrame() {
+    byte[] raw = new byte[64 * 64 * 4];
+    for (int i = 0; i < raw.length; i += 4) {
+      raw[i] = (byte) 0x12;
+      raw[i + 1] = (byte) 0x34;
+      raw[i + 2] = (byte) 0x56;
+      raw[i + 3] = (byte) 0xFF;
+    }
+    int compressedLength = assertRoundTrip(raw);
+    assertThat(compressedLength).isLessThan(raw.length / 100);
+  }
+
+  @Test
+  public void testRoundTrip_RandomData() {
+    Random random = new Random(42);
+    for (int length = 0; length < 2000; length += 97) {
+      byte[] raw = new byte[length];
+      random.nextBytes(raw);
+      assertRoundTrip(raw);
+    }
+  }
+
+  @Test
+  public void testRoundTrip_RepeatedRows() {
+    Random random = new Random(42);
+    byte[] row = new byte[300 * 4];
+    random.nextBytes(row);
+    byte[] raw = new byte[row.length * 50];
+    for (int i = 0; i < 50; i++) {
+      System.arraycopy(row, 0, raw, i * row.length, row.length);
+    }
+    int compressedLength = assertRoundTrip(raw);
+    assertThat(compressedLength).isLessThan(2 * row.length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecompress_WrongLength() {
+    byte[] raw = new byte[100];
+    byte[] compressed = new byte[mFrameCompressor.getMaxCompressedLength(raw.length)];
+    int compressedLength = mFrameCompressor.compress(raw, raw.length, compressed);
+    mFrameCompressor.decompress(compressed, compressedLength, new byte[200], 200);
+  }
+
+  private int assertRoundTrip(byte[] raw) {
+    byte[] compressed = new byte[mFrameCompressor.getMaxCompressedLength(raw.length)];
+    int compressedLength = mFrameCompressor.compress(raw, raw.length, compressed);
+    assertThat(compressedLength).isLessThanOrEqualTo(compressed.length);
+
+    byte[] decompressed = new byte[raw.length];
+    mFrameCompressor.decompress(compressed, compressedLength, decompressed, raw.length);
+    assertThat(decompressed).isEqualTo(raw);
+    return compressedLength;
+  }
+}
@@ -198,4 +198,41 @@ public class DefaultBitmapFramePreparerTest {
 
     verifyNoMoreInteractions(mBitmapFrameCache);
   }
+
+  @Test
+  public void testCancelPendingFrames_thenDoNotPrepareFrame() {
+    when(mBitmapFrameCache.getBitmapToReuseForFrame(
+            1, BACKEND_INTRINSIC_WIDTH, BACKEND_INTRINSIC_HEIGHT))
+        .thenReturn(mBitmapReference);
+    when(mBitmapFrameRenderer.renderFrame(1, mBitmap)).thenReturn(true);
+
+    mDefaultBitmapFramePreparer.prepareFrame(mBitmapFrameCache, mAnimationBackend, 1);
+    mDefaultBitmapFramePreparer.cancelPendingFrames(mAnimationBackend);
+
+    mExecutorService.getScheduledQueue().runNextPendingCommand();
+
+    verify(mBitmapFrameCache).contains(1);
+    verifyNoMoreInteractions(mBitmapFrameCache);
+    verifyZeroInteractions(mPlatformBitmapFactory, mBitmapFrameRenderer);
+  }
+
+  @Test
+  public void testCancelPendingFrames_whenFrameScheduledAgain_thenPrepareFrame() {
+    when(mBitmapFrameCache.getBitmapToReuseForFrame(
+            1, BACKEND_INTRINSIC_WIDTH, BACKEND_INTRINSIC_HEIGHT))
+        .thenReturn(mBitmapReference);
+    when(mBitmapFrameRenderer.renderFrame(1, mBitmap)).thenReturn(true);
+
+    mDefaultBitmapFramePreparer.prepareFrame(mBitmapFrameCache, mAnimationBackend, 1);
+    mDefaultBitmapFramePreparer.cancelPendingFrames(mAnimationBackend);
+    mDefaultBitmapFramePreparer.prepareFrame(mBitmapFrameCache, mAnimationBackend, 1);
+
+    // Run the cancelled job first, then the new one
+    mExecutorService.getScheduledQueue().runNextPendingCommand();
+    mExecutorService.getScheduledQueue().runNextPendingCommand();
+
+    verify(mBitmapFrameRenderer).renderFrame(1, mBitmap);
+    verify(mBitmapFrameCache)
+        .onFramePrepared(1, mBitmapReference, BitmapAnimationBackend.FRAME_TYPE_REUSED);
+  }
 }
@@ -95,6 +95,17 @@ public class FixedNumberBitmapFramePreparationStrategyTest {
     verifyPrepareCalledForFramesInOrder(1, 2);
   }
 
+  @Test
+  public void testPrepareFrames_SkipsFramesWithoutDuration() throws Exception {
+    // Every second frame is skipped, e.g. because of a frame rate limit
+    for (int i = 0; i < FRAME_COUNT; i++) {
+      when(mAnimationBackend.getFrameDurationMs(i)).thenReturn(i % 2 == 0 ? 100 : 0);
+    }
+    mBitmapFramePreparationStrategy.prepareFrames(
+        mBitmapFramePreparer, mBitmapFrameCache, mAnimationBackend, 6);
+    verifyPrepareCalledForFramesInOrder(8, 0, 2);
+  }
+
   private void verifyPrepareCalledForFramesInOrder(int... frameNumbers) {
     InOrder inOrderBitmapFramePreparer = inOrder(mBitmapFramePreparer);
     for (int frameNumber : frameNumbers) {
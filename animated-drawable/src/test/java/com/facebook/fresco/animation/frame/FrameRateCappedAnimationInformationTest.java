@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.animation.frame;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import com.facebook.fresco.animation.backend.AnimationInformation;
+import org.junit.Test;
+
+/** Tests {@link FrameRateCappedAnimationInformation}. */
+public class FrameRateCappedAnimationInformationTest {
+
+  @Test
+  public void testFrameRateBelowLimit_thenKeepAllFrames() {
+    FrameRateCappedAnimationInformation animationInformation =
+        new FrameRateCappedAnimationInformation(new FixedDurationAnimationInformation(5, 100), 30);
+
+    assertThat(animationInformation.getFrameCount()).isEqualTo(5);
+    for (int i = 0; i < 5; i++) {
+      assertThat(animationInformation.getFrameDurationMs(i)).isEqualTo(100);
+    }
+  }
+
+  @Test
+  public void testFrameRateAboveLimit_thenSkipFrames() {
+    // 50 fps capped at 20 fps: every second and third frame is skipped
+    FrameRateCappedAnimationInformation animationInformation =
+        new FrameRateCappedAnimationInformation(new FixedDurationAnimationInformation(6, 20), 20);
+
+    assertThat(animationInformation.getFrameCount()).isEqualTo(6);
+    assertThat(animationInformation.getFrameDurationMs(0)).isEqualTo(60);
+    assertThat(animationInformation.getFrameDurationMs(1)).isEqualTo(0);
+    assertThat(animationInformation.getFrameDurationMs(2)).isEqualTo(0);
+    assertThat(animationInformation.getFrameDurationMs(3)).isEqualTo(60);
+    assertThat(animationInformation.getFrameDurationMs(4)).isEqualTo(0);
+    assertThat(animationInformation.getFrameDurationMs(5)).isEqualTo(0);
+  }
+
+  @Test
+  public void testLoopDurationAndLoopCountUnchanged() {
+    FixedDurationAnimationInformation original = new FixedDurationAnimationInformation(60, 17);
+    FrameRateCappedAnimationInformation animationInformation =
+        new FrameRateCappedAnimationInformation(original, 30);
+
+    long loopDurationMs = 0;
+    int displayedFrames = 0;
+    for (int i = 0; i < animationInformation.getFrameCount(); i++) {
+      loopDurationMs += animationInformation.getFrameDurationMs(i);
+      if (animationInformation.getFrameDurationMs(i) > 0) {
+        displayedFrames++;
+      }
+    }
+    assertThat(loopDurationMs).isEqualTo(60 * 17);
+    assertThat(displayedFrames).isEqualTo(30);
+    assertThat(animationInformation.getLoopCount()).isEqualTo(original.getLoopCount());
+  }
+
+  @Test
+  public void testFrameRateAboveLimitWithUnevenFrameDurations_thenKeepLimit() {
+    // 62.5 fps capped at 30 fps: skipping every other frame would still be above the limit, always
+    // skipping two frames would give about 20 fps
+    FrameRateCappedAnimationInformation animationInformation =
+        new FrameRateCappedAnimationInformation(new FixedDurationAnimationInformation(60, 16), 30);
+
+    int displayedFrames = 0;
+    int lastDisplayedFrame = 0;
+    for (int i = 0; i < animationInformation.getFrameCount(); i++) {
+      if (animationInformation.getFrameDurationMs(i) > 0) {
+        displayedFrames++;
+        assertThat(i - lastDisplayedFrame).isLessThanOrEqualTo(3);
+        lastDisplayedFrame = i;
+      }
+    }
+    // The loop takes 960 ms, 28.8 frames at 30 fps
+    assertThat(displayedFrames).isEqualTo(28);
+  }
+
+  @Test
+  public void testSchedulerDoesNotSelectSkippedFrames() {
+    DropFramesFrameScheduler frameScheduler =
+        new DropFramesFrameScheduler(
+            new FrameRateCappedAnimationInformation(
+                new FixedDurationAnimationInformation(6, 20), 20));
+
+    assertThat(frameScheduler.getLoopDurationMs()).isEqualTo(120);
+    assertThat(frameScheduler.getFrameNumberToRender(0, -1)).isEqualTo(0);
+    assertThat(frameScheduler.getFrameNumberToRender(25, -1)).isEqualTo(0);
+    assertThat(frameScheduler.getFrameNumberToRender(59, -1)).isEqualTo(0);
+    assertThat(frameScheduler.getFrameNumberToRender(60, -1)).isEqualTo(3);
+    assertThat(frameScheduler.getFrameNumberToRender(119, -1)).isEqualTo(3);
+    assertThat(frameScheduler.getTargetRenderTimeForNextFrameMs(0)).isEqualTo(60);
+    assertThat(frameScheduler.getTargetRenderTimeForNextFrameMs(60)).isEqualTo(120);
+  }
+
+  private static class FixedDurationAnimationInformation implements AnimationInformation {
+
+    private final int mFrameCount;
+    private final int mFrameDurationMs;
+
+    private FixedDurationAnimationInformation(int frameCount, int frameDurationMs) {
+      mFrameCount = frameCount;
+      mFrameDurationMs = frameDurationMs;
+    }
+
+    @Override
+    public int getFrameCount() {
+      return mFrameCount;
+    }
+
+    @Override
+    public int getFrameDurationMs(int frameNumber) {
+      return mFrameDurationMs;
+    }
+
+    @Override
+    public int getLoopCount() {
+      return LOOP_COUNT_INFINITE;
+    }
+  }
+}
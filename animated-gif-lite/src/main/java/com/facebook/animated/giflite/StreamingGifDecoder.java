@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.animated.giflite;
+
+import com.facebook.animated.giflite.decoder.GifFrameDecoder;
+import com.facebook.animated.giflite.decoder.GifImageIndex;
+import com.facebook.animated.giflite.draw.StreamingGifAnimatedImage;
+import com.facebook.common.internal.ByteStreams;
+import com.facebook.common.internal.Closeables;
+import com.facebook.imagepipeline.animated.base.AnimatedImageResult;
+import com.facebook.imagepipeline.common.ImageDecodeOptions;
+import com.facebook.imagepipeline.decoder.ImageDecoder;
+import com.facebook.imagepipeline.image.CloseableAnimatedImage;
+import com.facebook.imagepipeline.image.CloseableImage;
+import com.facebook.imagepipeline.image.EncodedImage;
+import com.facebook.imagepipeline.image.QualityInfo;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Gif decoder that uses a pure Java LZW decoder instead of Android's {@link
+ * android.graphics.Movie}.
+ *
+ * <p>Decoding only indexes the frames, the pixels of each frame are decoded on demand when the
+ * animation backend renders the frame, so frames can be decoded on any thread and in any order.
+ */
+public class StreamingGifDecoder implements ImageDecoder {
+
+  @Override
+  public CloseableImage decode(
+      final EncodedImage encodedImage,
+      int length,
+      QualityInfo qualityInfo,
+      ImageDecodeOptions options) {
+    InputStream is = encodedImage.getInputStream();
+    try {
+      byte[] data = ByteStreams.toByteArray(is);
+      GifImageIndex imageIndex = GifImageIndex.parse(data, data.length);
+      return new CloseableAnimatedImage(
+          AnimatedImageResult.forAnimatedImage(
+              new StreamingGifAnimatedImage(new GifFrameDecoder(data, imageIndex), data.length)),
+          false);
+    } catch (IOException e) {
+      throw new RuntimeException("Error while decoding gif", e);
+    } finally {
+      Closeables.closeQuietly(is);
+    }
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.animated.giflite.decoder;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Pure Java LZW decoder for single GIF frames.
+ *
+ * <p>Frames are decoded independently of each other, directly from the offsets stored in the {@link
+ * GifImageIndex}. The decoded pixels only cover the frame rectangle, pixels that are transparent or
+ * missing in the encoded data are left fully transparent. Composing frames onto the canvas and
+ * applying the disposal methods is left to the caller.
+ *
+ * <p>The LZW tables and the index buffer are allocated once and reused for every frame.
+ */
+@ThreadSafe
+public class GifFrameDecoder {
+
+  private static final int MAX_STACK_SIZE = 4096;
+
+  private final byte[] mData;
+  private final GifImageIndex mImageIndex;
+
+  private final short[] mPrefix = new short[MAX_STACK_SIZE];
+  private final byte[] mSuffix = new byte[MAX_STACK_SIZE];
+  private final byte[] mPixelStack = new byte[MAX_STACK_SIZE + 1];
+  private byte[] mIndices = new byte[0];
+
+  public GifFrameDecoder(byte[] data, GifImageIndex imageIndex) {
+    mData = data;
+    mImageIndex = imageIndex;
+  }
+
+  public GifImageIndex getImageIndex() {
+    return mImageIndex;
+  }
+
+  /**
+   * Decode the given frame.
+   *
+   * @param frameNumber the frame to decode
+   * @param pixels output array for the ARGB pixels of the frame, at least width * height of the
+   *     frame, row stride is the frame width
+   */
+  public synchronized void decodeFrame(int frameNumber, int[] pixels) {
+    GifFrameDescriptor frame = mImageIndex.getFrame(frameNumber);
+    int width = frame.getWidth();
+    int height = frame.getHeight();
+    int pixelCount = width * height;
+    if (mIndices.length < pixelCount) {
+      mIndices = new byte[pixelCount];
+    }
+    int decodedCount = decodeIndices(frame.getImageDataOffset(), pixelCount, mIndices);
+
+    int[] colorTable = frame.getLocalColorTable();
+    if (colorTable == null) {
+      colorTable = mImageIndex.getGlobalColorTable();
+    }
+    int transparentIndex = frame.getTransparentIndex();
+    for (int i = 0; i < height; i++) {
+      int row = frame.isInterlaced() ? getInterlacedRow(i, height) : i;
+      int sourceStart = i * width;
+      int destStart = row * width;
+      for (int x = 0; x < width; x++) {
+        int source = sourceStart + x;
+        int index = mIndices[source] & 0xFF;
+        pixels[destStart + x] =
+            source >= decodedCount || index == transparentIndex || colorTable == null
+                ? 0
+                : colorTable[index];
+      }
+    }
+  }
+
+  /** Maps the n-th row in the encoded data to the actual row of an interlaced image. */
+  private static int getInterlacedRow(int encodedRow, int height) {
+    // Pass 1: every 8th row starting at 0
+    int pass1Rows = (height + 7) / 8;
+    if (encodedRow < pass1Rows) {
+      return encodedRow * 8;
+    }
+    encodedRow -= pass1Rows;
+    // Pass 2: every 8th row starting at 4
+    int pass2Rows = (height + 3) / 8;
+    if (encodedRow < pass2Rows) {
+      return encodedRow * 8 + 4;
+    }
+    encodedRow -= pass2Rows;
+    // Pass 3: every 4th row starting at 2
+    int pass3Rows = (height + 1) / 4;
+    if (encodedRow < pass3Rows) {
+      return encodedRow * 4 + 2;
+    }
+    encodedRow -= pass3Rows;
+    // Pass 4: every 2nd row starting at 1
+    return encodedRow * 2 + 1;
+  }
+
+  /**
+   * Decodes the LZW data starting at the given offset into color table indices.
+   *
+   * @return the number of indices that could be decoded
+   */
+  private int decodeIndices(int offset, int pixelCount, byte[] indices) {
+    int position = offset;
+    int dataSize = mData[position++] & 0xFF;
+    if (dataSize > 11) {
+      // Invalid minimum code size
+      return 0;
+    }
+    int clear = 1 << dataSize;
+    int endOfInformation = clear + 1;
+    int available = clear + 2;
+    int oldCode = -1;
+    int codeSize = dataSize + 1;
+    int codeMask = (1 << codeSize) - 1;
+    for (int code = 0; code < clear; code++) {
+      mPrefix[code] = 0;
+      mSuffix[code] = (byte) code;
+    }
+
+    int datum = 0;
+    int bits = 0;
+    int blockRemaining = 0;
+    int first = 0;
+    int top = 0;
+    int pixelIndex = 0;
+    while (pixelIndex < pixelCount) {
+      if (top == 0) {
+        if (bits < codeSize) {
+          // Load more bytes from the current sub-block
+          if (blockRemaining == 0) {
+            if (position >= mData.length) {
+              break;
+            }
+            blockRemaining = mData[position++] & 0xFF;
+            if (blockRemaining == 0) {
+              break;
+            }
+          }
+          if (position >= mData.length) {
+            break;
+          }
+          datum |= (mData[position++] & 0xFF) << bits;
+          bits += 8;
+          blockRemaining--;
+          continue;
+        }
+
+        int code = datum & codeMask;
+        datum >>= codeSize;
+        bits -= codeSize;
+
+        if (code == clear) {
+          codeSize = dataSize + 1;
+          codeMask = (1 << codeSize) - 1;
+          available = clear + 2;
+          oldCode = -1;
+          continue;
+        }
+        if (code > available || code == endOfInformation) {
+          break;
+        }
+        if (oldCode == -1) {
+          mPixelStack[top++] = mSuffix[code];
+          oldCode = code;
+          first = code;
+          continue;
+        }
+
+        int inCode = code;
+        if (code == available) {
+          mPixelStack[top++] = (byte) first;
+          code = oldCode;
+        }
+        while (code > clear) {
+          mPixelStack[top++] = mSuffix[code];
+          code = mPrefix[code];
+        }
+        first = mSuffix[code] & 0xFF;
+        mPixelStack[top++] = (byte) first;
+
+        if (available < MAX_STACK_SIZE) {
+          mPrefix[available] = (short) oldCode;
+          mSuffix[available] = (byte) first;
+          available++;
+          if ((available & codeMask) == 0 && available < MAX_STACK_SIZE) {
+            codeSize++;
+            codeMask += available;
+          }
+        }
+        oldCode = inCode;
+      }
+
+      top--;
+      indices[pixelIndex++] = mPixelStack[top];
+    }
+    return pixelIndex;
+  }
+}
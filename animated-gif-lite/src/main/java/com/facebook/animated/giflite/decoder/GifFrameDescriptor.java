@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.animated.giflite.decoder;
+
+import javax.annotation.Nullable;
+
+/**
+ * Describes a single frame of a GIF image: its position on the canvas, its control parameters and
+ * the offset of its LZW-compressed pixel data in the encoded image.
+ */
+public class GifFrameDescriptor {
+
+  public static final int NO_TRANSPARENT_INDEX = -1;
+
+  // Disposal methods as encoded in the graphics control extension
+  public static final int DISPOSAL_UNSPECIFIED = 0;
+  public static final int DISPOSAL_DO_NOT = 1;
+  public static final int DISPOSAL_RESTORE_TO_BACKGROUND = 2;
+  public static final int DISPOSAL_RESTORE_TO_PREVIOUS = 3;
+
+  private final int mXOffset;
+  private final int mYOffset;
+  private final int mWidth;
+  private final int mHeight;
+  private final boolean mInterlaced;
+  private final int mDisposal;
+  private final int mDurationMs;
+  private final int mTransparentIndex;
+  @Nullable private final int[] mLocalColorTable;
+  private final int mImageDataOffset;
+
+  GifFrameDescriptor(
+      int xOffset,
+      int yOffset,
+      int width,
+      int height,
+      boolean interlaced,
+      int disposal,
+      int durationMs,
+      int transparentIndex,
+      @Nullable int[] localColorTable,
+      int imageDataOffset) {
+    mXOffset = xOffset;
+    mYOffset = yOffset;
+    mWidth = width;
+    mHeight = height;
+    mInterlaced = interlaced;
+    mDisposal = disposal;
+    mDurationMs = durationMs;
+    mTransparentIndex = transparentIndex;
+    mLocalColorTable = localColorTable;
+    mImageDataOffset = imageDataOffset;
+  }
+
+  public int getXOffset() {
+    return mXOffset;
+  }
+
+  public int getYOffset() {
+    return mYOffset;
+  }
+
+  public int getWidth() {
+    return mWidth;
+  }
+
+  public int getHeight() {
+    return mHeight;
+  }
+
+  public boolean isInterlaced() {
+    return mInterlaced;
+  }
+
+  public int getDisposal() {
+    return mDisposal;
+  }
+
+  public int getDurationMs() {
+    return mDurationMs;
+  }
+
+  public int getTransparentIndex() {
+    return mTransparentIndex;
+  }
+
+  @Nullable
+  public int[] getLocalColorTable() {
+    return mLocalColorTable;
+  }
+
+  /** @return the offset of the LZW minimum code size byte that starts the image data */
+  public int getImageDataOffset() {
+    return mImageDataOffset;
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.animated.giflite.decoder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Index of a GIF image that is built in a single pass over the encoded data without decoding any
+ * pixels. It holds the global color table, the loop count and a {@link GifFrameDescriptor} with the
+ * image data offset for every frame, so that any frame can be decoded later on without reading the
+ * frames before it.
+ *
+ * <p>Truncated images are supported: all frames that are completely available are indexed.
+ */
+public class GifImageIndex {
+
+  private static final int DEFAULT_FRAME_DURATION_MS = 100;
+  private static final int EXTENSION_INTRODUCER = 0x21;
+  private static final int IMAGE_SEPARATOR = 0x2C;
+  private static final int TRAILER = 0x3B;
+  private static final int GRAPHICS_CONTROL_LABEL = 0xF9;
+  private static final int APPLICATION_LABEL = 0xFF;
+  private static final String NETSCAPE = "NETSCAPE2.0";
+
+  private final int mWidth;
+  private final int mHeight;
+  @Nullable private final int[] mGlobalColorTable;
+  private final int mLoopCount;
+  private final List<GifFrameDescriptor> mFrames;
+
+  private GifImageIndex(
+      int width,
+      int height,
+      @Nullable int[] globalColorTable,
+      int loopCount,
+      List<GifFrameDescriptor> frames) {
+    mWidth = width;
+    mHeight = height;
+    mGlobalColorTable = globalColorTable;
+    mLoopCount = loopCount;
+    mFrames = frames;
+  }
+
+  public int getWidth() {
+    return mWidth;
+  }
+
+  public int getHeight() {
+    return mHeight;
+  }
+
+  @Nullable
+  public int[] getGlobalColorTable() {
+    return mGlobalColorTable;
+  }
+
+  /** @return the loop count, 0 means infinite. Images without loop extension play once. */
+  public int getLoopCount() {
+    return mLoopCount;
+  }
+
+  public int getFrameCount() {
+    return mFrames.size();
+  }
+
+  public GifFrameDescriptor getFrame(int frameNumber) {
+    return mFrames.get(frameNumber);
+  }
+
+  /**
+   * Index the given GIF image.
+   *
+   * @param data the encoded image
+   * @param length the number of valid bytes in data
+   * @return the index of the image
+   * @throws IOException if the header is invalid or the image does not contain any frame
+   */
+  public static GifImageIndex parse(byte[] data, int length) throws IOException {
+    return new Parser(data, length).parse();
+  }
+
+  private static class Parser {
+
+    private final byte[] mData;
+    private final int mLength;
+    private int mPosition;
+
+    private int mLoopCount = 1;
+    private int mDisposal = GifFrameDescriptor.DISPOSAL_UNSPECIFIED;
+    private int mDurationMs = DEFAULT_FRAME_DURATION_MS;
+    private int mTransparentIndex = GifFrameDescriptor.NO_TRANSPARENT_INDEX;
+
+    Parser(byte[] data, int length) {
+      mData = data;
+      mLength = length;
+    }
+
+    GifImageIndex parse() throws IOException {
+      if (mLength < 13
+          || mData[0] != 'G'
+          || mData[1] != 'I'
+          || mData[2] != 'F'
+          || mData[3] != '8'
+          || (mData[4] != '7' && mData[4] != '9')
+          || mData[5] != 'a') {
+        throw new IOException("Illegal header for gif");
+      }
+      mPosition = 6;
+      int width = readShort();
+      int height = readShort();
+      int fields = readByte();
+      mPosition += 2; // background color index, pixel aspect ratio
+      int[] globalColorTable = null;
+      if ((fields & 0x80) != 0) {
+        globalColorTable = readColorTable(2 << (fields & 7));
+      }
+
+      List<GifFrameDescriptor> frames = new ArrayList<>();
+      try {
+        boolean done = false;
+        while (!done) {
+          int code = readByte();
+          switch (code) {
+            case EXTENSION_INTRODUCER:
+              readExtension();
+              break;
+            case IMAGE_SEPARATOR:
+              frames.add(readImage());
+              break;
+            case TRAILER:
+              done = true;
+              break;
+            default:
+              throw new IOException("Unknown block header [" + Integer.toHexString(code) + "]");
+          }
+        }
+      } catch (IOException e) {
+        // Keep the frames that could be read completely from a truncated or corrupt image
+        if (frames.isEmpty()) {
+          throw e;
+        }
+      }
+      if (frames.isEmpty()) {
+        throw new IOException("Gif does not contain any frame");
+      }
+      return new GifImageIndex(width, height, globalColorTable, mLoopCount, frames);
+    }
+
+    private void readExtension() throws IOException {
+      int label = readByte();
+      switch (label) {
+        case GRAPHICS_CONTROL_LABEL:
+          int blockSize = readByte();
+          int blockEnd = mPosition + blockSize;
+          int fields = readByte();
+          mDisposal = (fields & 0x1C) >> 2;
+          mDurationMs = readShort() * 10;
+          if (mDurationMs == 0) {
+            mDurationMs = DEFAULT_FRAME_DURATION_MS;
+          }
+          int transparentIndex = readByte();
+          mTransparentIndex =
+              (fields & 1) != 0 ? transparentIndex : GifFrameDescriptor.NO_TRANSPARENT_INDEX;
+          mPosition = blockEnd;
+          skipSubBlocks();
+          break;
+        case APPLICATION_LABEL:
+          int applicationBlockSize = readByte();
+          boolean isNetscape = applicationBlockSize == NETSCAPE.length() && matches(NETSCAPE);
+          skip(applicationBlockSize);
+          if (isNetscape) {
+            readNetscapeExtension();
+          } else {
+            skipSubBlocks();
+          }
+          break;
+        default:
+          skipSubBlocks();
+      }
+    }
+
+    private void readNetscapeExtension() throws IOException {
+      int size;
+      while ((size = readByte()) > 0) {
+        int subBlockEnd = mPosition + size;
+        if (size >= 3 && readByte() == 1) {
+          mLoopCount = readShort();
+        }
+        mPosition = subBlockEnd;
+      }
+    }
+
+    private GifFrameDescriptor readImage() throws IOException {
+      int xOffset = readShort();
+      int yOffset = readShort();
+      int width = readShort();
+      int height = readShort();
+      int fields = readByte();
+      int[] localColorTable = null;
+      if ((fields & 0x80) != 0) {
+        localColorTable = readColorTable(2 << (fields & 7));
+      }
+      int imageDataOffset = mPosition;
+      skip(1); // LZW minimum code size
+      skipSubBlocks();
+
+      GifFrameDescriptor frame =
+          new GifFrameDescriptor(
+              xOffset,
+              yOffset,
+              width,
+              height,
+              (fields & 0x40) != 0,
+              mDisposal,
+              mDurationMs,
+              mTransparentIndex,
+              localColorTable,
+              imageDataOffset);
+      // The graphics control extension only applies to the next image
+      mDisposal = GifFrameDescriptor.DISPOSAL_UNSPECIFIED;
+      mDurationMs = DEFAULT_FRAME_DURATION_MS;
+      mTransparentIndex = GifFrameDescriptor.NO_TRANSPARENT_INDEX;
+      return frame;
+    }
+
+    private int[] readColorTable(int numColors) throws IOException {
+      ensureAvailable(3 * numColors);
+      int[] colorTable = new int[256];
+      for (int i = 0; i < numColors; i++) {
+        int r = mData[mPosition++] & 0xFF;
+        int g = mData[mPosition++] & 0xFF;
+        int b = mData[mPosition++] & 0xFF;
+        colorTable[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+      }
+      return colorTable;
+    }
+
+    private void skipSubBlocks() throws IOException {
+      int size;
+      while ((size = readByte()) > 0) {
+        skip(size);
+      }
+    }
+
+    private boolean matches(String identifier) {
+      if (mPosition + identifier.length() > mLength) {
+        return false;
+      }
+      for (int i = 0; i < identifier.length(); i++) {
+        if (mData[mPosition + i] != identifier.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private int readByte() throws IOException {
+      ensureAvailable(1);
+      return mData[mPosition++] & 0xFF;
+    }
+
+    private int readShort() throws IOException {
+      ensureAvailable(2);
+      int value = (mData[mPosition] & 0xFF) | ((mData[mPosition + 1] & 0xFF) << 8);
+      mPosition += 2;
+      return value;
+    }
+
+    private void skip(int count) throws IOException {
+      ensureAvailable(count);
+      mPosition += count;
+    }
+
+    private void ensureAvailable(int count) throws IOException {
+      if (mPosition + count > mLength) {
+        throw new IOException("Unexpected end of gif file");
+      }
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.animated.giflite.draw;
+
+import android.graphics.Bitmap;
+import com.facebook.animated.giflite.decoder.GifFrameDecoder;
+import com.facebook.animated.giflite.decoder.GifFrameDescriptor;
+import com.facebook.animated.giflite.decoder.GifImageIndex;
+import com.facebook.imagepipeline.animated.base.AnimatedDrawableFrameInfo;
+import com.facebook.imagepipeline.animated.base.AnimatedImage;
+import com.facebook.imagepipeline.animated.base.AnimatedImageFrame;
+
+/**
+ * Animated image backed by a {@link GifFrameDecoder}. Only the encoded image and the frame index
+ * are kept in memory, every frame is decoded on demand into the bitmap passed to {@link
+ * StreamingGifFrame#renderFrame(int, int, Bitmap)}. Frames are not composed onto the canvas, this
+ * is done by the animation backend using the {@link AnimatedDrawableFrameInfo} of each frame.
+ */
+public class StreamingGifAnimatedImage implements AnimatedImage {
+
+  private final GifFrameDecoder mFrameDecoder;
+  private final GifImageIndex mImageIndex;
+  private final int mSizeInBytes;
+  private final int mDuration;
+  private final int[] mFrameDurations;
+
+  private int[] mPixels = new int[0];
+  private int[] mScaledPixels = new int[0];
+
+  public StreamingGifAnimatedImage(GifFrameDecoder frameDecoder, int sizeInBytes) {
+    mFrameDecoder = frameDecoder;
+    mImageIndex = frameDecoder.getImageIndex();
+    mSizeInBytes = sizeInBytes;
+    mFrameDurations = new int[mImageIndex.getFrameCount()];
+    int duration = 0;
+    for (int i = 0, N = mFrameDurations.length; i < N; i++) {
+      mFrameDurations[i] = mImageIndex.getFrame(i).getDurationMs();
+      duration += mFrameDurations[i];
+    }
+    mDuration = duration;
+  }
+
+  @Override
+  public void dispose() {}
+
+  @Override
+  public int getWidth() {
+    return mImageIndex.getWidth();
+  }
+
+  @Override
+  public int getHeight() {
+    return mImageIndex.getHeight();
+  }
+
+  @Override
+  public int getFrameCount() {
+    return mImageIndex.getFrameCount();
+  }
+
+  @Override
+  public int getDuration() {
+    return mDuration;
+  }
+
+  @Override
+  public int[] getFrameDurations() {
+    return mFrameDurations;
+  }
+
+  @Override
+  public int getLoopCount() {
+    return mImageIndex.getLoopCount();
+  }
+
+  @Override
+  public AnimatedImageFrame getFrame(int frameNumber) {
+    return new StreamingGifFrame(this, frameNumber, mImageIndex.getFrame(frameNumber));
+  }
+
+  @Override
+  public boolean doesRenderSupportScaling() {
+    return false;
+  }
+
+  @Override
+  public int getSizeInBytes() {
+    return mSizeInBytes;
+  }
+
+  @Override
+  public AnimatedDrawableFrameInfo getFrameInfo(int frameNumber) {
+    GifFrameDescriptor frame = mImageIndex.getFrame(frameNumber);
+    return new AnimatedDrawableFrameInfo(
+        frameNumber,
+        frame.getXOffset(),
+        frame.getYOffset(),
+        frame.getWidth(),
+        frame.getHeight(),
+        AnimatedDrawableFrameInfo.BlendOperation.BLEND_WITH_PREVIOUS,
+        translateFrameDisposal(frame.getDisposal()));
+  }
+
+  synchronized void renderFrame(int frameNumber, int width, int height, Bitmap bitmap) {
+    GifFrameDescriptor frame = mImageIndex.getFrame(frameNumber);
+    int frameWidth = frame.getWidth();
+    int frameHeight = frame.getHeight();
+    if (frameWidth <= 0 || frameHeight <= 0 || width <= 0 || height <= 0) {
+      return;
+    }
+    if (mPixels.length < frameWidth * frameHeight) {
+      mPixels = new int[frameWidth * frameHeight];
+    }
+    mFrameDecoder.decodeFrame(frameNumber, mPixels);
+
+    if (width == frameWidth && height == frameHeight) {
+      bitmap.setPixels(mPixels, 0, frameWidth, 0, 0, frameWidth, frameHeight);
+      return;
+    }
+    // Nearest neighbor scaling, only used when the backend downscales frames to the drawable size
+    if (mScaledPixels.length < width * height) {
+      mScaledPixels = new int[width * height];
+    }
+    for (int y = 0; y < height; y++) {
+      int sourceRowStart = (y * frameHeight / height) * frameWidth;
+      int destRowStart = y * width;
+      for (int x = 0; x < width; x++) {
+        mScaledPixels[destRowStart + x] = mPixels[sourceRowStart + x * frameWidth / width];
+      }
+    }
+    bitmap.setPixels(mScaledPixels, 0, width, 0, 0, width, height);
+  }
+
+  private static AnimatedDrawableFrameInfo.DisposalMethod translateFrameDisposal(int raw) {
+    switch (raw) {
+      case GifFrameDescriptor.DISPOSAL_RESTORE_TO_BACKGROUND:
+        return AnimatedDrawableFrameInfo.DisposalMethod.DISPOSE_TO_BACKGROUND;
+      case GifFrameDescriptor.DISPOSAL_RESTORE_TO_PREVIOUS:
+        return AnimatedDrawableFrameInfo.DisposalMethod.DISPOSE_TO_PREVIOUS;
+      case GifFrameDescriptor.DISPOSAL_DO_NOT:
+        // fallthrough
+      default: // unspecified
+        return AnimatedDrawableFrameInfo.DisposalMethod.DISPOSE_DO_NOT;
+    }
+  }
+}
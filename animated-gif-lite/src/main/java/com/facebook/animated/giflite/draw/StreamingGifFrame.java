@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.animated.giflite.draw;
+
+import android.graphics.Bitmap;
+import com.facebook.animated.giflite.decoder.GifFrameDescriptor;
+import com.facebook.imagepipeline.animated.base.AnimatedImageFrame;
+
+/** A single frame of a {@link StreamingGifAnimatedImage}, decoded when it is rendered. */
+public class StreamingGifFrame implements AnimatedImageFrame {
+
+  private final StreamingGifAnimatedImage mImage;
+  private final int mFrameNumber;
+  private final GifFrameDescriptor mFrameDescriptor;
+
+  StreamingGifFrame(
+      StreamingGifAnimatedImage image, int frameNumber, GifFrameDescriptor frameDescriptor) {
+    mImage = image;
+    mFrameNumber = frameNumber;
+    mFrameDescriptor = frameDescriptor;
+  }
+
+  @Override
+  public void dispose() {}
+
+  @Override
+  public void renderFrame(int width, int height, Bitmap bitmap) {
+    mImage.renderFrame(mFrameNumber, width, height, bitmap);
+  }
+
+  @Override
+  public int getDurationMs() {
+    return mFrameDescriptor.getDurationMs();
+  }
+
+  @Override
+  public int getWidth() {
+    return mFrameDescriptor.getWidth();
+  }
+
+  @Override
+  public int getHeight() {
+    return mFrameDescriptor.getHeight();
+  }
+
+  @Override
+  public int getXOffset() {
+    return mFrameDescriptor.getXOffset();
+  }
+
+  @Override
+  public int getYOffset() {
+    return mFrameDescriptor.getYOffset();
+  }
+}
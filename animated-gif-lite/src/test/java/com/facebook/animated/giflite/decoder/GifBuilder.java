@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.animated.giflite.decoder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds GIF images for tests. {@link #image} writes pixels as literal LZW codes with a clear code
+ * after every second pixel, so the code size never grows and no real compression is needed. {@link
+ * #compressedImage} runs a real LZW encoder without clear codes instead, so the code size grows up
+ * to the maximum and the code table fills up on large images.
+ */
+class GifBuilder {
+
+  private static final int MIN_CODE_SIZE = 2;
+  private static final int CODE_SIZE = MIN_CODE_SIZE + 1;
+  private static final int MAX_CODE_SIZE = 12;
+  private static final int MAX_CODE_COUNT = 1 << MAX_CODE_SIZE;
+  private static final int CLEAR_CODE = 1 << MIN_CODE_SIZE;
+  private static final int END_OF_INFORMATION = CLEAR_CODE + 1;
+
+  private final ByteArrayOutputStream mOutput = new ByteArrayOutputStream();
+  private int mMaxCodeSize;
+  private int mCodeCount;
+
+  /** Writes the header with a global color table of 4 colors, given as 0xRRGGBB. */
+  GifBuilder(int width, int height, int[] colors) {
+    writeAscii("GIF89a");
+    writeShort(width);
+    writeShort(height);
+    mOutput.write(0x80 | (MIN_CODE_SIZE - 1)); // global color table with 4 entries
+    mOutput.write(0); // background color index
+    mOutput.write(0); // pixel aspect ratio
+    for (int i = 0; i < 4; i++) {
+      mOutput.write(colors[i] >> 16);
+      mOutput.write(colors[i] >> 8);
+      mOutput.write(colors[i]);
+    }
+  }
+
+  GifBuilder loop(int loopCount) {
+    mOutput.write(0x21);
+    mOutput.write(0xFF);
+    mOutput.write(11);
+    writeAscii("NETSCAPE2.0");
+    mOutput.write(3);
+    mOutput.write(1);
+    writeShort(loopCount);
+    mOutput.write(0);
+    return this;
+  }
+
+  GifBuilder graphicsControl(int disposal, int delayCs, int transparentIndex) {
+    mOutput.write(0x21);
+    mOutput.write(0xF9);
+    mOutput.write(4);
+    mOutput.write((disposal << 2) | (transparentIndex >= 0 ? 1 : 0));
+    writeShort(delayCs);
+    mOutput.write(Math.max(transparentIndex, 0));
+    mOutput.write(0);
+    return this;
+  }
+
+  /** Writes an image with the given color table indices, rows in the order they are stored. */
+  GifBuilder image(int x, int y, int width, int height, boolean interlaced, int[] indices) {
+    writeImageDescriptor(x, y, width, height, interlaced);
+    CodeWriter codes = new CodeWriter();
+    for (int i = 0; i < indices.length; i++) {
+      if (i % 2 == 0) {
+        codes.write(CLEAR_CODE, CODE_SIZE);
+      }
+      codes.write(indices[i], CODE_SIZE);
+    }
+    codes.write(END_OF_INFORMATION, CODE_SIZE);
+    writeImageData(codes.toByteArray());
+    return this;
+  }
+
+  /**
+   * Writes an image like {@link #image}, compressed with LZW. Only the first code is a clear code,
+   * once the table is full the encoder keeps using it.
+   */
+  GifBuilder compressedImage(
+      int x, int y, int width, int height, boolean interlaced, int[] indices) {
+    writeImageDescriptor(x, y, width, height, interlaced);
+    CodeWriter codes = new CodeWriter();
+    int codeSize = CODE_SIZE;
+    codes.write(CLEAR_CODE, codeSize);
+    Map<Integer, Integer> table = new HashMap<>();
+    int nextCode = END_OF_INFORMATION + 1;
+    int prefix = indices[0];
+    for (int i = 1; i < indices.length; i++) {
+      int key = (prefix << 8) | indices[i];
+      Integer code = table.get(key);
+      if (code != null) {
+        prefix = code;
+        continue;
+      }
+      codes.write(prefix, codeSize);
+      codeSize = nextCodeSize(codeSize, nextCode);
+      if (nextCode < MAX_CODE_COUNT) {
+        table.put(key, nextCode++);
+      }
+      prefix = indices[i];
+    }
+    codes.write(prefix, codeSize);
+    codeSize = nextCodeSize(codeSize, nextCode);
+    codes.write(END_OF_INFORMATION, codeSize);
+    mMaxCodeSize = codeSize;
+    mCodeCount = nextCode;
+    writeImageData(codes.toByteArray());
+    return this;
+  }
+
+  /**
+   * Returns the size of the code after the one just written. The decoder adds the table entry of a
+   * code only once it reads the following code, so it grows the code size when the table holds one
+   * entry less than the encoder's.
+   */
+  private static int nextCodeSize(int codeSize, int nextCode) {
+    return nextCode >= (1 << codeSize) && codeSize < MAX_CODE_SIZE ? codeSize + 1 : codeSize;
+  }
+
+  /** Returns the code size reached by the last {@link #compressedImage}. */
+  int getMaxCodeSize() {
+    return mMaxCodeSize;
+  }
+
+  /** Returns the number of codes in the table after the last {@link #compressedImage}. */
+  int getCodeCount() {
+    return mCodeCount;
+  }
+
+  byte[] build() {
+    mOutput.write(0x3B);
+    return mOutput.toByteArray();
+  }
+
+  private void writeImageDescriptor(int x, int y, int width, int height, boolean interlaced) {
+    mOutput.write(0x2C);
+    writeShort(x);
+    writeShort(y);
+    writeShort(width);
+    writeShort(height);
+    mOutput.write(interlaced ? 0x40 : 0);
+    mOutput.write(MIN_CODE_SIZE);
+  }
+
+  /** Writes the given LZW data in sub-blocks, followed by the block terminator. */
+  private void writeImageData(byte[] data) {
+    for (int offset = 0; offset < data.length; offset += 255) {
+      int size = Math.min(255, data.length - offset);
+      mOutput.write(size);
+      mOutput.write(data, offset, size);
+    }
+    mOutput.write(0);
+  }
+
+  private void writeShort(int value) {
+    mOutput.write(value & 0xFF);
+    mOutput.write((value >> 8) & 0xFF);
+  }
+
+  private void writeAscii(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      mOutput.write(value.charAt(i));
+    }
+  }
+
+  /** Packs variable-size codes into bytes, least significant bit first. */
+  private static class CodeWriter {
+
+    private final ByteArrayOutputStream mCodes = new ByteArrayOutputStream();
+    private int mDatum;
+    private int mBits;
+
+    void write(int code, int codeSize) {
+      mDatum |= code << mBits;
+      mBits += codeSize;
+      while (mBits >= 8) {
+        mCodes.write(mDatum & 0xFF);
+        mDatum >>= 8;
+        mBits -= 8;
+      }
+    }
+
+    byte[] toByteArray() {
+      if (mBits > 0) {
+        mCodes.write(mDatum & 0xFF);
+        mDatum = 0;
+        mBits = 0;
+      }
+      return mCodes.toByteArray();
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.animated.giflite.decoder;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Test;
+
+/** Tests {@link GifFrameDecoder}. */
+public class GifFrameDecoderTest {
+
+  private static final int[] COLORS = {0xFF0000, 0x00FF00, 0x0000FF, 0xFFFFFF};
+  private static final int RED = 0xFFFF0000;
+  private static final int GREEN = 0xFF00FF00;
+  private static final int BLUE = 0xFF0000FF;
+  private static final int WHITE = 0xFFFFFFFF;
+  private static final int TRANSPARENT = 0;
+
+  @Test
+  public void testDecodeFrame() throws IOException {
+    GifFrameDecoder decoder =
+        createDecoder(
+            new GifBuilder(3, 2, COLORS)
+                .image(0, 0, 3, 2, false, new int[] {0, 1, 2, 3, 2, 1})
+                .build());
+
+    int[] pixels = new int[6];
+    decoder.decodeFrame(0, pixels);
+
+    assertThat(pixels).isEqualTo(new int[] {RED, GREEN, BLUE, WHITE, BLUE, GREEN});
+  }
+
+  @Test
+  public void testDecodeFrame_RandomAccess() throws IOException {
+    GifFrameDecoder decoder =
+        createDecoder(
+            new GifBuilder(2, 1, COLORS)
+                .image(0, 0, 2, 1, false, new int[] {0, 0})
+                .image(0, 0, 2, 1, false, new int[] {1, 1})
+                .image(0, 0, 1, 1, false, new int[] {2})
+                .build());
+
+    int[] pixels = new int[2];
+    decoder.decodeFrame(2, pixels);
+    assertThat(pixels[0]).isEqualTo(BLUE);
+    decoder.decodeFrame(0, pixels);
+    assertThat(pixels).isEqualTo(new int[] {RED, RED});
+    decoder.decodeFrame(1, pixels);
+    assertThat(pixels).isEqualTo(new int[] {GREEN, GREEN});
+  }
+
+  @Test
+  public void testDecodeFrame_TransparentIndex() throws IOException {
+    GifFrameDecoder decoder =
+        createDecoder(
+            new GifBuilder(2, 2, COLORS)
+                .graphicsControl(GifFrameDescriptor.DISPOSAL_DO_NOT, 10, 3)
+                .image(0, 0, 2, 2, false, new int[] {3, 0, 0, 3})
+                .build());
+
+    int[] pixels = new int[4];
+    decoder.decodeFrame(0, pixels);
+
+    assertThat(pixels).isEqualTo(new int[] {TRANSPARENT, RED, RED, TRANSPARENT});
+  }
+
+  @Test
+  public void testDecodeFrame_Interlaced() throws IOException {
+    // Rows are stored in the order 0, 4, 2, 1, 3 for an image with 5 rows
+    GifFrameDecoder decoder =
+        createDecoder(
+            new GifBuilder(1, 5, COLORS)
+                .image(0, 0, 1, 5, true, new int[] {0, 3, 2, 1, 1})
+                .build());
+
+    int[] pixels = new int[5];
+    decoder.decodeFrame(0, pixels);
+
+    assertThat(pixels).isEqualTo(new int[] {RED, GREEN, BLUE, GREEN, WHITE});
+  }
+
+  @Test
+  public void testDecodeFrame_MissingPixelsAreTransparent() throws IOException {
+    byte[] data = new GifBuilder(4, 1, COLORS).image(0, 0, 4, 1, false, new int[] {1, 1}).build();
+    GifFrameDecoder decoder = createDecoder(data);
+
+    int[] pixels = new int[4];
+    decoder.decodeFrame(0, pixels);
+
+    assertThat(pixels).isEqualTo(new int[] {GREEN, GREEN, TRANSPARENT, TRANSPARENT});
+  }
+
+  @Test
+  public void testDecodeFrame_FullCodeTable() throws IOException {
+    // Runs of random length and color, long enough for the table to fill up without clear codes
+    int width = 512;
+    int height = 256;
+    int[] indices = new int[width * height];
+    Random random = new Random(42);
+    for (int i = 0; i < indices.length; ) {
+      int color = random.nextInt(COLORS.length);
+      int runLength = 1 + random.nextInt(24);
+      for (int j = 0; j < runLength && i < indices.length; j++) {
+        indices[i++] = color;
+      }
+    }
+    GifBuilder builder =
+        new GifBuilder(width, height, COLORS).compressedImage(0, 0, width, height, false, indices);
+    assertThat(builder.getMaxCodeSize()).isEqualTo(12);
+    assertThat(builder.getCodeCount()).isEqualTo(4096);
+    GifFrameDecoder decoder = createDecoder(builder.build());
+
+    int[] pixels = new int[indices.length];
+    decoder.decodeFrame(0, pixels);
+
+    int[] expected = new int[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      expected[i] = 0xFF000000 | COLORS[indices[i]];
+    }
+    assertThat(pixels).isEqualTo(expected);
+  }
+
+  private static GifFrameDecoder createDecoder(byte[] data) throws IOException {
+    return new GifFrameDecoder(data, GifImageIndex.parse(data, data.length));
+  }
+}
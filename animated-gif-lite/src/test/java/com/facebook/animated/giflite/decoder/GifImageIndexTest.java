@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.animated.giflite.decoder;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Test;
+
+/** Tests {@link GifImageIndex}. */
+public class GifImageIndexTest {
+
+  private static final int[] COLORS = {0xFF0000, 0x00FF00, 0x0000FF, 0xFFFFFF};
+
+  @Test
+  public void testParse_ImageProperties() throws IOException {
+    byte[] data =
+        new GifBuilder(3, 2, COLORS).loop(0).image(0, 0, 3, 2, false, new int[6]).build();
+
+    GifImageIndex index = GifImageIndex.parse(data, data.length);
+
+    assertThat(index.getWidth()).isEqualTo(3);
+    assertThat(index.getHeight()).isEqualTo(2);
+    assertThat(index.getLoopCount()).isEqualTo(0);
+    assertThat(index.getFrameCount()).isEqualTo(1);
+    assertThat(index.getGlobalColorTable()[1]).isEqualTo(0xFF00FF00);
+  }
+
+  @Test
+  public void testParse_NoLoopExtensionPlaysOnce() throws IOException {
+    byte[] data = new GifBuilder(1, 1, COLORS).image(0, 0, 1, 1, false, new int[1]).build();
+
+    assertThat(GifImageIndex.parse(data, data.length).getLoopCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testParse_FrameDescriptors() throws IOException {
+    byte[] data =
+        new GifBuilder(4, 4, COLORS)
+            .loop(3)
+            .graphicsControl(GifFrameDescriptor.DISPOSAL_RESTORE_TO_BACKGROUND, 5, 2)
+            .image(0, 0, 4, 4, false, new int[16])
+            .graphicsControl(GifFrameDescriptor.DISPOSAL_RESTORE_TO_PREVIOUS, 0, -1)
+            .image(1, 2, 2, 1, true, new int[2])
+            .image(0, 0, 1, 1, false, new int[1])
+            .build();
+
+    GifImageIndex index = GifImageIndex.parse(data, data.length);
+
+    assertThat(index.getLoopCount()).isEqualTo(3);
+    assertThat(index.getFrameCount()).isEqualTo(3);
+
+    GifFrameDescriptor first = index.getFrame(0);
+    assertThat(first.getDisposal()).isEqualTo(GifFrameDescriptor.DISPOSAL_RESTORE_TO_BACKGROUND);
+    assertThat(first.getDurationMs()).isEqualTo(50);
+    assertThat(first.getTransparentIndex()).isEqualTo(2);
+    assertThat(first.isInterlaced()).isFalse();
+
+    GifFrameDescriptor second = index.getFrame(1);
+    assertThat(second.getXOffset()).isEqualTo(1);
+    assertThat(second.getYOffset()).isEqualTo(2);
+    assertThat(second.getWidth()).isEqualTo(2);
+    assertThat(second.getHeight()).isEqualTo(1);
+    assertThat(second.isInterlaced()).isTrue();
+    assertThat(second.getDisposal()).isEqualTo(GifFrameDescriptor.DISPOSAL_RESTORE_TO_PREVIOUS);
+    // A delay of 0 falls back to the default frame duration
+    assertThat(second.getDurationMs()).isEqualTo(100);
+    assertThat(second.getTransparentIndex()).isEqualTo(GifFrameDescriptor.NO_TRANSPARENT_INDEX);
+    assertThat(second.getImageDataOffset()).isGreaterThan(first.getImageDataOffset());
+
+    // The graphics control extension only applies to the next frame
+    GifFrameDescriptor third = index.getFrame(2);
+    assertThat(third.getDisposal()).isEqualTo(GifFrameDescriptor.DISPOSAL_UNSPECIFIED);
+    assertThat(third.getDurationMs()).isEqualTo(100);
+  }
+
+  @Test
+  public void testParse_TruncatedImageKeepsCompleteFrames() throws IOException {
+    byte[] data =
+        new GifBuilder(2, 2, COLORS)
+            .image(0, 0, 2, 2, false, new int[4])
+            .image(0, 0, 2, 2, false, new int[4])
+            .build();
+    // Cut off the terminator and the end of the second frame
+    byte[] truncated = Arrays.copyOf(data, data.length - 3);
+
+    assertThat(GifImageIndex.parse(truncated, truncated.length).getFrameCount()).isEqualTo(1);
+  }
+
+  @Test(expected = IOException.class)
+  public void testParse_InvalidHeader() throws IOException {
+    byte[] data = new GifBuilder(1, 1, COLORS).image(0, 0, 1, 1, false, new int[1]).build();
+    data[0] = 'X';
+    GifImageIndex.parse(data, data.length);
+  }
+}
@@ -56,6 +56,8 @@ public class ImagePerfData {
 
   private final @Nullable DimensionsInfo mDimensionsInfo;
 
+  private final @Nullable long[] mStageTimesMs;
+
   public ImagePerfData(
       @Nullable String controllerId,
       @Nullable String requestId,
@@ -83,7 +85,8 @@ public class ImagePerfData {
       long invisibilityEventTime,
       @Nullable String componentTag,
       long imageDrawTimeMs,
-      @Nullable DimensionsInfo dimensionsInfo) {
+      @Nullable DimensionsInfo dimensionsInfo,
+      @Nullable long[] stageTimesMs) {
     mControllerId = controllerId;
     mRequestId = requestId;
     mImageRequest = imageRequest;
@@ -111,6 +114,7 @@ public class ImagePerfData {
     mComponentTag = componentTag;
     mImageDrawTimeMs = imageDrawTimeMs;
     mDimensionsInfo = dimensionsInfo;
+    mStageTimesMs = stageTimesMs;
   }
 
   public long getImageDrawTimeMs() {
@@ -246,6 +250,14 @@ public class ImagePerfData {
     return mDimensionsInfo;
   }
 
+  /**
+   * Returns the time spent in the given stage of the image pipeline, summed over all requests of
+   * the controller, or {@link #UNSET} if the stage did not run.
+   */
+  public long getStageTimeMs(@ImagePerfStage int stage) {
+    return mStageTimesMs == null ? UNSET : mStageTimesMs[stage];
+  }
+
   public String createDebugString() {
     return Objects.toStringHelper(this)
         .add("controller ID", mControllerId)
@@ -273,6 +285,21 @@ public class ImagePerfData {
         .add("invisibility event", mInvisibilityEventTimeMs)
         .add("image draw event", mImageDrawTimeMs)
         .add("dimensions info", mDimensionsInfo)
+        .add("stage times", createStageTimesString())
         .toString();
   }
+
+  private String createStageTimesString() {
+    final StringBuilder builder = new StringBuilder();
+    for (int stage = 0; stage < ImagePerfStage.COUNT; stage++) {
+      final long timeMs = getStageTimeMs(stage);
+      if (timeMs != UNSET) {
+        if (builder.length() > 0) {
+          builder.append(", ");
+        }
+        builder.append(ImagePerfStageUtils.toString(stage)).append('=').append(timeMs);
+      }
+    }
+    return builder.toString();
+  }
 }
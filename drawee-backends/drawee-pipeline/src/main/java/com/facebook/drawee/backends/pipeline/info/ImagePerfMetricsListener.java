@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.drawee.backends.pipeline.info;
+
+import com.facebook.imagepipeline.metrics.PipelineMetrics;
+
+/**
+ * Records the controller timings of {@link ImagePerfData} into {@link PipelineMetrics}: the time
+ * from submitting the controller to setting the intermediate and the final image, or to failing.
+ */
+public class ImagePerfMetricsListener implements ImagePerfDataListener {
+
+  public static final String CONTROLLER_INTERMEDIATE_IMAGE = "controller_intermediate_image";
+  public static final String CONTROLLER_FINAL_IMAGE = "controller_final_image";
+  public static final String CONTROLLER_FAILURE = "controller_failure";
+
+  private final PipelineMetrics mMetrics;
+
+  public ImagePerfMetricsListener(PipelineMetrics metrics) {
+    mMetrics = metrics;
+  }
+
+  @Override
+  public void onImageLoadStatusUpdated(
+      ImagePerfData imagePerfData, @ImageLoadStatus int imageLoadStatus) {
+    switch (imageLoadStatus) {
+      case ImageLoadStatus.INTERMEDIATE_AVAILABLE:
+        record(
+            CONTROLLER_INTERMEDIATE_IMAGE,
+            imagePerfData.getControllerSubmitTimeMs(),
+            imagePerfData.getControllerIntermediateImageSetTimeMs());
+        break;
+      case ImageLoadStatus.SUCCESS:
+        record(
+            CONTROLLER_FINAL_IMAGE,
+            imagePerfData.getControllerSubmitTimeMs(),
+            imagePerfData.getControllerFinalImageSetTimeMs());
+        break;
+      case ImageLoadStatus.ERROR:
+        record(
+            CONTROLLER_FAILURE,
+            imagePerfData.getControllerSubmitTimeMs(),
+            imagePerfData.getControllerFailureTimeMs());
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Override
+  public void onImageVisibilityUpdated(
+      ImagePerfData imagePerfData, @VisibilityState int visibilityState) {}
+
+  private void record(String name, long startTimeMs, long endTimeMs) {
+    if (startTimeMs != ImagePerfData.UNSET && endTimeMs != ImagePerfData.UNSET) {
+      mMetrics.getLatencyHistogram(name).record((endTimeMs - startTimeMs) * 1000);
+    }
+  }
+}
@@ -63,6 +63,9 @@ public class ImagePerfMonitor {
 
   public void setEnabled(boolean enabled) {
     mEnabled = enabled;
+    if (mImagePerfRequestListener != null) {
+      mImagePerfRequestListener.setEnabled(enabled);
+    }
     if (enabled) {
       setupListeners();
       if (mImageOriginListener != null) {
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.drawee.backends.pipeline.info;
+
+import static com.facebook.drawee.backends.pipeline.info.ImagePerfStage.BACKGROUND_QUEUE;
+import static com.facebook.drawee.backends.pipeline.info.ImagePerfStage.DECODE;
+import static com.facebook.drawee.backends.pipeline.info.ImagePerfStage.DECODE_QUEUE;
+import static com.facebook.drawee.backends.pipeline.info.ImagePerfStage.DISK_READ;
+import static com.facebook.drawee.backends.pipeline.info.ImagePerfStage.NETWORK;
+import static com.facebook.drawee.backends.pipeline.info.ImagePerfStage.NETWORK_QUEUE;
+import static com.facebook.drawee.backends.pipeline.info.ImagePerfStage.POSTPROCESS;
+import static com.facebook.drawee.backends.pipeline.info.ImagePerfStage.TRANSCODE;
+import static com.facebook.drawee.backends.pipeline.info.ImagePerfStage.UI_HANDOFF;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+import androidx.annotation.IntDef;
+import java.lang.annotation.Retention;
+
+/** Stages of an image load whose times are reported in {@link ImagePerfData}. */
+@Retention(SOURCE)
+@IntDef({
+  BACKGROUND_QUEUE,
+  DISK_READ,
+  NETWORK_QUEUE,
+  NETWORK,
+  DECODE_QUEUE,
+  DECODE,
+  TRANSCODE,
+  POSTPROCESS,
+  UI_HANDOFF,
+})
+public @interface ImagePerfStage {
+
+  /** Wait for the background executor before the request leaves the calling thread. */
+  int BACKGROUND_QUEUE = 0;
+  /** Disk cache lookup, including the wait for the disk read executor. */
+  int DISK_READ = 1;
+  /** Wait of the network fetch before it was sent. */
+  int NETWORK_QUEUE = 2;
+  int NETWORK = 3;
+  /** Wait for the decode executor. */
+  int DECODE_QUEUE = 4;
+  int DECODE = 5;
+  /** Resizing, rotating and transcoding of the encoded image. */
+  int TRANSCODE = 6;
+  /** Postprocessing and resizing of the decoded image. */
+  int POSTPROCESS = 7;
+  /** From the end of the request to the final image being set on the UI thread. */
+  int UI_HANDOFF = 8;
+
+  int COUNT = 9;
+}
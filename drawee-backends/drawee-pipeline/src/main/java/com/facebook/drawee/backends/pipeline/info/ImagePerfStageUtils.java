@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.drawee.backends.pipeline.info;
+
+import com.facebook.imagepipeline.producers.BitmapResizeProducer;
+import com.facebook.imagepipeline.producers.DecodeProducer;
+import com.facebook.imagepipeline.producers.DiskCacheReadProducer;
+import com.facebook.imagepipeline.producers.NetworkFetchProducer;
+import com.facebook.imagepipeline.producers.PartialDiskCacheProducer;
+import com.facebook.imagepipeline.producers.PostprocessedBitmapDiskCacheProducer;
+import com.facebook.imagepipeline.producers.PostprocessorProducer;
+import com.facebook.imagepipeline.producers.ProgressiveJpegDiskCacheProducer;
+import com.facebook.imagepipeline.producers.ResizeAndRotateProducer;
+import com.facebook.imagepipeline.producers.ThreadHandoffProducer;
+import com.facebook.imagepipeline.producers.WebpTranscodeProducer;
+
+public class ImagePerfStageUtils {
+
+  /** Returned for producers that do not belong to a stage. */
+  public static final int NO_STAGE = -1;
+
+  public static String toString(@ImagePerfStage int stage) {
+    switch (stage) {
+      case ImagePerfStage.BACKGROUND_QUEUE:
+        return "background_queue";
+      case ImagePerfStage.DISK_READ:
+        return "disk_read";
+      case ImagePerfStage.NETWORK_QUEUE:
+        return "network_queue";
+      case ImagePerfStage.NETWORK:
+        return "network";
+      case ImagePerfStage.DECODE_QUEUE:
+        return "decode_queue";
+      case ImagePerfStage.DECODE:
+        return "decode";
+      case ImagePerfStage.TRANSCODE:
+        return "transcode";
+      case ImagePerfStage.POSTPROCESS:
+        return "postprocess";
+      case ImagePerfStage.UI_HANDOFF:
+        return "ui_handoff";
+      default:
+        return "unknown";
+    }
+  }
+
+  /**
+   * Returns the stage whose time is the duration of the given producer, or {@link #NO_STAGE}.
+   *
+   * <p>The queue stages of the network and the decode are not producer durations, they are read
+   * from the extras of those producers.
+   */
+  public static int mapProducerNameToImagePerfStage(final String producerName) {
+    switch (producerName) {
+      case ThreadHandoffProducer.PRODUCER_NAME:
+        return ImagePerfStage.BACKGROUND_QUEUE;
+
+      case DiskCacheReadProducer.PRODUCER_NAME:
+      case PartialDiskCacheProducer.PRODUCER_NAME:
+      case PostprocessedBitmapDiskCacheProducer.PRODUCER_NAME:
+      case ProgressiveJpegDiskCacheProducer.PRODUCER_NAME:
+        return ImagePerfStage.DISK_READ;
+
+      case NetworkFetchProducer.PRODUCER_NAME:
+        return ImagePerfStage.NETWORK;
+
+      case DecodeProducer.PRODUCER_NAME:
+        return ImagePerfStage.DECODE;
+
+      case ResizeAndRotateProducer.PRODUCER_NAME:
+      case WebpTranscodeProducer.PRODUCER_NAME:
+        return ImagePerfStage.TRANSCODE;
+
+      case PostprocessorProducer.NAME:
+      case BitmapResizeProducer.PRODUCER_NAME:
+        return ImagePerfStage.POSTPROCESS;
+
+      default:
+        return NO_STAGE;
+    }
+  }
+
+  private ImagePerfStageUtils() {}
+}
@@ -12,6 +12,7 @@ import static com.facebook.drawee.backends.pipeline.info.ImagePerfData.UNSET;
 import com.facebook.fresco.ui.common.DimensionsInfo;
 import com.facebook.imagepipeline.image.ImageInfo;
 import com.facebook.imagepipeline.request.ImageRequest;
+import java.util.Arrays;
 import javax.annotation.Nullable;
 
 public class ImagePerfState {
@@ -39,6 +40,9 @@ public class ImagePerfState {
   private long mImageRequestStartTimeMs = UNSET;
   private long mImageRequestEndTimeMs = UNSET;
 
+  // Image pipeline stage timings, indexed by ImagePerfStage
+  private final long[] mStageTimesMs = newStageTimes();
+
   // Image pipeline information
   private @ImageOrigin int mImageOrigin = ImageOrigin.UNKNOWN;
   private @Nullable String mUltimateProducerName;
@@ -108,6 +112,12 @@ public class ImagePerfState {
     mInvisibilityEventTimeMs = UNSET;
 
     mImageDrawTimeMs = UNSET;
+
+    resetStageTimes();
+  }
+
+  private synchronized void resetStageTimes() {
+    Arrays.fill(mStageTimesMs, UNSET);
   }
 
   public void setImageLoadStatus(@ImageLoadStatus int imageLoadStatus) {
@@ -172,6 +182,18 @@ public class ImagePerfState {
     mImageRequestEndTimeMs = imageRequestEndTimeMs;
   }
 
+  public long getImageRequestEndTimeMs() {
+    return mImageRequestEndTimeMs;
+  }
+
+  /** Adds to the time of the given stage, which may run more than once, e.g. for each decode. */
+  public synchronized void addStageTimeMs(@ImagePerfStage int stage, long timeMs) {
+    if (timeMs < 0) {
+      return;
+    }
+    mStageTimesMs[stage] = mStageTimesMs[stage] == UNSET ? timeMs : mStageTimesMs[stage] + timeMs;
+  }
+
   public void setVisibilityEventTimeMs(long visibilityEventTimeMs) {
     mVisibilityEventTimeMs = visibilityEventTimeMs;
   }
@@ -248,7 +270,18 @@ public class ImagePerfState {
         mInvisibilityEventTimeMs,
         mComponentTag,
         mImageDrawTimeMs,
-        mDimensionsInfo);
+        mDimensionsInfo,
+        getStageTimesMs());
+  }
+
+  private synchronized long[] getStageTimesMs() {
+    return mStageTimesMs.clone();
+  }
+
+  private static long[] newStageTimes() {
+    final long[] stageTimesMs = new long[ImagePerfStage.COUNT];
+    Arrays.fill(stageTimesMs, UNSET);
+    return stageTimesMs;
   }
 
   public long getImageDrawTimeMs() {
@@ -11,7 +11,9 @@ import android.graphics.drawable.Animatable;
 import com.facebook.common.internal.VisibleForTesting;
 import com.facebook.common.time.MonotonicClock;
 import com.facebook.drawee.backends.pipeline.info.ImageLoadStatus;
+import com.facebook.drawee.backends.pipeline.info.ImagePerfData;
 import com.facebook.drawee.backends.pipeline.info.ImagePerfMonitor;
+import com.facebook.drawee.backends.pipeline.info.ImagePerfStage;
 import com.facebook.drawee.backends.pipeline.info.ImagePerfState;
 import com.facebook.drawee.backends.pipeline.info.VisibilityState;
 import com.facebook.drawee.controller.BaseControllerListener;
@@ -64,6 +66,10 @@ public class ImagePerfControllerListener extends BaseControllerListener<ImageInf
       String id, @Nullable ImageInfo imageInfo, @Nullable Animatable animatable) {
     final long now = mClock.now();
 
+    final long imageRequestEndTimeMs = mImagePerfState.getImageRequestEndTimeMs();
+    if (imageRequestEndTimeMs != ImagePerfData.UNSET) {
+      mImagePerfState.addStageTimeMs(ImagePerfStage.UI_HANDOFF, now - imageRequestEndTimeMs);
+    }
     mImagePerfState.setControllerFinalImageSetTimeMs(now);
     mImagePerfState.setImageRequestEndTimeMs(now);
     mImagePerfState.setControllerId(id);
@@ -8,20 +8,52 @@
 package com.facebook.drawee.backends.pipeline.info.internal;
 
 import com.facebook.common.time.MonotonicClock;
+import com.facebook.drawee.backends.pipeline.info.ImagePerfStage;
+import com.facebook.drawee.backends.pipeline.info.ImagePerfStageUtils;
 import com.facebook.drawee.backends.pipeline.info.ImagePerfState;
 import com.facebook.imagepipeline.listener.BaseRequestListener;
+import com.facebook.imagepipeline.producers.DecodeProducer;
+import com.facebook.imagepipeline.producers.HttpUrlConnectionNetworkFetcher;
+import com.facebook.imagepipeline.producers.JobScheduler;
+import com.facebook.imagepipeline.producers.NetworkFetchProducer;
+import com.facebook.imagepipeline.producers.PriorityNetworkFetcher;
+import com.facebook.imagepipeline.producers.ProducerExtras;
 import com.facebook.imagepipeline.request.ImageRequest;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
 
+/**
+ * Records the request timings into {@link ImagePerfState}, as well as the time spent in each
+ * {@link ImagePerfStage} of the pipeline, from the producer durations and the queue times in their
+ * extras.
+ *
+ * <p>The network queue stage is the time the fetch waited in the queues of the network fetchers
+ * before it was sent, and is not counted in the network stage.
+ */
 public class ImagePerfRequestListener extends BaseRequestListener {
 
+  private static final char KEY_SEPARATOR = '/';
+
   private final MonotonicClock mClock;
   private final ImagePerfState mImagePerfState;
 
+  // Start times of the running producers, keyed by request id and producer name
+  private final Map<String, Long> mProducerStartTimesMs = new ConcurrentHashMap<>();
+
+  private volatile boolean mEnabled = true;
+
   public ImagePerfRequestListener(MonotonicClock monotonicClock, ImagePerfState imagePerfState) {
     mClock = monotonicClock;
     mImagePerfState = imagePerfState;
   }
 
+  /** Stops requiring the extras of the producers while perf monitoring is disabled. */
+  public void setEnabled(boolean enabled) {
+    mEnabled = enabled;
+  }
+
   @Override
   public void onRequestStart(
       ImageRequest request, Object callerContext, String requestId, boolean isPrefetch) {
@@ -40,6 +72,7 @@ public class ImagePerfRequestListener extends BaseRequestListener {
     mImagePerfState.setImageRequest(request);
     mImagePerfState.setRequestId(requestId);
     mImagePerfState.setPrefetch(isPrefetch);
+    clearProducerStartTimes(requestId);
   }
 
   @Override
@@ -50,6 +83,7 @@ public class ImagePerfRequestListener extends BaseRequestListener {
     mImagePerfState.setImageRequest(request);
     mImagePerfState.setRequestId(requestId);
     mImagePerfState.setPrefetch(isPrefetch);
+    clearProducerStartTimes(requestId);
   }
 
   @Override
@@ -57,5 +91,115 @@ public class ImagePerfRequestListener extends BaseRequestListener {
     mImagePerfState.setImageRequestEndTimeMs(mClock.now());
 
     mImagePerfState.setRequestId(requestId);
+    clearProducerStartTimes(requestId);
+  }
+
+  @Override
+  public void onProducerStart(String requestId, String producerName) {
+    if (ImagePerfStageUtils.mapProducerNameToImagePerfStage(producerName)
+        != ImagePerfStageUtils.NO_STAGE) {
+      mProducerStartTimesMs.put(getKey(requestId, producerName), mClock.now());
+    }
+  }
+
+  @Override
+  public void onProducerFinishWithSuccess(
+      String requestId, String producerName, @Nullable Map<String, String> extraMap) {
+    onProducerFinish(requestId, producerName, extraMap);
+  }
+
+  @Override
+  public void onProducerFinishWithFailure(
+      String requestId, String producerName, Throwable t, @Nullable Map<String, String> extraMap) {
+    onProducerFinish(requestId, producerName, extraMap);
+  }
+
+  @Override
+  public void onProducerFinishWithCancellation(
+      String requestId, String producerName, @Nullable Map<String, String> extraMap) {
+    onProducerFinish(requestId, producerName, extraMap);
+  }
+
+  @Override
+  public boolean requiresExtraMap(String requestId) {
+    // Only the extras of the network fetch and the decode are read, for their queue times. The
+    // extras are created right before the producer finishes, so while it is still running.
+    return mEnabled
+        && (isRunning(requestId, NetworkFetchProducer.PRODUCER_NAME)
+            || isRunning(requestId, DecodeProducer.PRODUCER_NAME));
+  }
+
+  private boolean isRunning(String requestId, String producerName) {
+    return mProducerStartTimesMs.containsKey(getKey(requestId, producerName));
+  }
+
+  private void onProducerFinish(
+      String requestId, String producerName, @Nullable Map<String, String> extraMap) {
+    final int stage = ImagePerfStageUtils.mapProducerNameToImagePerfStage(producerName);
+    if (stage == ImagePerfStageUtils.NO_STAGE) {
+      return;
+    }
+    final Long startTimeMs = mProducerStartTimesMs.remove(getKey(requestId, producerName));
+    long queueTimeMs = 0;
+    if (extraMap != null) {
+      switch (producerName) {
+        case NetworkFetchProducer.PRODUCER_NAME:
+          // Both queues are waited in while the network fetch producer runs
+          queueTimeMs =
+              getTimeExtra(extraMap, HttpUrlConnectionNetworkFetcher.EXECUTOR_QUEUE_TIME)
+                  + getTimeExtra(extraMap, PriorityNetworkFetcher.PRIORITY_QUEUE_TIME);
+          if (queueTimeMs > 0) {
+            mImagePerfState.addStageTimeMs(ImagePerfStage.NETWORK_QUEUE, queueTimeMs);
+          }
+          break;
+        case DecodeProducer.PRODUCER_NAME:
+          // The decode producer only starts once its job left the queue
+          mImagePerfState.addStageTimeMs(
+              ImagePerfStage.DECODE_QUEUE, getLongExtra(extraMap, JobScheduler.QUEUE_TIME_KEY));
+          break;
+        default:
+          break;
+      }
+    }
+    if (startTimeMs != null) {
+      mImagePerfState.addStageTimeMs(
+          stage, Math.max(mClock.now() - startTimeMs - queueTimeMs, 0));
+    }
+  }
+
+  private void clearProducerStartTimes(String requestId) {
+    // Not every producer reports that it finished when the request is cancelled
+    final String prefix = requestId + KEY_SEPARATOR;
+    final Iterator<String> keys = mProducerStartTimesMs.keySet().iterator();
+    while (keys.hasNext()) {
+      if (keys.next().startsWith(prefix)) {
+        keys.remove();
+      }
+    }
+  }
+
+  private static String getKey(String requestId, String producerName) {
+    return requestId + KEY_SEPARATOR + producerName;
+  }
+
+  /** Returns the time in the given extra, or 0 if there is none. */
+  private static long getTimeExtra(Map<String, String> extraMap, String key) {
+    return Math.max(getLongExtra(extraMap, key), 0);
+  }
+
+  /** Returns the value of the given extra, or -1 if there is none. */
+  private static long getLongExtra(Map<String, String> extraMap, String key) {
+    if (extraMap instanceof ProducerExtras) {
+      return ((ProducerExtras) extraMap).getLong(key, -1);
+    }
+    final String value = extraMap.get(key);
+    if (value == null) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
   }
 }
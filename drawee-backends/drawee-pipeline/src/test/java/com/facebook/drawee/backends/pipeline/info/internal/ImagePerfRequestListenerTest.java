@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.drawee.backends.pipeline.info.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.facebook.common.internal.ImmutableMap;
+import com.facebook.common.time.MonotonicClock;
+import com.facebook.drawee.backends.pipeline.info.ImagePerfData;
+import com.facebook.drawee.backends.pipeline.info.ImagePerfStage;
+import com.facebook.drawee.backends.pipeline.info.ImagePerfState;
+import com.facebook.imagepipeline.producers.DecodeProducer;
+import com.facebook.imagepipeline.producers.HttpUrlConnectionNetworkFetcher;
+import com.facebook.imagepipeline.producers.JobScheduler;
+import com.facebook.imagepipeline.producers.NetworkFetchProducer;
+import com.facebook.imagepipeline.producers.PostprocessedBitmapDiskCacheProducer;
+import com.facebook.imagepipeline.producers.PriorityNetworkFetcher;
+import com.facebook.imagepipeline.producers.ProducerExtras;
+import com.facebook.imagepipeline.producers.ProgressiveJpegDiskCacheProducer;
+import com.facebook.imagepipeline.producers.ThreadHandoffProducer;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests {@link ImagePerfRequestListener} */
+public class ImagePerfRequestListenerTest {
+
+  private static final String REQUEST_ID = "1";
+
+  private MonotonicClock mMonotonicClock;
+  private ImagePerfState mImagePerfState;
+
+  private ImagePerfRequestListener mListener;
+
+  @Before
+  public void setUp() {
+    mMonotonicClock = mock(MonotonicClock.class);
+    mImagePerfState = new ImagePerfState();
+    mListener = new ImagePerfRequestListener(mMonotonicClock, mImagePerfState);
+  }
+
+  @Test
+  public void testRecordsStageTimes() {
+    runProducer(ThreadHandoffProducer.PRODUCER_NAME, 10, 15, null);
+    runProducer(
+        NetworkFetchProducer.PRODUCER_NAME,
+        20,
+        120,
+        ImmutableMap.of("queue_time", "50", "executor_queue_time", "30", "fetch_time", "70"));
+    runProducer(
+        DecodeProducer.PRODUCER_NAME,
+        130,
+        150,
+        new ProducerExtras(1).putLong(JobScheduler.QUEUE_TIME_KEY, 8));
+    runProducer(DecodeProducer.PRODUCER_NAME, 160, 165, null);
+
+    final ImagePerfData data = mImagePerfState.snapshot();
+    assertEquals(5, data.getStageTimeMs(ImagePerfStage.BACKGROUND_QUEUE));
+    assertEquals(30, data.getStageTimeMs(ImagePerfStage.NETWORK_QUEUE));
+    // The queue time is not counted in the network stage
+    assertEquals(70, data.getStageTimeMs(ImagePerfStage.NETWORK));
+    assertEquals(8, data.getStageTimeMs(ImagePerfStage.DECODE_QUEUE));
+    assertEquals(25, data.getStageTimeMs(ImagePerfStage.DECODE));
+    assertEquals(ImagePerfData.UNSET, data.getStageTimeMs(ImagePerfStage.DISK_READ));
+  }
+
+  @Test
+  public void testAddsPriorityQueueTimeToNetworkQueue() {
+    runProducer(
+        NetworkFetchProducer.PRODUCER_NAME,
+        20,
+        120,
+        ImmutableMap.of(
+            HttpUrlConnectionNetworkFetcher.EXECUTOR_QUEUE_TIME,
+            "30",
+            PriorityNetworkFetcher.PRIORITY_QUEUE_TIME,
+            "12"));
+
+    assertEquals(42, mImagePerfState.snapshot().getStageTimeMs(ImagePerfStage.NETWORK_QUEUE));
+  }
+
+  @Test
+  public void testRecordsDiskReadOfDiskCacheProducers() {
+    runProducer(PostprocessedBitmapDiskCacheProducer.PRODUCER_NAME, 10, 14, null);
+    runProducer(ProgressiveJpegDiskCacheProducer.PRODUCER_NAME, 20, 26, null);
+
+    assertEquals(10, mImagePerfState.snapshot().getStageTimeMs(ImagePerfStage.DISK_READ));
+  }
+
+  @Test
+  public void testIgnoresUnfinishedProducers() {
+    when(mMonotonicClock.now()).thenReturn(10L);
+    mListener.onProducerStart(REQUEST_ID, DecodeProducer.PRODUCER_NAME);
+    mListener.onRequestCancellation(REQUEST_ID);
+    when(mMonotonicClock.now()).thenReturn(20L);
+    mListener.onProducerFinishWithCancellation(REQUEST_ID, DecodeProducer.PRODUCER_NAME, null);
+
+    assertEquals(
+        ImagePerfData.UNSET, mImagePerfState.snapshot().getStageTimeMs(ImagePerfStage.DECODE));
+  }
+
+  @Test
+  public void testRequiresExtrasOfNetworkFetchAndDecodeOnly() {
+    mListener.onProducerStart(REQUEST_ID, ThreadHandoffProducer.PRODUCER_NAME);
+    assertFalse(mListener.requiresExtraMap(REQUEST_ID));
+    mListener.onProducerStart(REQUEST_ID, NetworkFetchProducer.PRODUCER_NAME);
+    assertTrue(mListener.requiresExtraMap(REQUEST_ID));
+    mListener.onProducerFinishWithSuccess(REQUEST_ID, NetworkFetchProducer.PRODUCER_NAME, null);
+    assertFalse(mListener.requiresExtraMap(REQUEST_ID));
+
+    mListener.onProducerStart(REQUEST_ID, DecodeProducer.PRODUCER_NAME);
+    assertTrue(mListener.requiresExtraMap(REQUEST_ID));
+    mListener.setEnabled(false);
+    assertFalse(mListener.requiresExtraMap(REQUEST_ID));
+  }
+
+  @Test
+  public void testResetsStageTimes() {
+    runProducer(DecodeProducer.PRODUCER_NAME, 10, 20, null);
+    mImagePerfState.resetPointsTimestamps();
+
+    assertEquals(
+        ImagePerfData.UNSET, mImagePerfState.snapshot().getStageTimeMs(ImagePerfStage.DECODE));
+  }
+
+  private void runProducer(
+      String producerName, long startTimeMs, long endTimeMs, @Nullable Map<String, String> extras) {
+    when(mMonotonicClock.now()).thenReturn(startTimeMs);
+    mListener.onProducerStart(REQUEST_ID, producerName);
+    when(mMonotonicClock.now()).thenReturn(endTimeMs);
+    mListener.onProducerFinishWithSuccess(REQUEST_ID, producerName, extras);
+  }
+}
@@ -11,6 +11,7 @@ import com.facebook.common.internal.ByteStreams;
 import com.facebook.common.internal.Closeables;
 import com.facebook.common.internal.Preconditions;
 import com.facebook.common.internal.Throwables;
+import com.facebook.common.memory.PooledByteBuffer;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -42,7 +43,22 @@ public class ImageFormatChecker {
     Preconditions.checkNotNull(is);
     final byte[] imageHeaderBytes = new byte[mMaxHeaderLength];
     final int headerSize = readHeaderFromStream(mMaxHeaderLength, is, imageHeaderBytes);
+    return determineImageFormat(imageHeaderBytes, headerSize);
+  }
+
+  /**
+   * Determines the format of the image held by the buffer. Only the header is copied out of the
+   * buffer, no stream is created.
+   */
+  public ImageFormat determineImageFormat(final PooledByteBuffer buffer) {
+    Preconditions.checkNotNull(buffer);
+    final byte[] imageHeaderBytes = new byte[mMaxHeaderLength];
+    final int headerSize =
+        buffer.read(0, imageHeaderBytes, 0, Math.min(mMaxHeaderLength, buffer.size()));
+    return determineImageFormat(imageHeaderBytes, headerSize);
+  }
 
+  private ImageFormat determineImageFormat(final byte[] imageHeaderBytes, final int headerSize) {
     ImageFormat format = mDefaultFormatChecker.determineFormat(imageHeaderBytes, headerSize);
     if (format != null && format != ImageFormat.UNKNOWN) {
       return format;
@@ -125,6 +141,16 @@ public class ImageFormatChecker {
     return getInstance().determineImageFormat(is);
   }
 
+  /**
+   * Uses the first bytes of the buffer to determine the type of the image it contains.
+   *
+   * @param buffer the buffer holding the encoded image
+   * @return ImageFormat matching the content of the buffer or UNKNOWN if no type is suitable
+   */
+  public static ImageFormat getImageFormat(final PooledByteBuffer buffer) {
+    return getInstance().determineImageFormat(buffer);
+  }
+
   /*
    * A variant of getImageFormat that wraps IOException with RuntimeException.
    * This relieves clients of implementing dummy rethrow try-catch block.
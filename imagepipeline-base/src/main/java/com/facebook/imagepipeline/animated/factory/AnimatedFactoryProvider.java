@@ -8,11 +8,15 @@
 package com.facebook.imagepipeline.animated.factory;
 
 import com.facebook.cache.common.CacheKey;
+import com.facebook.common.memory.MemoryTrimmableRegistry;
+import com.facebook.common.memory.NoOpMemoryTrimmableRegistry;
+import com.facebook.common.references.CloseableReference;
 import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
 import com.facebook.imagepipeline.cache.CountingMemoryCache;
 import com.facebook.imagepipeline.core.ExecutorSupplier;
 import com.facebook.imagepipeline.image.CloseableImage;
 import java.lang.reflect.Constructor;
+import javax.annotation.Nullable;
 
 public class AnimatedFactoryProvider {
 
@@ -25,6 +29,28 @@ public class AnimatedFactoryProvider {
       ExecutorSupplier executorSupplier,
       CountingMemoryCache<CacheKey, CloseableImage> backingCache,
       boolean downscaleFrameToDrawableDimensions) {
+    return getAnimatedFactory(
+        platformBitmapFactory,
+        executorSupplier,
+        backingCache,
+        NoOpMemoryTrimmableRegistry.getInstance(),
+        downscaleFrameToDrawableDimensions,
+        false,
+        null);
+  }
+
+  /**
+   * @param leakHandler the leak handler for references to animation frames, typically the one of
+   *     the pipeline's {@code CloseableReferenceFactory}, or null to not report leaks
+   */
+  public static AnimatedFactory getAnimatedFactory(
+      PlatformBitmapFactory platformBitmapFactory,
+      ExecutorSupplier executorSupplier,
+      CountingMemoryCache<CacheKey, CloseableImage> backingCache,
+      MemoryTrimmableRegistry memoryTrimmableRegistry,
+      boolean downscaleFrameToDrawableDimensions,
+      boolean releaseResourcesOnInactive,
+      @Nullable CloseableReference.LeakHandler leakHandler) {
     if (!sImplLoaded) {
       try {
         final Class<?> clazz =
@@ -34,14 +60,20 @@ public class AnimatedFactoryProvider {
                 PlatformBitmapFactory.class,
                 ExecutorSupplier.class,
                 CountingMemoryCache.class,
-                Boolean.TYPE);
+                MemoryTrimmableRegistry.class,
+                Boolean.TYPE,
+                Boolean.TYPE,
+                CloseableReference.LeakHandler.class);
         sImpl =
             (AnimatedFactory)
                 constructor.newInstance(
                     platformBitmapFactory,
                     executorSupplier,
                     backingCache,
-                    downscaleFrameToDrawableDimensions);
+                    memoryTrimmableRegistry,
+                    downscaleFrameToDrawableDimensions,
+                    releaseResourcesOnInactive,
+                    leakHandler);
       } catch (Throwable e) {
         // Head in the sand
       }
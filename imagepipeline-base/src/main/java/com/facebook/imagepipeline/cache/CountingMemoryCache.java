@@ -34,11 +34,24 @@ import javax.annotation.concurrent.ThreadSafe;
  * <p>Only the exclusively owned elements, i.e. the elements not referenced by any client, can be
  * evicted.
  *
+ * <p>If {@link MemoryCacheParams#admissionSketchSize} is set, a TinyLFU admission filter keeps the
+ * approximate frequencies with which keys were recently requested. A new item is always cached
+ * while it is in use. Once its last client releases it, it is evicted right away instead of the
+ * least recently used exclusively owned item if that item was requested more often. Until then, the
+ * new item does not make the cache evict other items. This keeps a scroll through many images that
+ * are shown once from evicting the images that are shown all the time.
+ *
+ * <p>If the segmented LRU is enabled, items cached for a prefetch are probationary until a request
+ * that is not a prefetch gets them. While the probationary items take up more than a fifth of the
+ * limits of the eviction queue, they are evicted first, so that a burst of prefetches only evicts
+ * a small part of the items that were actually used.
+ *
  * @param <K> the key type
  * @param <V> the value type
  */
 @ThreadSafe
-public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimmable {
+public class CountingMemoryCache<K, V>
+    implements PrefetchAwareMemoryCache<K, V>, MemoryTrimmable {
 
   /** Interface used to observe the state changes of an entry. */
   public interface EntryStateObserver<K> {
@@ -62,6 +75,8 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
     // as soon as the last client of an orphaned entry closes their reference, the entry's copy is
     // closed too.
     public boolean isOrphan;
+    // Whether or not this entry was cached for a prefetch and not yet used by any other request.
+    public boolean isProbationary;
     @Nullable public final EntryStateObserver<K> observer;
 
     private Entry(K key, CloseableReference<V> valueRef, @Nullable EntryStateObserver<K> observer) {
@@ -69,6 +84,7 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
       this.valueRef = Preconditions.checkNotNull(CloseableReference.cloneOrNull(valueRef));
       this.clientCount = 0;
       this.isOrphan = false;
+      this.isProbationary = false;
       this.observer = observer;
     }
 
@@ -82,11 +98,26 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
     }
   }
 
+  // Share of the limits of the eviction queue beyond which probationary items are evicted first.
+  private static final double PROBATIONARY_SEGMENT_RATIO = 0.2;
+
   // Contains the items that are not being used by any client and are hence viable for eviction.
   @GuardedBy("this")
   @VisibleForTesting
   final CountingLruMap<K, Entry<K, V>> mExclusiveEntries;
 
+  // Contains the exclusively owned items that are probationary, a subset of mExclusiveEntries.
+  @GuardedBy("this")
+  @VisibleForTesting
+  final CountingLruMap<K, Entry<K, V>> mProbationaryEntries;
+
+  // Contains the items in use that the admission filter still has to decide about once they are
+  // exclusively owned for the first time, a subset of mCachedEntries. Until then they do not make
+  // the cache evict other items, so that the filter can still keep those.
+  @GuardedBy("this")
+  @VisibleForTesting
+  final CountingLruMap<K, Entry<K, V>> mAdmissionPendingEntries;
+
   // Contains all the cached items including the exclusively owned ones.
   @GuardedBy("this")
   @VisibleForTesting
@@ -109,17 +140,42 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
   @GuardedBy("this")
   private long mLastCacheParamsCheck;
 
+  @GuardedBy("this")
+  @Nullable
+  private final FrequencySketch mFrequencySketch;
+
+  private final boolean mSegmentedLruEnabled;
+
   public CountingMemoryCache(
       ValueDescriptor<V> valueDescriptor,
       CacheTrimStrategy cacheTrimStrategy,
       Supplier<MemoryCacheParams> memoryCacheParamsSupplier) {
+    this(valueDescriptor, cacheTrimStrategy, memoryCacheParamsSupplier, false);
+  }
+
+  /**
+   * @param segmentedLruEnabled whether items cached for a prefetch are evicted before the items
+   *     that were used
+   */
+  public CountingMemoryCache(
+      ValueDescriptor<V> valueDescriptor,
+      CacheTrimStrategy cacheTrimStrategy,
+      Supplier<MemoryCacheParams> memoryCacheParamsSupplier,
+      boolean segmentedLruEnabled) {
     mValueDescriptor = valueDescriptor;
     mExclusiveEntries = new CountingLruMap<>(wrapValueDescriptor(valueDescriptor));
+    mProbationaryEntries = new CountingLruMap<>(wrapValueDescriptor(valueDescriptor));
+    mAdmissionPendingEntries = new CountingLruMap<>(wrapValueDescriptor(valueDescriptor));
     mCachedEntries = new CountingLruMap<>(wrapValueDescriptor(valueDescriptor));
     mCacheTrimStrategy = cacheTrimStrategy;
     mMemoryCacheParamsSupplier = memoryCacheParamsSupplier;
     mMemoryCacheParams = mMemoryCacheParamsSupplier.get();
     mLastCacheParamsCheck = SystemClock.uptimeMillis();
+    mFrequencySketch =
+        mMemoryCacheParams.admissionSketchSize > 0
+            ? new FrequencySketch(mMemoryCacheParams.admissionSketchSize)
+            : null;
+    mSegmentedLruEnabled = segmentedLruEnabled;
   }
 
   private ValueDescriptor<Entry<K, V>> wrapValueDescriptor(
@@ -154,6 +210,29 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
    */
   public @Nullable CloseableReference<V> cache(
       final K key, final CloseableReference<V> valueRef, final EntryStateObserver<K> observer) {
+    return cache(key, valueRef, observer, false);
+  }
+
+  /**
+   * Caches the given key-value pair for a prefetch. If the segmented LRU is enabled, the item is
+   * probationary until it is used by a request that is not a prefetch.
+   *
+   * <p>Important: the client should use the returned reference instead of the original one. It is
+   * the caller's responsibility to close the returned reference once not needed anymore.
+   *
+   * @return the new reference to be used, null if the value cannot be cached
+   */
+  @Override
+  public @Nullable CloseableReference<V> cacheForPrefetch(
+      final K key, final CloseableReference<V> valueRef) {
+    return cache(key, valueRef, null, true);
+  }
+
+  private @Nullable CloseableReference<V> cache(
+      final K key,
+      final CloseableReference<V> valueRef,
+      final @Nullable EntryStateObserver<K> observer,
+      final boolean isPrefetch) {
     Preconditions.checkNotNull(key);
     Preconditions.checkNotNull(valueRef);
 
@@ -164,7 +243,8 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
     CloseableReference<V> clientRef = null;
     synchronized (this) {
       // remove the old item (if any) as it is stale now
-      oldExclusive = mExclusiveEntries.remove(key);
+      oldExclusive = removeFromExclusives(key);
+      mAdmissionPendingEntries.remove(key);
       Entry<K, V> oldEntry = mCachedEntries.remove(key);
       if (oldEntry != null) {
         makeOrphan(oldEntry);
@@ -173,7 +253,11 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
 
       if (canCacheNewValue(valueRef.get())) {
         Entry<K, V> newEntry = Entry.of(key, valueRef, observer);
+        newEntry.isProbationary = mSegmentedLruEnabled && isPrefetch;
         mCachedEntries.put(key, newEntry);
+        if (mFrequencySketch != null) {
+          mAdmissionPendingEntries.put(key, newEntry);
+        }
         clientRef = newClientReference(newEntry);
       }
     }
@@ -192,6 +276,35 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
         && (getInUseSizeInBytes() <= mMemoryCacheParams.maxCacheSize - newValueSize);
   }
 
+  /**
+   * Checks whether the admission filter, if enabled, keeps the entry that is about to become
+   * exclusively owned for the first time. It does not if keeping the entry would evict an
+   * exclusively owned item that was requested more often.
+   */
+  private synchronized boolean canAdmit(Entry<K, V> entry) {
+    if (mFrequencySketch == null || mExclusiveEntries.getCount() == 0) {
+      return true;
+    }
+    // The limits of maybeEvictEntries once the entry is not in use anymore, minus the entry itself
+    int entrySize = mValueDescriptor.getSizeInBytes(entry.valueRef.get());
+    int maxCount =
+        Math.min(
+                mMemoryCacheParams.maxEvictionQueueEntries,
+                mMemoryCacheParams.maxCacheEntries - (getAdmittedInUseCount() - 1))
+            - 1;
+    int maxSize =
+        Math.min(
+                mMemoryCacheParams.maxEvictionQueueSize,
+                mMemoryCacheParams.maxCacheSize - (getAdmittedInUseSizeInBytes() - entrySize))
+            - entrySize;
+    if (mExclusiveEntries.getCount() <= maxCount && mExclusiveEntries.getSizeInBytes() <= maxSize) {
+      // Nothing gets evicted
+      return true;
+    }
+    K victimKey = getEvictionCandidate(maxCount, maxSize);
+    return mFrequencySketch.frequency(entry.key) >= mFrequencySketch.frequency(victimKey);
+  }
+
   /**
    * Gets the item with the given key, or null if there is no such item.
    *
@@ -199,13 +312,37 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
    */
   @Nullable
   public CloseableReference<V> get(final K key) {
+    return get(key, false);
+  }
+
+  /**
+   * Gets the item with the given key for a prefetch, or null if there is no such item. Unlike
+   * {@link #get}, this neither makes a probationary item protected nor counts as a request for the
+   * admission filter.
+   *
+   * <p>It is the caller's responsibility to close the returned reference once not needed anymore.
+   */
+  @Override
+  @Nullable
+  public CloseableReference<V> getForPrefetch(final K key) {
+    return get(key, true);
+  }
+
+  @Nullable
+  private CloseableReference<V> get(final K key, final boolean isPrefetch) {
     Preconditions.checkNotNull(key);
     Entry<K, V> oldExclusive;
     CloseableReference<V> clientRef = null;
     synchronized (this) {
-      oldExclusive = mExclusiveEntries.remove(key);
+      if (mFrequencySketch != null && !isPrefetch) {
+        mFrequencySketch.increment(key);
+      }
+      oldExclusive = removeFromExclusives(key);
       Entry<K, V> entry = mCachedEntries.get(key);
       if (entry != null) {
+        if (!isPrefetch) {
+          entry.isProbationary = false;
+        }
         clientRef = newClientReference(entry);
       }
     }
@@ -244,15 +381,33 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
     maybeEvictEntries();
   }
 
-  /** Adds the entry to the exclusively owned queue if it is viable for eviction. */
+  /**
+   * Adds the entry to the exclusively owned queue if it is viable for eviction. An entry that the
+   * admission filter does not keep is made an orphan instead, so that it gets closed.
+   */
   private synchronized boolean maybeAddToExclusives(Entry<K, V> entry) {
     if (!entry.isOrphan && entry.clientCount == 0) {
+      if (mAdmissionPendingEntries.remove(entry.key) != null && !canAdmit(entry)) {
+        mCachedEntries.remove(entry.key);
+        makeOrphan(entry);
+        return false;
+      }
       mExclusiveEntries.put(entry.key, entry);
+      if (entry.isProbationary) {
+        mProbationaryEntries.put(entry.key, entry);
+      }
       return true;
     }
     return false;
   }
 
+  /** Removes the entry with the given key from the exclusively owned items, if it is one. */
+  @Nullable
+  private synchronized Entry<K, V> removeFromExclusives(K key) {
+    mProbationaryEntries.remove(key);
+    return mExclusiveEntries.remove(key);
+  }
+
   /**
    * Gets the value with the given key to be reused, or null if there is no such value.
    *
@@ -265,7 +420,7 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
     boolean removed = false;
     Entry<K, V> oldExclusive = null;
     synchronized (this) {
-      oldExclusive = mExclusiveEntries.remove(key);
+      oldExclusive = removeFromExclusives(key);
       if (oldExclusive != null) {
         Entry<K, V> entry = mCachedEntries.remove(key);
         Preconditions.checkNotNull(entry);
@@ -292,6 +447,8 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
     ArrayList<Entry<K, V>> oldExclusives;
     ArrayList<Entry<K, V>> oldEntries;
     synchronized (this) {
+      mProbationaryEntries.removeAll(predicate);
+      mAdmissionPendingEntries.removeAll(predicate);
       oldExclusives = mExclusiveEntries.removeAll(predicate);
       oldEntries = mCachedEntries.removeAll(predicate);
       makeOrphans(oldEntries);
@@ -308,6 +465,8 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
     ArrayList<Entry<K, V>> oldExclusives;
     ArrayList<Entry<K, V>> oldEntries;
     synchronized (this) {
+      mProbationaryEntries.clear();
+      mAdmissionPendingEntries.clear();
       oldExclusives = mExclusiveEntries.clear();
       oldEntries = mCachedEntries.clear();
       makeOrphans(oldEntries);
@@ -382,11 +541,11 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
       int maxCount =
           Math.min(
               mMemoryCacheParams.maxEvictionQueueEntries,
-              mMemoryCacheParams.maxCacheEntries - getInUseCount());
+              mMemoryCacheParams.maxCacheEntries - getAdmittedInUseCount());
       int maxSize =
           Math.min(
               mMemoryCacheParams.maxEvictionQueueSize,
-              mMemoryCacheParams.maxCacheSize - getInUseSizeInBytes());
+              mMemoryCacheParams.maxCacheSize - getAdmittedInUseSizeInBytes());
       oldEntries = trimExclusivelyOwnedEntries(maxCount, maxSize);
       makeOrphans(oldEntries);
     }
@@ -411,13 +570,28 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
     }
     ArrayList<Entry<K, V>> oldEntries = new ArrayList<>();
     while (mExclusiveEntries.getCount() > count || mExclusiveEntries.getSizeInBytes() > size) {
-      K key = mExclusiveEntries.getFirstKey();
-      mExclusiveEntries.remove(key);
+      K key = getEvictionCandidate(count, size);
+      removeFromExclusives(key);
       oldEntries.add(mCachedEntries.remove(key));
     }
     return oldEntries;
   }
 
+  /**
+   * Returns the key of the exclusively owned item to evict first, given the limits of the eviction
+   * queue. Probationary items are evicted first while they take up more than their share of the
+   * limits, otherwise the least recently used item is.
+   */
+  @Nullable
+  private synchronized K getEvictionCandidate(int count, int size) {
+    if (mProbationaryEntries.getCount() > 0
+        && (mProbationaryEntries.getCount() > count * PROBATIONARY_SEGMENT_RATIO
+            || mProbationaryEntries.getSizeInBytes() > size * PROBATIONARY_SEGMENT_RATIO)) {
+      return mProbationaryEntries.getFirstKey();
+    }
+    return mExclusiveEntries.getFirstKey();
+  }
+
   /**
    * Notifies the client that the cache no longer tracks the given items.
    *
@@ -511,6 +685,16 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
     return mCachedEntries.getSizeInBytes() - mExclusiveEntries.getSizeInBytes();
   }
 
+  /** Gets the number of the items in use, except those not yet admitted. */
+  private synchronized int getAdmittedInUseCount() {
+    return getInUseCount() - mAdmissionPendingEntries.getCount();
+  }
+
+  /** Gets the size in bytes of the items in use, except those not yet admitted. */
+  private synchronized int getAdmittedInUseSizeInBytes() {
+    return getInUseSizeInBytes() - mAdmissionPendingEntries.getSizeInBytes();
+  }
+
   /** Gets the number of the exclusively owned items. */
   public synchronized int getEvictionQueueCount() {
     return mExclusiveEntries.getCount();
@@ -527,6 +711,9 @@ public class CountingMemoryCache<K, V> implements MemoryCache<K, V>, MemoryTrimm
         .add("cached_entries_size_bytes", mCachedEntries.getSizeInBytes())
         .add("exclusive_entries_count", mExclusiveEntries.getCount())
         .add("exclusive_entries_size_bytes", mExclusiveEntries.getSizeInBytes())
+        .add("probationary_entries_count", mProbationaryEntries.getCount())
+        .add("probationary_entries_size_bytes", mProbationaryEntries.getSizeInBytes())
+        .add("admission_pending_entries_count", mAdmissionPendingEntries.getCount())
         .toString();
   }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.cache;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Count-min sketch of the access frequencies of keys, for the TinyLFU admission filter of {@link
+ * CountingMemoryCache}.
+ *
+ * <p>Every key has four 4-bit counters, picked by different hashes of the key, and its frequency
+ * is the smallest of them, so it is at most 15. Collisions only ever make a key look more frequent.
+ * The counters of all keys are halved every time there were ten accesses per tracked key, so that
+ * keys that were popular long ago do not stay hot forever.
+ */
+@NotThreadSafe
+class FrequencySketch {
+
+  private static final int MIN_TABLE_SIZE = 16;
+  private static final int MAX_TABLE_SIZE = 1 << 20;
+  private static final int MAX_COUNT = 15;
+  private static final int SAMPLES_PER_KEY = 10;
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  // 16 counters per long
+  private final long[] mTable;
+  private final int mTableMask;
+  private final int mSampleSize;
+  private int mSize;
+
+  /** @param size the number of keys to track */
+  FrequencySketch(int size) {
+    int tableSize = MIN_TABLE_SIZE;
+    while (tableSize < size && tableSize < MAX_TABLE_SIZE) {
+      tableSize <<= 1;
+    }
+    mTable = new long[tableSize];
+    mTableMask = tableSize - 1;
+    mSampleSize = SAMPLES_PER_KEY * tableSize;
+  }
+
+  /** Returns the estimated number of recent accesses of the key, at most 15. */
+  int frequency(Object key) {
+    final int hash = spread(key.hashCode());
+    final int start = (hash & 3) << 2;
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < 4; i++) {
+      final int counter = (int) ((mTable[indexOf(hash, i)] >>> ((start + i) << 2)) & 0xF);
+      frequency = Math.min(frequency, counter);
+    }
+    return frequency;
+  }
+
+  /** Records an access of the key. */
+  void increment(Object key) {
+    final int hash = spread(key.hashCode());
+    final int start = (hash & 3) << 2;
+    boolean incremented = false;
+    for (int i = 0; i < 4; i++) {
+      incremented |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (incremented && ++mSize == mSampleSize) {
+      reset();
+    }
+  }
+
+  /** Increments the given counter of the given long, unless it is at its maximum. */
+  private boolean incrementAt(int index, int counter) {
+    final int offset = counter << 2;
+    final long mask = 0xFL << offset;
+    if ((mTable[index] & mask) != mask) {
+      mTable[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /** Halves all counters. */
+  private void reset() {
+    for (int i = 0; i < mTable.length; i++) {
+      mTable[i] = (mTable[i] >>> 1) & RESET_MASK;
+    }
+    mSize /= 2;
+  }
+
+  private int indexOf(int hash, int i) {
+    long index = (hash + SEEDS[i]) * SEEDS[i];
+    index += index >>> 32;
+    return ((int) index) & mTableMask;
+  }
+
+  /** Spreads the bits of hash codes that differ in few bits, such as those of similar URIs. */
+  private static int spread(int hash) {
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    return (hash >>> 16) ^ hash;
+  }
+}
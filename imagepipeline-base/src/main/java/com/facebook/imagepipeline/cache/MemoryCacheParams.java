@@ -18,6 +18,7 @@ public class MemoryCacheParams {
   public final int maxEvictionQueueEntries;
   public final int maxCacheEntrySize;
   public final long paramsCheckIntervalMs;
+  public final int admissionSketchSize;
 
   /**
    * Pass arguments to control the cache's behavior in the constructor.
@@ -62,11 +63,46 @@ public class MemoryCacheParams {
       int maxEvictionQueueEntries,
       int maxCacheEntrySize,
       long paramsCheckIntervalMs) {
+    this(
+        maxCacheSize,
+        maxCacheEntries,
+        maxEvictionQueueSize,
+        maxEvictionQueueEntries,
+        maxCacheEntrySize,
+        paramsCheckIntervalMs,
+        0);
+  }
+
+  /**
+   * Pass arguments to control the cache's behavior in the constructor.
+   *
+   * @param maxCacheSize The maximum size of the cache, in bytes.
+   * @param maxCacheEntries The maximum number of items that can live in the cache.
+   * @param maxEvictionQueueSize The eviction queue is an area of memory that stores items ready for
+   *     eviction but have not yet been deleted. This is the maximum size of that queue in bytes.
+   * @param maxEvictionQueueEntries The maximum number of entries in the eviction queue.
+   * @param maxCacheEntrySize The maximum size of a single cache entry.
+   * @param paramsCheckIntervalMs Interval between checking parameters for updated values in ms.
+   * @param admissionSketchSize The number of keys whose access frequencies are kept for the
+   *     TinyLFU admission filter, usually a few times the number of entries that fit into the
+   *     cache. A new item is then dropped once it is not in use anymore if keeping it would evict
+   *     an item that is used more often. 0 disables the filter, so that the least recently used
+   *     items are always evicted first. Only read when the cache is created.
+   */
+  public MemoryCacheParams(
+      int maxCacheSize,
+      int maxCacheEntries,
+      int maxEvictionQueueSize,
+      int maxEvictionQueueEntries,
+      int maxCacheEntrySize,
+      long paramsCheckIntervalMs,
+      int admissionSketchSize) {
     this.maxCacheSize = maxCacheSize;
     this.maxCacheEntries = maxCacheEntries;
     this.maxEvictionQueueSize = maxEvictionQueueSize;
     this.maxEvictionQueueEntries = maxEvictionQueueEntries;
     this.maxCacheEntrySize = maxCacheEntrySize;
     this.paramsCheckIntervalMs = paramsCheckIntervalMs;
+    this.admissionSketchSize = admissionSketchSize;
   }
 }
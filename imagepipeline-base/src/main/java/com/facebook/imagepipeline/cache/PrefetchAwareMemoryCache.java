@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.cache;
+
+import com.facebook.common.references.CloseableReference;
+import javax.annotation.Nullable;
+
+/**
+ * Memory cache that tells lookups and puts of prefetches apart from those of requests for images
+ * that are shown, so that prefetched items can be evicted before the ones that were used.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public interface PrefetchAwareMemoryCache<K, V> extends MemoryCache<K, V> {
+
+  /**
+   * Caches the given key-value pair for a prefetch.
+   *
+   * @see MemoryCache#cache
+   */
+  @Nullable
+  CloseableReference<V> cacheForPrefetch(K key, CloseableReference<V> value);
+
+  /**
+   * Gets the item with the given key for a prefetch, or null if there is no such item. Unlike
+   * {@link #get}, a hit does not mark an item that was cached for a prefetch as used.
+   */
+  @Nullable
+  CloseableReference<V> getForPrefetch(K key);
+}
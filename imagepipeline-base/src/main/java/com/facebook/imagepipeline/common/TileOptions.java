@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.common;
+
+import com.facebook.common.internal.Preconditions;
+import com.facebook.common.util.HashCodeUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Options for tiled decoding.
+ *
+ * <p>Describes a region of the full-size image (in pixels of the unrotated, encoded image) that
+ * should be decoded instead of the whole image, as well as the sample size to decode it with. Each
+ * tile is cached separately in the bitmap memory cache, so a viewer that only requests the tiles
+ * that are visible keeps its memory usage bounded regardless of the size of the image.
+ */
+@Immutable
+public class TileOptions {
+
+  /* left edge of the region (inclusive) */
+  public final int left;
+
+  /* top edge of the region (inclusive) */
+  public final int top;
+
+  /* right edge of the region (exclusive) */
+  public final int right;
+
+  /* bottom edge of the region (exclusive) */
+  public final int bottom;
+
+  /* sample size to decode the region with, a power of two */
+  public final int sampleSize;
+
+  /** @return new TileOptions, if the region and sample size are valid, and null otherwise */
+  public static @Nullable TileOptions forRegion(
+      int left, int top, int right, int bottom, int sampleSize) {
+    if (left < 0 || top < 0 || right <= left || bottom <= top || sampleSize <= 0) {
+      return null;
+    }
+    return new TileOptions(left, top, right, bottom, sampleSize);
+  }
+
+  public TileOptions(int left, int top, int right, int bottom, int sampleSize) {
+    Preconditions.checkArgument(left >= 0 && top >= 0);
+    Preconditions.checkArgument(right > left && bottom > top);
+    Preconditions.checkArgument(sampleSize > 0);
+    this.left = left;
+    this.top = top;
+    this.right = right;
+    this.bottom = bottom;
+    this.sampleSize = sampleSize;
+  }
+
+  public int getWidth() {
+    return right - left;
+  }
+
+  public int getHeight() {
+    return bottom - top;
+  }
+
+  /**
+   * Computes the sample size to decode tiles with when the image is displayed at the given scale.
+   *
+   * @param scale the display scale, 1 meaning one image pixel per screen pixel
+   * @return the largest power of two that does not make the image blurrier than the given scale
+   */
+  public static int computeSampleSize(float scale) {
+    int sampleSize = 1;
+    while (scale > 0 && scale * sampleSize * 2 <= 1) {
+      sampleSize *= 2;
+    }
+    return sampleSize;
+  }
+
+  /**
+   * Returns the tiles of a fixed grid that intersect the visible region of the image.
+   *
+   * <p>The grid is aligned to the image origin, so the same tiles (and thus the same cache keys)
+   * are returned while the visible region is panned.
+   *
+   * @param imageWidth width of the full-size image
+   * @param imageHeight height of the full-size image
+   * @param visibleLeft left edge of the visible region, in image pixels
+   * @param visibleTop top edge of the visible region, in image pixels
+   * @param visibleRight right edge of the visible region, in image pixels
+   * @param visibleBottom bottom edge of the visible region, in image pixels
+   * @param tileSize size of a decoded tile, in bitmap pixels
+   * @param sampleSize sample size to decode the tiles with
+   * @return the visible tiles, in row-major order
+   */
+  public static List<TileOptions> getVisibleTiles(
+      int imageWidth,
+      int imageHeight,
+      int visibleLeft,
+      int visibleTop,
+      int visibleRight,
+      int visibleBottom,
+      int tileSize,
+      int sampleSize) {
+    Preconditions.checkArgument(tileSize > 0);
+    Preconditions.checkArgument(sampleSize > 0);
+    List<TileOptions> tiles = new ArrayList<>();
+    int left = Math.max(0, visibleLeft);
+    int top = Math.max(0, visibleTop);
+    int right = Math.min(imageWidth, visibleRight);
+    int bottom = Math.min(imageHeight, visibleBottom);
+    if (right <= left || bottom <= top) {
+      return tiles;
+    }
+    int step = tileSize * sampleSize;
+    for (int y = top / step * step; y < bottom; y += step) {
+      for (int x = left / step * step; x < right; x += step) {
+        tiles.add(
+            new TileOptions(
+                x, y, Math.min(x + step, imageWidth), Math.min(y + step, imageHeight), sampleSize));
+      }
+    }
+    return tiles;
+  }
+
+  @Override
+  public int hashCode() {
+    return HashCodeUtil.hashCode(left, top, right, bottom, sampleSize);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other == this) {
+      return true;
+    }
+    if (!(other instanceof TileOptions)) {
+      return false;
+    }
+    TileOptions that = (TileOptions) other;
+    return this.left == that.left
+        && this.top == that.top
+        && this.right == that.right
+        && this.bottom == that.bottom
+        && this.sampleSize == that.sampleSize;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        (Locale) null, "[%d,%d-%d,%d]/%d", left, top, right, bottom, sampleSize);
+  }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.core;
+
+import android.os.Process;
+import android.os.SystemClock;
+import com.facebook.common.internal.Preconditions;
+import com.facebook.common.internal.VisibleForTesting;
+import com.facebook.common.time.AwakeTimeSinceBootClock;
+import com.facebook.common.time.MonotonicNanoClock;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * {@link ExecutorSupplier} whose IO-bound and decode thread pools change their size within bounds,
+ * instead of using the fixed sizes of {@link DefaultExecutorSupplier}.
+ *
+ * <p>Both pools are measured with {@link InstrumentedExecutor}. Once per interval, on the next
+ * submitted task, the throughput, the queue time and the busy time of each pool and the CPU
+ * utilization of the process are passed to an {@link AdaptivePoolSizer}: fast flash storage gets
+ * more IO threads, and the decode pool shrinks when the CPU is saturated, for example because the
+ * device is thermally throttled.
+ */
+public class AdaptiveExecutorSupplier implements ExecutorSupplier, InstrumentedExecutor.Listener {
+
+  /** Measures the CPU utilization of the process. */
+  public interface CpuMonitor {
+
+    /** Returns the CPU utilization since the previous call, from 0 to 1 of all cores. */
+    float getCpuUtilization();
+  }
+
+  /**
+   * Name under which the IO-bound executor is reported, the decode executor is reported as {@link
+   * InstrumentedExecutorSupplier#DECODE}.
+   */
+  public static final String IO_BOUND = "io_bound";
+
+  // Allows for simultaneous reads and writes.
+  private static final int MIN_IO_BOUND_THREADS = 2;
+  private static final int MAX_IO_BOUND_THREADS = 8;
+  private static final int INITIAL_IO_BOUND_THREADS = 2;
+  private static final int NUM_LIGHTWEIGHT_BACKGROUND_THREADS = 1;
+
+  private static final long DEFAULT_INTERVAL_MS = 500;
+  private static final long TARGET_QUEUE_TIME_MS = 10;
+  private static final float MAX_CPU_UTILIZATION = 0.9f;
+  private static final long KEEP_ALIVE_TIME_MS = 10000;
+
+  private final MonotonicNanoClock mClock;
+  private final CpuMonitor mCpuMonitor;
+  private final @Nullable InstrumentedExecutor.Listener mListener;
+  private final long mIntervalNanos;
+
+  private final AdaptivePool mIoBoundPool;
+  private final AdaptivePool mDecodePool;
+  private final Executor mBackgroundExecutor;
+  private final Executor mLightWeightBackgroundExecutor;
+
+  private final AtomicBoolean mAdjusting = new AtomicBoolean();
+  private volatile long mLastIntervalStartNanos;
+
+  public AdaptiveExecutorSupplier(int numCpuBoundThreads) {
+    this(
+        MIN_IO_BOUND_THREADS,
+        MAX_IO_BOUND_THREADS,
+        1,
+        numCpuBoundThreads,
+        numCpuBoundThreads,
+        AwakeTimeSinceBootClock.get(),
+        new ProcessCpuMonitor(),
+        null);
+  }
+
+  /**
+   * @param maxCpuBoundThreads the maximum and initial size of the decode pool
+   * @param listener receives the measurements of the IO-bound and decode executors
+   */
+  public AdaptiveExecutorSupplier(
+      int minIoBoundThreads,
+      int maxIoBoundThreads,
+      int minCpuBoundThreads,
+      int maxCpuBoundThreads,
+      int numBackgroundThreads,
+      MonotonicNanoClock clock,
+      CpuMonitor cpuMonitor,
+      @Nullable InstrumentedExecutor.Listener listener) {
+    mClock = Preconditions.checkNotNull(clock);
+    mCpuMonitor = Preconditions.checkNotNull(cpuMonitor);
+    mListener = listener;
+    mIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_INTERVAL_MS);
+    mLastIntervalStartNanos = clock.nowNanos();
+    final long targetQueueTimeNanos = TimeUnit.MILLISECONDS.toNanos(TARGET_QUEUE_TIME_MS);
+    mIoBoundPool =
+        new AdaptivePool(
+            "FrescoAdaptiveIoBoundExecutor",
+            IO_BOUND,
+            new AdaptivePoolSizer(
+                minIoBoundThreads,
+                maxIoBoundThreads,
+                INITIAL_IO_BOUND_THREADS,
+                targetQueueTimeNanos,
+                // IO threads are not CPU-bound
+                Float.MAX_VALUE),
+            clock,
+            this);
+    mDecodePool =
+        new AdaptivePool(
+            "FrescoAdaptiveDecodeExecutor",
+            InstrumentedExecutorSupplier.DECODE,
+            new AdaptivePoolSizer(
+                minCpuBoundThreads,
+                maxCpuBoundThreads,
+                maxCpuBoundThreads,
+                targetQueueTimeNanos,
+                MAX_CPU_UTILIZATION),
+            clock,
+            this);
+    mBackgroundExecutor =
+        Executors.newFixedThreadPool(
+            numBackgroundThreads,
+            new PriorityThreadFactory(
+                Process.THREAD_PRIORITY_BACKGROUND, "FrescoBackgroundExecutor", true));
+    mLightWeightBackgroundExecutor =
+        Executors.newFixedThreadPool(
+            NUM_LIGHTWEIGHT_BACKGROUND_THREADS,
+            new PriorityThreadFactory(
+                Process.THREAD_PRIORITY_BACKGROUND, "FrescoLightWeightBackgroundExecutor", true));
+  }
+
+  @Override
+  public Executor forLocalStorageRead() {
+    return mIoBoundPool.mExecutor;
+  }
+
+  @Override
+  public Executor forLocalStorageWrite() {
+    return mIoBoundPool.mExecutor;
+  }
+
+  @Override
+  public Executor forDecode() {
+    return mDecodePool.mExecutor;
+  }
+
+  @Override
+  public Executor forBackgroundTasks() {
+    return mBackgroundExecutor;
+  }
+
+  @Override
+  public Executor forLightweightBackgroundTasks() {
+    return mLightWeightBackgroundExecutor;
+  }
+
+  @Override
+  public Executor forThumbnailProducer() {
+    return mIoBoundPool.mExecutor;
+  }
+
+  public int getIoBoundPoolSize() {
+    return mIoBoundPool.mThreadPool.getCorePoolSize();
+  }
+
+  public int getDecodePoolSize() {
+    return mDecodePool.mThreadPool.getCorePoolSize();
+  }
+
+  @Override
+  public void onTaskEnqueued(String executorName, int queueDepth) {
+    if (mListener != null) {
+      mListener.onTaskEnqueued(executorName, queueDepth);
+    }
+    maybeAdjustPoolSizes();
+  }
+
+  @Override
+  public void onTaskStarted(String executorName, long queueTimeNanos) {
+    if (mListener != null) {
+      mListener.onTaskStarted(executorName, queueTimeNanos);
+    }
+  }
+
+  @Override
+  public void onTaskFinished(String executorName, long runTimeNanos) {
+    if (mListener != null) {
+      mListener.onTaskFinished(executorName, runTimeNanos);
+    }
+  }
+
+  @VisibleForTesting
+  void maybeAdjustPoolSizes() {
+    if (mClock.nowNanos() - mLastIntervalStartNanos < mIntervalNanos
+        || !mAdjusting.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      // Another thread might have finished an interval between the check and the update of the flag
+      final long now = mClock.nowNanos();
+      final long intervalNanos = now - mLastIntervalStartNanos;
+      if (intervalNanos < mIntervalNanos) {
+        return;
+      }
+      final float cpuUtilization = mCpuMonitor.getCpuUtilization();
+      mIoBoundPool.adjust(intervalNanos, cpuUtilization);
+      mDecodePool.adjust(intervalNanos, cpuUtilization);
+      mLastIntervalStartNanos = now;
+    } finally {
+      mAdjusting.set(false);
+    }
+  }
+
+  /** Thread pool with the executor measuring it and the sizer deciding its size. */
+  private static final class AdaptivePool {
+
+    final ThreadPoolExecutor mThreadPool;
+    final InstrumentedExecutor mExecutor;
+    final AdaptivePoolSizer mSizer;
+
+    // Totals of the executor at the start of the interval
+    private long mCompletedTaskCount;
+    private long mQueueTimeNanos;
+    private long mRunTimeNanos;
+
+    AdaptivePool(
+        String threadNamePrefix,
+        String executorName,
+        AdaptivePoolSizer sizer,
+        MonotonicNanoClock clock,
+        InstrumentedExecutor.Listener listener) {
+      mSizer = sizer;
+      mThreadPool =
+          new ThreadPoolExecutor(
+              sizer.getSize(),
+              sizer.getSize(),
+              KEEP_ALIVE_TIME_MS,
+              TimeUnit.MILLISECONDS,
+              new LinkedBlockingQueue<Runnable>(),
+              new PriorityThreadFactory(
+                  Process.THREAD_PRIORITY_BACKGROUND, threadNamePrefix, true));
+      // Idle threads go away, the pool does not have to shrink for that
+      mThreadPool.allowCoreThreadTimeOut(true);
+      mExecutor = new InstrumentedExecutor(executorName, mThreadPool, clock, listener);
+    }
+
+    void adjust(long intervalNanos, float cpuUtilization) {
+      final long completedTaskCount = mExecutor.getCompletedTaskCount();
+      final long queueTimeNanos = mExecutor.getTotalQueueTimeNanos();
+      final long runTimeNanos = mExecutor.getTotalRunTimeNanos();
+      final int size =
+          mSizer.onInterval(
+              intervalNanos,
+              completedTaskCount - mCompletedTaskCount,
+              queueTimeNanos - mQueueTimeNanos,
+              runTimeNanos - mRunTimeNanos,
+              mExecutor.getQueueDepth(),
+              cpuUtilization);
+      mCompletedTaskCount = completedTaskCount;
+      mQueueTimeNanos = queueTimeNanos;
+      mRunTimeNanos = runTimeNanos;
+      if (size > mThreadPool.getMaximumPoolSize()) {
+        mThreadPool.setMaximumPoolSize(size);
+        mThreadPool.setCorePoolSize(size);
+      } else if (size < mThreadPool.getCorePoolSize()) {
+        mThreadPool.setCorePoolSize(size);
+        mThreadPool.setMaximumPoolSize(size);
+      }
+    }
+  }
+
+  /** Measures the CPU time of this process against the time elapsed on all cores. */
+  private static final class ProcessCpuMonitor implements CpuMonitor {
+
+    private final int mNumCores = Runtime.getRuntime().availableProcessors();
+    private long mLastCpuTimeMs = Process.getElapsedCpuTime();
+    private long mLastRealtimeMs = SystemClock.elapsedRealtime();
+
+    @Override
+    public float getCpuUtilization() {
+      final long cpuTimeMs = Process.getElapsedCpuTime();
+      final long realtimeMs = SystemClock.elapsedRealtime();
+      final long elapsedMs = (realtimeMs - mLastRealtimeMs) * mNumCores;
+      final float utilization =
+          elapsedMs > 0 ? Math.min(1f, (float) (cpuTimeMs - mLastCpuTimeMs) / elapsedMs) : 0f;
+      mLastCpuTimeMs = cpuTimeMs;
+      mLastRealtimeMs = realtimeMs;
+      return utilization;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.core;
+
+import com.facebook.common.internal.Preconditions;
+
+/**
+ * Decides the size of a thread pool from what was measured over the last interval.
+ *
+ * <p>The pool grows by one thread while tasks wait longer than the target queue time, and keeps
+ * the extra thread only if it raised the throughput: on storage or CPUs that are already saturated
+ * a thread more only adds contention, so the sizer goes back and holds the size for a few
+ * intervals. The pool shrinks by one thread when its threads were busy for less than half of
+ * several intervals in a row while tasks still ran. A CPU utilization above the limit alone is no
+ * reason to shrink, since a pool with a backlog of CPU-bound tasks is meant to use all cores. The
+ * pool only shrinks, and then holds the size, if its throughput with a backlog also dropped at the
+ * same time, which is what happens when the device is thermally throttled. Intervals in which no
+ * task ran say nothing about the size the pool needs, so they leave it as it is: idle threads time
+ * out anyway.
+ */
+class AdaptivePoolSizer {
+
+  /** Minimum relative throughput gain for keeping a thread that was added. */
+  static final double MIN_THROUGHPUT_GAIN = 0.05;
+  /** Minimum relative throughput drop at a high CPU utilization for removing a thread. */
+  static final double MIN_THROTTLED_THROUGHPUT_DROP = 0.1;
+  /** Number of intervals the size is kept after an added thread did not help. */
+  static final int HOLD_INTERVALS = 5;
+  /** The pool shrinks when its threads were busy less than this share of the interval. */
+  static final double MIN_BUSY_RATIO = 0.5;
+  /** Number of intervals in a row with a low busy ratio after which the pool shrinks. */
+  static final int LOW_BUSY_INTERVALS_TO_SHRINK = 3;
+
+  private final int mMinSize;
+  private final int mMaxSize;
+  private final long mTargetQueueTimeNanos;
+  private final float mMaxCpuUtilization;
+
+  private int mSize;
+  private boolean mGrew;
+  private double mThroughputBeforeGrowth;
+  private int mHoldIntervals;
+  private int mLowBusyIntervals;
+  // Throughput of the last interval if tasks were waiting at its end, 0 otherwise
+  private double mBacklogThroughput;
+
+  /**
+   * @param targetQueueTimeNanos the pool grows while the mean queue time is above this
+   * @param maxCpuUtilization the pool shrinks while the CPU utilization, from 0 to 1, is above
+   *     this. Use a value above 1 for pools that are not CPU-bound.
+   */
+  AdaptivePoolSizer(
+      int minSize,
+      int maxSize,
+      int initialSize,
+      long targetQueueTimeNanos,
+      float maxCpuUtilization) {
+    Preconditions.checkArgument(minSize > 0 && minSize <= maxSize);
+    mMinSize = minSize;
+    mMaxSize = maxSize;
+    mSize = Math.min(maxSize, Math.max(minSize, initialSize));
+    mTargetQueueTimeNanos = targetQueueTimeNanos;
+    mMaxCpuUtilization = maxCpuUtilization;
+  }
+
+  int getSize() {
+    return mSize;
+  }
+
+  /**
+   * Updates the size with the measurements of the last interval.
+   *
+   * @param completedTasks the number of tasks that finished in the interval
+   * @param queueTimeNanos the total time the tasks that started in the interval were queued
+   * @param runTimeNanos the total time the tasks that finished in the interval ran
+   * @param queueDepth the number of tasks waiting at the end of the interval
+   * @param cpuUtilization the CPU utilization of the interval, from 0 to 1
+   * @return the new size
+   */
+  int onInterval(
+      long intervalNanos,
+      long completedTasks,
+      long queueTimeNanos,
+      long runTimeNanos,
+      int queueDepth,
+      float cpuUtilization) {
+    if (intervalNanos <= 0) {
+      return mSize;
+    }
+    if (completedTasks == 0 && queueDepth == 0) {
+      // Idle
+      mLowBusyIntervals = 0;
+      mBacklogThroughput = 0;
+      return mSize;
+    }
+    final double throughput = (double) completedTasks / intervalNanos;
+    final double lastBacklogThroughput = mBacklogThroughput;
+    mBacklogThroughput = queueDepth > 0 ? throughput : 0;
+    final boolean cpuSaturated = cpuUtilization > mMaxCpuUtilization;
+    final long meanQueueTimeNanos =
+        completedTasks > 0 ? queueTimeNanos / completedTasks : (queueDepth > 0 ? intervalNanos : 0);
+    final double busyRatio = (double) runTimeNanos / ((double) intervalNanos * mSize);
+
+    if (mGrew) {
+      mGrew = false;
+      if (throughput < mThroughputBeforeGrowth * (1 + MIN_THROUGHPUT_GAIN)) {
+        // The added thread did not help
+        mHoldIntervals = HOLD_INTERVALS;
+        return setSize(mSize - 1);
+      }
+    }
+    if (mHoldIntervals > 0) {
+      mHoldIntervals--;
+      return mSize;
+    }
+    if (cpuSaturated
+        && queueDepth > 0
+        && throughput < lastBacklogThroughput * (1 - MIN_THROTTLED_THROUGHPUT_DROP)) {
+      // Same backlog, but less work done on a saturated CPU: the device got throttled
+      mHoldIntervals = HOLD_INTERVALS;
+      return setSize(mSize - 1);
+    }
+    if (!cpuSaturated
+        && queueDepth > 0
+        && meanQueueTimeNanos > mTargetQueueTimeNanos
+        && mSize < mMaxSize) {
+      mGrew = true;
+      mThroughputBeforeGrowth = throughput;
+      return setSize(mSize + 1);
+    }
+    if (queueDepth == 0 && busyRatio < MIN_BUSY_RATIO) {
+      if (++mLowBusyIntervals >= LOW_BUSY_INTERVALS_TO_SHRINK) {
+        return setSize(mSize - 1);
+      }
+      return mSize;
+    }
+    mLowBusyIntervals = 0;
+    return mSize;
+  }
+
+  private int setSize(int size) {
+    mLowBusyIntervals = 0;
+    mSize = Math.min(mMaxSize, Math.max(mMinSize, size));
+    return mSize;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.core;
+
+import com.facebook.common.internal.Preconditions;
+import com.facebook.common.time.MonotonicNanoClock;
+import com.facebook.imagepipeline.instrumentation.FrescoInstrumenter;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Executor that measures the tasks it passes on to another executor: the time from {@link
+ * #execute} to the start of the task, the time the task runs and the number of tasks waiting.
+ *
+ * <p>The totals are cumulative, so that a caller sampling them periodically can derive the
+ * throughput and the mean queue time of every interval. Every task is also passed to {@link
+ * FrescoInstrumenter#decorateRunnable}, tagged with the name of this executor.
+ */
+public class InstrumentedExecutor implements Executor {
+
+  /** Receives the measurements of every task. */
+  public interface Listener {
+
+    /** @param queueDepth the number of tasks waiting, including this one */
+    void onTaskEnqueued(String executorName, int queueDepth);
+
+    void onTaskStarted(String executorName, long queueTimeNanos);
+
+    void onTaskFinished(String executorName, long runTimeNanos);
+  }
+
+  private final String mName;
+  private final String mInstrumentationTag;
+  private final Executor mDelegate;
+  private final MonotonicNanoClock mClock;
+  private final @Nullable Listener mListener;
+
+  private final AtomicInteger mQueueDepth = new AtomicInteger();
+  private final AtomicInteger mActiveCount = new AtomicInteger();
+  private final AtomicLong mCompletedTaskCount = new AtomicLong();
+  private final AtomicLong mTotalQueueTimeNanos = new AtomicLong();
+  private final AtomicLong mTotalRunTimeNanos = new AtomicLong();
+
+  public InstrumentedExecutor(
+      String name, Executor delegate, MonotonicNanoClock clock, @Nullable Listener listener) {
+    mName = Preconditions.checkNotNull(name);
+    mInstrumentationTag = "InstrumentedExecutor_" + name;
+    mDelegate = Preconditions.checkNotNull(delegate);
+    mClock = Preconditions.checkNotNull(clock);
+    mListener = listener;
+  }
+
+  @Override
+  public void execute(final Runnable command) {
+    final Runnable task = FrescoInstrumenter.decorateRunnable(command, mInstrumentationTag);
+    final long enqueueTimeNanos = mClock.nowNanos();
+    final int queueDepth = mQueueDepth.incrementAndGet();
+    if (mListener != null) {
+      mListener.onTaskEnqueued(mName, queueDepth);
+    }
+    try {
+      mDelegate.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              runTask(task, enqueueTimeNanos);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      mQueueDepth.decrementAndGet();
+      throw e;
+    }
+  }
+
+  public String getName() {
+    return mName;
+  }
+
+  /** Returns the number of tasks that were submitted but did not start yet. */
+  public int getQueueDepth() {
+    return mQueueDepth.get();
+  }
+
+  /** Returns the number of tasks that are running. */
+  public int getActiveCount() {
+    return mActiveCount.get();
+  }
+
+  public long getCompletedTaskCount() {
+    return mCompletedTaskCount.get();
+  }
+
+  /** Returns the sum of the queue times of all started tasks. */
+  public long getTotalQueueTimeNanos() {
+    return mTotalQueueTimeNanos.get();
+  }
+
+  /** Returns the sum of the run times of all completed tasks. */
+  public long getTotalRunTimeNanos() {
+    return mTotalRunTimeNanos.get();
+  }
+
+  private void runTask(Runnable task, long enqueueTimeNanos) {
+    final long startTimeNanos = mClock.nowNanos();
+    final long queueTimeNanos = startTimeNanos - enqueueTimeNanos;
+    mQueueDepth.decrementAndGet();
+    mActiveCount.incrementAndGet();
+    mTotalQueueTimeNanos.addAndGet(queueTimeNanos);
+    if (mListener != null) {
+      mListener.onTaskStarted(mName, queueTimeNanos);
+    }
+    try {
+      task.run();
+    } finally {
+      final long runTimeNanos = mClock.nowNanos() - startTimeNanos;
+      mActiveCount.decrementAndGet();
+      mTotalRunTimeNanos.addAndGet(runTimeNanos);
+      mCompletedTaskCount.incrementAndGet();
+      if (mListener != null) {
+        mListener.onTaskFinished(mName, runTimeNanos);
+      }
+    }
+  }
+}
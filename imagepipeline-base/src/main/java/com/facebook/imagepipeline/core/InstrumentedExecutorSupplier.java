@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.core;
+
+import com.facebook.common.time.AwakeTimeSinceBootClock;
+import com.facebook.common.time.MonotonicNanoClock;
+import javax.annotation.Nullable;
+
+/**
+ * {@link ExecutorSupplier} that wraps every executor of another supplier in an {@link
+ * InstrumentedExecutor}, to measure the queue times, the run times and the queue depth of each of
+ * them.
+ *
+ * <p>The executors are reported under the names below. Executors shared by several methods of the
+ * delegate, like the IO-bound executor of {@link DefaultExecutorSupplier}, are measured once per
+ * method.
+ */
+public class InstrumentedExecutorSupplier implements ExecutorSupplier {
+
+  public static final String LOCAL_STORAGE_READ = "local_storage_read";
+  public static final String LOCAL_STORAGE_WRITE = "local_storage_write";
+  public static final String DECODE = "decode";
+  public static final String BACKGROUND = "background";
+  public static final String LIGHTWEIGHT_BACKGROUND = "lightweight_background";
+  public static final String THUMBNAIL = "thumbnail";
+
+  private final InstrumentedExecutor mLocalStorageReadExecutor;
+  private final InstrumentedExecutor mLocalStorageWriteExecutor;
+  private final InstrumentedExecutor mDecodeExecutor;
+  private final InstrumentedExecutor mBackgroundExecutor;
+  private final InstrumentedExecutor mLightweightBackgroundExecutor;
+  private final InstrumentedExecutor mThumbnailExecutor;
+
+  public InstrumentedExecutorSupplier(
+      ExecutorSupplier delegate, @Nullable InstrumentedExecutor.Listener listener) {
+    this(delegate, AwakeTimeSinceBootClock.get(), listener);
+  }
+
+  public InstrumentedExecutorSupplier(
+      ExecutorSupplier delegate,
+      MonotonicNanoClock clock,
+      @Nullable InstrumentedExecutor.Listener listener) {
+    mLocalStorageReadExecutor =
+        new InstrumentedExecutor(
+            LOCAL_STORAGE_READ, delegate.forLocalStorageRead(), clock, listener);
+    mLocalStorageWriteExecutor =
+        new InstrumentedExecutor(
+            LOCAL_STORAGE_WRITE, delegate.forLocalStorageWrite(), clock, listener);
+    mDecodeExecutor = new InstrumentedExecutor(DECODE, delegate.forDecode(), clock, listener);
+    mBackgroundExecutor =
+        new InstrumentedExecutor(BACKGROUND, delegate.forBackgroundTasks(), clock, listener);
+    mLightweightBackgroundExecutor =
+        new InstrumentedExecutor(
+            LIGHTWEIGHT_BACKGROUND, delegate.forLightweightBackgroundTasks(), clock, listener);
+    mThumbnailExecutor =
+        new InstrumentedExecutor(THUMBNAIL, delegate.forThumbnailProducer(), clock, listener);
+  }
+
+  @Override
+  public InstrumentedExecutor forLocalStorageRead() {
+    return mLocalStorageReadExecutor;
+  }
+
+  @Override
+  public InstrumentedExecutor forLocalStorageWrite() {
+    return mLocalStorageWriteExecutor;
+  }
+
+  @Override
+  public InstrumentedExecutor forDecode() {
+    return mDecodeExecutor;
+  }
+
+  @Override
+  public InstrumentedExecutor forBackgroundTasks() {
+    return mBackgroundExecutor;
+  }
+
+  @Override
+  public InstrumentedExecutor forLightweightBackgroundTasks() {
+    return mLightweightBackgroundExecutor;
+  }
+
+  @Override
+  public InstrumentedExecutor forThumbnailProducer() {
+    return mThumbnailExecutor;
+  }
+
+  /** Returns all executors, to sample their queue depths and totals. */
+  public InstrumentedExecutor[] getExecutors() {
+    return new InstrumentedExecutor[] {
+      mLocalStorageReadExecutor,
+      mLocalStorageWriteExecutor,
+      mDecodeExecutor,
+      mBackgroundExecutor,
+      mLightweightBackgroundExecutor,
+      mThumbnailExecutor
+    };
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.core;
+
+import com.facebook.common.logging.FLog;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * {@link ExecutorSupplier} for JVM hosts that runs the blocking IO of the pipeline on virtual
+ * threads, where the runtime supports them.
+ *
+ * <p>Disk reads and writes, and the network fetches of a fetcher created with {@link
+ * #forNetwork}, get a new virtual thread per task, so that thousands of concurrent cache reads do
+ * not need thousands of platform threads. Virtual threads are created through reflection, so this
+ * class also loads on runtimes and Android versions without them: there the IO runs on a fixed
+ * pool of platform threads instead. The CPU-bound executors always use platform threads.
+ *
+ * <p>Virtual threads still pin their carrier thread while blocked inside a {@code synchronized}
+ * block, as the file IO under the lock of the disk storage cache does on older runtimes.
+ */
+public class VirtualThreadExecutorSupplier implements ExecutorSupplier {
+
+  private static final Class<?> TAG = VirtualThreadExecutorSupplier.class;
+
+  private static final int NUM_FALLBACK_IO_BOUND_THREADS = 4;
+  private static final int NUM_FALLBACK_NETWORK_THREADS = 3;
+  private static final int NUM_LIGHTWEIGHT_BACKGROUND_THREADS = 1;
+
+  private final ExecutorService mIoBoundExecutor;
+  private final ExecutorService mNetworkExecutor;
+  private final Executor mDecodeExecutor;
+  private final Executor mBackgroundExecutor;
+  private final Executor mLightWeightBackgroundExecutor;
+  private final boolean mUsesVirtualThreads;
+
+  public VirtualThreadExecutorSupplier(int numCpuBoundThreads) {
+    final ExecutorService ioBoundExecutor = newVirtualThreadPerTaskExecutor();
+    final ExecutorService networkExecutor = newVirtualThreadPerTaskExecutor();
+    mUsesVirtualThreads = ioBoundExecutor != null && networkExecutor != null;
+    if (mUsesVirtualThreads) {
+      mIoBoundExecutor = ioBoundExecutor;
+      mNetworkExecutor = networkExecutor;
+    } else {
+      mIoBoundExecutor =
+          Executors.newFixedThreadPool(
+              NUM_FALLBACK_IO_BOUND_THREADS, new NamedThreadFactory("FrescoIoBoundExecutor"));
+      mNetworkExecutor =
+          Executors.newFixedThreadPool(
+              NUM_FALLBACK_NETWORK_THREADS, new NamedThreadFactory("FrescoNetworkExecutor"));
+    }
+    mDecodeExecutor =
+        Executors.newFixedThreadPool(
+            numCpuBoundThreads, new NamedThreadFactory("FrescoDecodeExecutor"));
+    mBackgroundExecutor =
+        Executors.newFixedThreadPool(
+            numCpuBoundThreads, new NamedThreadFactory("FrescoBackgroundExecutor"));
+    mLightWeightBackgroundExecutor =
+        Executors.newFixedThreadPool(
+            NUM_LIGHTWEIGHT_BACKGROUND_THREADS,
+            new NamedThreadFactory("FrescoLightWeightBackgroundExecutor"));
+  }
+
+  /** Returns whether the IO executors run their tasks on virtual threads. */
+  public boolean usesVirtualThreads() {
+    return mUsesVirtualThreads;
+  }
+
+  @Override
+  public Executor forLocalStorageRead() {
+    return mIoBoundExecutor;
+  }
+
+  @Override
+  public Executor forLocalStorageWrite() {
+    return mIoBoundExecutor;
+  }
+
+  @Override
+  public Executor forDecode() {
+    return mDecodeExecutor;
+  }
+
+  @Override
+  public Executor forBackgroundTasks() {
+    return mBackgroundExecutor;
+  }
+
+  @Override
+  public Executor forLightweightBackgroundTasks() {
+    return mLightWeightBackgroundExecutor;
+  }
+
+  @Override
+  public Executor forThumbnailProducer() {
+    return mIoBoundExecutor;
+  }
+
+  /** Executor for the blocking calls of a network fetcher, such as the HttpURLConnection one. */
+  public ExecutorService forNetwork() {
+    return mNetworkExecutor;
+  }
+
+  /**
+   * Returns {@code Executors.newVirtualThreadPerTaskExecutor()}, or null if the runtime has no
+   * virtual threads.
+   */
+  public static @Nullable ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException e) {
+      return null;
+    } catch (Exception e) {
+      // For example virtual threads that are still a preview feature and not enabled
+      FLog.w(TAG, "Virtual threads are not available", e);
+      return null;
+    }
+  }
+
+  /** Creates daemon platform threads without the Android thread priorities. */
+  private static class NamedThreadFactory implements ThreadFactory {
+
+    private final String mPrefix;
+    private final AtomicInteger mThreadNumber = new AtomicInteger(1);
+
+    NamedThreadFactory(String prefix) {
+      mPrefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      final Thread thread = new Thread(runnable, mPrefix + "-" + mThreadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -9,6 +9,7 @@ package com.facebook.imagepipeline.image;
 
 import android.graphics.ColorSpace;
 import android.media.ExifInterface;
+import android.os.Build;
 import android.util.Pair;
 import com.facebook.common.internal.Preconditions;
 import com.facebook.common.internal.Supplier;
@@ -23,6 +24,7 @@ import com.facebook.imageformat.ImageFormatChecker;
 import com.facebook.imagepipeline.common.BytesRange;
 import com.facebook.imageutils.BitmapUtil;
 import com.facebook.imageutils.HeifExifUtil;
+import com.facebook.imageutils.ImageHeaderParser;
 import com.facebook.imageutils.ImageMetaData;
 import com.facebook.imageutils.JfifUtil;
 import com.facebook.imageutils.WebpUtil;
@@ -331,8 +333,13 @@ public class EncodedImage implements Closeable {
   /** Sets the encoded image meta data. */
   public void parseMetaData() {
     final ImageFormat imageFormat =
-        ImageFormatChecker.getImageFormat_WrapIOException(getInputStream());
+        CloseableReference.isValid(mPooledByteBufferRef)
+            ? ImageFormatChecker.getImageFormat(mPooledByteBufferRef.get())
+            : ImageFormatChecker.getImageFormat_WrapIOException(getInputStream());
     mImageFormat = imageFormat;
+    if (parseMetaDataFromByteBuffer(imageFormat)) {
+      return;
+    }
     // BitmapUtil.decodeDimensions has a bug where it will return 100x100 for some WebPs even though
     // those are not its actual dimensions
     final Pair<Integer, Integer> dimensions;
@@ -356,6 +363,40 @@ public class EncodedImage implements Closeable {
     }
   }
 
+  /**
+   * Reads the meta data in place from the byte buffer, in a single pass and without the input
+   * streams and decode buffers used by {@link BitmapUtil}, {@link JfifUtil} and {@link WebpUtil}.
+   *
+   * @return false if the meta data could not be read that way
+   */
+  private boolean parseMetaDataFromByteBuffer(ImageFormat imageFormat) {
+    if (!CloseableReference.isValid(mPooledByteBufferRef)) {
+      return false;
+    }
+    final ImageHeaderParser parser = new ImageHeaderParser(mPooledByteBufferRef.get());
+    if (!parser.parse(imageFormat)) {
+      return false;
+    }
+    mWidth = parser.getWidth();
+    mHeight = parser.getHeight();
+    if (imageFormat == DefaultImageFormats.JPEG && mRotationAngle == UNKNOWN_ROTATION_ANGLE) {
+      mExifOrientation = parser.getExifOrientation();
+      mRotationAngle = JfifUtil.getAutoRotateAngleFromOrientation(mExifOrientation);
+    } else if (mRotationAngle == UNKNOWN_ROTATION_ANGLE) {
+      mRotationAngle = 0;
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+        && !DefaultImageFormats.isWebpFormat(imageFormat)) {
+      if (parser.hasColorProfile()) {
+        // Only the platform decoder knows the color space described by the embedded profile
+        readImageMetaData();
+      } else {
+        mColorSpace = ColorSpace.get(ColorSpace.Named.SRGB);
+      }
+    }
+    return true;
+  }
+
   /** We get the size from a WebP image */
   private Pair<Integer, Integer> readWebPImageSize() {
     final Pair<Integer, Integer> dimensions = WebpUtil.getSize(getInputStream());
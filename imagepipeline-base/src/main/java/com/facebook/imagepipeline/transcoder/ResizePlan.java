@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.transcoder;
+
+import java.util.Locale;
+
+/** How an image is going to be resized, as determined by the {@link ResizePlanner}. */
+public class ResizePlan {
+
+  public static final ResizePlan NONE =
+      new ResizePlan(ResizeStrategy.RESIZE_NONE, DownsampleUtil.DEFAULT_SAMPLE_SIZE);
+  public static final ResizePlan TRANSCODE =
+      new ResizePlan(ResizeStrategy.RESIZE_TRANSCODE, DownsampleUtil.DEFAULT_SAMPLE_SIZE);
+
+  private @ResizeStrategy final int mStrategy;
+  private final int mSampleSize;
+
+  public ResizePlan(@ResizeStrategy int strategy, int sampleSize) {
+    mStrategy = strategy;
+    mSampleSize = sampleSize;
+  }
+
+  @ResizeStrategy
+  public int getStrategy() {
+    return mStrategy;
+  }
+
+  /** The sample size the image should be decoded with. */
+  public int getSampleSize() {
+    return mSampleSize;
+  }
+
+  /** Whether the image is resized without the transcoder, by the decoder or after decoding. */
+  public boolean isResizedByDecoder() {
+    return mStrategy == ResizeStrategy.RESIZE_DECODE_SAMPLE
+        || mStrategy == ResizeStrategy.RESIZE_POST_DECODE;
+  }
+
+  /** Name of the strategy, for logging. */
+  public String getStrategyName() {
+    switch (mStrategy) {
+      case ResizeStrategy.RESIZE_TRANSCODE:
+        return "transcode";
+      case ResizeStrategy.RESIZE_DECODE_SAMPLE:
+        return "decode_sample";
+      case ResizeStrategy.RESIZE_POST_DECODE:
+        return "post_decode";
+      default:
+        return "none";
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format((Locale) null, "%s, sample size: %d", getStrategyName(), mSampleSize);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.transcoder;
+
+import com.facebook.imageformat.DefaultImageFormats;
+import com.facebook.imageformat.ImageFormat;
+import com.facebook.imagepipeline.common.ResizeOptions;
+import com.facebook.imagepipeline.common.RotationOptions;
+import com.facebook.imagepipeline.image.EncodedImage;
+import javax.annotation.Nullable;
+
+/**
+ * Chooses how an image is resized to the requested {@link ResizeOptions}.
+ *
+ * <p>The cheapest strategy available for the format of the image is used:
+ *
+ * <ul>
+ *   <li>formats supported by the {@link ImageTranscoder}, e.g. JPEG with the native transcoder,
+ *       are resized by transcoding them, which decodes them scaled,
+ *   <li>other static formats like PNG and WebP are decoded with a sample size. If the sample size
+ *       cannot bring them close enough to the requested size, the rest has to be scaled down after
+ *       decoding,
+ *   <li>animated images are not resized.
+ * </ul>
+ */
+public class ResizePlanner {
+
+  /**
+   * If the image decoded with the chosen sample size is larger than the requested size by more
+   * than this factor, it has to be scaled down after decoding.
+   */
+  public static final float MAX_DECODED_SIZE_FACTOR = 1.1f;
+
+  private ResizePlanner() {}
+
+  /**
+   * Determines how the given image is resized.
+   *
+   * @param encodedImage the encoded image with the actual dimensions
+   * @param rotationOptions the rotation options of the request
+   * @param resizeOptions the resize options of the request
+   * @param imageTranscoder the transcoder that would transcode the image
+   * @param isResizingEnabled whether the image may be resized
+   * @param maxBitmapSize the maximum supported bitmap size (in pixels) when not specified in the
+   *     resize options
+   * @return the plan, {@link ResizePlan#NONE} if the image should not be resized
+   */
+  public static ResizePlan plan(
+      final EncodedImage encodedImage,
+      final RotationOptions rotationOptions,
+      @Nullable final ResizeOptions resizeOptions,
+      final ImageTranscoder imageTranscoder,
+      final boolean isResizingEnabled,
+      final int maxBitmapSize) {
+    if (!isResizingEnabled
+        || resizeOptions == null
+        || !EncodedImage.isMetaDataAvailable(encodedImage)) {
+      return ResizePlan.NONE;
+    }
+    final ImageFormat imageFormat = encodedImage.getImageFormat();
+    if (imageTranscoder.canTranscode(imageFormat)
+        && imageTranscoder.canResize(encodedImage, rotationOptions, resizeOptions)) {
+      return ResizePlan.TRANSCODE;
+    }
+    if (!isDecodeSamplingSupported(imageFormat)) {
+      return ResizePlan.NONE;
+    }
+    final int sampleSize =
+        DownsampleUtil.determineSampleSize(
+            rotationOptions, resizeOptions, encodedImage, maxBitmapSize);
+    final float ratio =
+        DownsampleUtil.determineDownsampleRatio(rotationOptions, resizeOptions, encodedImage);
+    if (ratio * sampleSize * MAX_DECODED_SIZE_FACTOR < 1) {
+      return new ResizePlan(ResizeStrategy.RESIZE_POST_DECODE, sampleSize);
+    }
+    if (sampleSize > DownsampleUtil.DEFAULT_SAMPLE_SIZE) {
+      return new ResizePlan(ResizeStrategy.RESIZE_DECODE_SAMPLE, sampleSize);
+    }
+    return ResizePlan.NONE;
+  }
+
+  /** Whether images of the given format are decoded by the platform, honoring the sample size. */
+  public static boolean isDecodeSamplingSupported(ImageFormat imageFormat) {
+    return imageFormat == DefaultImageFormats.JPEG
+        || imageFormat == DefaultImageFormats.PNG
+        || imageFormat == DefaultImageFormats.BMP
+        || imageFormat == DefaultImageFormats.HEIF
+        || DefaultImageFormats.isStaticWebpFormat(imageFormat);
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.transcoder;
+
+import static com.facebook.imagepipeline.transcoder.ResizeStrategy.RESIZE_DECODE_SAMPLE;
+import static com.facebook.imagepipeline.transcoder.ResizeStrategy.RESIZE_NONE;
+import static com.facebook.imagepipeline.transcoder.ResizeStrategy.RESIZE_POST_DECODE;
+import static com.facebook.imagepipeline.transcoder.ResizeStrategy.RESIZE_TRANSCODE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+import androidx.annotation.IntDef;
+import java.lang.annotation.Retention;
+
+/** The ways of resizing an image chosen by the {@link ResizePlanner}. */
+@Retention(SOURCE)
+@IntDef({
+  RESIZE_NONE,
+  RESIZE_TRANSCODE,
+  RESIZE_DECODE_SAMPLE,
+  RESIZE_POST_DECODE,
+})
+public @interface ResizeStrategy {
+
+  /** The image is not resized, either because it is small enough or because it cannot be. */
+  int RESIZE_NONE = 0;
+
+  /** The image is resized by the {@link ImageTranscoder}, e.g. by a native scaled JPEG decode. */
+  int RESIZE_TRANSCODE = 1;
+
+  /** The image is decoded with a sample size that brings it close to the requested size. */
+  int RESIZE_DECODE_SAMPLE = 2;
+
+  /**
+   * The image is decoded with the largest possible sample size, if any, but remains noticeably
+   * larger than requested, so that the rest has to be scaled down after decoding.
+   */
+  int RESIZE_POST_DECODE = 3;
+}
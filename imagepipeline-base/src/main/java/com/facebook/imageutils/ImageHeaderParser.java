@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imageutils;
+
+import android.media.ExifInterface;
+import com.facebook.common.memory.PooledByteBuffer;
+import com.facebook.imageformat.DefaultImageFormats;
+import com.facebook.imageformat.ImageFormat;
+import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
+
+/**
+ * Reads the dimensions, the EXIF orientation and whether there is an embedded color profile from
+ * the headers of an encoded image held by a {@link PooledByteBuffer}.
+ *
+ * <p>{@link BitmapUtil}, {@link JfifUtil} and {@link WebpUtil} each read the image through their
+ * own input stream. This parser reads the headers in place instead, in a single pass and without
+ * allocating streams or decode buffers. It supports JPEG, PNG, GIF, BMP and WebP images, for other
+ * formats or malformed headers {@link #parse} returns false and the stream based utils have to be
+ * used.
+ */
+public class ImageHeaderParser {
+
+  private static final int TIFF_HEADER_LENGTH = 8;
+  private static final int TIFF_ENTRY_LENGTH = 12;
+
+  private static final int MARKER_APP2 = 0xE2;
+
+  /** "ICC_PROFILE\0", the identifier of the APP2 segment holding an ICC profile */
+  private static final byte[] ICC_PROFILE_IDENTIFIER = {
+    'I', 'C', 'C', '_', 'P', 'R', 'O', 'F', 'I', 'L', 'E', 0
+  };
+
+  private static final int PNG_SIGNATURE_LENGTH = 8;
+  private static final int PNG_CHUNK_IHDR = 0x49484452;
+  private static final int PNG_CHUNK_IDAT = 0x49444154;
+  private static final int PNG_CHUNK_ICCP = 0x69434350;
+  private static final int PNG_CHUNK_GAMA = 0x67414d41;
+  private static final int PNG_CHUNK_CHRM = 0x6348524d;
+
+  private static final int WEBP_CHUNK_VP8 = 0x56503820; // "VP8 "
+  private static final int WEBP_CHUNK_VP8L = 0x5650384c; // "VP8L"
+  private static final int WEBP_CHUNK_VP8X = 0x56503858; // "VP8X"
+
+  private final PooledByteBuffer mBuffer;
+  private final @Nullable ByteBuffer mByteBuffer;
+  private final int mSize;
+
+  private int mWidth = -1;
+  private int mHeight = -1;
+  private int mExifOrientation = ExifInterface.ORIENTATION_UNDEFINED;
+  private boolean mHasColorProfile;
+
+  public ImageHeaderParser(PooledByteBuffer buffer) {
+    mBuffer = buffer;
+    mByteBuffer = buffer.getByteBuffer();
+    mSize = buffer.size();
+  }
+
+  /**
+   * Parses the headers of the image.
+   *
+   * @param imageFormat the format of the image
+   * @return true if the dimensions of the image have been found
+   */
+  public boolean parse(ImageFormat imageFormat) {
+    if (imageFormat == DefaultImageFormats.JPEG) {
+      parseJpeg();
+    } else if (imageFormat == DefaultImageFormats.PNG) {
+      parsePng();
+    } else if (imageFormat == DefaultImageFormats.GIF) {
+      if (mSize >= 10) {
+        mWidth = readLittleEndian(6, 2);
+        mHeight = readLittleEndian(8, 2);
+      }
+    } else if (imageFormat == DefaultImageFormats.BMP) {
+      if (mSize >= 26) {
+        mWidth = readLittleEndian(18, 4);
+        // The height is negative for bitmaps that are stored top down
+        mHeight = Math.abs(readLittleEndian(22, 4));
+      }
+    } else if (DefaultImageFormats.isWebpFormat(imageFormat)) {
+      parseWebp();
+    }
+    return mWidth > 0 && mHeight > 0;
+  }
+
+  public int getWidth() {
+    return mWidth;
+  }
+
+  public int getHeight() {
+    return mHeight;
+  }
+
+  /** Returns the EXIF orientation of a JPEG, ORIENTATION_UNDEFINED if there is none. */
+  public int getExifOrientation() {
+    return mExifOrientation;
+  }
+
+  /**
+   * Returns true if the image embeds color space information. Images without it are in sRGB, the
+   * color space of the others has to be determined by the platform decoder.
+   */
+  public boolean hasColorProfile() {
+    return mHasColorProfile;
+  }
+
+  private void parseJpeg() {
+    // ISO/IEC 10918-1:1993(E), same walk over the segments as JfifUtil#moveToMarker
+    boolean isFirstApp1 = true;
+    int offset = 2;
+    while (offset + 4 <= mSize && readByte(offset) == JfifUtil.MARKER_FIRST_BYTE) {
+      int marker = JfifUtil.MARKER_FIRST_BYTE;
+      while (marker == JfifUtil.MARKER_FIRST_BYTE && ++offset < mSize) {
+        marker = readByte(offset);
+      }
+      offset++;
+      if (marker == JfifUtil.MARKER_SOI || marker == JfifUtil.MARKER_TEM) {
+        continue;
+      }
+      if (marker == JfifUtil.MARKER_EOI || marker == JfifUtil.MARKER_SOS || offset + 2 > mSize) {
+        return;
+      }
+      final int length = readBigEndian(offset, 2);
+      final int segmentEnd = offset + length;
+      if (length < 2 || segmentEnd > mSize) {
+        return;
+      }
+      if (JfifUtil.isSOFn(marker)) {
+        if (length >= 7) {
+          mHeight = readBigEndian(offset + 3, 2);
+          mWidth = readBigEndian(offset + 5, 2);
+        }
+      } else if (marker == JfifUtil.MARKER_APP1 && isFirstApp1) {
+        // Like JfifUtil#getOrientation, only the first APP1 segment is considered
+        isFirstApp1 = false;
+        if (length > 8
+            && readBigEndian(offset + 2, 4) == JfifUtil.APP1_EXIF_MAGIC
+            && readBigEndian(offset + 6, 2) == 0) {
+          mExifOrientation = readTiffOrientation(offset + 8, segmentEnd);
+        }
+      } else if (marker == MARKER_APP2
+          && startsWith(offset + 2, segmentEnd, ICC_PROFILE_IDENTIFIER)) {
+        mHasColorProfile = true;
+      }
+      offset = segmentEnd;
+    }
+  }
+
+  /** Reads the orientation from the TIFF data of an EXIF segment, like TiffUtil. */
+  private int readTiffOrientation(int tiffStart, int tiffEnd) {
+    if (tiffEnd - tiffStart <= TIFF_HEADER_LENGTH) {
+      return ExifInterface.ORIENTATION_UNDEFINED;
+    }
+    final int byteOrder = readBigEndian(tiffStart, 4);
+    final boolean isLittleEndian;
+    if (byteOrder == TiffUtil.TIFF_BYTE_ORDER_LITTLE_END) {
+      isLittleEndian = true;
+    } else if (byteOrder == TiffUtil.TIFF_BYTE_ORDER_BIG_END) {
+      isLittleEndian = false;
+    } else {
+      return ExifInterface.ORIENTATION_UNDEFINED;
+    }
+    final int firstIfdOffset = readInt(tiffStart + 4, 4, isLittleEndian);
+    if (firstIfdOffset < TIFF_HEADER_LENGTH || firstIfdOffset > tiffEnd - tiffStart - 2) {
+      return ExifInterface.ORIENTATION_UNDEFINED;
+    }
+    int offset = tiffStart + firstIfdOffset;
+    int entryCount = readInt(offset, 2, isLittleEndian);
+    offset += 2;
+    while (entryCount-- > 0 && offset + TIFF_ENTRY_LENGTH <= tiffEnd) {
+      if (readInt(offset, 2, isLittleEndian) == TiffUtil.TIFF_TAG_ORIENTATION) {
+        if (readInt(offset + 2, 2, isLittleEndian) != TiffUtil.TIFF_TYPE_SHORT
+            || readInt(offset + 4, 4, isLittleEndian) != 1) {
+          return ExifInterface.ORIENTATION_UNDEFINED;
+        }
+        return readInt(offset + 8, 2, isLittleEndian);
+      }
+      offset += TIFF_ENTRY_LENGTH;
+    }
+    return ExifInterface.ORIENTATION_UNDEFINED;
+  }
+
+  private void parsePng() {
+    int offset = PNG_SIGNATURE_LENGTH;
+    while (offset + 8 <= mSize) {
+      final int length = readBigEndian(offset, 4);
+      final int type = readBigEndian(offset + 4, 4);
+      if (length < 0) {
+        return;
+      }
+      if (type == PNG_CHUNK_IHDR) {
+        if (offset + 16 > mSize) {
+          return;
+        }
+        mWidth = readBigEndian(offset + 8, 4);
+        mHeight = readBigEndian(offset + 12, 4);
+      } else if (type == PNG_CHUNK_ICCP || type == PNG_CHUNK_GAMA || type == PNG_CHUNK_CHRM) {
+        mHasColorProfile = true;
+      } else if (type == PNG_CHUNK_IDAT) {
+        // The chunks that describe the color space all come before the image data
+        return;
+      }
+      // length, type, data and crc
+      final long next = (long) offset + 12 + length;
+      if (next > mSize) {
+        return;
+      }
+      offset = (int) next;
+    }
+  }
+
+  private void parseWebp() {
+    // Same layout as read by WebpUtil#getSize: RIFF header, then the first chunk
+    if (mSize < 30) {
+      return;
+    }
+    final int chunk = readBigEndian(12, 4);
+    if (chunk == WEBP_CHUNK_VP8) {
+      if (readByte(23) != 0x9D || readByte(24) != 0x01 || readByte(25) != 0x2A) {
+        return;
+      }
+      // The two upper bits are the scale of the image
+      mWidth = readLittleEndian(26, 2) & 0x3FFF;
+      mHeight = readLittleEndian(28, 2) & 0x3FFF;
+    } else if (chunk == WEBP_CHUNK_VP8L) {
+      if (readByte(20) != 0x2F) {
+        return;
+      }
+      final int bits = readLittleEndian(21, 4);
+      mWidth = (bits & 0x3FFF) + 1;
+      mHeight = ((bits >> 14) & 0x3FFF) + 1;
+    } else if (chunk == WEBP_CHUNK_VP8X) {
+      mWidth = readLittleEndian(24, 3) + 1;
+      mHeight = readLittleEndian(27, 3) + 1;
+    }
+  }
+
+  private boolean startsWith(int offset, int end, byte[] prefix) {
+    if (offset + prefix.length > end) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (readByte(offset + i) != (prefix[i] & 0xFF)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int readInt(int offset, int length, boolean isLittleEndian) {
+    return isLittleEndian ? readLittleEndian(offset, length) : readBigEndian(offset, length);
+  }
+
+  private int readBigEndian(int offset, int length) {
+    int value = 0;
+    for (int i = 0; i < length; i++) {
+      value = (value << 8) | readByte(offset + i);
+    }
+    return value;
+  }
+
+  private int readLittleEndian(int offset, int length) {
+    int value = 0;
+    for (int i = length - 1; i >= 0; i--) {
+      value = (value << 8) | readByte(offset + i);
+    }
+    return value;
+  }
+
+  private int readByte(int offset) {
+    return (mByteBuffer != null ? mByteBuffer.get(offset) : mBuffer.read(offset)) & 0xFF;
+  }
+}
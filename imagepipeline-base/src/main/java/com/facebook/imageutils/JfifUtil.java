@@ -120,7 +120,7 @@ public class JfifUtil {
     return false;
   }
 
-  private static boolean isSOFn(int marker) {
+  static boolean isSOFn(int marker) {
     // There are no SOF4, SOF8, SOF12
     switch (marker) {
       case 0xC0:
@@ -10,6 +10,8 @@ package com.facebook.imageformat;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 
+import com.facebook.common.internal.ByteStreams;
+import com.facebook.imagepipeline.testing.TrivialPooledByteBuffer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -86,6 +88,16 @@ public class ImageFormatCheckerTest {
       } finally {
         resourceStream.close();
       }
+      final InputStream bufferStream = getResourceStream(name);
+      try {
+        assertSame(
+            "failed with buffer of resource: " + name,
+            expectedImageType,
+            ImageFormatChecker.getImageFormat(
+                new TrivialPooledByteBuffer(ByteStreams.toByteArray(bufferStream))));
+      } finally {
+        bufferStream.close();
+      }
     }
   }
 
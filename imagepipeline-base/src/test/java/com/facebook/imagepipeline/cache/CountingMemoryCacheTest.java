@@ -698,6 +698,161 @@ public class CountingMemoryCacheTest {
     assertFalse(mCache.contains(KEYS[0]));
   }
 
+  @Test
+  public void testAdmissionFilter() {
+    mParams =
+        new MemoryCacheParams(
+            CACHE_MAX_SIZE,
+            CACHE_MAX_COUNT,
+            CACHE_EVICTION_QUEUE_MAX_SIZE,
+            2 /* eviction queue max count */,
+            CACHE_ENTRY_MAX_SIZE,
+            PARAMS_CHECK_INTERVAL_MS,
+            64 /* admission sketch size */);
+    when(mParamsSupplier.get()).thenReturn(mParams);
+    mCache = new CountingMemoryCache<>(mValueDescriptor, mCacheTrimStrategy, mParamsSupplier);
+
+    // KEYS[0] is requested three times, the other keys once
+    requestAndCache(KEYS[0], 100, 3);
+    requestAndCache(KEYS[1], 110, 1);
+    assertExclusivelyOwnedSize(2, 210);
+
+    // KEYS[2] is cached while in use, but would evict the more frequently requested KEYS[0] once
+    // it is released
+    assertNull(mCache.get(KEYS[2]));
+    CloseableReference<Integer> originalRef = newReference(120);
+    CloseableReference<Integer> cachedRef = mCache.cache(KEYS[2], originalRef);
+    originalRef.close();
+    assertNotNull(cachedRef);
+    assertSharedWithCount(KEYS[2], 120, 1);
+    verify(mReleaser, never()).release(120);
+    cachedRef.close();
+    assertExclusivelyOwned(KEYS[0], 100);
+    assertExclusivelyOwned(KEYS[1], 110);
+    assertNotCached(KEYS[2], 120);
+    verify(mReleaser).release(120);
+
+    // A more frequently requested key is admitted, and evicts the least recently used entry
+    requestAndCache(KEYS[3], 130, 4);
+    assertNotCached(KEYS[0], 100);
+    assertExclusivelyOwned(KEYS[1], 110);
+    assertExclusivelyOwned(KEYS[3], 130);
+    verify(mReleaser).release(100);
+
+    // Hits are not filtered
+    mCache.get(KEYS[1]).close();
+    assertExclusivelyOwned(KEYS[1], 110);
+    assertExclusivelyOwnedSize(2, 240);
+  }
+
+  @Test
+  public void testAdmissionFilter_whenCacheIsFull() {
+    mParams =
+        new MemoryCacheParams(
+            CACHE_MAX_SIZE,
+            2 /* cache max count */,
+            CACHE_EVICTION_QUEUE_MAX_SIZE,
+            CACHE_EVICTION_QUEUE_MAX_COUNT,
+            CACHE_ENTRY_MAX_SIZE,
+            PARAMS_CHECK_INTERVAL_MS,
+            64 /* admission sketch size */);
+    when(mParamsSupplier.get()).thenReturn(mParams);
+    mCache = new CountingMemoryCache<>(mValueDescriptor, mCacheTrimStrategy, mParamsSupplier);
+
+    requestAndCache(KEYS[0], 100, 3);
+    requestAndCache(KEYS[1], 110, 2);
+
+    // The new entry in use does not evict KEYS[0] before the filter decides about it
+    assertNull(mCache.get(KEYS[2]));
+    CloseableReference<Integer> originalRef = newReference(120);
+    CloseableReference<Integer> cachedRef = mCache.cache(KEYS[2], originalRef);
+    originalRef.close();
+    assertExclusivelyOwned(KEYS[0], 100);
+    assertExclusivelyOwned(KEYS[1], 110);
+    cachedRef.close();
+    assertExclusivelyOwned(KEYS[0], 100);
+    assertExclusivelyOwned(KEYS[1], 110);
+    assertNotCached(KEYS[2], 120);
+    verify(mReleaser).release(120);
+  }
+
+  @Test
+  public void testSegmentedLru() {
+    mParams =
+        new MemoryCacheParams(
+            CACHE_MAX_SIZE,
+            10 /* cache max count */,
+            CACHE_EVICTION_QUEUE_MAX_SIZE,
+            5 /* eviction queue max count */,
+            CACHE_ENTRY_MAX_SIZE,
+            PARAMS_CHECK_INTERVAL_MS);
+    when(mParamsSupplier.get()).thenReturn(mParams);
+    mCache =
+        new CountingMemoryCache<>(mValueDescriptor, mCacheTrimStrategy, mParamsSupplier, true);
+
+    cacheAndRelease(KEYS[0], 100, false);
+    cacheAndRelease(KEYS[1], 101, false);
+    cacheAndRelease(KEYS[2], 102, false);
+
+    // Prefetched entries are probationary, and evicted first once they exceed their share
+    cacheAndRelease(KEYS[3], 110, true);
+    cacheAndRelease(KEYS[4], 120, true);
+    cacheAndRelease(KEYS[5], 130, true);
+    assertNotCached(KEYS[3], 110);
+    verify(mReleaser).release(110);
+    assertProbationary(KEYS[4], true);
+    assertProbationary(KEYS[5], true);
+    assertExclusivelyOwnedSize(5, 553);
+
+    // A request that is not a prefetch makes the entry protected
+    mCache.get(KEYS[4]).close();
+    assertProbationary(KEYS[4], false);
+
+    // A burst of prefetches only evicts probationary entries
+    cacheAndRelease(KEYS[6], 140, true);
+    cacheAndRelease(KEYS[7], 150, true);
+    assertNotCached(KEYS[5], 130);
+    assertNotCached(KEYS[6], 140);
+    verify(mReleaser).release(130);
+    verify(mReleaser).release(140);
+    assertExclusivelyOwned(KEYS[0], 100);
+    assertExclusivelyOwned(KEYS[1], 101);
+    assertExclusivelyOwned(KEYS[2], 102);
+    assertExclusivelyOwned(KEYS[4], 120);
+    assertExclusivelyOwned(KEYS[7], 150);
+
+    // A hit of a prefetch does not make the entry protected
+    mCache.getForPrefetch(KEYS[7]).close();
+    assertProbationary(KEYS[7], true);
+
+    // Within their share, probationary entries are evicted in LRU order with the protected ones
+    cacheAndRelease(KEYS[8], 160, false);
+    assertNotCached(KEYS[0], 100);
+    verify(mReleaser).release(100);
+    assertExclusivelyOwned(KEYS[7], 150);
+    assertExclusivelyOwnedSize(5, 633);
+  }
+
+  /** Caches the key, for a prefetch or not, and closes all references. */
+  private void cacheAndRelease(String key, int size, boolean isPrefetch) {
+    CloseableReference<Integer> originalRef = newReference(size);
+    CloseableReference<Integer> cachedRef =
+        isPrefetch ? mCache.cacheForPrefetch(key, originalRef) : mCache.cache(key, originalRef);
+    originalRef.close();
+    CloseableReference.closeSafely(cachedRef);
+  }
+
+  /** Requests the key the given number of times, then caches it and closes all references. */
+  private void requestAndCache(String key, int size, int requestCount) {
+    for (int i = 0; i < requestCount; i++) {
+      assertNull(mCache.get(key));
+    }
+    CloseableReference<Integer> originalRef = newReference(size);
+    CloseableReference<Integer> cachedRef = mCache.cache(key, originalRef);
+    originalRef.close();
+    CloseableReference.closeSafely(cachedRef);
+  }
+
   private CloseableReference<Integer> newReference(int size) {
     return CloseableReference.of(size, mReleaser);
   }
@@ -724,6 +879,16 @@ public class CountingMemoryCacheTest {
     assertFalse("entry is an orphan", entry.isOrphan);
   }
 
+  private void assertProbationary(String key, boolean isProbationary) {
+    CountingMemoryCache.Entry<String, Integer> entry = mCache.mCachedEntries.get(key);
+    assertNotNull("entry not found in the cache", entry);
+    assertEquals("probationary mismatch", isProbationary, entry.isProbationary);
+    assertEquals(
+        "probationary exclusives mismatch",
+        isProbationary,
+        mCache.mProbationaryEntries.contains(key));
+  }
+
   private void assertNotCached(String key, Integer value) {
     assertFalse("key found in the cache", mCache.mCachedEntries.contains(key));
     assertFalse("key found in the exclusives", mCache.mExclusiveEntries.contains(key));
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FrequencySketchTest {
+
+  @Test
+  public void testCountsUpToMaximum() {
+    final FrequencySketch sketch = new FrequencySketch(64);
+    assertEquals(0, sketch.frequency("key"));
+    for (int i = 1; i <= 20; i++) {
+      sketch.increment("key");
+      assertEquals(Math.min(i, 15), sketch.frequency("key"));
+    }
+  }
+
+  @Test
+  public void testSeparatesKeys() {
+    final FrequencySketch sketch = new FrequencySketch(256);
+    for (int i = 0; i < 100; i++) {
+      sketch.increment("http://fresco/hot");
+    }
+    for (int i = 0; i < 200; i++) {
+      sketch.increment("http://fresco/" + i);
+    }
+    assertEquals(15, sketch.frequency("http://fresco/hot"));
+    int overestimatedKeys = 0;
+    for (int i = 0; i < 200; i++) {
+      final int frequency = sketch.frequency("http://fresco/" + i);
+      assertTrue(frequency >= 1);
+      if (frequency > 1) {
+        overestimatedKeys++;
+      }
+    }
+    assertTrue("overestimated keys: " + overestimatedKeys, overestimatedKeys < 10);
+  }
+
+  @Test
+  public void testAgesCounters() {
+    // 16 longs, so the counters are halved after 160 increments
+    final FrequencySketch sketch = new FrequencySketch(16);
+    for (int i = 0; i < 12; i++) {
+      sketch.increment("old");
+    }
+    assertTrue(sketch.frequency("old") >= 12);
+    for (int i = 0; i < 150; i++) {
+      sketch.increment("key" + i);
+    }
+    final int frequency = sketch.frequency("old");
+    assertTrue("frequency: " + frequency, frequency >= 6 && frequency < 12);
+  }
+}
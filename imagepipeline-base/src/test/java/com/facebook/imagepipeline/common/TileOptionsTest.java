@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.common;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.Test;
+
+public class TileOptionsTest {
+
+  @Test
+  public void testStaticConstructorWithValidRegion() {
+    TileOptions tileOptions = TileOptions.forRegion(10, 20, 110, 220, 2);
+
+    assertThat(tileOptions).isNotNull();
+    assertThat(tileOptions.getWidth()).isEqualTo(100);
+    assertThat(tileOptions.getHeight()).isEqualTo(200);
+    assertThat(tileOptions.sampleSize).isEqualTo(2);
+  }
+
+  @Test
+  public void testStaticConstructorWithInvalidRegion() {
+    assertThat(TileOptions.forRegion(-1, 0, 10, 10, 1)).isNull();
+    assertThat(TileOptions.forRegion(10, 0, 10, 10, 1)).isNull();
+    assertThat(TileOptions.forRegion(0, 10, 10, 5, 1)).isNull();
+    assertThat(TileOptions.forRegion(0, 0, 10, 10, 0)).isNull();
+  }
+
+  @Test
+  public void testEquals() {
+    assertThat(new TileOptions(0, 0, 10, 10, 1)).isEqualTo(new TileOptions(0, 0, 10, 10, 1));
+    assertThat(new TileOptions(0, 0, 10, 10, 1).hashCode())
+        .isEqualTo(new TileOptions(0, 0, 10, 10, 1).hashCode());
+    assertThat(new TileOptions(0, 0, 10, 10, 1)).isNotEqualTo(new TileOptions(0, 0, 10, 10, 2));
+    assertThat(new TileOptions(0, 0, 10, 10, 1)).isNotEqualTo(new TileOptions(1, 0, 10, 10, 1));
+  }
+
+  @Test
+  public void testComputeSampleSize() {
+    assertThat(TileOptions.computeSampleSize(2f)).isEqualTo(1);
+    assertThat(TileOptions.computeSampleSize(1f)).isEqualTo(1);
+    assertThat(TileOptions.computeSampleSize(0.6f)).isEqualTo(1);
+    assertThat(TileOptions.computeSampleSize(0.5f)).isEqualTo(2);
+    assertThat(TileOptions.computeSampleSize(0.3f)).isEqualTo(2);
+    assertThat(TileOptions.computeSampleSize(0.125f)).isEqualTo(8);
+  }
+
+  @Test
+  public void testGetVisibleTiles() {
+    List<TileOptions> tiles = TileOptions.getVisibleTiles(1000, 700, 300, 100, 700, 500, 256, 1);
+
+    assertThat(tiles)
+        .containsExactly(
+            new TileOptions(256, 0, 512, 256, 1),
+            new TileOptions(512, 0, 768, 256, 1),
+            new TileOptions(256, 256, 512, 512, 1),
+            new TileOptions(512, 256, 768, 512, 1));
+  }
+
+  @Test
+  public void testGetVisibleTiles_clampsToImageBounds() {
+    List<TileOptions> tiles = TileOptions.getVisibleTiles(1000, 700, -50, -50, 2000, 2000, 256, 4);
+
+    assertThat(tiles).containsExactly(new TileOptions(0, 0, 1000, 700, 4));
+  }
+
+  @Test
+  public void testGetVisibleTiles_emptyRegion() {
+    assertThat(TileOptions.getVisibleTiles(1000, 700, 1200, 0, 1500, 100, 256, 1)).isEmpty();
+  }
+}
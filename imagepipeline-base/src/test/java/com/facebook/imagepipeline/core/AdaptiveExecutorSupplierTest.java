@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.facebook.common.time.MonotonicNanoClock;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class AdaptiveExecutorSupplierTest {
+
+  private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+  private long mNowNanos;
+  private float mCpuUtilization;
+  private InstrumentedExecutor.Listener mListener;
+  private AdaptiveExecutorSupplier mExecutorSupplier;
+
+  @Before
+  public void setUp() {
+    mNowNanos = 0;
+    mCpuUtilization = 0.5f;
+    mListener = mock(InstrumentedExecutor.Listener.class);
+    mExecutorSupplier =
+        new AdaptiveExecutorSupplier(
+            1,
+            8,
+            1,
+            4,
+            2,
+            new MonotonicNanoClock() {
+              @Override
+              public long nowNanos() {
+                return mNowNanos;
+              }
+            },
+            new AdaptiveExecutorSupplier.CpuMonitor() {
+              @Override
+              public float getCpuUtilization() {
+                return mCpuUtilization;
+              }
+            },
+            mListener);
+  }
+
+  @Test
+  public void testKeepsDecodePoolSizeWhenCpuIsSaturated() throws InterruptedException {
+    assertEquals(4, mExecutorSupplier.getDecodePoolSize());
+    mCpuUtilization = 0.95f;
+    mNowNanos = INTERVAL_NANOS;
+    runTask(mExecutorSupplier.forDecode());
+    mNowNanos = 2 * INTERVAL_NANOS;
+    runTask(mExecutorSupplier.forDecode());
+    // Without a drop in throughput, a saturated CPU is no sign of throttling
+    assertEquals(4, mExecutorSupplier.getDecodePoolSize());
+  }
+
+  @Test
+  public void testIoPoolIgnoresCpuUtilization() throws InterruptedException {
+    assertEquals(2, mExecutorSupplier.getIoBoundPoolSize());
+    mCpuUtilization = 0.95f;
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final Runnable blockingTask =
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              blocked.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        };
+    // Keep tasks waiting for longer than the target queue time
+    for (int i = 0; i < 3; i++) {
+      mExecutorSupplier.forLocalStorageRead().execute(blockingTask);
+    }
+    mNowNanos = INTERVAL_NANOS;
+    mExecutorSupplier.forLocalStorageRead().execute(blockingTask);
+    assertEquals(3, mExecutorSupplier.getIoBoundPoolSize());
+
+    // Not adjusted again within the same interval
+    mExecutorSupplier.forLocalStorageRead().execute(blockingTask);
+    assertEquals(3, mExecutorSupplier.getIoBoundPoolSize());
+    blocked.countDown();
+  }
+
+  @Test
+  public void testForwardsMeasurements() throws InterruptedException {
+    runTask(mExecutorSupplier.forThumbnailProducer());
+    verify(mListener).onTaskEnqueued(AdaptiveExecutorSupplier.IO_BOUND, 1);
+    verify(mListener).onTaskStarted(AdaptiveExecutorSupplier.IO_BOUND, 0);
+    // Reported after the task returned
+    verify(mListener, timeout(5000)).onTaskFinished(AdaptiveExecutorSupplier.IO_BOUND, 0);
+  }
+
+  private static void runTask(Executor executor) throws InterruptedException {
+    final CountDownLatch done = new CountDownLatch(1);
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            done.countDown();
+          }
+        });
+    done.await(5, TimeUnit.SECONDS);
+  }
+}
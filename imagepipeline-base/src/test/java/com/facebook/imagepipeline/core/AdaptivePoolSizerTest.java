@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class AdaptivePoolSizerTest {
+
+  private static final long INTERVAL_NANOS = 100000000;
+  private static final long TARGET_QUEUE_TIME_NANOS = 10000000;
+
+  @Test
+  public void testGrowsToStorageParallelism() {
+    final SimulatedWorkload workload =
+        new SimulatedWorkload(new AdaptivePoolSizer(1, 8, 2, TARGET_QUEUE_TIME_NANOS, 2f), 6, 10);
+    for (int i = 0; i < 100; i++) {
+      workload.runInterval(50, 0.3f);
+    }
+    assertEquals(6, workload.getPoolSize());
+    assertEquals(0, workload.getBacklog(), 0.001);
+  }
+
+  @Test
+  public void testDoesNotGrowOnSaturatedStorage() {
+    final SimulatedWorkload workload =
+        new SimulatedWorkload(new AdaptivePoolSizer(1, 8, 2, TARGET_QUEUE_TIME_NANOS, 2f), 2, 10);
+    for (int i = 0; i < 100; i++) {
+      workload.runInterval(30, 0.3f);
+    }
+    int totalPoolSize = 0;
+    for (int i = 0; i < 100; i++) {
+      totalPoolSize += workload.getPoolSize();
+      workload.runInterval(30, 0.3f);
+    }
+    // The sizer only probes with a third thread now and then
+    assertTrue(totalPoolSize <= 250);
+  }
+
+  @Test
+  public void testKeepsSizeWhenPoolSaturatesCpu() {
+    final SimulatedWorkload workload =
+        new SimulatedWorkload(
+            new AdaptivePoolSizer(1, 4, 4, TARGET_QUEUE_TIME_NANOS, 0.9f), 4, 10);
+    for (int i = 0; i < 20; i++) {
+      workload.runInterval(50, 0.95f);
+    }
+    assertEquals(4, workload.getPoolSize());
+    assertTrue(workload.getBacklog() > 0);
+  }
+
+  @Test
+  public void testShrinksWhenCpuIsThrottled() {
+    final SimulatedWorkload workload =
+        new SimulatedWorkload(
+            new AdaptivePoolSizer(1, 4, 4, TARGET_QUEUE_TIME_NANOS, 0.9f), 4, 10);
+    workload.runInterval(50, 0.95f);
+    workload.runInterval(50, 0.95f);
+    assertEquals(4, workload.getPoolSize());
+
+    // Every thread gets slower at the same CPU utilization
+    workload.setTasksPerThread(6);
+    workload.runInterval(50, 0.95f);
+    assertEquals(3, workload.getPoolSize());
+    // A steady throughput after that does not shrink the pool any further
+    for (int i = 0; i < 20; i++) {
+      workload.runInterval(50, 0.95f);
+    }
+    assertEquals(3, workload.getPoolSize());
+  }
+
+  @Test
+  public void testShrinksWhenUnderutilized() {
+    final SimulatedWorkload workload =
+        new SimulatedWorkload(new AdaptivePoolSizer(2, 8, 6, TARGET_QUEUE_TIME_NANOS, 2f), 6, 10);
+    workload.runInterval(5, 0.1f);
+    workload.runInterval(5, 0.1f);
+    assertEquals(6, workload.getPoolSize());
+    for (int i = 0; i < 20; i++) {
+      workload.runInterval(5, 0.1f);
+    }
+    assertEquals(2, workload.getPoolSize());
+  }
+
+  @Test
+  public void testDoesNotShrinkWhenIdle() {
+    final SimulatedWorkload workload =
+        new SimulatedWorkload(new AdaptivePoolSizer(1, 8, 2, TARGET_QUEUE_TIME_NANOS, 2f), 6, 10);
+    for (int i = 0; i < 100; i++) {
+      workload.runInterval(50, 0.3f);
+    }
+    assertEquals(6, workload.getPoolSize());
+    for (int i = 0; i < 20; i++) {
+      workload.runInterval(0, 0.05f);
+    }
+    assertEquals(6, workload.getPoolSize());
+  }
+
+  /**
+   * Pool serving a queue of tasks: every thread completes a fixed number of tasks per interval,
+   * but only up to the parallelism of the device, threads above it wait on each other.
+   */
+  private static class SimulatedWorkload {
+
+    private final AdaptivePoolSizer mSizer;
+    private final int mDeviceParallelism;
+    private double mTasksPerThread;
+    private double mBacklog;
+
+    SimulatedWorkload(AdaptivePoolSizer sizer, int deviceParallelism, double tasksPerThread) {
+      mSizer = sizer;
+      mDeviceParallelism = deviceParallelism;
+      mTasksPerThread = tasksPerThread;
+    }
+
+    int getPoolSize() {
+      return mSizer.getSize();
+    }
+
+    double getBacklog() {
+      return mBacklog;
+    }
+
+    void setTasksPerThread(double tasksPerThread) {
+      mTasksPerThread = tasksPerThread;
+    }
+
+    void runInterval(int arrivingTasks, float cpuUtilization) {
+      final int threads = mSizer.getSize();
+      final double capacity = mTasksPerThread * Math.min(threads, mDeviceParallelism);
+      // Every started task waited for the tasks ahead of it
+      final double queueTimeNanos = mBacklog / capacity * INTERVAL_NANOS;
+      final double completed = Math.min(mBacklog + arrivingTasks, capacity);
+      mBacklog = mBacklog + arrivingTasks - completed;
+      // Threads above the parallelism of the device make every task take longer
+      final double runTimeNanos =
+          completed
+              * INTERVAL_NANOS
+              / mTasksPerThread
+              * Math.max(1, (double) threads / mDeviceParallelism);
+      mSizer.onInterval(
+          INTERVAL_NANOS,
+          Math.round(completed),
+          (long) (Math.round(completed) * queueTimeNanos),
+          (long) runTimeNanos,
+          (int) Math.round(mBacklog),
+          cpuUtilization);
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import com.facebook.common.time.MonotonicNanoClock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class InstrumentedExecutorSupplierTest {
+
+  private long mNowNanos;
+  private List<Runnable> mPendingTasks;
+  private InstrumentedExecutor.Listener mListener;
+  private InstrumentedExecutorSupplier mExecutorSupplier;
+
+  @Before
+  public void setUp() {
+    mNowNanos = 0;
+    mPendingTasks = new ArrayList<>();
+    final Executor queueingExecutor =
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            mPendingTasks.add(command);
+          }
+        };
+    final ExecutorSupplier delegate = mock(ExecutorSupplier.class);
+    when(delegate.forLocalStorageRead()).thenReturn(queueingExecutor);
+    when(delegate.forLocalStorageWrite()).thenReturn(queueingExecutor);
+    when(delegate.forDecode()).thenReturn(queueingExecutor);
+    when(delegate.forBackgroundTasks()).thenReturn(queueingExecutor);
+    when(delegate.forLightweightBackgroundTasks()).thenReturn(queueingExecutor);
+    when(delegate.forThumbnailProducer()).thenReturn(queueingExecutor);
+    mListener = mock(InstrumentedExecutor.Listener.class);
+    mExecutorSupplier =
+        new InstrumentedExecutorSupplier(
+            delegate,
+            new MonotonicNanoClock() {
+              @Override
+              public long nowNanos() {
+                return mNowNanos;
+              }
+            },
+            mListener);
+  }
+
+  @Test
+  public void testMeasuresQueueAndRunTimes() {
+    final InstrumentedExecutor executor = mExecutorSupplier.forDecode();
+    final Runnable task = mock(Runnable.class);
+    executor.execute(task);
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            mNowNanos += 5000;
+          }
+        });
+    assertEquals(2, executor.getQueueDepth());
+
+    mNowNanos = 1000;
+    mPendingTasks.remove(0).run();
+    verify(task).run();
+    mNowNanos = 3000;
+    mPendingTasks.remove(0).run();
+
+    assertEquals(0, executor.getQueueDepth());
+    assertEquals(0, executor.getActiveCount());
+    assertEquals(2, executor.getCompletedTaskCount());
+    assertEquals(4000, executor.getTotalQueueTimeNanos());
+    assertEquals(5000, executor.getTotalRunTimeNanos());
+    verify(mListener).onTaskEnqueued(InstrumentedExecutorSupplier.DECODE, 1);
+    verify(mListener).onTaskEnqueued(InstrumentedExecutorSupplier.DECODE, 2);
+    verify(mListener).onTaskStarted(InstrumentedExecutorSupplier.DECODE, 1000);
+    verify(mListener).onTaskStarted(InstrumentedExecutorSupplier.DECODE, 3000);
+    verify(mListener).onTaskFinished(InstrumentedExecutorSupplier.DECODE, 0);
+    verify(mListener).onTaskFinished(InstrumentedExecutorSupplier.DECODE, 5000);
+    verifyNoMoreInteractions(mListener);
+  }
+
+  @Test
+  public void testCountsFailedTasks() {
+    final InstrumentedExecutor executor = mExecutorSupplier.forLocalStorageRead();
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            throw new IllegalStateException();
+          }
+        });
+    try {
+      mPendingTasks.remove(0).run();
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    assertEquals(0, executor.getActiveCount());
+    assertEquals(1, executor.getCompletedTaskCount());
+    verify(mListener).onTaskFinished(InstrumentedExecutorSupplier.LOCAL_STORAGE_READ, 0);
+  }
+
+  @Test
+  public void testRejectedTaskIsNotQueued() {
+    final InstrumentedExecutor executor =
+        new InstrumentedExecutor(
+            "rejecting",
+            new Executor() {
+              @Override
+              public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+              }
+            },
+            mock(MonotonicNanoClock.class),
+            null);
+    try {
+      executor.execute(mock(Runnable.class));
+      fail();
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+    assertEquals(0, executor.getQueueDepth());
+  }
+
+  @Test
+  public void testReturnsAllExecutors() {
+    final InstrumentedExecutor[] executors = mExecutorSupplier.getExecutors();
+    assertEquals(6, executors.length);
+    assertSame(mExecutorSupplier.forLocalStorageRead(), executors[0]);
+    assertSame(mExecutorSupplier.forThumbnailProducer(), executors[5]);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class VirtualThreadExecutorSupplierTest {
+
+  private static final int NUM_BLOCKING_TASKS = 1000;
+
+  private VirtualThreadExecutorSupplier mExecutorSupplier;
+  private boolean mRuntimeHasVirtualThreads;
+
+  @Before
+  public void setUp() {
+    mExecutorSupplier = new VirtualThreadExecutorSupplier(2);
+    try {
+      Thread.class.getMethod("isVirtual");
+      mRuntimeHasVirtualThreads = true;
+    } catch (NoSuchMethodException e) {
+      mRuntimeHasVirtualThreads = false;
+    }
+  }
+
+  @Test
+  public void testUsesVirtualThreadsIfAvailable() {
+    assertEquals(mRuntimeHasVirtualThreads, mExecutorSupplier.usesVirtualThreads());
+    assertEquals(
+        mRuntimeHasVirtualThreads,
+        VirtualThreadExecutorSupplier.newVirtualThreadPerTaskExecutor() != null);
+    assertSame(mExecutorSupplier.forLocalStorageRead(), mExecutorSupplier.forLocalStorageWrite());
+  }
+
+  @Test
+  public void testRunsTasks() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(5);
+    final Runnable task =
+        new Runnable() {
+          @Override
+          public void run() {
+            latch.countDown();
+          }
+        };
+    mExecutorSupplier.forLocalStorageRead().execute(task);
+    mExecutorSupplier.forNetwork().execute(task);
+    mExecutorSupplier.forDecode().execute(task);
+    mExecutorSupplier.forBackgroundTasks().execute(task);
+    mExecutorSupplier.forLightweightBackgroundTasks().execute(task);
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testBlockingReadsDoNotWaitForEachOther() throws InterruptedException {
+    if (!mRuntimeHasVirtualThreads) {
+      return;
+    }
+    final Executor executor = mExecutorSupplier.forLocalStorageRead();
+    final CountDownLatch started = new CountDownLatch(NUM_BLOCKING_TASKS);
+    final CountDownLatch release = new CountDownLatch(1);
+    for (int i = 0; i < NUM_BLOCKING_TASKS; i++) {
+      executor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              started.countDown();
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+          });
+    }
+    // Every read blocks at the same time, which a pool of platform threads would not allow
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    release.countDown();
+  }
+}
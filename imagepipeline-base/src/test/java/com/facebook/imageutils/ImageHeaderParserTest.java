@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imageutils;
+
+import static com.facebook.imageutils.JfifTestUtils.*;
+import static org.junit.Assert.*;
+
+import com.facebook.common.internal.ByteStreams;
+import com.facebook.imageformat.DefaultImageFormats;
+import com.facebook.imageformat.ImageFormat;
+import com.facebook.imagepipeline.testing.TrivialPooledByteBuffer;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Tests {@link ImageHeaderParser} */
+@RunWith(RobolectricTestRunner.class)
+public class ImageHeaderParserTest {
+
+  @Test
+  public void testJpegs() throws IOException {
+    checkImage("jpegs/1.jpeg", DefaultImageFormats.JPEG, 240, 181);
+    checkImage("jpegs/2.jpeg", DefaultImageFormats.JPEG, 240, 93);
+    checkImage("jpegs/3.jpeg", DefaultImageFormats.JPEG, 240, 240);
+    checkImage("jpegs/1cut.jpeg", DefaultImageFormats.JPEG, 240, 181);
+    checkImage("jpegs/1prog.jpeg", DefaultImageFormats.JPEG, 981, 657);
+    checkImage("jpegs/2prog.jpeg", DefaultImageFormats.JPEG, 800, 531);
+  }
+
+  @Test
+  public void testPngs() throws IOException {
+    checkImage("pngs/1.png", DefaultImageFormats.PNG, 240, 181);
+    checkImage("pngs/2.png", DefaultImageFormats.PNG, 240, 246);
+    checkImage("pngs/3.png", DefaultImageFormats.PNG, 240, 180);
+  }
+
+  @Test
+  public void testGifs() throws IOException {
+    checkImage("gifs/1.gif", DefaultImageFormats.GIF, 240, 181);
+    checkImage("animatedgifs/2.gif", DefaultImageFormats.GIF, 550, 400);
+  }
+
+  @Test
+  public void testBmps() throws IOException {
+    checkImage("bmps/1.bmp", DefaultImageFormats.BMP, 240, 181);
+    checkImage("bmps/2.bmp", DefaultImageFormats.BMP, 240, 246);
+  }
+
+  @Test
+  public void testWebps() throws IOException {
+    checkImage("webps/1_webp_plain.webp", DefaultImageFormats.WEBP_SIMPLE, 320, 214);
+    checkImage("webps/2_webp_ll.webp", DefaultImageFormats.WEBP_LOSSLESS, 386, 395);
+    checkImage("webps/1_webp_e.webp", DefaultImageFormats.WEBP_EXTENDED, 480, 320);
+    checkImage("webps/1_webp_ea.webp", DefaultImageFormats.WEBP_EXTENDED_WITH_ALPHA, 400, 301);
+    checkImage("webps/1_webp_anim.webp", DefaultImageFormats.WEBP_ANIMATED, 322, 477);
+  }
+
+  @Test
+  public void testJpegColorProfile() throws IOException {
+    assertTrue(parse(readResource("jpegs/1prog.jpeg"), DefaultImageFormats.JPEG).hasColorProfile());
+    assertFalse(parse(readResource("jpegs/1.jpeg"), DefaultImageFormats.JPEG).hasColorProfile());
+  }
+
+  @Test
+  public void testJpegOrientation() {
+    testJpegOrientation(true);
+    testJpegOrientation(false);
+  }
+
+  private void testJpegOrientation(boolean littleEnd) {
+    final String sof = makeSOFSection(8, 8, 300, 200);
+    final String ifdEntry = makeIfdEntry(IFD_ENTRY_TAG_1, TYPE_SHORT, 1, 255, 2, littleEnd);
+    final String ifd =
+        makeIfd(new String[] {ifdEntry, makeOrientationEntry(6, littleEnd)}, 0, littleEnd);
+    final String app1 = makeAPP1_EXIF(makeTiff(ifd, littleEnd));
+
+    final ImageHeaderParser parser =
+        parse(
+            hexStringToByteArray(SOI + APP0 + app1 + DQT + DHT + sof + SOS + EOI),
+            DefaultImageFormats.JPEG);
+    assertEquals(300, parser.getWidth());
+    assertEquals(200, parser.getHeight());
+    assertEquals(6, parser.getExifOrientation());
+
+    final ImageHeaderParser noExifParser =
+        parse(
+            hexStringToByteArray(SOI + APP0 + DQT + DHT + sof + SOS + EOI),
+            DefaultImageFormats.JPEG);
+    assertEquals(0, noExifParser.getExifOrientation());
+  }
+
+  @Test
+  public void testTruncatedHeaders() throws IOException {
+    final byte[] png = readResource("pngs/1.png");
+    final ImageHeaderParser parser =
+        new ImageHeaderParser(new TrivialPooledByteBuffer(Arrays.copyOf(png, 20)));
+    assertFalse(parser.parse(DefaultImageFormats.PNG));
+
+    final byte[] jpeg = readResource("jpegs/1.jpeg");
+    final ImageHeaderParser jpegParser =
+        new ImageHeaderParser(new TrivialPooledByteBuffer(Arrays.copyOf(jpeg, 10)));
+    assertFalse(jpegParser.parse(DefaultImageFormats.JPEG));
+  }
+
+  @Test
+  public void testUnsupportedFormat() throws IOException {
+    assertFalse(
+        new ImageHeaderParser(new TrivialPooledByteBuffer(readResource("pngs/1.png")))
+            .parse(DefaultImageFormats.HEIF));
+  }
+
+  private static void checkImage(
+      String path, ImageFormat imageFormat, int expectedWidth, int expectedHeight)
+      throws IOException {
+    final ImageHeaderParser parser = parse(readResource(path), imageFormat);
+    assertEquals(path, expectedWidth, parser.getWidth());
+    assertEquals(path, expectedHeight, parser.getHeight());
+  }
+
+  private static ImageHeaderParser parse(byte[] bytes, ImageFormat imageFormat) {
+    final ImageHeaderParser parser = new ImageHeaderParser(new TrivialPooledByteBuffer(bytes));
+    assertTrue(parser.parse(imageFormat));
+    return parser;
+  }
+
+  private static byte[] readResource(String path) throws IOException {
+    return ByteStreams.toByteArray(ImageHeaderParserTest.class.getResourceAsStream(path));
+  }
+}
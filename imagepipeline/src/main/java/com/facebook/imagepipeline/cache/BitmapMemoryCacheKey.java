@@ -16,6 +16,7 @@ import com.facebook.common.util.HashCodeUtil;
 import com.facebook.imagepipeline.common.ImageDecodeOptions;
 import com.facebook.imagepipeline.common.ResizeOptions;
 import com.facebook.imagepipeline.common.RotationOptions;
+import com.facebook.imagepipeline.common.TileOptions;
 import java.util.Locale;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
@@ -26,6 +27,7 @@ public class BitmapMemoryCacheKey implements CacheKey {
 
   private final String mSourceString;
   private final @Nullable ResizeOptions mResizeOptions;
+  private final @Nullable TileOptions mTileOptions;
   private final RotationOptions mRotationOptions;
   private final ImageDecodeOptions mImageDecodeOptions;
   private final @Nullable CacheKey mPostprocessorCacheKey;
@@ -42,16 +44,41 @@ public class BitmapMemoryCacheKey implements CacheKey {
       @Nullable CacheKey postprocessorCacheKey,
       @Nullable String postprocessorName,
       Object callerContext) {
+    this(
+        sourceString,
+        resizeOptions,
+        null,
+        rotationOptions,
+        imageDecodeOptions,
+        postprocessorCacheKey,
+        postprocessorName,
+        callerContext);
+  }
+
+  public BitmapMemoryCacheKey(
+      String sourceString,
+      @Nullable ResizeOptions resizeOptions,
+      @Nullable TileOptions tileOptions,
+      RotationOptions rotationOptions,
+      ImageDecodeOptions imageDecodeOptions,
+      @Nullable CacheKey postprocessorCacheKey,
+      @Nullable String postprocessorName,
+      Object callerContext) {
     mSourceString = Preconditions.checkNotNull(sourceString);
     mResizeOptions = resizeOptions;
+    mTileOptions = tileOptions;
     mRotationOptions = rotationOptions;
     mImageDecodeOptions = imageDecodeOptions;
     mPostprocessorCacheKey = postprocessorCacheKey;
     mPostprocessorName = postprocessorName;
+    int resizeHash = (resizeOptions != null) ? resizeOptions.hashCode() : 0;
+    if (tileOptions != null) {
+      resizeHash = HashCodeUtil.hashCode(resizeHash, tileOptions.hashCode());
+    }
     mHash =
         HashCodeUtil.hashCode(
             sourceString.hashCode(),
-            (resizeOptions != null) ? resizeOptions.hashCode() : 0,
+            resizeHash,
             rotationOptions.hashCode(),
             mImageDecodeOptions,
             mPostprocessorCacheKey,
@@ -69,6 +96,7 @@ public class BitmapMemoryCacheKey implements CacheKey {
     return mHash == otherKey.mHash
         && mSourceString.equals(otherKey.mSourceString)
         && Objects.equal(this.mResizeOptions, otherKey.mResizeOptions)
+        && Objects.equal(this.mTileOptions, otherKey.mTileOptions)
         && Objects.equal(this.mRotationOptions, otherKey.mRotationOptions)
         && Objects.equal(mImageDecodeOptions, otherKey.mImageDecodeOptions)
         && Objects.equal(mPostprocessorCacheKey, otherKey.mPostprocessorCacheKey)
@@ -90,6 +118,11 @@ public class BitmapMemoryCacheKey implements CacheKey {
     return mSourceString;
   }
 
+  @Nullable
+  public TileOptions getTileOptions() {
+    return mTileOptions;
+  }
+
   @Nullable
   public String getPostprocessorName() {
     return mPostprocessorName;
@@ -99,9 +132,10 @@ public class BitmapMemoryCacheKey implements CacheKey {
   public String toString() {
     return String.format(
         (Locale) null,
-        "%s_%s_%s_%s_%s_%s_%d",
+        "%s_%s_%s_%s_%s_%s_%s_%d",
         mSourceString,
         mResizeOptions,
+        mTileOptions,
         mRotationOptions,
         mImageDecodeOptions,
         mPostprocessorCacheKey,
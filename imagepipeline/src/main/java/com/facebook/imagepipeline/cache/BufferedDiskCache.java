@@ -18,6 +18,7 @@ import com.facebook.common.memory.PooledByteBuffer;
 import com.facebook.common.memory.PooledByteBufferFactory;
 import com.facebook.common.memory.PooledByteStreams;
 import com.facebook.common.references.CloseableReference;
+import com.facebook.common.streams.LimitedInputStream;
 import com.facebook.imagepipeline.image.EncodedImage;
 import com.facebook.imagepipeline.instrumentation.FrescoInstrumenter;
 import com.facebook.imagepipeline.systrace.FrescoSystrace;
@@ -36,6 +37,7 @@ import javax.annotation.Nullable;
  */
 public class BufferedDiskCache {
   private static final Class<?> TAG = BufferedDiskCache.class;
+  private static final int NO_LENGTH_LIMIT = -1;
 
   private final FileCache mFileCache;
   private final PooledByteBufferFactory mPooledByteBufferFactory;
@@ -143,7 +145,35 @@ public class BufferedDiskCache {
       if (pinnedImage != null) {
         return foundPinnedImage(key, pinnedImage);
       }
-      return getAsync(key, isCancelled);
+      return getAsync(key, NO_LENGTH_LIMIT, isCancelled);
+    } finally {
+      if (FrescoSystrace.isTracing()) {
+        FrescoSystrace.endSection();
+      }
+    }
+  }
+
+  /**
+   * Same as {@link #get(CacheKey, AtomicBoolean)}, but only reads the first bytes of the cached
+   * element from disk. The result is not a complete image, unless it is found in the staging area
+   * in which case the whole image is returned.
+   *
+   * @param key
+   * @param length maximum number of bytes to read
+   * @return Task that resolves to the cached prefix or null if one cannot be retrieved; returned
+   *     task never rethrows any exception
+   */
+  public Task<EncodedImage> getPrefix(CacheKey key, int length, AtomicBoolean isCancelled) {
+    Preconditions.checkArgument(length > 0);
+    try {
+      if (FrescoSystrace.isTracing()) {
+        FrescoSystrace.beginSection("BufferedDiskCache#getPrefix");
+      }
+      final EncodedImage pinnedImage = mStagingArea.get(key);
+      if (pinnedImage != null) {
+        return foundPinnedImage(key, pinnedImage);
+      }
+      return getAsync(key, length, isCancelled);
     } finally {
       if (FrescoSystrace.isTracing()) {
         FrescoSystrace.endSection();
@@ -176,7 +206,8 @@ public class BufferedDiskCache {
     }
   }
 
-  private Task<EncodedImage> getAsync(final CacheKey key, final AtomicBoolean isCancelled) {
+  private Task<EncodedImage> getAsync(
+      final CacheKey key, final int maxLength, final AtomicBoolean isCancelled) {
     try {
       final Object token = FrescoInstrumenter.onBeforeSubmitWork("BufferedDiskCache_getAsync");
       return Task.call(
@@ -197,7 +228,7 @@ public class BufferedDiskCache {
                   mImageCacheStatsTracker.onStagingAreaMiss(key);
 
                   try {
-                    final PooledByteBuffer buffer = readFromDiskCache(key);
+                    final PooledByteBuffer buffer = readFromDiskCache(key, maxLength);
                     if (buffer == null) {
                       return null;
                     }
@@ -352,7 +383,8 @@ public class BufferedDiskCache {
   }
 
   /** Performs disk cache read. In case of any exception null is returned. */
-  private @Nullable PooledByteBuffer readFromDiskCache(final CacheKey key) throws IOException {
+  private @Nullable PooledByteBuffer readFromDiskCache(final CacheKey key, final int maxLength)
+      throws IOException {
     try {
       FLog.v(TAG, "Disk cache read for %s", key.getUriString());
 
@@ -367,9 +399,16 @@ public class BufferedDiskCache {
       }
 
       PooledByteBuffer byteBuffer;
+      final int size = (int) diskCacheResource.size();
       final InputStream is = diskCacheResource.openStream();
       try {
-        byteBuffer = mPooledByteBufferFactory.newByteBuffer(is, (int) diskCacheResource.size());
+        if (maxLength != NO_LENGTH_LIMIT && maxLength < size) {
+          byteBuffer =
+              mPooledByteBufferFactory.newByteBuffer(
+                  new LimitedInputStream(is, maxLength), maxLength);
+        } else {
+          byteBuffer = mPooledByteBufferFactory.newByteBuffer(is, size);
+        }
       } finally {
         is.close();
       }
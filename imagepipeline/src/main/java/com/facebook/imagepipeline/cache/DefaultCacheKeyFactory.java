@@ -33,6 +33,7 @@ public class DefaultCacheKeyFactory implements CacheKeyFactory {
     return new BitmapMemoryCacheKey(
         getCacheKeySourceUri(request.getSourceUri()).toString(),
         request.getResizeOptions(),
+        request.getTileOptions(),
         request.getRotationOptions(),
         request.getImageDecodeOptions(),
         null,
@@ -55,6 +56,7 @@ public class DefaultCacheKeyFactory implements CacheKeyFactory {
     return new BitmapMemoryCacheKey(
         getCacheKeySourceUri(request.getSourceUri()).toString(),
         request.getResizeOptions(),
+        request.getTileOptions(),
         request.getRotationOptions(),
         request.getImageDecodeOptions(),
         postprocessorCacheKey,
@@ -17,6 +17,17 @@ public class EncodedCountingMemoryCacheFactory {
   public static CountingMemoryCache<CacheKey, PooledByteBuffer> get(
       Supplier<MemoryCacheParams> encodedMemoryCacheParamsSupplier,
       MemoryTrimmableRegistry memoryTrimmableRegistry) {
+    return get(encodedMemoryCacheParamsSupplier, memoryTrimmableRegistry, false);
+  }
+
+  /**
+   * @param segmentedLruEnabled whether encoded images cached for a prefetch are evicted before the
+   *     ones that were used
+   */
+  public static CountingMemoryCache<CacheKey, PooledByteBuffer> get(
+      Supplier<MemoryCacheParams> encodedMemoryCacheParamsSupplier,
+      MemoryTrimmableRegistry memoryTrimmableRegistry,
+      boolean segmentedLruEnabled) {
 
     ValueDescriptor<PooledByteBuffer> valueDescriptor =
         new ValueDescriptor<PooledByteBuffer>() {
@@ -29,7 +40,11 @@ public class EncodedCountingMemoryCacheFactory {
     CountingMemoryCache.CacheTrimStrategy trimStrategy = new NativeMemoryCacheTrimStrategy();
 
     CountingMemoryCache<CacheKey, PooledByteBuffer> countingCache =
-        new CountingMemoryCache<>(valueDescriptor, trimStrategy, encodedMemoryCacheParamsSupplier);
+        new CountingMemoryCache<>(
+            valueDescriptor,
+            trimStrategy,
+            encodedMemoryCacheParamsSupplier,
+            segmentedLruEnabled);
 
     memoryTrimmableRegistry.registerMemoryTrimmable(countingCache);
 
@@ -10,7 +10,7 @@ package com.facebook.imagepipeline.cache;
 import com.facebook.common.internal.Predicate;
 import com.facebook.common.references.CloseableReference;
 
-public class InstrumentedMemoryCache<K, V> implements MemoryCache<K, V> {
+public class InstrumentedMemoryCache<K, V> implements PrefetchAwareMemoryCache<K, V> {
 
   private final MemoryCache<K, V> mDelegate;
   private final MemoryCacheTracker mTracker;
@@ -22,7 +22,19 @@ public class InstrumentedMemoryCache<K, V> implements MemoryCache<K, V> {
 
   @Override
   public CloseableReference<V> get(K key) {
-    CloseableReference<V> result = mDelegate.get(key);
+    return track(key, mDelegate.get(key));
+  }
+
+  @Override
+  public CloseableReference<V> getForPrefetch(K key) {
+    return track(
+        key,
+        mDelegate instanceof PrefetchAwareMemoryCache
+            ? ((PrefetchAwareMemoryCache<K, V>) mDelegate).getForPrefetch(key)
+            : mDelegate.get(key));
+  }
+
+  private CloseableReference<V> track(K key, CloseableReference<V> result) {
     if (result == null) {
       mTracker.onCacheMiss(key);
     } else {
@@ -37,6 +49,14 @@ public class InstrumentedMemoryCache<K, V> implements MemoryCache<K, V> {
     return mDelegate.cache(key, value);
   }
 
+  @Override
+  public CloseableReference<V> cacheForPrefetch(K key, CloseableReference<V> value) {
+    mTracker.onCachePut(key);
+    return mDelegate instanceof PrefetchAwareMemoryCache
+        ? ((PrefetchAwareMemoryCache<K, V>) mDelegate).cacheForPrefetch(key, value)
+        : mDelegate.cache(key, value);
+  }
+
   @Override
   public int removeAll(Predicate<K> predicate) {
     return mDelegate.removeAll(predicate);
@@ -45,6 +45,19 @@ public class CloseableReferenceFactory {
         };
   }
 
+  /** Creates a factory whose references report leaks to an existing leak handler. */
+  public CloseableReferenceFactory(CloseableReference.LeakHandler leakHandler) {
+    mLeakHandler = leakHandler;
+  }
+
+  /**
+   * Returns the leak handler of this factory, so that components that cannot depend on {@link
+   * CloseableReferenceLeakTracker} can create factories reporting to the same tracker.
+   */
+  public CloseableReference.LeakHandler getLeakHandler() {
+    return mLeakHandler;
+  }
+
   public <U extends Closeable> CloseableReference<U> create(U u) {
     return CloseableReference.of(u, mLeakHandler);
   }
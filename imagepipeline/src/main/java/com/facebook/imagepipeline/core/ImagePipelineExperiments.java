@@ -57,6 +57,12 @@ public class ImagePipelineExperiments {
   private boolean mKeepCancelledFetchAsLowPriority;
   private boolean mDownsampleIfLargeBitmap;
   private boolean mEncodedCacheEnabled;
+  private final boolean mPostprocessedBitmapDiskCacheEnabled;
+  private final boolean mEncodedMemoryCacheSegmentedLruEnabled;
+  private final boolean mProgressiveJpegPartialDiskReadsEnabled;
+  private final boolean mStreamingDecodeEnabled;
+  private final boolean mPostDecodeResizeEnabled;
+  private final boolean mReleaseAnimationResourcesOnInactive;
 
   private ImagePipelineExperiments(Builder builder) {
     mWebpSupportEnabled = builder.mWebpSupportEnabled;
@@ -86,12 +92,42 @@ public class ImagePipelineExperiments {
     mKeepCancelledFetchAsLowPriority = builder.mKeepCancelledFetchAsLowPriority;
     mDownsampleIfLargeBitmap = builder.mDownsampleIfLargeBitmap;
     mEncodedCacheEnabled = builder.mEncodedCacheEnabled;
+    mPostprocessedBitmapDiskCacheEnabled = builder.mPostprocessedBitmapDiskCacheEnabled;
+    mEncodedMemoryCacheSegmentedLruEnabled = builder.mEncodedMemoryCacheSegmentedLruEnabled;
+    mProgressiveJpegPartialDiskReadsEnabled = builder.mProgressiveJpegPartialDiskReadsEnabled;
+    mStreamingDecodeEnabled = builder.mStreamingDecodeEnabled;
+    mPostDecodeResizeEnabled = builder.mPostDecodeResizeEnabled;
+    mReleaseAnimationResourcesOnInactive = builder.mReleaseAnimationResourcesOnInactive;
   }
 
   public boolean isEncodedCacheEnabled() {
     return mEncodedCacheEnabled;
   }
 
+  public boolean isPostprocessedBitmapDiskCacheEnabled() {
+    return mPostprocessedBitmapDiskCacheEnabled;
+  }
+
+  public boolean isEncodedMemoryCacheSegmentedLruEnabled() {
+    return mEncodedMemoryCacheSegmentedLruEnabled;
+  }
+
+  public boolean isProgressiveJpegPartialDiskReadsEnabled() {
+    return mProgressiveJpegPartialDiskReadsEnabled;
+  }
+
+  public boolean isStreamingDecodeEnabled() {
+    return mStreamingDecodeEnabled;
+  }
+
+  public boolean isPostDecodeResizeEnabled() {
+    return mPostDecodeResizeEnabled;
+  }
+
+  public boolean shouldReleaseAnimationResourcesOnInactive() {
+    return mReleaseAnimationResourcesOnInactive;
+  }
+
   public boolean shouldDownsampleIfLargeBitmap() {
     return mDownsampleIfLargeBitmap;
   }
@@ -211,6 +247,12 @@ public class ImagePipelineExperiments {
     private boolean mKeepCancelledFetchAsLowPriority;
     public boolean mDownsampleIfLargeBitmap;
     public boolean mEncodedCacheEnabled = true;
+    private boolean mPostprocessedBitmapDiskCacheEnabled = false;
+    private boolean mEncodedMemoryCacheSegmentedLruEnabled = false;
+    private boolean mProgressiveJpegPartialDiskReadsEnabled = false;
+    private boolean mStreamingDecodeEnabled = false;
+    private boolean mPostDecodeResizeEnabled = false;
+    private boolean mReleaseAnimationResourcesOnInactive = false;
 
     public Builder(ImagePipelineConfig.Builder configBuilder) {
       mConfigBuilder = configBuilder;
@@ -375,6 +417,71 @@ public class ImagePipelineExperiments {
       return mConfigBuilder;
     }
 
+    /**
+     * Enables a disk cache for postprocessed bitmaps. Results of postprocessors with a cache key
+     * are compressed and stored in the disk cache, so that later requests can skip decoding the
+     * original image and running the postprocessor.
+     */
+    public ImagePipelineConfig.Builder setPostprocessedBitmapDiskCacheEnabled(
+        boolean postprocessedBitmapDiskCacheEnabled) {
+      mPostprocessedBitmapDiskCacheEnabled = postprocessedBitmapDiskCacheEnabled;
+      return mConfigBuilder;
+    }
+
+    /**
+     * Keeps encoded images that were cached for a prefetch in a probationary segment of the encoded
+     * memory cache until a request for an image that is shown gets them. Probationary images are
+     * evicted first, so that bursts of prefetches do not evict the encoded images in use.
+     */
+    public ImagePipelineConfig.Builder setEncodedMemoryCacheSegmentedLruEnabled(
+        boolean encodedMemoryCacheSegmentedLruEnabled) {
+      mEncodedMemoryCacheSegmentedLruEnabled = encodedMemoryCacheSegmentedLruEnabled;
+      return mConfigBuilder;
+    }
+
+    /**
+     * Stores the scan offsets of JPEGs next to the disk cache entry. Network requests that are
+     * small compared to a progressive JPEG then only read and decode its first scans from the disk
+     * cache. Requires downsampling to be enabled.
+     */
+    public ImagePipelineConfig.Builder setProgressiveJpegPartialDiskReadsEnabled(
+        boolean progressiveJpegPartialDiskReadsEnabled) {
+      mProgressiveJpegPartialDiskReadsEnabled = progressiveJpegPartialDiskReadsEnabled;
+      return mConfigBuilder;
+    }
+
+    /**
+     * Decodes baseline JPEGs, PNGs and static WebPs from network while they are being downloaded.
+     * Intermediate results then show the rows downloaded so far, like progressive JPEGs show their
+     * first scans. Intermediate results have to be requested for this to have an effect.
+     */
+    public ImagePipelineConfig.Builder setStreamingDecodeEnabled(boolean streamingDecodeEnabled) {
+      mStreamingDecodeEnabled = streamingDecodeEnabled;
+      return mConfigBuilder;
+    }
+
+    /**
+     * Scales decoded bitmaps that are noticeably larger than the resize options of their request
+     * down to the requested size before they are put in the bitmap memory cache, instead of
+     * keeping the larger bitmap and scaling it at draw time.
+     */
+    public ImagePipelineConfig.Builder setPostDecodeResizeEnabled(
+        boolean postDecodeResizeEnabled) {
+      mPostDecodeResizeEnabled = postDecodeResizeEnabled;
+      return mConfigBuilder;
+    }
+
+    /**
+     * Releases the cached frames, pending frame preparations and temporary bitmaps of animations
+     * that have not been drawn for a while, instead of only clearing their frame cache. Everything
+     * is recreated when the animation is drawn again.
+     */
+    public ImagePipelineConfig.Builder setReleaseAnimationResourcesOnInactive(
+        boolean releaseAnimationResourcesOnInactive) {
+      mReleaseAnimationResourcesOnInactive = releaseAnimationResourcesOnInactive;
+      return mConfigBuilder;
+    }
+
     public ImagePipelineExperiments build() {
       return new ImagePipelineExperiments(this);
     }
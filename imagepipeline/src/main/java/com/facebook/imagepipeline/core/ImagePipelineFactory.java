@@ -164,7 +164,10 @@ public class ImagePipelineFactory {
               getPlatformBitmapFactory(),
               mConfig.getExecutorSupplier(),
               getBitmapCountingMemoryCache(),
-              mConfig.getExperiments().shouldDownscaleFrameToDrawableDimensions());
+              mConfig.getMemoryTrimmableRegistry(),
+              mConfig.getExperiments().shouldDownscaleFrameToDrawableDimensions(),
+              mConfig.getExperiments().shouldReleaseAnimationResourcesOnInactive(),
+              mCloseableReferenceFactory.getLeakHandler());
     }
     return mAnimatedFactory;
   }
@@ -202,7 +205,9 @@ public class ImagePipelineFactory {
     if (mEncodedCountingMemoryCache == null) {
       mEncodedCountingMemoryCache =
           EncodedCountingMemoryCacheFactory.get(
-              mConfig.getEncodedMemoryCacheParamsSupplier(), mConfig.getMemoryTrimmableRegistry());
+              mConfig.getEncodedMemoryCacheParamsSupplier(),
+              mConfig.getMemoryTrimmableRegistry(),
+              mConfig.getExperiments().isEncodedMemoryCacheSegmentedLruEnabled());
     }
     return mEncodedCountingMemoryCache;
   }
@@ -366,7 +371,10 @@ public class ImagePipelineFactory {
               useBitmapPrepareToDraw,
               mConfig.getExperiments().isPartialImageCachingEnabled(),
               mConfig.isDiskCacheEnabled(),
-              getImageTranscoderFactory());
+              getImageTranscoderFactory(),
+              mConfig.getExperiments().isPostprocessedBitmapDiskCacheEnabled(),
+              mConfig.getExperiments().isProgressiveJpegPartialDiskReadsEnabled(),
+              mConfig.getExperiments().isPostDecodeResizeEnabled());
     }
     return mProducerSequenceFactory;
   }
@@ -29,6 +29,7 @@ import com.facebook.imagepipeline.producers.BitmapMemoryCacheGetProducer;
 import com.facebook.imagepipeline.producers.BitmapMemoryCacheKeyMultiplexProducer;
 import com.facebook.imagepipeline.producers.BitmapMemoryCacheProducer;
 import com.facebook.imagepipeline.producers.BitmapPrepareProducer;
+import com.facebook.imagepipeline.producers.BitmapResizeProducer;
 import com.facebook.imagepipeline.producers.BranchOnSeparateImagesProducer;
 import com.facebook.imagepipeline.producers.DataFetchProducer;
 import com.facebook.imagepipeline.producers.DecodeProducer;
@@ -47,10 +48,13 @@ import com.facebook.imagepipeline.producers.NetworkFetchProducer;
 import com.facebook.imagepipeline.producers.NetworkFetcher;
 import com.facebook.imagepipeline.producers.NullProducer;
 import com.facebook.imagepipeline.producers.PartialDiskCacheProducer;
+import com.facebook.imagepipeline.producers.PostprocessedBitmapDiskCacheProducer;
 import com.facebook.imagepipeline.producers.PostprocessedBitmapMemoryCacheProducer;
 import com.facebook.imagepipeline.producers.PostprocessorProducer;
 import com.facebook.imagepipeline.producers.Producer;
+import com.facebook.imagepipeline.producers.ProgressiveJpegDiskCacheProducer;
 import com.facebook.imagepipeline.producers.QualifiedResourceFetchProducer;
+import com.facebook.imagepipeline.producers.RegionDecodeProducer;
 import com.facebook.imagepipeline.producers.ResizeAndRotateProducer;
 import com.facebook.imagepipeline.producers.SwallowResultProducer;
 import com.facebook.imagepipeline.producers.ThreadHandoffProducer;
@@ -290,6 +294,37 @@ public class ProducerFactory {
         mBitmapMemoryCache, mCacheKeyFactory, inputProducer);
   }
 
+  public PostprocessedBitmapDiskCacheProducer newPostprocessedBitmapDiskCacheProducer(
+      Producer<CloseableReference<CloseableImage>> inputProducer) {
+    return new PostprocessedBitmapDiskCacheProducer(
+        mDefaultBufferedDiskCache,
+        mSmallImageBufferedDiskCache,
+        mCacheKeyFactory,
+        mPooledByteBufferFactory,
+        mImageDecoder,
+        mExecutorSupplier.forDecode(),
+        mExecutorSupplier.forBackgroundTasks(),
+        inputProducer);
+  }
+
+  public ProgressiveJpegDiskCacheProducer newProgressiveJpegDiskCacheProducer(
+      Producer<EncodedImage> inputProducer) {
+    return new ProgressiveJpegDiskCacheProducer(
+        mEncodedMemoryCache,
+        mDefaultBufferedDiskCache,
+        mSmallImageBufferedDiskCache,
+        mCacheKeyFactory,
+        mPooledByteBufferFactory,
+        mByteArrayPool,
+        mProgressiveJpegConfig,
+        mExecutorSupplier.forBackgroundTasks(),
+        inputProducer);
+  }
+
+  public RegionDecodeProducer newRegionDecodeProducer(Producer<EncodedImage> inputProducer) {
+    return new RegionDecodeProducer(mExecutorSupplier.forDecode(), inputProducer);
+  }
+
   public PostprocessorProducer newPostprocessorProducer(
       Producer<CloseableReference<CloseableImage>> inputProducer) {
     return new PostprocessorProducer(
@@ -337,4 +372,9 @@ public class ProducerFactory {
         mBitmapPrepareToDrawMaxSizeBytes,
         mBitmapPrepareToDrawForPrefetch);
   }
+
+  public BitmapResizeProducer newBitmapResizeProducer(
+      Producer<CloseableReference<CloseableImage>> inputProducer) {
+    return new BitmapResizeProducer(inputProducer, mPlatformBitmapFactory);
+  }
 }
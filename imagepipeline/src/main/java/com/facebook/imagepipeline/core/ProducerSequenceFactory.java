@@ -28,7 +28,6 @@ import com.facebook.imagepipeline.image.CloseableImage;
 import com.facebook.imagepipeline.image.EncodedImage;
 import com.facebook.imagepipeline.producers.BitmapMemoryCacheKeyMultiplexProducer;
 import com.facebook.imagepipeline.producers.BitmapMemoryCacheProducer;
-import com.facebook.imagepipeline.producers.DecodeProducer;
 import com.facebook.imagepipeline.producers.DiskCacheReadProducer;
 import com.facebook.imagepipeline.producers.EncodedMemoryCacheProducer;
 import com.facebook.imagepipeline.producers.LocalAssetFetchProducer;
@@ -38,9 +37,9 @@ import com.facebook.imagepipeline.producers.LocalResourceFetchProducer;
 import com.facebook.imagepipeline.producers.LocalVideoThumbnailProducer;
 import com.facebook.imagepipeline.producers.NetworkFetcher;
 import com.facebook.imagepipeline.producers.PostprocessedBitmapMemoryCacheProducer;
-import com.facebook.imagepipeline.producers.PostprocessorProducer;
 import com.facebook.imagepipeline.producers.Producer;
 import com.facebook.imagepipeline.producers.QualifiedResourceFetchProducer;
+import com.facebook.imagepipeline.producers.RegionDecodeProducer;
 import com.facebook.imagepipeline.producers.RemoveImageTransformMetaDataProducer;
 import com.facebook.imagepipeline.producers.SwallowResultProducer;
 import com.facebook.imagepipeline.producers.ThreadHandoffProducer;
@@ -66,6 +65,9 @@ public class ProducerSequenceFactory {
   private final boolean mDownsampleEnabled;
   private final boolean mUseBitmapPrepareToDraw;
   private final boolean mDiskCacheEnabled;
+  private final boolean mPostprocessedBitmapDiskCacheEnabled;
+  private final boolean mProgressiveJpegPartialDiskReadsEnabled;
+  private final boolean mPostDecodeResizeEnabled;
   private final ImageTranscoderFactory mImageTranscoderFactory;
 
   // Saved sequences
@@ -93,6 +95,8 @@ public class ProducerSequenceFactory {
   @VisibleForTesting Producer<CloseableReference<CloseableImage>> mLocalAssetFetchSequence;
   @VisibleForTesting Producer<CloseableReference<CloseableImage>> mDataFetchSequence;
   @VisibleForTesting Producer<CloseableReference<CloseableImage>> mQualifiedResourceFetchSequence;
+  @VisibleForTesting Producer<CloseableReference<CloseableImage>> mNetworkTileFetchSequence;
+  @VisibleForTesting Producer<CloseableReference<CloseableImage>> mLocalImageFileTileFetchSequence;
 
   @VisibleForTesting
   Map<Producer<CloseableReference<CloseableImage>>, Producer<CloseableReference<CloseableImage>>>
@@ -118,6 +122,38 @@ public class ProducerSequenceFactory {
       boolean partialImageCachingEnabled,
       boolean diskCacheEnabled,
       ImageTranscoderFactory imageTranscoderFactory) {
+    this(
+        contentResolver,
+        producerFactory,
+        networkFetcher,
+        resizeAndRotateEnabledForNetwork,
+        webpSupportEnabled,
+        threadHandoffProducerQueue,
+        downSampleEnabled,
+        useBitmapPrepareToDraw,
+        partialImageCachingEnabled,
+        diskCacheEnabled,
+        imageTranscoderFactory,
+        false,
+        false,
+        false);
+  }
+
+  public ProducerSequenceFactory(
+      ContentResolver contentResolver,
+      ProducerFactory producerFactory,
+      NetworkFetcher networkFetcher,
+      boolean resizeAndRotateEnabledForNetwork,
+      boolean webpSupportEnabled,
+      ThreadHandoffProducerQueue threadHandoffProducerQueue,
+      boolean downSampleEnabled,
+      boolean useBitmapPrepareToDraw,
+      boolean partialImageCachingEnabled,
+      boolean diskCacheEnabled,
+      ImageTranscoderFactory imageTranscoderFactory,
+      boolean postprocessedBitmapDiskCacheEnabled,
+      boolean progressiveJpegPartialDiskReadsEnabled,
+      boolean postDecodeResizeEnabled) {
     mContentResolver = contentResolver;
     mProducerFactory = producerFactory;
     mNetworkFetcher = networkFetcher;
@@ -132,6 +168,9 @@ public class ProducerSequenceFactory {
     mPartialImageCachingEnabled = partialImageCachingEnabled;
     mDiskCacheEnabled = diskCacheEnabled;
     mImageTranscoderFactory = imageTranscoderFactory;
+    mPostprocessedBitmapDiskCacheEnabled = postprocessedBitmapDiskCacheEnabled;
+    mProgressiveJpegPartialDiskReadsEnabled = progressiveJpegPartialDiskReadsEnabled;
+    mPostDecodeResizeEnabled = postDecodeResizeEnabled;
   }
 
   /**
@@ -342,6 +381,10 @@ public class ProducerSequenceFactory {
       Uri uri = imageRequest.getSourceUri();
       Preconditions.checkNotNull(uri, "Uri is null.");
 
+      if (imageRequest.getTileOptions() != null) {
+        return getTileFetchSequence(imageRequest);
+      }
+
       switch (imageRequest.getSourceUriType()) {
         case SOURCE_TYPE_NETWORK:
           return getNetworkFetchSequence();
@@ -373,11 +416,54 @@ public class ProducerSequenceFactory {
     }
   }
 
+  private Producer<CloseableReference<CloseableImage>> getTileFetchSequence(
+      ImageRequest imageRequest) {
+    switch (imageRequest.getSourceUriType()) {
+      case SOURCE_TYPE_NETWORK:
+        return getNetworkTileFetchSequence();
+      case SOURCE_TYPE_LOCAL_IMAGE_FILE:
+        return getLocalImageFileTileFetchSequence();
+      default:
+        throw new IllegalArgumentException(
+            "Unsupported uri scheme for tiled decoding! Uri is: "
+                + getShortenedUriString(imageRequest.getSourceUri()));
+    }
+  }
+
   /**
-   * swallow result if prefetch -> bitmap cache get -> background thread hand-off -> multiplex ->
-   * bitmap cache -> decode -> multiplex -> encoded cache -> disk cache -> (webp transcode) ->
+   * bitmap cache get -> background thread hand-off -> multiplex -> bitmap cache -> region decode
+   * -> add meta data producer -> multiplex -> encoded cache -> disk cache -> (webp transcode) ->
    * network fetch.
    */
+  private synchronized Producer<CloseableReference<CloseableImage>>
+      getNetworkTileFetchSequence() {
+    if (mNetworkTileFetchSequence == null) {
+      mNetworkTileFetchSequence =
+          newBitmapCacheGetToRegionDecodeSequence(
+              mProducerFactory.newNetworkFetchProducer(mNetworkFetcher));
+    }
+    return mNetworkTileFetchSequence;
+  }
+
+  /**
+   * bitmap cache get -> background thread hand-off -> multiplex -> bitmap cache -> region decode
+   * -> add meta data producer -> multiplex -> encoded cache -> (webp transcode) -> local file
+   * fetch.
+   */
+  private synchronized Producer<CloseableReference<CloseableImage>>
+      getLocalImageFileTileFetchSequence() {
+    if (mLocalImageFileTileFetchSequence == null) {
+      mLocalImageFileTileFetchSequence =
+          newBitmapCacheGetToRegionDecodeSequence(mProducerFactory.newLocalFileFetchProducer());
+    }
+    return mLocalImageFileTileFetchSequence;
+  }
+
+  /**
+   * swallow result if prefetch -> bitmap cache get -> background thread hand-off -> multiplex ->
+   * bitmap cache -> decode -> (progressive jpeg disk cache) -> multiplex -> encoded cache -> disk
+   * cache -> (webp transcode) -> network fetch.
+   */
   private synchronized Producer<CloseableReference<CloseableImage>> getNetworkFetchSequence() {
     if (FrescoSystrace.isTracing()) {
       FrescoSystrace.beginSection("ProducerSequenceFactory#getNetworkFetchSequence");
@@ -386,8 +472,12 @@ public class ProducerSequenceFactory {
       if (FrescoSystrace.isTracing()) {
         FrescoSystrace.beginSection("ProducerSequenceFactory#getNetworkFetchSequence:init");
       }
-      mNetworkFetchSequence =
-          newBitmapCacheGetToDecodeSequence(getCommonNetworkFetchToEncodedMemorySequence());
+      Producer<EncodedImage> inputProducer = getCommonNetworkFetchToEncodedMemorySequence();
+      // Truncated images are only useful if the decoder downsamples them to the target size
+      if (mProgressiveJpegPartialDiskReadsEnabled && mDiskCacheEnabled && mDownsampleEnabled) {
+        inputProducer = mProducerFactory.newProgressiveJpegDiskCacheProducer(inputProducer);
+      }
+      mNetworkFetchSequence = newBitmapCacheGetToDecodeSequence(inputProducer);
       if (FrescoSystrace.isTracing()) {
         FrescoSystrace.endSection();
       }
@@ -728,7 +818,8 @@ public class ProducerSequenceFactory {
   }
 
   /**
-   * Same as {@code newBitmapCacheGetToBitmapCacheSequence} but with an extra DecodeProducer.
+   * Same as {@code newBitmapCacheGetToBitmapCacheSequence} but with an extra DecodeProducer, and a
+   * BitmapResizeProducer if post-decode resizing is enabled.
    *
    * @param inputProducer producer providing the input to the decode
    * @return bitmap cache get to decode sequence
@@ -738,7 +829,11 @@ public class ProducerSequenceFactory {
     if (FrescoSystrace.isTracing()) {
       FrescoSystrace.beginSection("ProducerSequenceFactory#newBitmapCacheGetToDecodeSequence");
     }
-    DecodeProducer decodeProducer = mProducerFactory.newDecodeProducer(inputProducer);
+    Producer<CloseableReference<CloseableImage>> decodeProducer =
+        mProducerFactory.newDecodeProducer(inputProducer);
+    if (mPostDecodeResizeEnabled) {
+      decodeProducer = mProducerFactory.newBitmapResizeProducer(decodeProducer);
+    }
     Producer<CloseableReference<CloseableImage>> result =
         newBitmapCacheGetToBitmapCacheSequence(decodeProducer);
     if (FrescoSystrace.isTracing()) {
@@ -747,6 +842,23 @@ public class ProducerSequenceFactory {
     return result;
   }
 
+  /**
+   * Bitmap cache get to region decode sequence. Tiles are decoded from the unmodified encoded
+   * image, so unlike the full decode sequences there is no resize and rotate producer.
+   *
+   * @param fetchProducer producer fetching the encoded image
+   * @return bitmap cache get to region decode sequence
+   */
+  private Producer<CloseableReference<CloseableImage>> newBitmapCacheGetToRegionDecodeSequence(
+      Producer<EncodedImage> fetchProducer) {
+    Producer<EncodedImage> inputProducer =
+        ProducerFactory.newAddImageTransformMetaDataProducer(
+            newEncodedCacheMultiplexToTranscodeSequence(fetchProducer));
+    RegionDecodeProducer regionDecodeProducer =
+        mProducerFactory.newRegionDecodeProducer(inputProducer);
+    return newBitmapCacheGetToBitmapCacheSequence(regionDecodeProducer);
+  }
+
   /**
    * encoded cache multiplex -> encoded cache -> (disk cache) -> (webp transcode)
    *
@@ -834,12 +946,19 @@ public class ProducerSequenceFactory {
         thumbnailBranchProducer, true, mImageTranscoderFactory);
   }
 
-  /** post-processor producer -> copy producer -> inputProducer */
+  /**
+   * postprocessed bitmap memory cache -> (postprocessed bitmap disk cache) -> post-processor
+   * producer -> inputProducer
+   */
   private synchronized Producer<CloseableReference<CloseableImage>> getPostprocessorSequence(
       Producer<CloseableReference<CloseableImage>> inputProducer) {
     if (!mPostprocessorSequences.containsKey(inputProducer)) {
-      PostprocessorProducer postprocessorProducer =
+      Producer<CloseableReference<CloseableImage>> postprocessorProducer =
           mProducerFactory.newPostprocessorProducer(inputProducer);
+      if (mDiskCacheEnabled && mPostprocessedBitmapDiskCacheEnabled) {
+        postprocessorProducer =
+            mProducerFactory.newPostprocessedBitmapDiskCacheProducer(postprocessorProducer);
+      }
       PostprocessedBitmapMemoryCacheProducer postprocessedBitmapMemoryCacheProducer =
           mProducerFactory.newPostprocessorBitmapMemoryCacheProducer(postprocessorProducer);
       mPostprocessorSequences.put(inputProducer, postprocessedBitmapMemoryCacheProducer);
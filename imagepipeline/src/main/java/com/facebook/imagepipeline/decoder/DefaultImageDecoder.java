@@ -63,7 +63,7 @@ public class DefaultImageDecoder implements ImageDecoder {
           } else if (imageFormat == ImageFormat.UNKNOWN) {
             throw new DecodeException("unknown image format", encodedImage);
           }
-          return decodeStaticImage(encodedImage, options);
+          return decodeStaticImage(encodedImage, qualityInfo, options);
         }
       };
 
@@ -147,6 +147,17 @@ public class DefaultImageDecoder implements ImageDecoder {
    */
   public CloseableStaticBitmap decodeStaticImage(
       final EncodedImage encodedImage, ImageDecodeOptions options) {
+    return decodeStaticImage(encodedImage, ImmutableQualityInfo.FULL_QUALITY, options);
+  }
+
+  /**
+   * Decodes a static image with the platform decoder.
+   *
+   * @param qualityInfo quality of the result, the encoded image might only be the start of the
+   *     image, e.g. while it is being downloaded
+   */
+  public CloseableStaticBitmap decodeStaticImage(
+      final EncodedImage encodedImage, QualityInfo qualityInfo, ImageDecodeOptions options) {
     CloseableReference<Bitmap> bitmapReference =
         mPlatformDecoder.decodeFromEncodedImageWithColorSpace(
             encodedImage, options.bitmapConfig, null, options.colorSpace);
@@ -154,7 +165,7 @@ public class DefaultImageDecoder implements ImageDecoder {
       maybeApplyTransformation(options.bitmapTransformation, bitmapReference);
       return new CloseableStaticBitmap(
           bitmapReference,
-          ImmutableQualityInfo.FULL_QUALITY,
+          qualityInfo,
           encodedImage.getRotationAngle(),
           encodedImage.getExifOrientation());
     } finally {
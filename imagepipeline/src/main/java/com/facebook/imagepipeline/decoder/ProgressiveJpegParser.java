@@ -17,6 +17,8 @@ import com.facebook.imagepipeline.image.EncodedImage;
 import com.facebook.imageutils.JfifUtil;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import javax.annotation.Nullable;
 
 /**
  * Progressively scans jpeg data and instructs caller when enough data is available to decode a
@@ -65,6 +67,15 @@ public class ProgressiveJpegParser {
   /** The buffer size in bytes to use. */
   private static final int BUFFER_SIZE = 16 * 1024;
 
+  // Start of frame markers of progressive JPEGs
+  private static final int MARKER_SOF2 = 0xC2;
+  private static final int MARKER_SOF6 = 0xC6;
+  private static final int MARKER_SOF10 = 0xCA;
+  private static final int MARKER_SOF14 = 0xCE;
+
+  /** Typical progressive JPEG encoders write up to 10 scans. */
+  private static final int INITIAL_SCAN_BOUNDARY_OFFSETS_CAPACITY = 11;
+
   private int mParserState;
   private int mLastByteRead;
 
@@ -77,11 +88,28 @@ public class ProgressiveJpegParser {
   private int mBestScanNumber;
   private int mBestScanEndOffset;
   private boolean mEndMarkerRead;
+  private boolean mIsProgressive;
+
+  /** offsets of all SOS and EOI markers found so far, only recorded if requested */
+  private @Nullable int[] mScanBoundaryOffsets;
+
+  private int mScanBoundaryOffsetsCount;
 
   private final ByteArrayPool mByteArrayPool;
 
   public ProgressiveJpegParser(ByteArrayPool byteArrayPool) {
+    this(byteArrayPool, false);
+  }
+
+  /**
+   * @param byteArrayPool pool for the read buffer
+   * @param recordScanBoundaries whether to keep the boundaries of every scan instead of only the
+   *     end of the best one, see {@link #getScanBoundaryOffsets()}
+   */
+  public ProgressiveJpegParser(ByteArrayPool byteArrayPool, boolean recordScanBoundaries) {
     mByteArrayPool = Preconditions.checkNotNull(byteArrayPool);
+    mScanBoundaryOffsets =
+        recordScanBoundaries ? new int[INITIAL_SCAN_BOUNDARY_OFFSETS_CAPACITY] : null;
     mBytesParsed = 0;
     mLastByteRead = 0;
     mNextFullScanNumber = 0;
@@ -185,6 +213,8 @@ public class ProgressiveJpegParser {
             } else {
               if (nextByte == JfifUtil.MARKER_SOS) {
                 newScanOrImageEndFound(mBytesParsed - 2);
+              } else if (isProgressiveStartOfFrameMarker(nextByte)) {
+                mIsProgressive = true;
               }
 
               if (doesMarkerStartSegment(nextByte)) {
@@ -225,6 +255,13 @@ public class ProgressiveJpegParser {
     return mParserState != NOT_A_JPEG && mBestScanNumber != oldBestScanNumber;
   }
 
+  private static boolean isProgressiveStartOfFrameMarker(int markerSecondByte) {
+    return markerSecondByte == MARKER_SOF2
+        || markerSecondByte == MARKER_SOF6
+        || markerSecondByte == MARKER_SOF10
+        || markerSecondByte == MARKER_SOF14;
+  }
+
   /** Not every marker is followed by associated segment */
   private static boolean doesMarkerStartSegment(int markerSecondByte) {
     if (markerSecondByte == JfifUtil.MARKER_TEM) {
@@ -242,9 +279,20 @@ public class ProgressiveJpegParser {
     if (mNextFullScanNumber > 0) {
       mBestScanEndOffset = offset;
     }
+    recordScanBoundaryOffset(offset);
     mBestScanNumber = mNextFullScanNumber++;
   }
 
+  private void recordScanBoundaryOffset(int offset) {
+    if (mScanBoundaryOffsets == null) {
+      return;
+    }
+    if (mScanBoundaryOffsetsCount == mScanBoundaryOffsets.length) {
+      mScanBoundaryOffsets = Arrays.copyOf(mScanBoundaryOffsets, mScanBoundaryOffsetsCount * 2);
+    }
+    mScanBoundaryOffsets[mScanBoundaryOffsetsCount++] = offset;
+  }
+
   public boolean isJpeg() {
     return mBytesParsed > 1 && mParserState != NOT_A_JPEG;
   }
@@ -259,6 +307,31 @@ public class ProgressiveJpegParser {
     return mBestScanNumber;
   }
 
+  /**
+   * Returns the offsets of the SOS and EOI markers found so far. Scan number i + 1 starts at the
+   * offset at index i and ends at the offset at index i + 1, which is where the data should be cut
+   * to decode the result of that scan.
+   *
+   * @throws IllegalStateException if the parser was not created to record scan boundaries
+   */
+  public int[] getScanBoundaryOffsets() {
+    Preconditions.checkState(mScanBoundaryOffsets != null, "Scan boundaries are not recorded");
+    return Arrays.copyOf(mScanBoundaryOffsets, mScanBoundaryOffsetsCount);
+  }
+
+  /** Returns true if the start of frame marker of a progressive JPEG has been read. */
+  public boolean isProgressive() {
+    return mIsProgressive;
+  }
+
+  /**
+   * Returns true if the first scan has started. All the headers needed to decode the image have
+   * been read by then.
+   */
+  public boolean isFirstScanStarted() {
+    return mNextFullScanNumber > 0;
+  }
+
   /** Returns true if the end marker has been read. */
   public boolean isEndMarkerRead() {
     return mEndMarkerRead;
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.decoder;
+
+import com.facebook.common.internal.Preconditions;
+import com.facebook.common.internal.VisibleForTesting;
+import com.facebook.common.memory.ByteArrayPool;
+import com.facebook.common.memory.PooledByteBuffer;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imagepipeline.image.EncodedImage;
+import com.facebook.imageutils.JfifUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Index of the scans of a progressive JPEG.
+ *
+ * <p>For every scan the index keeps the offset at which the scan ends and the highest DCT
+ * coefficient (in zigzag order) up to which all components have received all coefficients at full
+ * precision once the scan has been read. Decoding a JPEG at 1/n of its size only needs the
+ * coefficients of the top left (8/n)x(8/n) block, so the index tells how many bytes of the image
+ * have to be read to decode it at a given target size. The index is small and can be stored next
+ * to the image, e.g. in the disk cache.
+ *
+ * <p>With successive approximation, as in the default libjpeg progression, the first scans of a
+ * band leave out the low-order bits of its coefficients. A band only counts once a scan with a
+ * point transform (Al) of 0 has refined it, so that a prefix is never decoded at reduced precision.
+ */
+@Immutable
+public class ProgressiveJpegScanIndex {
+
+  private static final int MAGIC = 0x4a534932; // "JSI2"
+
+  /** highest zigzag index needed for a scaled IDCT of size 1, 2, 4 and 8 */
+  private static final int[] COEFFICIENTS_FOR_SCALED_SIZE = {0, 4, 24, 63};
+
+  private static final int MAX_COMPONENT_ID = 255;
+
+  /** larger targets need the fine precision of the last scans anyway */
+  private static final float MAX_TARGET_RATIO = 0.5f;
+
+  private final int mWidth;
+  private final int mHeight;
+  private final int[] mScanEndOffsets;
+  private final int[] mCoveredCoefficients;
+
+  @VisibleForTesting
+  ProgressiveJpegScanIndex(int width, int height, int[] scanEndOffsets, int[] coveredCoefficients) {
+    Preconditions.checkArgument(scanEndOffsets.length == coveredCoefficients.length);
+    mWidth = width;
+    mHeight = height;
+    mScanEndOffsets = scanEndOffsets;
+    mCoveredCoefficients = coveredCoefficients;
+  }
+
+  /**
+   * Builds the index of a complete JPEG image.
+   *
+   * @param encodedImage the image, its meta data must have been parsed
+   * @return the index, or null if the image is not a complete progressive JPEG with at least two
+   *     scans
+   */
+  public static @Nullable ProgressiveJpegScanIndex create(
+      EncodedImage encodedImage, ByteArrayPool byteArrayPool) {
+    if (encodedImage.getWidth() <= 0 || encodedImage.getHeight() <= 0) {
+      return null;
+    }
+    final ProgressiveJpegParser parser = new ProgressiveJpegParser(byteArrayPool, true);
+    parser.parseMoreData(encodedImage);
+    if (!parser.isJpeg() || !parser.isEndMarkerRead() || !parser.isProgressive()) {
+      return null;
+    }
+    // The boundaries are the start of every scan and the end of the image
+    final int[] boundaries = parser.getScanBoundaryOffsets();
+    if (boundaries.length < 3) {
+      return null;
+    }
+    final CloseableReference<PooledByteBuffer> bufferRef = encodedImage.getByteBufferRef();
+    if (bufferRef == null) {
+      return null;
+    }
+    try {
+      return create(
+          encodedImage.getWidth(), encodedImage.getHeight(), bufferRef.get(), boundaries);
+    } finally {
+      CloseableReference.closeSafely(bufferRef);
+    }
+  }
+
+  private static @Nullable ProgressiveJpegScanIndex create(
+      int width, int height, PooledByteBuffer buffer, int[] boundaries) {
+    final int scanCount = boundaries.length - 1;
+    final int[] scanEndOffsets = new int[scanCount];
+    final int[] coveredCoefficients = new int[scanCount];
+    // coefficients received at full precision so far per component, bit i for zigzag index i
+    final long[] complete = new long[MAX_COMPONENT_ID + 1];
+    final boolean[] seen = new boolean[MAX_COMPONENT_ID + 1];
+    for (int scan = 0; scan < scanCount; scan++) {
+      final int offset = boundaries[scan];
+      if (offset + 5 > buffer.size() || (buffer.read(offset + 1) & 0xFF) != JfifUtil.MARKER_SOS) {
+        return null;
+      }
+      final int componentCount = buffer.read(offset + 4) & 0xFF;
+      final int spectralOffset = offset + 5 + 2 * componentCount;
+      if (spectralOffset + 3 > buffer.size()) {
+        return null;
+      }
+      final int spectralStart = buffer.read(spectralOffset) & 0xFF;
+      final int spectralEnd = buffer.read(spectralOffset + 1) & 0xFF;
+      // The low nibble is the point transform Al, the scan leaves out that many low-order bits
+      final int successiveApproximationLow = buffer.read(spectralOffset + 2) & 0x0F;
+      if (spectralStart > spectralEnd || spectralEnd > 63) {
+        return null;
+      }
+      final long band = (-1L >>> (63 - spectralEnd)) & (-1L << spectralStart);
+      for (int i = 0; i < componentCount; i++) {
+        final int componentId = buffer.read(offset + 5 + 2 * i) & 0xFF;
+        seen[componentId] = true;
+        if (successiveApproximationLow == 0) {
+          complete[componentId] |= band;
+        }
+      }
+      int minCovered = Integer.MAX_VALUE;
+      for (int componentId = 0; componentId <= MAX_COMPONENT_ID; componentId++) {
+        if (seen[componentId]) {
+          // highest index before the first coefficient that is still missing
+          minCovered =
+              Math.min(minCovered, Long.numberOfTrailingZeros(~complete[componentId]) - 1);
+        }
+      }
+      scanEndOffsets[scan] = boundaries[scan + 1];
+      coveredCoefficients[scan] = minCovered;
+    }
+    return new ProgressiveJpegScanIndex(width, height, scanEndOffsets, coveredCoefficients);
+  }
+
+  public int getScanCount() {
+    return mScanEndOffsets.length;
+  }
+
+  /**
+   * Returns how many bytes have to be read to decode the image at the given target size.
+   *
+   * <p>Only targets up to half the size of the image are considered. Only prefixes that end with a
+   * scan that is of good enough quality according to the given config are returned, and only if
+   * they leave out at least one scan.
+   *
+   * @param targetWidth the width the image will be displayed at
+   * @param targetHeight the height the image will be displayed at
+   * @param progressiveJpegConfig config to check the quality of the scans with
+   * @return the length of the prefix to read, or 0 if the whole image should be read
+   */
+  public int getPrefixLength(
+      int targetWidth, int targetHeight, ProgressiveJpegConfig progressiveJpegConfig) {
+    if (targetWidth <= 0 || targetHeight <= 0) {
+      return 0;
+    }
+    // The target size does not take rotation into account, compare against the shorter side
+    final float ratio = (float) Math.max(targetWidth, targetHeight) / Math.min(mWidth, mHeight);
+    if (ratio > MAX_TARGET_RATIO) {
+      return 0;
+    }
+    int sizeIndex = 0;
+    while (sizeIndex < COEFFICIENTS_FOR_SCALED_SIZE.length - 1
+        && (1 << sizeIndex) < ratio * 8) {
+      sizeIndex++;
+    }
+    final int neededCoefficient = COEFFICIENTS_FOR_SCALED_SIZE[sizeIndex];
+    for (int scan = 0; scan < mScanEndOffsets.length - 1; scan++) {
+      if (mCoveredCoefficients[scan] >= neededCoefficient
+          && progressiveJpegConfig.getQualityInfo(scan + 1).isOfGoodEnoughQuality()) {
+        return mScanEndOffsets[scan];
+      }
+    }
+    return 0;
+  }
+
+  /** Serializes the index, see {@link #fromInputStream(InputStream)}. */
+  public byte[] toByteArray() {
+    final ByteArrayOutputStream outputStream =
+        new ByteArrayOutputStream(16 + 8 * mScanEndOffsets.length);
+    final DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+    try {
+      dataOutputStream.writeInt(MAGIC);
+      dataOutputStream.writeInt(mWidth);
+      dataOutputStream.writeInt(mHeight);
+      dataOutputStream.writeInt(mScanEndOffsets.length);
+      for (int scan = 0; scan < mScanEndOffsets.length; scan++) {
+        dataOutputStream.writeInt(mScanEndOffsets[scan]);
+        dataOutputStream.writeInt(mCoveredCoefficients[scan]);
+      }
+    } catch (IOException ioe) {
+      // Does not happen, writes to a byte array output stream do not fail
+      throw new IllegalStateException(ioe);
+    }
+    return outputStream.toByteArray();
+  }
+
+  /**
+   * Reads an index written by {@link #toByteArray()}.
+   *
+   * @return the index, or null if the data is not a valid index
+   */
+  public static @Nullable ProgressiveJpegScanIndex fromInputStream(InputStream inputStream)
+      throws IOException {
+    final DataInputStream dataInputStream = new DataInputStream(inputStream);
+    if (dataInputStream.readInt() != MAGIC) {
+      return null;
+    }
+    final int width = dataInputStream.readInt();
+    final int height = dataInputStream.readInt();
+    final int scanCount = dataInputStream.readInt();
+    if (width <= 0 || height <= 0 || scanCount <= 0 || scanCount > 0xFFFF) {
+      return null;
+    }
+    final int[] scanEndOffsets = new int[scanCount];
+    final int[] coveredCoefficients = new int[scanCount];
+    for (int scan = 0; scan < scanCount; scan++) {
+      scanEndOffsets[scan] = dataInputStream.readInt();
+      coveredCoefficients[scan] = dataInputStream.readInt();
+    }
+    return new ProgressiveJpegScanIndex(width, height, scanEndOffsets, coveredCoefficients);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other == this) {
+      return true;
+    }
+    if (!(other instanceof ProgressiveJpegScanIndex)) {
+      return false;
+    }
+    final ProgressiveJpegScanIndex that = (ProgressiveJpegScanIndex) other;
+    return mWidth == that.mWidth
+        && mHeight == that.mHeight
+        && Arrays.equals(mScanEndOffsets, that.mScanEndOffsets)
+        && Arrays.equals(mCoveredCoefficients, that.mCoveredCoefficients);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(mScanEndOffsets) + Arrays.hashCode(mCoveredCoefficients);
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.filter;
+
+import android.graphics.Bitmap;
+import com.facebook.common.internal.Preconditions;
+import com.facebook.common.internal.VisibleForTesting;
+import com.facebook.common.logging.FLog;
+import java.util.Locale;
+
+/**
+ * Scales bitmaps down to an arbitrary size by area averaging: every destination pixel is the
+ * average of the source pixels it covers, weighted by how much of each source pixel it covers.
+ * Unlike a bilinear scale of a bitmap that is much larger than the destination, no source pixel is
+ * skipped, so there is no aliasing.
+ *
+ * <p>The image is scaled in two passes. Every source row is first scaled horizontally into planar
+ * channel rows, which are then accumulated into the destination row they belong to. The vertical
+ * pass is a plain multiply-add over int arrays that the JIT can vectorize. Only one source row is
+ * held in memory at a time, so the required memory is: (source width + 9 * destination width) * 4
+ * Bytes (+constant).
+ *
+ * <p>Colors are averaged with premultiplied alpha, so that transparent pixels do not bleed into
+ * their neighbours.
+ */
+public abstract class AreaAveragingDownscaler {
+  private static final String TAG = "AreaAveragingDownscaler";
+
+  /** The horizontal weights of a destination pixel add up to this value. */
+  private static final int HORIZONTAL_SHIFT = 12;
+
+  /** Bits dropped from the horizontally scaled channels so that the vertical sums fit in an int. */
+  private static final int HORIZONTAL_ROUNDING_SHIFT = 4;
+
+  /** The vertical weights of a destination row add up to this value. */
+  private static final int VERTICAL_SHIFT = 14;
+
+  private static final int OUTPUT_SHIFT =
+      HORIZONTAL_SHIFT - HORIZONTAL_ROUNDING_SHIFT + VERTICAL_SHIFT;
+
+  /**
+   * Scales the whole {@code source} bitmap into the whole {@code destination} bitmap.
+   *
+   * @param source the bitmap to scale down, it must not be a hardware bitmap
+   * @param destination a mutable bitmap that is not larger than the source in either dimension
+   */
+  public static void downscale(final Bitmap source, final Bitmap destination) {
+    Preconditions.checkNotNull(source);
+    Preconditions.checkNotNull(destination);
+    Preconditions.checkArgument(destination.isMutable());
+    Preconditions.checkArgument(destination.getWidth() <= source.getWidth());
+    Preconditions.checkArgument(destination.getHeight() <= source.getHeight());
+    try {
+      new RowScaler(
+              source.getWidth(),
+              source.getHeight(),
+              destination.getWidth(),
+              destination.getHeight(),
+              source.hasAlpha())
+          .scale(new BitmapRowSource(source), new BitmapRowSink(destination));
+    } catch (OutOfMemoryError oom) {
+      FLog.e(
+          TAG,
+          String.format(
+              (Locale) null,
+              "OOM: downscaling %dx%d to %dx%d",
+              source.getWidth(),
+              source.getHeight(),
+              destination.getWidth(),
+              destination.getHeight()));
+      throw oom;
+    }
+  }
+
+  /**
+   * Scales the ARGB {@code pixels} of a {@code srcW} x {@code srcH} image to {@code dstW} x {@code
+   * dstH}.
+   */
+  @VisibleForTesting
+  static int[] downscalePixels(
+      final int[] pixels,
+      final int srcW,
+      final int srcH,
+      final int dstW,
+      final int dstH,
+      final boolean hasAlpha) {
+    Preconditions.checkArgument(dstW > 0 && dstW <= srcW);
+    Preconditions.checkArgument(dstH > 0 && dstH <= srcH);
+    final int[] output = new int[dstW * dstH];
+    new RowScaler(srcW, srcH, dstW, dstH, hasAlpha)
+        .scale(
+            new RowSource() {
+              @Override
+              public void readRow(int row, int[] out) {
+                System.arraycopy(pixels, row * srcW, out, 0, srcW);
+              }
+            },
+            new RowSink() {
+              @Override
+              public void writeRow(int row, int[] in) {
+                System.arraycopy(in, 0, output, row * dstW, dstW);
+              }
+            });
+    return output;
+  }
+
+  private interface RowSource {
+    void readRow(int row, int[] out);
+  }
+
+  private interface RowSink {
+    void writeRow(int row, int[] in);
+  }
+
+  private static class BitmapRowSource implements RowSource {
+
+    private final Bitmap mBitmap;
+
+    BitmapRowSource(Bitmap bitmap) {
+      mBitmap = bitmap;
+    }
+
+    @Override
+    public void readRow(int row, int[] out) {
+      mBitmap.getPixels(out, 0, mBitmap.getWidth(), 0, row, mBitmap.getWidth(), 1);
+    }
+  }
+
+  private static class BitmapRowSink implements RowSink {
+
+    private final Bitmap mBitmap;
+
+    BitmapRowSink(Bitmap bitmap) {
+      mBitmap = bitmap;
+    }
+
+    @Override
+    public void writeRow(int row, int[] in) {
+      mBitmap.setPixels(in, 0, mBitmap.getWidth(), 0, row, mBitmap.getWidth(), 1);
+    }
+  }
+
+  /** Holds the precomputed weights and the row buffers of one scale operation. */
+  private static class RowScaler {
+
+    private final int mSrcW;
+    private final int mSrcH;
+    private final int mDstW;
+    private final int mDstH;
+    private final boolean mHasAlpha;
+
+    /** First source pixel of every destination column. */
+    private final int[] mColumnStarts;
+    /** Number of source pixels of every destination column. */
+    private final int[] mColumnCounts;
+    /** Weights of the source pixels of all destination columns, one after the other. */
+    private final int[] mColumnWeights;
+
+    private final int[] mSourceRow;
+    private final int[] mA;
+    private final int[] mR;
+    private final int[] mG;
+    private final int[] mB;
+    private final int[] mSumA;
+    private final int[] mSumR;
+    private final int[] mSumG;
+    private final int[] mSumB;
+    private final int[] mOutputRow;
+
+    RowScaler(int srcW, int srcH, int dstW, int dstH, boolean hasAlpha) {
+      mSrcW = srcW;
+      mSrcH = srcH;
+      mDstW = dstW;
+      mDstH = dstH;
+      mHasAlpha = hasAlpha;
+      mColumnStarts = new int[dstW];
+      mColumnCounts = new int[dstW];
+      mColumnWeights = new int[srcW + dstW];
+      int weightIndex = 0;
+      for (int x = 0; x < dstW; x++) {
+        final long start = (long) x * srcW;
+        final long end = start + srcW;
+        final int first = (int) (start / dstW);
+        mColumnStarts[x] = first;
+        int count = 0;
+        for (int sx = first; (long) sx * dstW < end; sx++) {
+          mColumnWeights[weightIndex++] =
+              weight(start, end, sx, dstW, srcW, HORIZONTAL_SHIFT);
+          count++;
+        }
+        mColumnCounts[x] = count;
+      }
+      mSourceRow = new int[srcW];
+      mA = new int[dstW];
+      mR = new int[dstW];
+      mG = new int[dstW];
+      mB = new int[dstW];
+      mSumA = new int[dstW];
+      mSumR = new int[dstW];
+      mSumG = new int[dstW];
+      mSumB = new int[dstW];
+      mOutputRow = new int[dstW];
+    }
+
+    void scale(RowSource source, RowSink sink) {
+      int scaledRow = -1;
+      for (int y = 0; y < mDstH; y++) {
+        final long start = (long) y * mSrcH;
+        final long end = start + mSrcH;
+        clear();
+        for (int sy = (int) (start / mDstH); (long) sy * mDstH < end; sy++) {
+          // The last source row of a destination row is often the first one of the next
+          if (sy != scaledRow) {
+            source.readRow(sy, mSourceRow);
+            scaleRow();
+            scaledRow = sy;
+          }
+          accumulate(weight(start, end, sy, mDstH, mSrcH, VERTICAL_SHIFT));
+        }
+        packRow();
+        sink.writeRow(y, mOutputRow);
+      }
+    }
+
+    /** Scales {@link #mSourceRow} into the planar channel rows, premultiplying the colors. */
+    private void scaleRow() {
+      final int[] row = mSourceRow;
+      int weightIndex = 0;
+      for (int x = 0; x < mDstW; x++) {
+        int a = 0, r = 0, g = 0, b = 0;
+        final int end = mColumnStarts[x] + mColumnCounts[x];
+        for (int sx = mColumnStarts[x]; sx < end; sx++) {
+          final int pixel = row[sx];
+          final int w = mColumnWeights[weightIndex++];
+          final int alpha = pixel >>> 24;
+          int pr = (pixel >> 16) & 0xFF;
+          int pg = (pixel >> 8) & 0xFF;
+          int pb = pixel & 0xFF;
+          if (mHasAlpha && alpha != 0xFF) {
+            pr = (pr * alpha + 127) / 255;
+            pg = (pg * alpha + 127) / 255;
+            pb = (pb * alpha + 127) / 255;
+          }
+          a += alpha * w;
+          r += pr * w;
+          g += pg * w;
+          b += pb * w;
+        }
+        mA[x] = a >> HORIZONTAL_ROUNDING_SHIFT;
+        mR[x] = r >> HORIZONTAL_ROUNDING_SHIFT;
+        mG[x] = g >> HORIZONTAL_ROUNDING_SHIFT;
+        mB[x] = b >> HORIZONTAL_ROUNDING_SHIFT;
+      }
+    }
+
+    private void clear() {
+      for (int x = 0; x < mDstW; x++) {
+        mSumA[x] = 0;
+        mSumR[x] = 0;
+        mSumG[x] = 0;
+        mSumB[x] = 0;
+      }
+    }
+
+    /** Adds the weighted channel rows to the sums of the current destination row. */
+    private void accumulate(int weight) {
+      final int n = mDstW;
+      for (int x = 0; x < n; x++) {
+        mSumA[x] += mA[x] * weight;
+      }
+      for (int x = 0; x < n; x++) {
+        mSumR[x] += mR[x] * weight;
+      }
+      for (int x = 0; x < n; x++) {
+        mSumG[x] += mG[x] * weight;
+      }
+      for (int x = 0; x < n; x++) {
+        mSumB[x] += mB[x] * weight;
+      }
+    }
+
+    private void packRow() {
+      final int round = 1 << (OUTPUT_SHIFT - 1);
+      for (int x = 0; x < mDstW; x++) {
+        final int a = (mSumA[x] + round) >>> OUTPUT_SHIFT;
+        int r = (mSumR[x] + round) >>> OUTPUT_SHIFT;
+        int g = (mSumG[x] + round) >>> OUTPUT_SHIFT;
+        int b = (mSumB[x] + round) >>> OUTPUT_SHIFT;
+        if (mHasAlpha && a != 0xFF) {
+          if (a == 0) {
+            r = g = b = 0;
+          } else {
+            r = Math.min(0xFF, (r * 255 + (a >> 1)) / a);
+            g = Math.min(0xFF, (g * 255 + (a >> 1)) / a);
+            b = Math.min(0xFF, (b * 255 + (a >> 1)) / a);
+          }
+        }
+        mOutputRow[x] = (a << 24) | (r << 16) | (g << 8) | b;
+      }
+    }
+
+    /**
+     * Weight of source pixel {@code index} for the destination pixel covering [{@code start},
+     * {@code end}) in units of 1 / {@code dstSize} source pixels. The weights of a destination
+     * pixel add up to exactly {@code 1 << shift}.
+     */
+    private static int weight(
+        long start, long end, int index, int dstSize, int srcSize, int shift) {
+      final long from = Math.max(start, (long) index * dstSize) - start;
+      final long to = Math.min(end, (long) (index + 1) * dstSize) - start;
+      return (int) (((to << shift) / srcSize) - ((from << shift) / srcSize));
+    }
+  }
+}
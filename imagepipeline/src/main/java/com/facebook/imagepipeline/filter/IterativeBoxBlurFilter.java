@@ -9,9 +9,17 @@ package com.facebook.imagepipeline.filter;
 
 import android.graphics.Bitmap;
 import com.facebook.common.internal.Preconditions;
+import com.facebook.common.internal.Throwables;
+import com.facebook.common.internal.VisibleForTesting;
 import com.facebook.common.logging.FLog;
 import com.facebook.imageutils.BitmapUtil;
 import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
 
 public abstract class IterativeBoxBlurFilter {
   private static final String TAG = "IterativeBoxBlurFilter";
@@ -57,12 +65,91 @@ public abstract class IterativeBoxBlurFilter {
     }
   }
 
+  /**
+   * Same as {@link #boxBlurBitmapInPlace(Bitmap, int, int)}, but splits every horizontal and
+   * vertical pass into stripes of rows and columns that are blurred in parallel.
+   *
+   * <p>Rows (and columns) are blurred independently of each other within a pass, so the result is
+   * identical to the one of the single threaded version. The calling thread takes part in the work
+   * and waits until all stripes of a pass are done, so this must not be called from a thread that
+   * the given executor needs in order to make progress on other work. If a stripe fails on any
+   * thread, the remaining stripes are skipped and the failure is rethrown on the calling thread.
+   *
+   * <p>Additionally requires max(width, height) * 4 Bytes for every worker.
+   *
+   * @param bitmap The {@link Bitmap} containing the image. The bitmap dimension need to be smaller
+   *     than {@link BitmapUtil#MAX_BITMAP_SIZE}
+   * @param iterations The number of iterations of the blurring algorithm > 0.
+   * @param radius The radius of the blur with a supported range 0 < radius <= {@link
+   *     RenderScriptBlurFilter#BLUR_MAX_RADIUS}
+   * @param executor The executor used for the additional workers
+   * @param parallelism The maximum number of threads working on the bitmap at the same time,
+   *     including the calling thread. 1 blurs the bitmap on the calling thread only.
+   */
+  public static void boxBlurBitmapInPlace(
+      final Bitmap bitmap,
+      final int iterations,
+      final int radius,
+      final Executor executor,
+      final int parallelism) {
+    Preconditions.checkNotNull(bitmap);
+    Preconditions.checkNotNull(executor);
+    Preconditions.checkArgument(bitmap.isMutable());
+    Preconditions.checkArgument(bitmap.getHeight() <= BitmapUtil.MAX_BITMAP_SIZE);
+    Preconditions.checkArgument(bitmap.getWidth() <= BitmapUtil.MAX_BITMAP_SIZE);
+    Preconditions.checkArgument(radius > 0 && radius <= RenderScriptBlurFilter.BLUR_MAX_RADIUS);
+    Preconditions.checkArgument(iterations > 0);
+    Preconditions.checkArgument(parallelism > 0);
+    try {
+      fastBoxBlur(bitmap, iterations, radius, executor, parallelism);
+    } catch (OutOfMemoryError oom) {
+      FLog.e(
+          TAG,
+          String.format(
+              (Locale) null,
+              "OOM: %d iterations on %dx%d with %d radius and parallelism %d",
+              iterations,
+              bitmap.getWidth(),
+              bitmap.getHeight(),
+              radius,
+              parallelism));
+      throw oom;
+    }
+  }
+
   private static void fastBoxBlur(final Bitmap bitmap, final int iterations, final int radius) {
+    fastBoxBlur(bitmap, iterations, radius, null, 1);
+  }
+
+  private static void fastBoxBlur(
+      final Bitmap bitmap,
+      final int iterations,
+      final int radius,
+      @Nullable final Executor executor,
+      final int parallelism) {
     final int w = bitmap.getWidth();
     final int h = bitmap.getHeight();
     final int[] pixels = new int[w * h];
     bitmap.getPixels(pixels, 0, w, 0, 0, w, h);
+    boxBlurPixels(pixels, w, h, iterations, radius, executor, parallelism);
+    bitmap.setPixels(pixels, 0, w, 0, 0, w, h);
+  }
 
+  /**
+   * Blurs the given ARGB {@code pixels} with a row stride of {@code w} in place.
+   *
+   * @param executor executor for the additional workers, may only be null if {@code parallelism}
+   *     is 1
+   */
+  @VisibleForTesting
+  static void boxBlurPixels(
+      final int[] pixels,
+      final int w,
+      final int h,
+      final int iterations,
+      final int radius,
+      @Nullable final Executor executor,
+      final int parallelism) {
     // The information written to an output pixels `x` are from `[x-radius, x+radius]` (inclusive)
     final int diameter = radius + 1 + radius;
     // Pre-compute division table: speed-up by factor 5(!)
@@ -78,28 +165,157 @@ public abstract class IterativeBoxBlurFilter {
       }
     }
 
-    final int[] tempRowOrColumn = new int[Math.max(w, h)];
+    if (executor == null || parallelism <= 1) {
+      final int[] tempRowOrColumn = new int[Math.max(w, h)];
+      for (int i = 0; i < iterations; i++) {
+        blurRows(pixels, tempRowOrColumn, w, 0, h, diameter, div);
+        blurColumns(pixels, tempRowOrColumn, w, h, 0, w, diameter, div);
+      }
+      return;
+    }
 
     for (int i = 0; i < iterations; i++) {
-      // Blur rows one-by-one
+      runStriped(new BlurPass(pixels, w, h, diameter, div, true), executor, parallelism);
+      runStriped(new BlurPass(pixels, w, h, diameter, div, false), executor, parallelism);
+    }
+  }
+
+  /** Blurs the rows [{@code firstRow}, {@code endRow}) one-by-one. */
+  private static void blurRows(
+      int[] pixels, int[] tempRow, int w, int firstRow, int endRow, int diameter, int[] div) {
+    for (int row = firstRow; row < endRow; row++) {
+      internalHorizontalBlur(pixels, tempRow, w, row, diameter, div);
+
+      System.arraycopy(tempRow, 0, pixels, row * w, w);
+    }
+  }
+
+  /** Blurs the columns [{@code firstCol}, {@code endCol}) one-by-one. */
+  private static void blurColumns(
+      int[] pixels,
+      int[] tempColumn,
+      int w,
+      int h,
+      int firstCol,
+      int endCol,
+      int diameter,
+      int[] div) {
+    for (int col = firstCol; col < endCol; col++) {
+      internalVerticalBlur(pixels, tempColumn, w, h, col, diameter, div);
+
+      int pos = col;
       for (int row = 0; row < h; row++) {
-        internalHorizontalBlur(pixels, tempRowOrColumn, w, row, diameter, div);
+        pixels[pos] = tempColumn[row];
+        pos += w;
+      }
+    }
+  }
 
-        System.arraycopy(tempRowOrColumn, 0, pixels, row * w, w);
+  /**
+   * Runs all stripes of the given pass using up to {@code parallelism} threads and returns once all
+   * of them are done. Stripes are handed out through a shared counter, so workers that start late
+   * (or never, if the executor is busy or rejects them) simply find no work left. A failure of any
+   * stripe is rethrown here, on the calling thread.
+   */
+  private static void runStriped(final BlurPass pass, Executor executor, int parallelism) {
+    final int workers = Math.min(parallelism, pass.getStripeCount());
+    for (int i = 1; i < workers; i++) {
+      try {
+        executor.execute(pass);
+      } catch (RejectedExecutionException e) {
+        // The calling thread blurs the stripes this worker would have taken
+        break;
       }
+    }
+    pass.run();
+    pass.awaitCompletion();
+    final Throwable failure = pass.getFailure();
+    if (failure != null) {
+      throw Throwables.propagate(failure);
+    }
+  }
+
+  /** One horizontal or vertical pass over the image, split into stripes. */
+  private static class BlurPass implements Runnable {
+
+    private static final int STRIPE_SIZE = 32;
 
-      // Blur columns one-by-one
-      for (int col = 0; col < w; col++) {
-        internalVerticalBlur(pixels, tempRowOrColumn, w, h, col, diameter, div);
+    private final int[] mPixels;
+    private final int mWidth;
+    private final int mHeight;
+    private final int mDiameter;
+    private final int[] mDiv;
+    private final boolean mHorizontal;
+    private final int mLineCount;
+    private final int mStripeCount;
+    private final AtomicInteger mNextStripe = new AtomicInteger();
+    private final CountDownLatch mRemainingStripes;
+    private final AtomicReference<Throwable> mFailure = new AtomicReference<>();
+
+    BlurPass(int[] pixels, int width, int height, int diameter, int[] div, boolean horizontal) {
+      mPixels = pixels;
+      mWidth = width;
+      mHeight = height;
+      mDiameter = diameter;
+      mDiv = div;
+      mHorizontal = horizontal;
+      mLineCount = horizontal ? height : width;
+      mStripeCount = (mLineCount + STRIPE_SIZE - 1) / STRIPE_SIZE;
+      mRemainingStripes = new CountDownLatch(mStripeCount);
+    }
+
+    int getStripeCount() {
+      return mStripeCount;
+    }
 
-        int pos = col;
-        for (int row = 0; row < h; row++) {
-          pixels[pos] = tempRowOrColumn[row];
-          pos += w;
+    /** Returns the first failure of a stripe, or null if there was none. */
+    @Nullable
+    Throwable getFailure() {
+      return mFailure.get();
+    }
+
+    @Override
+    public void run() {
+      int[] tempRowOrColumn = null;
+      int stripe;
+      while ((stripe = mNextStripe.getAndIncrement()) < mStripeCount) {
+        try {
+          // Every claimed stripe is counted down, but after a failure there is no point blurring
+          if (mFailure.get() == null) {
+            if (tempRowOrColumn == null) {
+              tempRowOrColumn = new int[Math.max(mWidth, mHeight)];
+            }
+            final int first = stripe * STRIPE_SIZE;
+            final int end = Math.min(first + STRIPE_SIZE, mLineCount);
+            if (mHorizontal) {
+              blurRows(mPixels, tempRowOrColumn, mWidth, first, end, mDiameter, mDiv);
+            } else {
+              blurColumns(mPixels, tempRowOrColumn, mWidth, mHeight, first, end, mDiameter, mDiv);
+            }
+          }
+        } catch (Throwable t) {
+          // Thrown on a worker it would only reach the executor, the calling thread rethrows it
+          mFailure.compareAndSet(null, t);
+        } finally {
+          mRemainingStripes.countDown();
         }
       }
     }
-    bitmap.setPixels(pixels, 0, w, 0, 0, w, h);
+
+    void awaitCompletion() {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          mRemainingStripes.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
   }
 
   /**
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import com.facebook.common.internal.Preconditions;
+import com.facebook.common.internal.Suppliers;
+import com.facebook.common.memory.MemoryTrimType;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.common.references.ResourceReleaser;
+import com.facebook.imagepipeline.cache.CountingMemoryCache;
+import com.facebook.imagepipeline.cache.MemoryCache;
+import com.facebook.imagepipeline.cache.MemoryCacheParams;
+import com.facebook.imagepipeline.cache.ValueDescriptor;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replays the lookups of one cache tier of a {@link CacheTrace} against cache policies of many
+ * capacities, to tell how large a cache has to be for a given hit ratio.
+ *
+ * <p>Every hit or miss of the tier in the trace is a lookup. A lookup that misses the simulated
+ * cache puts the key into it, as the pipeline does once it has fetched the image. Capacities are
+ * in bytes. Keys of unknown size, such as all keys of the bitmap cache, count with the default
+ * size; with a default size of 1 and a tier without sizes the capacities are numbers of entries.
+ *
+ * <p>The bitmap memory cache is looked up twice by a request, before and after the thread handoff,
+ * so a lookup right after a miss of the same key in the same tier is taken to be the second lookup
+ * of the same request and is not replayed.
+ *
+ * <pre>{@code
+ * CacheSimulator simulator = new CacheSimulator(trace, CacheTier.ENCODED_MEMORY, 50 * 1024);
+ * long[] capacities = CacheSimulator.capacities(1024 * 1024, 64 * 1024 * 1024, 13);
+ * simulator.simulate("counting", CacheSimulator.countingMemoryCache(), capacities).toCsv();
+ * simulator.simulate("lru", CacheSimulator.lru(), capacities).toCsv();
+ * }</pre>
+ */
+public class CacheSimulator {
+
+  /** A simulated cache. */
+  public interface Policy {
+
+    /**
+     * Looks up the given key, and caches it if it is not in the cache.
+     *
+     * @return whether the lookup was a hit
+     */
+    boolean access(int keyId, int size);
+  }
+
+  /** Creates simulated caches of a given capacity. */
+  public interface PolicyFactory {
+    Policy create(long capacity);
+  }
+
+  /** Creates the params of a {@link CountingMemoryCache} of a given capacity. */
+  public interface MemoryCacheParamsFactory {
+    MemoryCacheParams create(int capacity);
+  }
+
+  private final int[] mKeyIds;
+  private final int[] mSizes;
+
+  public CacheSimulator(CacheTrace trace, @CacheTier int tier, int defaultSize) {
+    Preconditions.checkArgument(defaultSize > 0);
+    final int[] keyIds = new int[trace.getEventCount()];
+    int accessCount = 0;
+    int lastMissKeyId = -1;
+    for (int i = 0; i < trace.getEventCount(); i++) {
+      if (trace.getTier(i) != tier || trace.getEventType(i) == CacheTrace.EVENT_PUT) {
+        continue;
+      }
+      final int keyId = trace.getKeyId(i);
+      if (keyId != lastMissKeyId) {
+        keyIds[accessCount++] = keyId;
+      }
+      lastMissKeyId =
+          tier == CacheTier.BITMAP_MEMORY && trace.getEventType(i) == CacheTrace.EVENT_MISS
+              ? keyId
+              : -1;
+    }
+    mKeyIds = Arrays.copyOf(keyIds, accessCount);
+    mSizes = new int[accessCount];
+    for (int access = 0; access < accessCount; access++) {
+      final int size = trace.getSize(mKeyIds[access]);
+      mSizes[access] = size == CacheTrace.UNKNOWN_SIZE ? defaultSize : size;
+    }
+  }
+
+  /** Returns the number of lookups that are replayed. */
+  public int getAccessCount() {
+    return mKeyIds.length;
+  }
+
+  /** Replays all lookups against a cache of every given capacity. */
+  public HitRatioCurve simulate(String name, PolicyFactory policyFactory, long[] capacities) {
+    final double[] hitRatios = new double[capacities.length];
+    final double[] byteHitRatios = new double[capacities.length];
+    for (int i = 0; i < capacities.length; i++) {
+      final Policy policy = policyFactory.create(capacities[i]);
+      long hits = 0;
+      long hitBytes = 0;
+      long totalBytes = 0;
+      for (int access = 0; access < mKeyIds.length; access++) {
+        if (policy.access(mKeyIds[access], mSizes[access])) {
+          hits++;
+          hitBytes += mSizes[access];
+        }
+        totalBytes += mSizes[access];
+      }
+      hitRatios[i] = mKeyIds.length == 0 ? 0 : (double) hits / mKeyIds.length;
+      byteHitRatios[i] = totalBytes == 0 ? 0 : (double) hitBytes / totalBytes;
+    }
+    return new HitRatioCurve(name, capacities.clone(), hitRatios, byteHitRatios);
+  }
+
+  /** Returns {@code count} capacities from min to max, spaced by a constant factor. */
+  public static long[] capacities(long min, long max, int count) {
+    Preconditions.checkArgument(min > 0 && max >= min && count > 1);
+    final long[] capacities = new long[count];
+    final double factor = Math.pow((double) max / min, 1.0 / (count - 1));
+    for (int i = 0; i < count; i++) {
+      capacities[i] = Math.round(min * Math.pow(factor, i));
+    }
+    capacities[count - 1] = max;
+    return capacities;
+  }
+
+  /** Least recently used entries are evicted first. */
+  public static PolicyFactory lru() {
+    return new PolicyFactory() {
+      @Override
+      public Policy create(long capacity) {
+        return new LinkedHashMapPolicy(capacity, true);
+      }
+    };
+  }
+
+  /** Entries are evicted in the order they were put in, whether they are used or not. */
+  public static PolicyFactory fifo() {
+    return new PolicyFactory() {
+      @Override
+      public Policy create(long capacity) {
+        return new LinkedHashMapPolicy(capacity, false);
+      }
+    };
+  }
+
+  /**
+   * Model of {@link com.facebook.cache.disk.DiskStorageCache} with the default eviction comparator:
+   * once the cache is over its limit, the next write first evicts the least recently used files
+   * down to 90% of the limit. The real cache needs a {@link com.facebook.cache.disk.DiskStorage}
+   * and the file system, so it is not replayed itself.
+   */
+  public static PolicyFactory diskStorageCache() {
+    return new PolicyFactory() {
+      @Override
+      public Policy create(long capacity) {
+        return new DiskStorageCachePolicy(capacity);
+      }
+    };
+  }
+
+  /**
+   * A real {@link CountingMemoryCache} with no limit on the number of entries. Every reference
+   * is closed right away, so all entries are in the eviction queue.
+   */
+  public static PolicyFactory countingMemoryCache() {
+    return countingMemoryCache(
+        new MemoryCacheParamsFactory() {
+          @Override
+          public MemoryCacheParams create(int capacity) {
+            return new MemoryCacheParams(
+                capacity, Integer.MAX_VALUE, capacity, Integer.MAX_VALUE, Integer.MAX_VALUE);
+          }
+        });
+  }
+
+  /**
+   * A real {@link CountingMemoryCache} with the given params, for example with an {@link
+   * MemoryCacheParams#admissionSketchSize} to evaluate the admission filter.
+   */
+  public static PolicyFactory countingMemoryCache(final MemoryCacheParamsFactory paramsFactory) {
+    return new PolicyFactory() {
+      @Override
+      public Policy create(long capacity) {
+        return new CountingMemoryCachePolicy(
+            paramsFactory.create((int) Math.min(capacity, Integer.MAX_VALUE)));
+      }
+    };
+  }
+
+  private static class LinkedHashMapPolicy implements Policy {
+
+    protected final long mCapacity;
+    private final LinkedHashMap<Integer, Integer> mEntries;
+    private long mSize;
+
+    /** @param accessOrder whether lookups move entries to the end of the eviction order */
+    LinkedHashMapPolicy(long capacity, boolean accessOrder) {
+      mCapacity = capacity;
+      mEntries = new LinkedHashMap<>(16, 0.75f, accessOrder);
+    }
+
+    @Override
+    public boolean access(int keyId, int size) {
+      if (mEntries.get(keyId) != null) {
+        return true;
+      }
+      if (makeRoom(size)) {
+        mEntries.put(keyId, size);
+        mSize += size;
+      }
+      return false;
+    }
+
+    /** Evicts entries before an entry of the given size is put in, returns whether it fits. */
+    protected boolean makeRoom(int size) {
+      if (size > mCapacity) {
+        return false;
+      }
+      evictAbove(mCapacity - size);
+      return true;
+    }
+
+    protected void evictAbove(long desiredSize) {
+      final Iterator<Map.Entry<Integer, Integer>> iterator = mEntries.entrySet().iterator();
+      while (mSize > desiredSize && iterator.hasNext()) {
+        mSize -= iterator.next().getValue();
+        iterator.remove();
+      }
+    }
+
+    protected long getSize() {
+      return mSize;
+    }
+  }
+
+  private static class DiskStorageCachePolicy extends LinkedHashMapPolicy {
+
+    DiskStorageCachePolicy(long capacity) {
+      super(capacity, true);
+    }
+
+    @Override
+    protected boolean makeRoom(int size) {
+      // The size is only checked before writing, so the cache can end up above its limit
+      if (getSize() > mCapacity) {
+        evictAbove(mCapacity * 9 / 10);
+      }
+      return true;
+    }
+  }
+
+  private static class CountingMemoryCachePolicy implements Policy {
+
+    private static final ResourceReleaser<SimulatedValue> NO_OP_RELEASER =
+        new ResourceReleaser<SimulatedValue>() {
+          @Override
+          public void release(SimulatedValue value) {}
+        };
+
+    private final CountingMemoryCache<Integer, SimulatedValue> mCache;
+
+    CountingMemoryCachePolicy(MemoryCacheParams params) {
+      mCache =
+          new CountingMemoryCache<>(
+              new ValueDescriptor<SimulatedValue>() {
+                @Override
+                public int getSizeInBytes(SimulatedValue value) {
+                  return value.size;
+                }
+              },
+              new MemoryCache.CacheTrimStrategy() {
+                @Override
+                public double getTrimRatio(MemoryTrimType trimType) {
+                  return 0;
+                }
+              },
+              Suppliers.of(params));
+    }
+
+    @Override
+    public boolean access(int keyId, int size) {
+      CloseableReference<SimulatedValue> ref = mCache.get(keyId);
+      if (ref != null) {
+        ref.close();
+        return true;
+      }
+      ref = CloseableReference.of(new SimulatedValue(size), NO_OP_RELEASER);
+      CloseableReference.closeSafely(mCache.cache(keyId, ref));
+      ref.close();
+      return false;
+    }
+  }
+
+  private static class SimulatedValue {
+
+    final int size;
+
+    SimulatedValue(int size) {
+      this.size = size;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import static com.facebook.imagepipeline.metrics.CacheTier.BITMAP_MEMORY;
+import static com.facebook.imagepipeline.metrics.CacheTier.DISK;
+import static com.facebook.imagepipeline.metrics.CacheTier.ENCODED_MEMORY;
+import static com.facebook.imagepipeline.metrics.CacheTier.STAGING_AREA;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+import androidx.annotation.IntDef;
+import java.lang.annotation.Retention;
+
+/** The caches the pipeline looks images up in, in lookup order. */
+@Retention(SOURCE)
+@IntDef({
+  BITMAP_MEMORY,
+  ENCODED_MEMORY,
+  STAGING_AREA,
+  DISK,
+})
+public @interface CacheTier {
+
+  int BITMAP_MEMORY = 0;
+  int ENCODED_MEMORY = 1;
+  int STAGING_AREA = 2;
+  int DISK = 3;
+
+  int COUNT = 4;
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * The cache events recorded by a {@link CacheTraceRecorder}, to be replayed by a {@link
+ * CacheSimulator}.
+ *
+ * <p>Every event is a hit, a miss or a put in one {@link CacheTier}. Cache keys are replaced by
+ * ids, which are the same for equal keys in all tiers. The encoded memory cache and the disk cache
+ * use the same keys, so the size a key has on disk is also its size in the encoded memory cache.
+ * Sizes are only known for keys that were written to the disk cache while recording.
+ *
+ * <p>A trace can be written to a stream and read back, to be replayed offline.
+ */
+public class CacheTrace {
+
+  public static final int EVENT_HIT = 0;
+  public static final int EVENT_MISS = 1;
+  public static final int EVENT_PUT = 2;
+
+  /** Size of keys that were not written to the disk cache while recording. */
+  public static final int UNKNOWN_SIZE = -1;
+
+  private static final int MAGIC = 0x46435452; // "FCTR"
+  private static final int VERSION = 1;
+
+  /** Largest number of entries allocated before they are read, as the counts may be corrupt. */
+  private static final int MAX_INITIAL_CAPACITY = 64 * 1024;
+
+  private final byte[] mEvents;
+  private final int[] mKeyIds;
+  private final int mEventCount;
+  private final int[] mKeySizes;
+  private final int mKeyCount;
+
+  /**
+   * @param events the tier of every event in the upper bits and its type in the lower two bits, as
+   *     created by {@link #event}
+   */
+  CacheTrace(byte[] events, int[] keyIds, int eventCount, int[] keySizes, int keyCount) {
+    mEvents = events;
+    mKeyIds = keyIds;
+    mEventCount = eventCount;
+    mKeySizes = keySizes;
+    mKeyCount = keyCount;
+  }
+
+  static byte event(@CacheTier int tier, int eventType) {
+    return (byte) (tier << 2 | eventType);
+  }
+
+  public int getEventCount() {
+    return mEventCount;
+  }
+
+  /** Returns the number of distinct keys. Key ids go from 0 to the key count - 1. */
+  public int getKeyCount() {
+    return mKeyCount;
+  }
+
+  public @CacheTier int getTier(int index) {
+    return mEvents[index] >> 2;
+  }
+
+  /** Returns {@link #EVENT_HIT}, {@link #EVENT_MISS} or {@link #EVENT_PUT}. */
+  public int getEventType(int index) {
+    return mEvents[index] & 3;
+  }
+
+  public int getKeyId(int index) {
+    return mKeyIds[index];
+  }
+
+  /** Returns the size of the value of the given key in bytes, or {@link #UNKNOWN_SIZE}. */
+  public int getSize(int keyId) {
+    return mKeySizes[keyId];
+  }
+
+  public void writeTo(OutputStream outputStream) throws IOException {
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(mEventCount);
+    for (int i = 0; i < mEventCount; i++) {
+      out.writeByte(mEvents[i]);
+      out.writeInt(mKeyIds[i]);
+    }
+    out.writeInt(mKeyCount);
+    for (int i = 0; i < mKeyCount; i++) {
+      out.writeInt(mKeySizes[i]);
+    }
+    out.flush();
+  }
+
+  public static CacheTrace readFrom(InputStream inputStream) throws IOException {
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a cache trace");
+    }
+    final int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported cache trace version " + version);
+    }
+    final int eventCount = readCount(in, "event");
+    byte[] events = new byte[Math.min(eventCount, MAX_INITIAL_CAPACITY)];
+    int[] keyIds = new int[events.length];
+    for (int i = 0; i < eventCount; i++) {
+      if (i == events.length) {
+        events = Arrays.copyOf(events, grow(i, eventCount));
+        keyIds = Arrays.copyOf(keyIds, events.length);
+      }
+      final byte event = in.readByte();
+      if (event < 0 || (event >> 2) >= CacheTier.COUNT || (event & 3) > EVENT_PUT) {
+        throw new IOException("Invalid event " + event);
+      }
+      events[i] = event;
+      keyIds[i] = in.readInt();
+    }
+    final int keyCount = readCount(in, "key");
+    int[] keySizes = new int[Math.min(keyCount, MAX_INITIAL_CAPACITY)];
+    for (int i = 0; i < keyCount; i++) {
+      if (i == keySizes.length) {
+        keySizes = Arrays.copyOf(keySizes, grow(i, keyCount));
+      }
+      keySizes[i] = in.readInt();
+    }
+    for (int i = 0; i < eventCount; i++) {
+      if (keyIds[i] < 0 || keyIds[i] >= keyCount) {
+        throw new IOException("Invalid key id " + keyIds[i]);
+      }
+    }
+    return new CacheTrace(events, keyIds, eventCount, keySizes, keyCount);
+  }
+
+  private static int readCount(DataInputStream in, String name) throws IOException {
+    final int count = in.readInt();
+    if (count < 0) {
+      throw new IOException("Invalid " + name + " count " + count);
+    }
+    return count;
+  }
+
+  /** Returns the next capacity of an array that holds {@code length} of {@code count} entries. */
+  private static int grow(int length, int count) {
+    return (int) Math.min(2L * length, count);
+  }
+}
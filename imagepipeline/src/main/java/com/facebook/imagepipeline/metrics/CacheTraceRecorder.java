@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import com.facebook.cache.common.CacheEvent;
+import com.facebook.cache.common.CacheEventListener;
+import com.facebook.cache.common.CacheKey;
+import com.facebook.imagepipeline.cache.ImageCacheStatsTracker;
+import com.facebook.imagepipeline.cache.MemoryCache;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Records the lookups and puts of every cache tier into a {@link CacheTrace}, so that cache sizes
+ * can be tuned by replaying the trace in a {@link CacheSimulator}.
+ *
+ * <p>Set it as the {@link ImageCacheStatsTracker} of the pipeline config for the events, and as the
+ * {@link CacheEventListener} of the main {@link com.facebook.cache.disk.DiskCacheConfig} for the
+ * sizes of the encoded images:
+ *
+ * <pre>{@code
+ * CacheTraceRecorder recorder = new CacheTraceRecorder(1_000_000);
+ * ImagePipelineConfig.newBuilder(context)
+ *     .setImageCacheStatsTracker(recorder)
+ *     .setMainDiskCacheConfig(
+ *         DiskCacheConfig.newBuilder(context).setCacheEventListener(recorder).build())
+ *     ...
+ * recorder.getTrace().writeTo(outputStream);
+ * }</pre>
+ *
+ * <p>Once the maximum number of events is recorded, later events are dropped, so that the trace
+ * stays a contiguous run of events from the start.
+ */
+public class CacheTraceRecorder implements ImageCacheStatsTracker, CacheEventListener {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final int mMaxEvents;
+
+  @GuardedBy("this")
+  private byte[] mEvents;
+
+  @GuardedBy("this")
+  private int[] mEventKeyIds;
+
+  @GuardedBy("this")
+  private int mEventCount;
+
+  @GuardedBy("this")
+  private int mDroppedEventCount;
+
+  @GuardedBy("this")
+  private final Map<CacheKey, Integer> mKeyIds = new HashMap<>();
+
+  @GuardedBy("this")
+  private int[] mKeySizes;
+
+  public CacheTraceRecorder(int maxEvents) {
+    mMaxEvents = maxEvents;
+    mEvents = new byte[Math.min(INITIAL_CAPACITY, maxEvents)];
+    mEventKeyIds = new int[mEvents.length];
+    mKeySizes = new int[INITIAL_CAPACITY];
+  }
+
+  /** Returns a copy of the events recorded so far. */
+  public synchronized CacheTrace getTrace() {
+    return new CacheTrace(
+        Arrays.copyOf(mEvents, mEventCount),
+        Arrays.copyOf(mEventKeyIds, mEventCount),
+        mEventCount,
+        Arrays.copyOf(mKeySizes, mKeyIds.size()),
+        mKeyIds.size());
+  }
+
+  /** Returns the number of events that were not recorded because the trace was full. */
+  public synchronized int getDroppedEventCount() {
+    return mDroppedEventCount;
+  }
+
+  public synchronized void clear() {
+    mEventCount = 0;
+    mDroppedEventCount = 0;
+    mKeyIds.clear();
+  }
+
+  @Override
+  public void onBitmapCachePut(CacheKey cacheKey) {
+    record(CacheTier.BITMAP_MEMORY, CacheTrace.EVENT_PUT, cacheKey);
+  }
+
+  @Override
+  public void onBitmapCacheHit(CacheKey cacheKey) {
+    record(CacheTier.BITMAP_MEMORY, CacheTrace.EVENT_HIT, cacheKey);
+  }
+
+  @Override
+  public void onBitmapCacheMiss(CacheKey cacheKey) {
+    record(CacheTier.BITMAP_MEMORY, CacheTrace.EVENT_MISS, cacheKey);
+  }
+
+  @Override
+  public void onMemoryCachePut(CacheKey cacheKey) {
+    record(CacheTier.ENCODED_MEMORY, CacheTrace.EVENT_PUT, cacheKey);
+  }
+
+  @Override
+  public void onMemoryCacheHit(CacheKey cacheKey) {
+    record(CacheTier.ENCODED_MEMORY, CacheTrace.EVENT_HIT, cacheKey);
+  }
+
+  @Override
+  public void onMemoryCacheMiss(CacheKey cacheKey) {
+    record(CacheTier.ENCODED_MEMORY, CacheTrace.EVENT_MISS, cacheKey);
+  }
+
+  @Override
+  public void onStagingAreaHit(CacheKey cacheKey) {
+    record(CacheTier.STAGING_AREA, CacheTrace.EVENT_HIT, cacheKey);
+  }
+
+  @Override
+  public void onStagingAreaMiss(CacheKey cacheKey) {
+    record(CacheTier.STAGING_AREA, CacheTrace.EVENT_MISS, cacheKey);
+  }
+
+  @Override
+  public void onDiskCacheHit(CacheKey cacheKey) {
+    record(CacheTier.DISK, CacheTrace.EVENT_HIT, cacheKey);
+  }
+
+  @Override
+  public void onDiskCacheMiss(CacheKey cacheKey) {
+    record(CacheTier.DISK, CacheTrace.EVENT_MISS, cacheKey);
+  }
+
+  @Override
+  public void onDiskCacheGetFail(CacheKey cacheKey) {
+    // The image is fetched again, as on a miss
+    record(CacheTier.DISK, CacheTrace.EVENT_MISS, cacheKey);
+  }
+
+  @Override
+  public void onDiskCachePut(CacheKey cacheKey) {
+    record(CacheTier.DISK, CacheTrace.EVENT_PUT, cacheKey);
+  }
+
+  @Override
+  public void registerBitmapMemoryCache(MemoryCache<?, ?> bitmapMemoryCache) {}
+
+  @Override
+  public void registerEncodedMemoryCache(MemoryCache<?, ?> encodedMemoryCache) {}
+
+  @Override
+  public void onHit(CacheEvent cacheEvent) {}
+
+  @Override
+  public void onMiss(CacheEvent cacheEvent) {}
+
+  @Override
+  public void onWriteAttempt(CacheEvent cacheEvent) {}
+
+  @Override
+  public void onWriteSuccess(CacheEvent cacheEvent) {
+    final CacheKey cacheKey = cacheEvent.getCacheKey();
+    if (cacheKey != null) {
+      recordSize(cacheKey, cacheEvent.getItemSize());
+    }
+  }
+
+  @Override
+  public void onReadException(CacheEvent cacheEvent) {}
+
+  @Override
+  public void onWriteException(CacheEvent cacheEvent) {}
+
+  @Override
+  public void onEviction(CacheEvent cacheEvent) {}
+
+  @Override
+  public void onCleared() {}
+
+  private synchronized void record(@CacheTier int tier, int eventType, CacheKey cacheKey) {
+    if (mEventCount == mEvents.length) {
+      if (mEventCount == mMaxEvents) {
+        mDroppedEventCount++;
+        return;
+      }
+      final int capacity = (int) Math.min((long) mEvents.length * 2, mMaxEvents);
+      mEvents = Arrays.copyOf(mEvents, capacity);
+      mEventKeyIds = Arrays.copyOf(mEventKeyIds, capacity);
+    }
+    mEvents[mEventCount] = CacheTrace.event(tier, eventType);
+    mEventKeyIds[mEventCount] = getKeyId(cacheKey);
+    mEventCount++;
+  }
+
+  private synchronized void recordSize(CacheKey cacheKey, long size) {
+    if (size > 0) {
+      mKeySizes[getKeyId(cacheKey)] = (int) Math.min(size, Integer.MAX_VALUE);
+    }
+  }
+
+  @GuardedBy("this")
+  private int getKeyId(CacheKey cacheKey) {
+    @Nullable Integer keyId = mKeyIds.get(cacheKey);
+    if (keyId == null) {
+      keyId = mKeyIds.size();
+      mKeyIds.put(cacheKey, keyId);
+      if (keyId == mKeySizes.length) {
+        mKeySizes = Arrays.copyOf(mKeySizes, keyId * 2);
+      }
+      mKeySizes[keyId] = CacheTrace.UNKNOWN_SIZE;
+    }
+    return keyId;
+  }
+}
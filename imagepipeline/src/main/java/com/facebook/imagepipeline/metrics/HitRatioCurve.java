@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import java.util.Locale;
+
+/** Hit ratios of one cache policy at several capacities, as simulated by {@link CacheSimulator}. */
+public class HitRatioCurve {
+
+  private final String mName;
+  private final long[] mCapacities;
+  private final double[] mHitRatios;
+  private final double[] mByteHitRatios;
+
+  HitRatioCurve(String name, long[] capacities, double[] hitRatios, double[] byteHitRatios) {
+    mName = name;
+    mCapacities = capacities;
+    mHitRatios = hitRatios;
+    mByteHitRatios = byteHitRatios;
+  }
+
+  public String getName() {
+    return mName;
+  }
+
+  public int getPointCount() {
+    return mCapacities.length;
+  }
+
+  public long getCapacity(int index) {
+    return mCapacities[index];
+  }
+
+  /** Returns the share of lookups that were hits. */
+  public double getHitRatio(int index) {
+    return mHitRatios[index];
+  }
+
+  /** Returns the share of looked up bytes that were hits. */
+  public double getByteHitRatio(int index) {
+    return mByteHitRatios[index];
+  }
+
+  /** Returns the capacity at which the hit ratio first reaches the given one, or -1. */
+  public long getCapacityForHitRatio(double hitRatio) {
+    for (int i = 0; i < mCapacities.length; i++) {
+      if (mHitRatios[i] >= hitRatio) {
+        return mCapacities[i];
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the curve as comma separated values, with a header line. */
+  public String toCsv() {
+    final StringBuilder builder = new StringBuilder("policy,capacity,hit_ratio,byte_hit_ratio\n");
+    for (int i = 0; i < mCapacities.length; i++) {
+      builder.append(
+          String.format(
+              Locale.US,
+              "%s,%d,%.4f,%.4f\n",
+              mName,
+              mCapacities[i],
+              mHitRatios[i],
+              mByteHitRatios[i]));
+    }
+    return builder.toString();
+  }
+
+  @Override
+  public String toString() {
+    return toCsv();
+  }
+}
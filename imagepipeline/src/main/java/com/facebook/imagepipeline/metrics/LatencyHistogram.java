@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import com.facebook.common.internal.VisibleForTesting;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values, usually durations in microseconds.
+ *
+ * <p>Like an HDR histogram, every power of two range is split into the same number of linear
+ * buckets, so the relative error of the reported percentiles is bounded (by 1/16) over the whole
+ * range while the number of buckets stays small. Recording a value is a few atomic increments and
+ * does not allocate, so it can be done on every producer event.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  /** Values from 2^MAX_EXPONENT on (about 19 hours in microseconds) go to the last bucket. */
+  private static final int MAX_EXPONENT = 36;
+
+  @VisibleForTesting
+  static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong mSum = new AtomicLong();
+  private final AtomicLong mMax = new AtomicLong();
+
+  /** Records a single value, negative values are recorded as 0. */
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    mCounts.incrementAndGet(getBucketIndex(value));
+    mSum.addAndGet(value);
+    long max = mMax.get();
+    while (value > max && !mMax.compareAndSet(max, value)) {
+      max = mMax.get();
+    }
+  }
+
+  /**
+   * Copies the recorded values.
+   *
+   * @param reset whether to start over, so that the next snapshot only contains the values recorded
+   *     after this one
+   */
+  public Snapshot getSnapshot(boolean reset) {
+    final long[] counts = new long[BUCKET_COUNT];
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = reset ? mCounts.getAndSet(i, 0) : mCounts.get(i);
+      count += counts[i];
+    }
+    final long sum = reset ? mSum.getAndSet(0) : mSum.get();
+    final long max = reset ? mMax.getAndSet(0) : mMax.get();
+    return new Snapshot(counts, count, sum, max);
+  }
+
+  @VisibleForTesting
+  static int getBucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent >= MAX_EXPONENT) {
+      return BUCKET_COUNT - 1;
+    }
+    // The SUB_BUCKET_BITS most significant bits select the bucket within the power of two range
+    final int shift = exponent - SUB_BUCKET_BITS;
+    return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+  }
+
+  @VisibleForTesting
+  static long getBucketLowerBound(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    final int shift = index / SUB_BUCKET_COUNT - 1;
+    return (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+  }
+
+  /** Immutable copy of the values of a {@link LatencyHistogram}. */
+  public static class Snapshot {
+
+    private final long[] mCounts;
+    private final long mCount;
+    private final long mSum;
+    private final long mMax;
+
+    Snapshot(long[] counts, long count, long sum, long max) {
+      mCounts = counts;
+      mCount = count;
+      mSum = sum;
+      mMax = max;
+    }
+
+    public long getCount() {
+      return mCount;
+    }
+
+    public long getSum() {
+      return mSum;
+    }
+
+    public long getMax() {
+      return mMax;
+    }
+
+    public double getMean() {
+      return mCount == 0 ? 0 : (double) mSum / mCount;
+    }
+
+    /**
+     * Returns the highest value of the bucket the given percentile falls into, but at most the
+     * largest recorded value.
+     *
+     * @param percentile between 0 and 100
+     */
+    public long getValueAtPercentile(double percentile) {
+      if (mCount == 0) {
+        return 0;
+      }
+      final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * mCount));
+      long seen = 0;
+      for (int i = 0; i < mCounts.length; i++) {
+        seen += mCounts[i];
+        if (seen >= rank) {
+          return Math.min(mMax, getBucketLowerBound(i + 1) - 1);
+        }
+      }
+      return mMax;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          (Locale) null,
+          "count=%d mean=%.0f p50=%d p90=%d p99=%d max=%d",
+          mCount,
+          getMean(),
+          getValueAtPercentile(50),
+          getValueAtPercentile(90),
+          getValueAtPercentile(99),
+          mMax);
+    }
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import com.facebook.common.internal.Preconditions;
+import com.facebook.common.time.AwakeTimeSinceBootClock;
+import com.facebook.common.time.MonotonicClock;
+import com.facebook.common.time.MonotonicNanoClock;
+import com.facebook.imagepipeline.cache.ImageCacheStatsTracker;
+import com.facebook.imagepipeline.core.InstrumentedExecutor;
+import com.facebook.imagepipeline.core.InstrumentedExecutorSupplier;
+import com.facebook.imagepipeline.listener.RequestListener2;
+import com.facebook.imagepipeline.memory.PoolStatsTracker;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Aggregates the performance of the image pipeline: the duration of every producer, the time tasks
+ * wait in and run on the executors, the hit ratio of every cache tier and the hit rate and the
+ * bytes in use of the pools.
+ *
+ * <p>The registry is fed by the existing instrumentation hooks. Register the listener and the
+ * trackers it creates with the pipeline:
+ *
+ * <pre>{@code
+ * PipelineMetrics metrics = new PipelineMetrics();
+ * ImagePipelineConfig.newBuilder(context)
+ *     .setRequestListener2s(Collections.singleton(metrics.createRequestListener()))
+ *     .setImageCacheStatsTracker(metrics.createImageCacheStatsTracker())
+ *     .setPoolFactory(
+ *         new PoolFactory(
+ *             PoolConfig.newBuilder()
+ *                 .setBitmapPoolStatsTracker(metrics.createPoolStatsTracker("bitmap"))
+ *                 .setNativeMemoryChunkPoolStatsTracker(metrics.createPoolStatsTracker("chunk"))
+ *                 .build()))
+ *     .setExecutorSupplier(
+ *         new InstrumentedExecutorSupplier(
+ *             new DefaultExecutorSupplier(numCpuBoundThreads), metrics.createExecutorListener()))
+ * }</pre>
+ *
+ * <p>Counters of other modules, like the frame counters of animations, are added with {@link
+ * #addCounterSource}.
+ *
+ * <p>All counters are atomics and all durations go to {@link LatencyHistogram}s, so recording an
+ * event neither locks nor allocates. Durations are in microseconds. The values are read with
+ * {@link #getSnapshot}, or periodically with {@link #scheduleSnapshots}.
+ */
+public class PipelineMetrics {
+
+  /** Receives the snapshots scheduled with {@link #scheduleSnapshots}. */
+  public interface SnapshotListener {
+    void onSnapshot(PipelineMetricsSnapshot snapshot);
+  }
+
+  /**
+   * Counters kept outside of the registry, for example by modules that the pipeline does not
+   * depend on. Added with {@link #addCounterSource}.
+   */
+  public interface CounterSource {
+
+    /**
+     * @param reset whether to reset the counters after reading them
+     * @return the current values of the counters, by counter name
+     */
+    Map<String, Long> getCounters(boolean reset);
+  }
+
+  private static final int DEFAULT_MAX_RUNNING_PRODUCERS = 512;
+
+  private final MonotonicClock mClock;
+  private final MonotonicNanoClock mNanoClock;
+  private final int mMaxRunningProducers;
+
+  private final ConcurrentHashMap<String, LatencyHistogram> mProducerDurations =
+      new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, LatencyHistogram> mQueueTimes =
+      new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, LatencyHistogram> mRunTimes = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, LatencyHistogram> mQueueDepths =
+      new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, LatencyHistogram> mLatencies =
+      new ConcurrentHashMap<>();
+
+  private final AtomicLongArray mCacheHits = new AtomicLongArray(CacheTier.COUNT);
+  private final AtomicLongArray mCacheMisses = new AtomicLongArray(CacheTier.COUNT);
+  private final AtomicLongArray mCachePuts = new AtomicLongArray(CacheTier.COUNT);
+  private final AtomicLong mDiskCacheReadFailures = new AtomicLong();
+
+  private final CopyOnWriteArrayList<PipelineMetricsPoolStatsTracker> mPoolStatsTrackers =
+      new CopyOnWriteArrayList<>();
+  private final CopyOnWriteArrayList<CounterSource> mCounterSources =
+      new CopyOnWriteArrayList<>();
+
+  private final AtomicLong mDroppedSamples = new AtomicLong();
+  private final AtomicLong mIntervalStartTimeMs;
+
+  public PipelineMetrics() {
+    this(
+        AwakeTimeSinceBootClock.get(),
+        AwakeTimeSinceBootClock.get(),
+        DEFAULT_MAX_RUNNING_PRODUCERS);
+  }
+
+  /**
+   * @param maxRunningProducers the number of producer runs whose duration can be measured at the
+   *     same time
+   */
+  public PipelineMetrics(
+      MonotonicClock clock, MonotonicNanoClock nanoClock, int maxRunningProducers) {
+    mClock = Preconditions.checkNotNull(clock);
+    mNanoClock = Preconditions.checkNotNull(nanoClock);
+    mMaxRunningProducers = maxRunningProducers;
+    mIntervalStartTimeMs = new AtomicLong(clock.now());
+  }
+
+  /** Creates a listener that records the duration of every producer run and of every request. */
+  public RequestListener2 createRequestListener() {
+    return new PipelineMetricsRequestListener(
+        this, mNanoClock, new ProducerStartTimes(mMaxRunningProducers));
+  }
+
+  /**
+   * Creates a listener for the executors of an {@link InstrumentedExecutorSupplier}, that records
+   * their queue times, run times and queue depths.
+   */
+  public InstrumentedExecutor.Listener createExecutorListener() {
+    return new PipelineMetricsExecutorListener(this);
+  }
+
+  /** Creates a tracker that counts the hits and misses of every cache tier. */
+  public ImageCacheStatsTracker createImageCacheStatsTracker() {
+    return new PipelineMetricsCacheStatsTracker(this);
+  }
+
+  /** Creates a tracker for one pool, the pool is reported with the given name. */
+  public PoolStatsTracker createPoolStatsTracker(String poolName) {
+    final PipelineMetricsPoolStatsTracker tracker = new PipelineMetricsPoolStatsTracker(poolName);
+    mPoolStatsTrackers.add(tracker);
+    return tracker;
+  }
+
+  /**
+   * Adds counters that are reported with every snapshot, see {@link
+   * PipelineMetricsSnapshot#getCounters()}.
+   */
+  public void addCounterSource(CounterSource counterSource) {
+    mCounterSources.add(Preconditions.checkNotNull(counterSource));
+  }
+
+  /** Returns the histogram of the durations of the producer with the given name. */
+  public LatencyHistogram getProducerDurationHistogram(String producerName) {
+    return getOrCreate(mProducerDurations, producerName);
+  }
+
+  /** Returns the histogram of the times tasks waited in the queue of the given executor. */
+  public LatencyHistogram getQueueTimeHistogram(String executorName) {
+    return getOrCreate(mQueueTimes, executorName);
+  }
+
+  /** Returns the histogram of the times tasks ran on the given executor. */
+  public LatencyHistogram getRunTimeHistogram(String executorName) {
+    return getOrCreate(mRunTimes, executorName);
+  }
+
+  /** Returns the histogram of the queue depths of the given executor, sampled at every submit. */
+  public LatencyHistogram getQueueDepthHistogram(String executorName) {
+    return getOrCreate(mQueueDepths, executorName);
+  }
+
+  /** Returns the histogram of any other duration, for example of whole requests. */
+  public LatencyHistogram getLatencyHistogram(String name) {
+    return getOrCreate(mLatencies, name);
+  }
+
+  public void onCacheHit(@CacheTier int cacheTier) {
+    mCacheHits.incrementAndGet(cacheTier);
+  }
+
+  public void onCacheMiss(@CacheTier int cacheTier) {
+    mCacheMisses.incrementAndGet(cacheTier);
+  }
+
+  public void onCachePut(@CacheTier int cacheTier) {
+    mCachePuts.incrementAndGet(cacheTier);
+  }
+
+  public void onDiskCacheReadFailure() {
+    mDiskCacheReadFailures.incrementAndGet();
+  }
+
+  /** Called when a duration could not be measured. */
+  void onSampleDropped() {
+    mDroppedSamples.incrementAndGet();
+  }
+
+  /**
+   * Copies the current values.
+   *
+   * @param reset whether to start a new interval, so that the next snapshot only contains the
+   *     events after this one. The bytes in use by the pools are never reset.
+   */
+  public PipelineMetricsSnapshot getSnapshot(boolean reset) {
+    final long now = mClock.now();
+    final long intervalStartTimeMs =
+        reset ? mIntervalStartTimeMs.getAndSet(now) : mIntervalStartTimeMs.get();
+    final long[] cacheHits = new long[CacheTier.COUNT];
+    final long[] cacheMisses = new long[CacheTier.COUNT];
+    final long[] cachePuts = new long[CacheTier.COUNT];
+    for (int i = 0; i < CacheTier.COUNT; i++) {
+      cacheHits[i] = get(mCacheHits, i, reset);
+      cacheMisses[i] = get(mCacheMisses, i, reset);
+      cachePuts[i] = get(mCachePuts, i, reset);
+    }
+    final Map<String, PipelineMetricsSnapshot.PoolSnapshot> pools = new HashMap<>();
+    for (PipelineMetricsPoolStatsTracker tracker : mPoolStatsTrackers) {
+      pools.put(tracker.getPoolName(), tracker.getSnapshot(reset));
+    }
+    final Map<String, Long> counters = new HashMap<>();
+    for (CounterSource counterSource : mCounterSources) {
+      counters.putAll(counterSource.getCounters(reset));
+    }
+    return new PipelineMetricsSnapshot(
+        intervalStartTimeMs,
+        now,
+        snapshot(mProducerDurations, reset),
+        snapshot(mQueueTimes, reset),
+        snapshot(mRunTimes, reset),
+        snapshot(mQueueDepths, reset),
+        snapshot(mLatencies, reset),
+        cacheHits,
+        cacheMisses,
+        cachePuts,
+        reset ? mDiskCacheReadFailures.getAndSet(0) : mDiskCacheReadFailures.get(),
+        pools,
+        counters,
+        reset ? mDroppedSamples.getAndSet(0) : mDroppedSamples.get());
+  }
+
+  /**
+   * Delivers a snapshot of every interval of the given length to the listener, on the given
+   * executor. Cancel the returned future to stop.
+   */
+  public ScheduledFuture<?> scheduleSnapshots(
+      ScheduledExecutorService executor, long periodMs, final SnapshotListener listener) {
+    Preconditions.checkNotNull(listener);
+    // Start the first interval now
+    getSnapshot(true);
+    return executor.scheduleAtFixedRate(
+        new Runnable() {
+          @Override
+          public void run() {
+            listener.onSnapshot(getSnapshot(true));
+          }
+        },
+        periodMs,
+        periodMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  private static LatencyHistogram getOrCreate(
+      ConcurrentHashMap<String, LatencyHistogram> histograms, String name) {
+    LatencyHistogram histogram = histograms.get(name);
+    if (histogram == null) {
+      histogram = new LatencyHistogram();
+      final LatencyHistogram existing = histograms.putIfAbsent(name, histogram);
+      if (existing != null) {
+        histogram = existing;
+      }
+    }
+    return histogram;
+  }
+
+  private static Map<String, LatencyHistogram.Snapshot> snapshot(
+      Map<String, LatencyHistogram> histograms, boolean reset) {
+    final Map<String, LatencyHistogram.Snapshot> snapshots = new HashMap<>();
+    for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+      snapshots.put(entry.getKey(), entry.getValue().getSnapshot(reset));
+    }
+    return snapshots;
+  }
+
+  private static long get(AtomicLongArray array, int i, boolean reset) {
+    return reset ? array.getAndSet(i, 0) : array.get(i);
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import com.facebook.cache.common.CacheKey;
+import com.facebook.imagepipeline.cache.ImageCacheStatsTracker;
+import com.facebook.imagepipeline.cache.MemoryCache;
+
+/** {@link ImageCacheStatsTracker} that counts the events of every cache tier. */
+class PipelineMetricsCacheStatsTracker implements ImageCacheStatsTracker {
+
+  private final PipelineMetrics mMetrics;
+
+  PipelineMetricsCacheStatsTracker(PipelineMetrics metrics) {
+    mMetrics = metrics;
+  }
+
+  @Override
+  public void onBitmapCachePut(CacheKey cacheKey) {
+    mMetrics.onCachePut(CacheTier.BITMAP_MEMORY);
+  }
+
+  @Override
+  public void onBitmapCacheHit(CacheKey cacheKey) {
+    mMetrics.onCacheHit(CacheTier.BITMAP_MEMORY);
+  }
+
+  @Override
+  public void onBitmapCacheMiss(CacheKey cacheKey) {
+    mMetrics.onCacheMiss(CacheTier.BITMAP_MEMORY);
+  }
+
+  @Override
+  public void onMemoryCachePut(CacheKey cacheKey) {
+    mMetrics.onCachePut(CacheTier.ENCODED_MEMORY);
+  }
+
+  @Override
+  public void onMemoryCacheHit(CacheKey cacheKey) {
+    mMetrics.onCacheHit(CacheTier.ENCODED_MEMORY);
+  }
+
+  @Override
+  public void onMemoryCacheMiss(CacheKey cacheKey) {
+    mMetrics.onCacheMiss(CacheTier.ENCODED_MEMORY);
+  }
+
+  @Override
+  public void onStagingAreaHit(CacheKey cacheKey) {
+    mMetrics.onCacheHit(CacheTier.STAGING_AREA);
+  }
+
+  @Override
+  public void onStagingAreaMiss(CacheKey cacheKey) {
+    mMetrics.onCacheMiss(CacheTier.STAGING_AREA);
+  }
+
+  @Override
+  public void onDiskCacheHit(CacheKey cacheKey) {
+    mMetrics.onCacheHit(CacheTier.DISK);
+  }
+
+  @Override
+  public void onDiskCacheMiss(CacheKey cacheKey) {
+    mMetrics.onCacheMiss(CacheTier.DISK);
+  }
+
+  @Override
+  public void onDiskCacheGetFail(CacheKey cacheKey) {
+    mMetrics.onDiskCacheReadFailure();
+  }
+
+  @Override
+  public void onDiskCachePut(CacheKey cacheKey) {
+    mMetrics.onCachePut(CacheTier.DISK);
+  }
+
+  @Override
+  public void registerBitmapMemoryCache(MemoryCache<?, ?> bitmapMemoryCache) {}
+
+  @Override
+  public void registerEncodedMemoryCache(MemoryCache<?, ?> encodedMemoryCache) {}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import com.facebook.imagepipeline.core.InstrumentedExecutor;
+
+/** Records the measurements of {@link InstrumentedExecutor}s into {@link PipelineMetrics}. */
+class PipelineMetricsExecutorListener implements InstrumentedExecutor.Listener {
+
+  private final PipelineMetrics mMetrics;
+
+  PipelineMetricsExecutorListener(PipelineMetrics metrics) {
+    mMetrics = metrics;
+  }
+
+  @Override
+  public void onTaskEnqueued(String executorName, int queueDepth) {
+    mMetrics.getQueueDepthHistogram(executorName).record(queueDepth);
+  }
+
+  @Override
+  public void onTaskStarted(String executorName, long queueTimeNanos) {
+    mMetrics.getQueueTimeHistogram(executorName).record(queueTimeNanos / 1000);
+  }
+
+  @Override
+  public void onTaskFinished(String executorName, long runTimeNanos) {
+    mMetrics.getRunTimeHistogram(executorName).record(runTimeNanos / 1000);
+  }
+}
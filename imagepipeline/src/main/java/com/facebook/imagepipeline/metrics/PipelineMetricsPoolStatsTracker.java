@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import com.facebook.imagepipeline.memory.BasePool;
+import com.facebook.imagepipeline.memory.PoolStatsTracker;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** {@link PoolStatsTracker} that counts reuses and allocations of one pool for PipelineMetrics. */
+class PipelineMetricsPoolStatsTracker implements PoolStatsTracker {
+
+  private final String mPoolName;
+  private final AtomicLong mReuseCount = new AtomicLong();
+  private final AtomicLong mAllocCount = new AtomicLong();
+  private final AtomicLong mBytesInFlight = new AtomicLong();
+  private final AtomicLong mSoftCapReachedCount = new AtomicLong();
+  private final AtomicLong mHardCapReachedCount = new AtomicLong();
+
+  PipelineMetricsPoolStatsTracker(String poolName) {
+    mPoolName = poolName;
+  }
+
+  String getPoolName() {
+    return mPoolName;
+  }
+
+  PipelineMetricsSnapshot.PoolSnapshot getSnapshot(boolean reset) {
+    return new PipelineMetricsSnapshot.PoolSnapshot(
+        get(mReuseCount, reset),
+        get(mAllocCount, reset),
+        mBytesInFlight.get(),
+        get(mSoftCapReachedCount, reset),
+        get(mHardCapReachedCount, reset));
+  }
+
+  @Override
+  public void setBasePool(BasePool basePool) {}
+
+  @Override
+  public void onValueReuse(int bucketedSize) {
+    mReuseCount.incrementAndGet();
+    mBytesInFlight.addAndGet(bucketedSize);
+  }
+
+  @Override
+  public void onSoftCapReached() {
+    mSoftCapReachedCount.incrementAndGet();
+  }
+
+  @Override
+  public void onHardCapReached() {
+    mHardCapReachedCount.incrementAndGet();
+  }
+
+  @Override
+  public void onAlloc(int size) {
+    mAllocCount.incrementAndGet();
+    mBytesInFlight.addAndGet(size);
+  }
+
+  @Override
+  public void onFree(int sizeInBytes) {
+    // A released value that could not be put back into the pool
+    mBytesInFlight.addAndGet(-sizeInBytes);
+  }
+
+  @Override
+  public void onValueRelease(int sizeInBytes) {
+    mBytesInFlight.addAndGet(-sizeInBytes);
+  }
+
+  private static long get(AtomicLong value, boolean reset) {
+    return reset ? value.getAndSet(0) : value.get();
+  }
+}
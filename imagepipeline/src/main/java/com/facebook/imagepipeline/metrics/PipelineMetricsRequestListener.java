@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import androidx.annotation.NonNull;
+import com.facebook.common.time.MonotonicNanoClock;
+import com.facebook.imagepipeline.listener.BaseRequestListener2;
+import com.facebook.imagepipeline.producers.DecodeProducer;
+import com.facebook.imagepipeline.producers.JobScheduler;
+import com.facebook.imagepipeline.producers.ProducerContext;
+import com.facebook.imagepipeline.producers.ProducerExtras;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Records the duration of every producer run and of every request into {@link PipelineMetrics}.
+ *
+ * <p>The start times are kept in a {@link ProducerStartTimes} table, so that no event allocates.
+ * The time the decode jobs waited for the decode executor is taken from the extras of the {@link
+ * DecodeProducer}, the only extras this listener asks for. They are read through the typed {@link
+ * ProducerExtras} getters, so the extras are never turned into strings.
+ */
+class PipelineMetricsRequestListener extends BaseRequestListener2 {
+
+  /** Name under which the durations of whole requests are recorded. */
+  static final String REQUEST = "request";
+
+  private final PipelineMetrics mMetrics;
+  private final MonotonicNanoClock mClock;
+  private final ProducerStartTimes mStartTimes;
+
+  PipelineMetricsRequestListener(
+      PipelineMetrics metrics, MonotonicNanoClock clock, ProducerStartTimes startTimes) {
+    mMetrics = metrics;
+    mClock = clock;
+    mStartTimes = startTimes;
+  }
+
+  @Override
+  public void onRequestStart(@NonNull ProducerContext producerContext) {
+    start(producerContext, REQUEST);
+  }
+
+  @Override
+  public void onRequestSuccess(@NonNull ProducerContext producerContext) {
+    onRequestEnd(producerContext);
+  }
+
+  @Override
+  public void onRequestFailure(@NonNull ProducerContext producerContext, Throwable throwable) {
+    onRequestEnd(producerContext);
+  }
+
+  @Override
+  public void onRequestCancellation(@NonNull ProducerContext producerContext) {
+    onRequestEnd(producerContext);
+  }
+
+  @Override
+  public void onProducerStart(
+      @NonNull ProducerContext producerContext, @NonNull String producerName) {
+    start(producerContext, producerName);
+  }
+
+  @Override
+  public void onProducerFinishWithSuccess(
+      @NonNull ProducerContext producerContext,
+      @NonNull String producerName,
+      @Nullable Map<String, String> extraMap) {
+    onProducerFinish(producerContext, producerName, extraMap);
+  }
+
+  @Override
+  public void onProducerFinishWithFailure(
+      @NonNull ProducerContext producerContext,
+      String producerName,
+      Throwable t,
+      @Nullable Map<String, String> extraMap) {
+    onProducerFinish(producerContext, producerName, extraMap);
+  }
+
+  @Override
+  public void onProducerFinishWithCancellation(
+      @NonNull ProducerContext producerContext,
+      @NonNull String producerName,
+      @Nullable Map<String, String> extraMap) {
+    onProducerFinish(producerContext, producerName, extraMap);
+  }
+
+  @Override
+  public boolean requiresExtraMap(
+      @NonNull ProducerContext producerContext, @NonNull String producerName) {
+    return DecodeProducer.PRODUCER_NAME.equals(producerName);
+  }
+
+  private void start(ProducerContext producerContext, String name) {
+    if (!mStartTimes.put(producerContext, name, mClock.nowNanos())) {
+      mMetrics.onSampleDropped();
+    }
+  }
+
+  private void onRequestEnd(ProducerContext producerContext) {
+    final long startTime = mStartTimes.remove(producerContext, REQUEST);
+    if (startTime >= 0) {
+      mMetrics.getLatencyHistogram(REQUEST).record(toMicros(mClock.nowNanos() - startTime));
+    }
+    // Not every producer reports that it finished when the request is cancelled
+    mStartTimes.removeAll(producerContext);
+  }
+
+  private void onProducerFinish(
+      ProducerContext producerContext, String producerName, @Nullable Map<String, String> extras) {
+    final long startTime = mStartTimes.remove(producerContext, producerName);
+    if (startTime >= 0) {
+      mMetrics
+          .getProducerDurationHistogram(producerName)
+          .record(toMicros(mClock.nowNanos() - startTime));
+    }
+    final long queueTimeMs = getQueueTimeMs(extras);
+    if (queueTimeMs >= 0) {
+      mMetrics.getQueueTimeHistogram(producerName).record(queueTimeMs * 1000);
+    }
+  }
+
+  private long getQueueTimeMs(@Nullable Map<String, String> extras) {
+    if (extras instanceof ProducerExtras) {
+      // Typed extras, nothing to parse
+      return ((ProducerExtras) extras).getLong(JobScheduler.QUEUE_TIME_KEY, -1);
+    }
+    final String queueTime = extras == null ? null : extras.get(JobScheduler.QUEUE_TIME_KEY);
+    if (queueTime != null) {
+      try {
+        return Long.parseLong(queueTime);
+      } catch (NumberFormatException e) {
+        mMetrics.onSampleDropped();
+      }
+    }
+    return -1;
+  }
+
+  private static long toMicros(long nanos) {
+    return nanos / 1000;
+  }
+}
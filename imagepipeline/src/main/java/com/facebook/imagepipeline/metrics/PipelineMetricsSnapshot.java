@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Immutable copy of the values of {@link PipelineMetrics} over an interval. */
+public class PipelineMetricsSnapshot {
+
+  private static final String[] CACHE_TIER_NAMES = {
+    "bitmap_memory", "encoded_memory", "staging_area", "disk"
+  };
+
+  private final long mIntervalStartTimeMs;
+  private final long mIntervalEndTimeMs;
+  private final Map<String, LatencyHistogram.Snapshot> mProducerDurations;
+  private final Map<String, LatencyHistogram.Snapshot> mQueueTimes;
+  private final Map<String, LatencyHistogram.Snapshot> mRunTimes;
+  private final Map<String, LatencyHistogram.Snapshot> mQueueDepths;
+  private final Map<String, LatencyHistogram.Snapshot> mLatencies;
+  private final long[] mCacheHits;
+  private final long[] mCacheMisses;
+  private final long[] mCachePuts;
+  private final long mDiskCacheReadFailures;
+  private final Map<String, PoolSnapshot> mPools;
+  private final Map<String, Long> mCounters;
+  private final long mDroppedSamples;
+
+  PipelineMetricsSnapshot(
+      long intervalStartTimeMs,
+      long intervalEndTimeMs,
+      Map<String, LatencyHistogram.Snapshot> producerDurations,
+      Map<String, LatencyHistogram.Snapshot> queueTimes,
+      Map<String, LatencyHistogram.Snapshot> runTimes,
+      Map<String, LatencyHistogram.Snapshot> queueDepths,
+      Map<String, LatencyHistogram.Snapshot> latencies,
+      long[] cacheHits,
+      long[] cacheMisses,
+      long[] cachePuts,
+      long diskCacheReadFailures,
+      Map<String, PoolSnapshot> pools,
+      Map<String, Long> counters,
+      long droppedSamples) {
+    mIntervalStartTimeMs = intervalStartTimeMs;
+    mIntervalEndTimeMs = intervalEndTimeMs;
+    mProducerDurations = Collections.unmodifiableMap(producerDurations);
+    mQueueTimes = Collections.unmodifiableMap(queueTimes);
+    mRunTimes = Collections.unmodifiableMap(runTimes);
+    mQueueDepths = Collections.unmodifiableMap(queueDepths);
+    mLatencies = Collections.unmodifiableMap(latencies);
+    mCacheHits = cacheHits;
+    mCacheMisses = cacheMisses;
+    mCachePuts = cachePuts;
+    mDiskCacheReadFailures = diskCacheReadFailures;
+    mPools = Collections.unmodifiableMap(pools);
+    mCounters = Collections.unmodifiableMap(counters);
+    mDroppedSamples = droppedSamples;
+  }
+
+  public long getIntervalStartTimeMs() {
+    return mIntervalStartTimeMs;
+  }
+
+  public long getIntervalEndTimeMs() {
+    return mIntervalEndTimeMs;
+  }
+
+  /** Producer durations in microseconds, by producer name. */
+  public Map<String, LatencyHistogram.Snapshot> getProducerDurations() {
+    return mProducerDurations;
+  }
+
+  /** Executor queue times in microseconds, by executor or producer name. */
+  public Map<String, LatencyHistogram.Snapshot> getQueueTimes() {
+    return mQueueTimes;
+  }
+
+  /** Executor run times in microseconds, by executor name. */
+  public Map<String, LatencyHistogram.Snapshot> getRunTimes() {
+    return mRunTimes;
+  }
+
+  /** Executor queue depths sampled at every submit, by executor name. */
+  public Map<String, LatencyHistogram.Snapshot> getQueueDepths() {
+    return mQueueDepths;
+  }
+
+  /** Other durations in microseconds, by name. */
+  public Map<String, LatencyHistogram.Snapshot> getLatencies() {
+    return mLatencies;
+  }
+
+  public long getCacheHitCount(@CacheTier int cacheTier) {
+    return mCacheHits[cacheTier];
+  }
+
+  public long getCacheMissCount(@CacheTier int cacheTier) {
+    return mCacheMisses[cacheTier];
+  }
+
+  public long getCachePutCount(@CacheTier int cacheTier) {
+    return mCachePuts[cacheTier];
+  }
+
+  /** Returns the share of the lookups of the given tier that were hits, 0 if there were none. */
+  public float getCacheHitRatio(@CacheTier int cacheTier) {
+    return ratio(mCacheHits[cacheTier], mCacheHits[cacheTier] + mCacheMisses[cacheTier]);
+  }
+
+  public long getDiskCacheReadFailureCount() {
+    return mDiskCacheReadFailures;
+  }
+
+  /** Pool statistics by pool name. */
+  public Map<String, PoolSnapshot> getPools() {
+    return mPools;
+  }
+
+  /** Values of the counters of the added {@link PipelineMetrics.CounterSource}s, by name. */
+  public Map<String, Long> getCounters() {
+    return mCounters;
+  }
+
+  /** Number of durations that could not be measured, because too many producers were running. */
+  public long getDroppedSampleCount() {
+    return mDroppedSamples;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder();
+    builder.append(
+        String.format(
+            (Locale) null,
+            "interval: %d ms, dropped samples: %d\n",
+            mIntervalEndTimeMs - mIntervalStartTimeMs,
+            mDroppedSamples));
+    appendHistograms(builder, "producer", "us", mProducerDurations);
+    appendHistograms(builder, "queue", "us", mQueueTimes);
+    appendHistograms(builder, "run", "us", mRunTimes);
+    appendHistograms(builder, "queue depth", "tasks", mQueueDepths);
+    appendHistograms(builder, "latency", "us", mLatencies);
+    for (int i = 0; i < CacheTier.COUNT; i++) {
+      builder.append(
+          String.format(
+              (Locale) null,
+              "cache %s: hits=%d misses=%d puts=%d hit ratio=%.3f\n",
+              CACHE_TIER_NAMES[i],
+              mCacheHits[i],
+              mCacheMisses[i],
+              mCachePuts[i],
+              getCacheHitRatio(i)));
+    }
+    for (Map.Entry<String, PoolSnapshot> entry : new TreeMap<>(mPools).entrySet()) {
+      builder.append("pool ").append(entry.getKey()).append(": ").append(entry.getValue());
+      builder.append('\n');
+    }
+    for (Map.Entry<String, Long> entry : new TreeMap<>(mCounters).entrySet()) {
+      builder.append("counter ").append(entry.getKey()).append(": ").append(entry.getValue());
+      builder.append('\n');
+    }
+    return builder.toString();
+  }
+
+  private static void appendHistograms(
+      StringBuilder builder,
+      String prefix,
+      String unit,
+      Map<String, LatencyHistogram.Snapshot> histograms) {
+    for (Map.Entry<String, LatencyHistogram.Snapshot> entry :
+        new TreeMap<>(histograms).entrySet()) {
+      builder.append(prefix).append(' ').append(entry.getKey());
+      builder.append(" (").append(unit).append("): ");
+      builder.append(entry.getValue()).append('\n');
+    }
+  }
+
+  private static float ratio(long count, long total) {
+    return total == 0 ? 0 : (float) count / total;
+  }
+
+  /** Statistics of one pool. */
+  public static class PoolSnapshot {
+
+    private final long mReuseCount;
+    private final long mAllocCount;
+    private final long mBytesInFlight;
+    private final long mSoftCapReachedCount;
+    private final long mHardCapReachedCount;
+
+    PoolSnapshot(
+        long reuseCount,
+        long allocCount,
+        long bytesInFlight,
+        long softCapReachedCount,
+        long hardCapReachedCount) {
+      mReuseCount = reuseCount;
+      mAllocCount = allocCount;
+      mBytesInFlight = bytesInFlight;
+      mSoftCapReachedCount = softCapReachedCount;
+      mHardCapReachedCount = hardCapReachedCount;
+    }
+
+    /** Number of values that were handed out again after having been released. */
+    public long getReuseCount() {
+      return mReuseCount;
+    }
+
+    /** Number of values that had to be allocated. */
+    public long getAllocCount() {
+      return mAllocCount;
+    }
+
+    /** Share of the values that were reused rather than allocated, 0 if there were none. */
+    public float getHitRate() {
+      return ratio(mReuseCount, mReuseCount + mAllocCount);
+    }
+
+    /** Bytes of the values that are currently handed out by the pool. */
+    public long getBytesInFlight() {
+      return mBytesInFlight;
+    }
+
+    public long getSoftCapReachedCount() {
+      return mSoftCapReachedCount;
+    }
+
+    public long getHardCapReachedCount() {
+      return mHardCapReachedCount;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          (Locale) null,
+          "reuses=%d allocs=%d hit rate=%.3f bytes in flight=%d soft cap=%d hard cap=%d",
+          mReuseCount,
+          mAllocCount,
+          getHitRate(),
+          mBytesInFlight,
+          mSoftCapReachedCount,
+          mHardCapReachedCount);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import com.facebook.imagepipeline.producers.ProducerContext;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed size, lock-free table of the start times of running producers, keyed by producer context
+ * and producer name.
+ *
+ * <p>Unlike a map keyed by (request id, producer name) pairs, storing and removing a start time
+ * does not allocate. Every key can only be stored in one of {@link #MAX_PROBES} slots; if all of
+ * them are taken the start time is dropped and the duration of that producer run is not recorded.
+ */
+class ProducerStartTimes {
+
+  private static final int MAX_PROBES = 8;
+
+  private final int mMask;
+  private final AtomicReferenceArray<ProducerContext> mContexts;
+  private final AtomicReferenceArray<String> mNames;
+  private final AtomicLongArray mStartTimes;
+
+  /** @param capacity the number of slots, rounded up to a power of two */
+  ProducerStartTimes(int capacity) {
+    int size = Integer.highestOneBit(Math.max(MAX_PROBES, capacity - 1)) << 1;
+    mMask = size - 1;
+    mContexts = new AtomicReferenceArray<>(size);
+    mNames = new AtomicReferenceArray<>(size);
+    mStartTimes = new AtomicLongArray(size);
+  }
+
+  /** @return false if there was no free slot for the given key */
+  boolean put(ProducerContext context, String name, long startTime) {
+    final int start = hash(context, name);
+    for (int i = 0; i < MAX_PROBES; i++) {
+      final int slot = (start + i) & mMask;
+      if (mContexts.compareAndSet(slot, null, context)) {
+        mStartTimes.set(slot, startTime);
+        mNames.set(slot, name);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Removes the start time stored for the given key, returns -1 if there is none. */
+  long remove(ProducerContext context, String name) {
+    final int start = hash(context, name);
+    for (int i = 0; i < MAX_PROBES; i++) {
+      final int slot = (start + i) & mMask;
+      if (mContexts.get(slot) == context && name.equals(mNames.get(slot))) {
+        final long startTime = mStartTimes.get(slot);
+        clear(slot);
+        return startTime;
+      }
+    }
+    return -1;
+  }
+
+  /** Frees the slots of producers of the given request that never finished. */
+  void removeAll(ProducerContext context) {
+    for (int slot = 0; slot <= mMask; slot++) {
+      if (mContexts.get(slot) == context) {
+        clear(slot);
+      }
+    }
+  }
+
+  private void clear(int slot) {
+    mNames.set(slot, null);
+    mContexts.set(slot, null);
+  }
+
+  private int hash(ProducerContext context, String name) {
+    final int hash = System.identityHashCode(context) * 31 + name.hashCode();
+    return (hash ^ (hash >>> 16)) & mMask;
+  }
+}
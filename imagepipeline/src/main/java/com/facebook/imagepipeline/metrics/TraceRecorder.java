@@ -0,0 +1,524 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import androidx.annotation.NonNull;
+import com.facebook.common.time.AwakeTimeSinceBootClock;
+import com.facebook.common.time.MonotonicNanoClock;
+import com.facebook.imagepipeline.instrumentation.FrescoInstrumenter;
+import com.facebook.imagepipeline.listener.BaseRequestListener2;
+import com.facebook.imagepipeline.producers.ProducerContext;
+import com.facebook.imagepipeline.systrace.FrescoSystrace;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nullable;
+
+/**
+ * Pure Java tracing backend that records the spans of image requests into a ring buffer and dumps
+ * them in the Chrome trace event format, to be opened in chrome://tracing or Perfetto.
+ *
+ * <p>It is at the same time the {@link FrescoSystrace.Systrace}, the {@link
+ * FrescoInstrumenter.Instrumenter} and a request listener of the pipeline:
+ *
+ * <pre>{@code
+ * TraceRecorder recorder = new TraceRecorder(8192);
+ * FrescoSystrace.provide(recorder);
+ * FrescoInstrumenter.provide(recorder);
+ * ImagePipelineConfig.newBuilder(context).setRequestListener2s(Collections.singleton(recorder));
+ * ...
+ * recorder.writeChromeTrace(writer, null);
+ * }</pre>
+ *
+ * <p>Requests and producer runs, such as the cache lookups, the decode and the transcode, are
+ * recorded as async spans with the request id as their id, so that every request gets its own
+ * track. Systrace sections are recorded on the thread that ran them and are attributed to the
+ * request whose producer last started on that thread. Work that hops executors through the
+ * instrumenter is recorded with a flow arrow from the submitting to the executing thread and
+ * carries the request id along.
+ *
+ * <p>Recording does not lock and only allocates for the instrumenter tokens; once the buffer is
+ * full the oldest events are overwritten. The dump is best effort: events written while it runs
+ * may be skipped.
+ */
+public class TraceRecorder extends BaseRequestListener2
+    implements FrescoSystrace.Systrace, FrescoInstrumenter.Instrumenter {
+
+  static final String CATEGORY_REQUEST = "request";
+  static final String CATEGORY_PRODUCER = "producer";
+  static final String CATEGORY_SECTION = "section";
+  static final String CATEGORY_WORK = "work";
+
+  private static final char PHASE_BEGIN = 'B';
+  private static final char PHASE_END = 'E';
+  private static final char PHASE_ASYNC_BEGIN = 'b';
+  private static final char PHASE_ASYNC_END = 'e';
+  private static final char PHASE_ASYNC_INSTANT = 'n';
+  private static final char PHASE_FLOW_START = 's';
+  private static final char PHASE_FLOW_END = 'f';
+
+  private final MonotonicNanoClock mClock;
+  private final int mMask;
+  private final AtomicLong mNextIndex = new AtomicLong();
+  private final AtomicLong mNextFlowId = new AtomicLong();
+  private final ThreadLocal<String> mCurrentRequestId = new ThreadLocal<>();
+
+  private final AtomicLongArray mSequences;
+  private final char[] mPhases;
+  private final String[] mCategories;
+  private final String[] mNames;
+  private final @Nullable String[] mRequestIds;
+  private final @Nullable String[] mArgs;
+  private final long[] mTimestampsUs;
+  private final long[] mThreadIds;
+  private final long[] mFlowIds;
+
+  private volatile boolean mTracing = true;
+
+  /** @param capacity the number of events kept, rounded up to a power of two */
+  public TraceRecorder(int capacity) {
+    this(AwakeTimeSinceBootClock.get(), capacity);
+  }
+
+  public TraceRecorder(MonotonicNanoClock clock, int capacity) {
+    mClock = clock;
+    final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    mMask = size - 1;
+    mSequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      mSequences.set(i, -1);
+    }
+    mPhases = new char[size];
+    mCategories = new String[size];
+    mNames = new String[size];
+    mRequestIds = new String[size];
+    mArgs = new String[size];
+    mTimestampsUs = new long[size];
+    mThreadIds = new long[size];
+    mFlowIds = new long[size];
+  }
+
+  /** Pauses or resumes recording. Recording is on by default. */
+  public void setTracing(boolean tracing) {
+    mTracing = tracing;
+  }
+
+  /** Drops all recorded events. Must not be called while events are being recorded. */
+  public void clear() {
+    for (int i = 0; i <= mMask; i++) {
+      mSequences.set(i, -1);
+    }
+  }
+
+  // FrescoSystrace.Systrace and FrescoInstrumenter.Instrumenter
+
+  @Override
+  public boolean isTracing() {
+    return mTracing;
+  }
+
+  @Override
+  public void beginSection(String name) {
+    if (mTracing) {
+      record(PHASE_BEGIN, CATEGORY_SECTION, name, mCurrentRequestId.get(), 0, null);
+    }
+  }
+
+  @Override
+  public FrescoSystrace.ArgsBuilder beginSectionWithArgs(String name) {
+    if (mTracing) {
+      return new JsonArgsBuilder(name);
+    }
+    return FrescoSystrace.NO_OP_ARGS_BUILDER;
+  }
+
+  @Override
+  public void endSection() {
+    if (mTracing) {
+      record(PHASE_END, CATEGORY_SECTION, "", mCurrentRequestId.get(), 0, null);
+    }
+  }
+
+  @Override
+  public @Nullable Object onBeforeSubmitWork(String tag) {
+    if (!mTracing) {
+      return null;
+    }
+    final Work work = new Work(tag, mCurrentRequestId.get(), mNextFlowId.incrementAndGet());
+    record(PHASE_FLOW_START, CATEGORY_WORK, tag, work.requestId, work.flowId, null);
+    return work;
+  }
+
+  @Override
+  public @Nullable Object onBeginWork(Object token, @Nullable String tag) {
+    if (!(token instanceof Work)) {
+      return null;
+    }
+    final Work submitted = (Work) token;
+    final String name = tag != null ? tag : submitted.tag;
+    final Work running = new Work(name, mCurrentRequestId.get(), submitted.flowId);
+    mCurrentRequestId.set(submitted.requestId);
+    record(PHASE_BEGIN, CATEGORY_WORK, name, submitted.requestId, 0, null);
+    record(
+        PHASE_FLOW_END, CATEGORY_WORK, submitted.tag, submitted.requestId, submitted.flowId, null);
+    return running;
+  }
+
+  @Override
+  public void onEndWork(Object token) {
+    if (!(token instanceof Work)) {
+      return;
+    }
+    record(PHASE_END, CATEGORY_WORK, "", mCurrentRequestId.get(), 0, null);
+    // Restore the request of the work this thread ran before
+    mCurrentRequestId.set(((Work) token).requestId);
+  }
+
+  @Override
+  public Runnable decorateRunnable(final Runnable runnable, final String tag) {
+    final Object token = onBeforeSubmitWork(tag);
+    if (token == null) {
+      return runnable;
+    }
+    return new Runnable() {
+      @Override
+      public void run() {
+        final Object currentToken = onBeginWork(token, null);
+        try {
+          runnable.run();
+        } finally {
+          if (currentToken != null) {
+            onEndWork(currentToken);
+          }
+        }
+      }
+    };
+  }
+
+  // RequestListener2
+
+  @Override
+  public void onRequestStart(@NonNull ProducerContext producerContext) {
+    recordAsync(PHASE_ASYNC_BEGIN, CATEGORY_REQUEST, CATEGORY_REQUEST, producerContext);
+  }
+
+  @Override
+  public void onRequestSuccess(@NonNull ProducerContext producerContext) {
+    recordAsync(PHASE_ASYNC_END, CATEGORY_REQUEST, CATEGORY_REQUEST, producerContext);
+  }
+
+  @Override
+  public void onRequestFailure(@NonNull ProducerContext producerContext, Throwable throwable) {
+    recordAsync(PHASE_ASYNC_END, CATEGORY_REQUEST, CATEGORY_REQUEST, producerContext);
+  }
+
+  @Override
+  public void onRequestCancellation(@NonNull ProducerContext producerContext) {
+    recordAsync(PHASE_ASYNC_END, CATEGORY_REQUEST, CATEGORY_REQUEST, producerContext);
+  }
+
+  @Override
+  public void onProducerStart(
+      @NonNull ProducerContext producerContext, @NonNull String producerName) {
+    if (mTracing) {
+      mCurrentRequestId.set(producerContext.getId());
+      recordAsync(PHASE_ASYNC_BEGIN, CATEGORY_PRODUCER, producerName, producerContext);
+    }
+  }
+
+  @Override
+  public void onProducerEvent(
+      @NonNull ProducerContext producerContext,
+      @NonNull String producerName,
+      @NonNull String eventName) {
+    recordAsync(PHASE_ASYNC_INSTANT, CATEGORY_PRODUCER, eventName, producerContext);
+  }
+
+  @Override
+  public void onProducerFinishWithSuccess(
+      @NonNull ProducerContext producerContext,
+      @NonNull String producerName,
+      @Nullable Map<String, String> extraMap) {
+    recordAsync(PHASE_ASYNC_END, CATEGORY_PRODUCER, producerName, producerContext);
+  }
+
+  @Override
+  public void onProducerFinishWithFailure(
+      @NonNull ProducerContext producerContext,
+      String producerName,
+      Throwable t,
+      @Nullable Map<String, String> extraMap) {
+    recordAsync(PHASE_ASYNC_END, CATEGORY_PRODUCER, producerName, producerContext);
+  }
+
+  @Override
+  public void onProducerFinishWithCancellation(
+      @NonNull ProducerContext producerContext,
+      @NonNull String producerName,
+      @Nullable Map<String, String> extraMap) {
+    recordAsync(PHASE_ASYNC_END, CATEGORY_PRODUCER, producerName, producerContext);
+  }
+
+  @Override
+  public boolean requiresExtraMap(
+      @NonNull ProducerContext producerContext, @NonNull String producerName) {
+    return false;
+  }
+
+  // Dump
+
+  /**
+   * Writes the recorded events as a Chrome trace JSON object.
+   *
+   * @param requestId if not null, only the events of this request are written
+   */
+  public void writeChromeTrace(Writer writer, @Nullable String requestId) throws IOException {
+    writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+    final long end = mNextIndex.get();
+    boolean first = true;
+    for (long index = Math.max(0, end - mMask - 1); index < end; index++) {
+      final int slot = (int) index & mMask;
+      if (mSequences.get(slot) != index) {
+        continue;
+      }
+      final char phase = mPhases[slot];
+      final String category = mCategories[slot];
+      final String name = mNames[slot];
+      final String eventRequestId = mRequestIds[slot];
+      final String args = mArgs[slot];
+      final long timestampUs = mTimestampsUs[slot];
+      final long threadId = mThreadIds[slot];
+      final long flowId = mFlowIds[slot];
+      if (mSequences.get(slot) != index) {
+        // Overwritten while it was being read
+        continue;
+      }
+      if (requestId != null && !requestId.equals(eventRequestId)) {
+        continue;
+      }
+      if (!first) {
+        writer.write(',');
+      }
+      first = false;
+      writeEvent(
+          writer, phase, category, name, eventRequestId, args, timestampUs, threadId, flowId);
+    }
+    writer.write("]}");
+  }
+
+  /** Returns the recorded events as a Chrome trace JSON string. */
+  public String toChromeTrace(@Nullable String requestId) {
+    final StringWriter writer = new StringWriter();
+    try {
+      writeChromeTrace(writer, requestId);
+    } catch (IOException e) {
+      // StringWriter does not throw
+      throw new AssertionError(e);
+    }
+    return writer.toString();
+  }
+
+  private void recordAsync(
+      char phase, String category, String name, ProducerContext producerContext) {
+    if (mTracing) {
+      record(phase, category, name, producerContext.getId(), 0, null);
+    }
+  }
+
+  private void record(
+      char phase,
+      String category,
+      String name,
+      @Nullable String requestId,
+      long flowId,
+      @Nullable String args) {
+    final long index = mNextIndex.getAndIncrement();
+    final int slot = (int) index & mMask;
+    mSequences.set(slot, -1);
+    mPhases[slot] = phase;
+    mCategories[slot] = category;
+    mNames[slot] = name;
+    mRequestIds[slot] = requestId;
+    mArgs[slot] = args;
+    mTimestampsUs[slot] = mClock.nowNanos() / 1000;
+    mThreadIds[slot] = Thread.currentThread().getId();
+    mFlowIds[slot] = flowId;
+    mSequences.set(slot, index);
+  }
+
+  private static void writeEvent(
+      Writer writer,
+      char phase,
+      String category,
+      String name,
+      @Nullable String requestId,
+      @Nullable String args,
+      long timestampUs,
+      long threadId,
+      long flowId)
+      throws IOException {
+    writer.write("{\"ph\":\"");
+    writer.write(phase);
+    writer.write("\",\"cat\":");
+    writeString(writer, category);
+    writer.write(",\"name\":");
+    writeString(writer, name);
+    writer.write(",\"ts\":");
+    writer.write(Long.toString(timestampUs));
+    writer.write(",\"pid\":0,\"tid\":");
+    writer.write(Long.toString(threadId));
+    switch (phase) {
+      case PHASE_ASYNC_BEGIN:
+      case PHASE_ASYNC_END:
+      case PHASE_ASYNC_INSTANT:
+        writer.write(",\"id\":");
+        writeString(writer, requestId == null ? "" : requestId);
+        break;
+      case PHASE_FLOW_END:
+        writer.write(",\"bp\":\"e\"");
+        // fall through
+      case PHASE_FLOW_START:
+        writer.write(",\"id\":");
+        writer.write(Long.toString(flowId));
+        break;
+      default:
+        break;
+    }
+    if (requestId != null || args != null) {
+      writer.write(",\"args\":{");
+      if (requestId != null) {
+        writer.write("\"request_id\":");
+        writeString(writer, requestId);
+        if (args != null) {
+          writer.write(',');
+        }
+      }
+      if (args != null) {
+        writer.write(args);
+      }
+      writer.write('}');
+    }
+    writer.write('}');
+  }
+
+  private static void writeString(Writer writer, String value) throws IOException {
+    final StringBuilder builder = new StringBuilder(value.length() + 2);
+    appendString(builder, value);
+    writer.write(builder.toString());
+  }
+
+  static void appendString(StringBuilder builder, String value) {
+    builder.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          builder.append("\\\"");
+          break;
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            builder.append(String.format("\\u%04x", (int) c));
+          } else {
+            builder.append(c);
+          }
+      }
+    }
+    builder.append('"');
+  }
+
+  /** Token of a unit of work that hops threads through the instrumenter. */
+  private static final class Work {
+
+    final String tag;
+    final @Nullable String requestId;
+    final long flowId;
+
+    Work(String tag, @Nullable String requestId, long flowId) {
+      this.tag = tag;
+      this.requestId = requestId;
+      this.flowId = flowId;
+    }
+  }
+
+  /** Collects the args of a section as the members of a JSON object. */
+  private final class JsonArgsBuilder implements FrescoSystrace.ArgsBuilder {
+
+    private final String mName;
+    private final StringBuilder mArgs = new StringBuilder();
+
+    JsonArgsBuilder(String name) {
+      mName = name;
+    }
+
+    @Override
+    public void flush() {
+      record(
+          PHASE_BEGIN,
+          CATEGORY_SECTION,
+          mName,
+          mCurrentRequestId.get(),
+          0,
+          mArgs.length() > 0 ? mArgs.toString() : null);
+    }
+
+    @Override
+    public FrescoSystrace.ArgsBuilder arg(String key, Object value) {
+      appendKey(key);
+      appendString(mArgs, String.valueOf(value));
+      return this;
+    }
+
+    @Override
+    public FrescoSystrace.ArgsBuilder arg(String key, int value) {
+      appendKey(key);
+      mArgs.append(value);
+      return this;
+    }
+
+    @Override
+    public FrescoSystrace.ArgsBuilder arg(String key, long value) {
+      appendKey(key);
+      mArgs.append(value);
+      return this;
+    }
+
+    @Override
+    public FrescoSystrace.ArgsBuilder arg(String key, double value) {
+      appendKey(key);
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+        appendString(mArgs, Double.toString(value));
+      } else {
+        mArgs.append(value);
+      }
+      return this;
+    }
+
+    private void appendKey(String key) {
+      if (mArgs.length() > 0) {
+        mArgs.append(',');
+      }
+      appendString(mArgs, key);
+      mArgs.append(':');
+    }
+  }
+}
@@ -13,6 +13,8 @@ import android.renderscript.ScriptIntrinsicBlur;
 import com.facebook.cache.common.CacheKey;
 import com.facebook.cache.common.SimpleCacheKey;
 import com.facebook.common.internal.Preconditions;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
 import com.facebook.imagepipeline.filter.IterativeBoxBlurFilter;
 import com.facebook.imagepipeline.filter.RenderScriptBlurFilter;
 import com.facebook.imagepipeline.request.BasePostprocessor;
@@ -23,6 +25,8 @@ import javax.annotation.Nullable;
  * A java implementation of a blur post processor. This provide two different blurring algorithm,
  * one Gaussian blur using {@link ScriptIntrinsicBlur} for Android version >= 4.2 and the other one
  * is an in-place iterative box blur algorithm that runs faster than a traditional box blur.
+ *
+ * <p>Optionally the bitmap is downscaled before blurring, see {@link DownscalingBlurUtil}.
  */
 public class BlurPostProcessor extends BasePostprocessor {
 
@@ -31,6 +35,8 @@ public class BlurPostProcessor extends BasePostprocessor {
   private final int mIterations;
   private final Context mContext;
   private final int mBlurRadius;
+  private final int mDownscaleFactor;
+  @Nullable private final BlurPostProcessor mScaledBlurPostProcessor;
   private CacheKey mCacheKey;
 
   /**
@@ -40,8 +46,14 @@ public class BlurPostProcessor extends BasePostprocessor {
    *     RenderScriptBlurFilter#BLUR_MAX_RADIUS}.
    * @param context A valid {@link Context}.
    * @param iterations The number of iterations of the blurring algorithm > 0.
+   * @param downscaleBeforeBlur Whether to blur a downscaled copy of the bitmap, which is much
+   *     faster for big radii. See {@link DownscalingBlurUtil}.
    */
-  public BlurPostProcessor(final int blurRadius, final Context context, final int iterations) {
+  public BlurPostProcessor(
+      final int blurRadius,
+      final Context context,
+      final int iterations,
+      final boolean downscaleBeforeBlur) {
     Preconditions.checkArgument(
         blurRadius > 0 && blurRadius <= RenderScriptBlurFilter.BLUR_MAX_RADIUS);
     Preconditions.checkArgument(iterations > 0);
@@ -49,6 +61,26 @@ public class BlurPostProcessor extends BasePostprocessor {
     mIterations = iterations;
     mBlurRadius = blurRadius;
     mContext = context;
+    mDownscaleFactor = downscaleBeforeBlur ? DownscalingBlurUtil.getDownscaleFactor(blurRadius) : 1;
+    mScaledBlurPostProcessor =
+        mDownscaleFactor > 1
+            ? new BlurPostProcessor(
+                DownscalingBlurUtil.getScaledBlurRadius(blurRadius, mDownscaleFactor),
+                context,
+                iterations)
+            : null;
+  }
+
+  /**
+   * Creates an instance of {@link BlurPostProcessor}.
+   *
+   * @param blurRadius The radius of the blur in range 0 < radius <= {@link
+   *     RenderScriptBlurFilter#BLUR_MAX_RADIUS}.
+   * @param context A valid {@link Context}.
+   * @param iterations The number of iterations of the blurring algorithm > 0.
+   */
+  public BlurPostProcessor(final int blurRadius, final Context context, final int iterations) {
+    this(blurRadius, context, iterations, false);
   }
 
   /**
@@ -62,6 +94,16 @@ public class BlurPostProcessor extends BasePostprocessor {
     this(blurRadius, context, DEFAULT_ITERATIONS);
   }
 
+  @Override
+  public CloseableReference<Bitmap> process(
+      final Bitmap sourceBitmap, final PlatformBitmapFactory bitmapFactory) {
+    if (mScaledBlurPostProcessor != null) {
+      return DownscalingBlurUtil.process(
+          sourceBitmap, bitmapFactory, mDownscaleFactor, mScaledBlurPostProcessor);
+    }
+    return super.process(sourceBitmap, bitmapFactory);
+  }
+
   @Override
   public void process(final Bitmap destBitmap, final Bitmap sourceBitmap) {
     if (canUseRenderScript) {
@@ -86,7 +128,7 @@ public class BlurPostProcessor extends BasePostprocessor {
       } else {
         key = String.format((Locale) null, "IterativeBoxBlur;%d;%d", mIterations, mBlurRadius);
       }
-      mCacheKey = new SimpleCacheKey(key);
+      mCacheKey = new SimpleCacheKey(mDownscaleFactor > 1 ? key + ";downscaled" : key);
     }
     return mCacheKey;
   }
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.postprocessors;
+
+import android.graphics.Bitmap;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
+import com.facebook.imagepipeline.request.Postprocessor;
+
+/**
+ * Helper for blur post processors that blur a downscaled copy of the source bitmap.
+ *
+ * <p>A blur with a big radius removes all fine details, so the source can be shrunk by a factor
+ * derived from the radius, blurred with the equally reduced radius and scaled back up to the
+ * original size with bilinear filtering. The result is visually very close to blurring at full
+ * resolution while the number of blurred pixels drops by the square of the factor.
+ */
+public final class DownscalingBlurUtil {
+
+  /** Blur radius that the downscaled bitmap should roughly be blurred with */
+  private static final int TARGET_SCALED_BLUR_RADIUS = 4;
+
+  private DownscalingBlurUtil() {}
+
+  /**
+   * @param blurRadius the blur radius at full resolution
+   * @return the factor to divide width and height of the source by, at least 1
+   */
+  public static int getDownscaleFactor(int blurRadius) {
+    return Math.max(1, blurRadius / TARGET_SCALED_BLUR_RADIUS);
+  }
+
+  /**
+   * @param blurRadius the blur radius at full resolution
+   * @param downscaleFactor the factor returned by {@link #getDownscaleFactor(int)}
+   * @return the blur radius to apply to the downscaled bitmap, at least 1
+   */
+  public static int getScaledBlurRadius(int blurRadius, int downscaleFactor) {
+    return Math.max(1, Math.round(blurRadius / (float) downscaleFactor));
+  }
+
+  /**
+   * Downscales the source bitmap, runs the given blur post processor on the small bitmap and scales
+   * the result back up to the size of the source bitmap.
+   *
+   * @param sourceBitmap the source bitmap, it is not modified
+   * @param bitmapFactory the factory used for the intermediate and the result bitmaps
+   * @param downscaleFactor the factor to divide width and height of the source by
+   * @param scaledBlurPostprocessor the post processor blurring the downscaled bitmap
+   * @return a reference to a new bitmap of the same size as the source bitmap
+   */
+  public static CloseableReference<Bitmap> process(
+      Bitmap sourceBitmap,
+      PlatformBitmapFactory bitmapFactory,
+      int downscaleFactor,
+      Postprocessor scaledBlurPostprocessor) {
+    final int width = sourceBitmap.getWidth();
+    final int height = sourceBitmap.getHeight();
+    CloseableReference<Bitmap> scaledBitmapRef = null;
+    CloseableReference<Bitmap> blurredBitmapRef = null;
+    try {
+      scaledBitmapRef =
+          bitmapFactory.createScaledBitmap(
+              sourceBitmap,
+              Math.max(1, width / downscaleFactor),
+              Math.max(1, height / downscaleFactor),
+              true);
+      blurredBitmapRef = scaledBlurPostprocessor.process(scaledBitmapRef.get(), bitmapFactory);
+      return bitmapFactory.createScaledBitmap(blurredBitmapRef.get(), width, height, true);
+    } finally {
+      CloseableReference.closeSafely(blurredBitmapRef);
+      CloseableReference.closeSafely(scaledBitmapRef);
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.producers;
+
+import android.graphics.Bitmap;
+import com.facebook.common.internal.Preconditions;
+import com.facebook.common.internal.VisibleForTesting;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
+import com.facebook.imagepipeline.common.ResizeOptions;
+import com.facebook.imagepipeline.filter.AreaAveragingDownscaler;
+import com.facebook.imagepipeline.image.CloseableImage;
+import com.facebook.imagepipeline.image.CloseableStaticBitmap;
+import com.facebook.imagepipeline.transcoder.ResizePlanner;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Scales decoded bitmaps that are noticeably larger than the requested {@link ResizeOptions} down
+ * to the requested size.
+ *
+ * <p>Decoders can only reduce the size of an image by integer sample sizes, or powers of two for
+ * JPEG, so decoded bitmaps are often up to twice as large as requested in each dimension. Without
+ * this producer, these bitmaps are cached as they are and scaled every time they are drawn. The
+ * final static bitmaps of requests with resize options are scaled with the {@link
+ * AreaAveragingDownscaler} instead, so that the smaller bitmap ends up in the bitmap memory cache.
+ * The aspect ratio is kept: the bitmap is scaled such that it covers the requested size, so that
+ * one dimension matches exactly and the other one is at least as large as requested.
+ *
+ * <p>Controlled via {@link
+ * com.facebook.imagepipeline.core.ImagePipelineExperiments#isPostDecodeResizeEnabled()}
+ */
+public class BitmapResizeProducer implements Producer<CloseableReference<CloseableImage>> {
+
+  public static final String PRODUCER_NAME = "BitmapResizeProducer";
+  @VisibleForTesting static final String ORIGINAL_SIZE = "Original size";
+  @VisibleForTesting static final String RESIZED_SIZE = "Resized size";
+
+  private final Producer<CloseableReference<CloseableImage>> mInputProducer;
+  private final PlatformBitmapFactory mBitmapFactory;
+
+  public BitmapResizeProducer(
+      Producer<CloseableReference<CloseableImage>> inputProducer,
+      PlatformBitmapFactory platformBitmapFactory) {
+    mInputProducer = Preconditions.checkNotNull(inputProducer);
+    mBitmapFactory = Preconditions.checkNotNull(platformBitmapFactory);
+  }
+
+  @Override
+  public void produceResults(
+      final Consumer<CloseableReference<CloseableImage>> consumer,
+      final ProducerContext producerContext) {
+    final ResizeOptions resizeOptions = producerContext.getImageRequest().getResizeOptions();
+    if (resizeOptions == null) {
+      mInputProducer.produceResults(consumer, producerContext);
+    } else {
+      mInputProducer.produceResults(
+          new BitmapResizeConsumer(consumer, producerContext, resizeOptions), producerContext);
+    }
+  }
+
+  /**
+   * Returns the size the given bitmap should be scaled to, or null if it is not noticeably larger
+   * than requested.
+   */
+  @VisibleForTesting
+  static @Nullable int[] getResizedSize(
+      int width, int height, int rotationAngle, ResizeOptions resizeOptions) {
+    if (width <= 0 || height <= 0 || resizeOptions.width <= 0 || resizeOptions.height <= 0) {
+      return null;
+    }
+    // The resize options apply to the rotated image
+    final boolean swapDimensions = rotationAngle == 90 || rotationAngle == 270;
+    final int requestedWidth = swapDimensions ? resizeOptions.height : resizeOptions.width;
+    final int requestedHeight = swapDimensions ? resizeOptions.width : resizeOptions.height;
+    final float scale =
+        Math.max((float) requestedWidth / width, (float) requestedHeight / height);
+    if (scale * ResizePlanner.MAX_DECODED_SIZE_FACTOR >= 1) {
+      return null;
+    }
+    return new int[] {
+      Math.max(1, Math.min(width, Math.round(width * scale))),
+      Math.max(1, Math.min(height, Math.round(height * scale)))
+    };
+  }
+
+  private class BitmapResizeConsumer
+      extends DelegatingConsumer<
+          CloseableReference<CloseableImage>, CloseableReference<CloseableImage>> {
+
+    private final ProducerContext mProducerContext;
+    private final ProducerListener2 mListener;
+    private final ResizeOptions mResizeOptions;
+
+    BitmapResizeConsumer(
+        Consumer<CloseableReference<CloseableImage>> consumer,
+        ProducerContext producerContext,
+        ResizeOptions resizeOptions) {
+      super(consumer);
+      mProducerContext = producerContext;
+      mListener = producerContext.getProducerListener();
+      mResizeOptions = resizeOptions;
+    }
+
+    @Override
+    protected void onNewResultImpl(
+        @Nullable CloseableReference<CloseableImage> newResult, @Status int status) {
+      // Intermediate results are replaced soon, they are not worth the extra work
+      if (isNotLast(status) || !CloseableReference.isValid(newResult)) {
+        getConsumer().onNewResult(newResult, status);
+        return;
+      }
+      final CloseableImage image = newResult.get();
+      if (!(image instanceof CloseableStaticBitmap)) {
+        getConsumer().onNewResult(newResult, status);
+        return;
+      }
+      final CloseableStaticBitmap staticBitmap = (CloseableStaticBitmap) image;
+      final Bitmap bitmap = staticBitmap.getUnderlyingBitmap();
+      final int[] resizedSize =
+          isSupportedConfig(bitmap.getConfig())
+              ? getResizedSize(
+                  bitmap.getWidth(),
+                  bitmap.getHeight(),
+                  staticBitmap.getRotationAngle(),
+                  mResizeOptions)
+              : null;
+      if (resizedSize == null) {
+        getConsumer().onNewResult(newResult, status);
+        return;
+      }
+
+      mListener.onProducerStart(mProducerContext, PRODUCER_NAME);
+      CloseableReference<Bitmap> resizedBitmapRef = null;
+      CloseableReference<CloseableImage> resizedImageRef = null;
+      try {
+        try {
+          resizedBitmapRef =
+              mBitmapFactory.createBitmap(resizedSize[0], resizedSize[1], bitmap.getConfig());
+          AreaAveragingDownscaler.downscale(bitmap, resizedBitmapRef.get());
+        } catch (Exception e) {
+          mListener.onProducerFinishWithFailure(
+              mProducerContext, PRODUCER_NAME, e, getExtraMap(bitmap, resizedSize));
+          // Keep the large bitmap rather than failing the request
+          getConsumer().onNewResult(newResult, status);
+          return;
+        }
+        resizedImageRef =
+            CloseableReference.<CloseableImage>of(
+                new CloseableStaticBitmap(
+                    resizedBitmapRef,
+                    staticBitmap.getQualityInfo(),
+                    staticBitmap.getRotationAngle(),
+                    staticBitmap.getExifOrientation()));
+        resizedImageRef.get().setOriginalEncodedImageInfo(image.getOriginalEncodedImageInfo());
+        mListener.onProducerFinishWithSuccess(
+            mProducerContext, PRODUCER_NAME, getExtraMap(bitmap, resizedSize));
+        getConsumer().onNewResult(resizedImageRef, status | IS_RESIZING_DONE);
+      } finally {
+        CloseableReference.closeSafely(resizedBitmapRef);
+        CloseableReference.closeSafely(resizedImageRef);
+      }
+    }
+
+    private @Nullable Map<String, String> getExtraMap(Bitmap bitmap, int[] resizedSize) {
+      if (!mListener.requiresExtraMap(mProducerContext, PRODUCER_NAME)) {
+        return null;
+      }
+      return new ProducerExtras(2)
+          .putSize(ORIGINAL_SIZE, bitmap.getWidth(), bitmap.getHeight())
+          .putSize(RESIZED_SIZE, resizedSize[0], resizedSize[1]);
+    }
+  }
+
+  private static boolean isSupportedConfig(@Nullable Bitmap.Config config) {
+    return config == Bitmap.Config.ARGB_8888 || config == Bitmap.Config.RGB_565;
+  }
+}
@@ -11,11 +11,11 @@ import static com.facebook.imagepipeline.producers.JobScheduler.JobRunnable;
 
 import android.graphics.Bitmap;
 import android.os.Build;
-import com.facebook.common.internal.ImmutableMap;
 import com.facebook.common.internal.Preconditions;
 import com.facebook.common.logging.FLog;
 import com.facebook.common.memory.ByteArrayPool;
 import com.facebook.common.references.CloseableReference;
+import com.facebook.common.util.ByteConstants;
 import com.facebook.common.util.ExceptionWithNoStacktrace;
 import com.facebook.common.util.UriUtil;
 import com.facebook.imageformat.DefaultImageFormats;
@@ -37,7 +37,6 @@ import com.facebook.imagepipeline.request.ImageRequest;
 import com.facebook.imagepipeline.systrace.FrescoSystrace;
 import com.facebook.imagepipeline.transcoder.DownsampleUtil;
 import com.facebook.imageutils.BitmapUtil;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Executor;
 import javax.annotation.Nullable;
@@ -46,16 +45,24 @@ import javax.annotation.concurrent.GuardedBy;
 /**
  * Decodes images.
  *
- * <p>Progressive JPEGs are decoded progressively as new data arrives.
+ * <p>Progressive JPEGs are decoded progressively as new data arrives. If streaming decodes are
+ * enabled, baseline JPEGs, PNGs and static WebPs from network are decoded as they are downloaded as
+ * well: the platform decoder fills in the rows that have been downloaded so far.
  */
 public class DecodeProducer implements Producer<CloseableReference<CloseableImage>> {
 
   public static final String PRODUCER_NAME = "DecodeProducer";
+  public static final String INTERMEDIATE_DECODE_FAILED_PRODUCER_EVENT =
+      "intermediate_decode_failed";
 
   // In recent versions of Android you cannot draw bitmap that is bigger than 100MB bytes:
   // https://web.archive.org/web/20191017003524/https://chromium.googlesource.com/android_tools/+/refs/heads/master/sdk/sources/android-25/android/view/DisplayListCanvas.java
   private static final int MAX_BITMAP_SIZE = 100 * 1024 * 1024; // 100 MB
 
+  // Streaming decodes decode all the data downloaded so far, so they are only worth it once enough
+  // new data has arrived. Growing by half keeps the number of decodes logarithmic in the size.
+  private static final int MIN_STREAMING_DECODE_BYTES = 16 * ByteConstants.KB;
+
   // keys for extra map
   public static final String EXTRA_BITMAP_SIZE = ProducerConstants.EXTRA_BITMAP_SIZE;
   public static final String EXTRA_HAS_GOOD_QUALITY = ProducerConstants.EXTRA_HAS_GOOD_QUALITY;
@@ -270,33 +277,19 @@ public class DecodeProducer implements Producer<CloseableReference<CloseableImag
 
     /** Performs the decode synchronously. */
     private void doDecode(EncodedImage encodedImage, @Status int status) {
-      // do not run for partial results of anything except JPEG
-      if (encodedImage.getImageFormat() != DefaultImageFormats.JPEG && isNotLast(status)) {
+      // do not run for partial results of anything except JPEG, unless streaming them
+      if (encodedImage.getImageFormat() != DefaultImageFormats.JPEG
+          && isNotLast(status)
+          && !isStreamingDecode()) {
         return;
       }
 
       if (isFinished() || !EncodedImage.isValid(encodedImage)) {
         return;
       }
-      final String imageFormatStr;
-      ImageFormat imageFormat = encodedImage.getImageFormat();
-      if (imageFormat != null) {
-        imageFormatStr = imageFormat.getName();
-      } else {
-        imageFormatStr = "unknown";
-      }
-      final String encodedImageSize = encodedImage.getWidth() + "x" + encodedImage.getHeight();
-      final String sampleSize = String.valueOf(encodedImage.getSampleSize());
       final boolean isLast = isLast(status);
       final boolean isLastAndComplete = isLast && !statusHasFlag(status, IS_PARTIAL_RESULT);
       final boolean isPlaceholder = statusHasFlag(status, IS_PLACEHOLDER);
-      final String requestedSizeStr;
-      final ResizeOptions resizeOptions = mProducerContext.getImageRequest().getResizeOptions();
-      if (resizeOptions != null) {
-        requestedSizeStr = resizeOptions.width + "x" + resizeOptions.height;
-      } else {
-        requestedSizeStr = "unknown";
-      }
       try {
         long queueTime = mJobScheduler.getQueuedTime();
         String requestUri = String.valueOf(mProducerContext.getImageRequest().getSourceUri());
@@ -309,7 +302,13 @@ public class DecodeProducer implements Producer<CloseableReference<CloseableImag
                 ? ImmutableQualityInfo.FULL_QUALITY
                 : getQualityInfo();
 
-        mProducerListener.onProducerStart(mProducerContext, PRODUCER_NAME);
+        // A streaming decode of partial data may fail only because too little has arrived yet. Such
+        // an attempt is not reported as started until it succeeded, so that a failed attempt does
+        // not leave a start without a finish.
+        final boolean mayWaitForMoreData = isNotLast(status) && isStreamingDecode();
+        if (!mayWaitForMoreData) {
+          mProducerListener.onProducerStart(mProducerContext, PRODUCER_NAME);
+        }
         CloseableImage image = null;
         try {
           try {
@@ -330,31 +329,24 @@ public class DecodeProducer implements Producer<CloseableReference<CloseableImag
             status |= Consumer.IS_RESIZING_DONE;
           }
         } catch (Exception e) {
+          if (mayWaitForMoreData) {
+            // The data downloaded so far may not be enough to decode anything yet, wait for more
+            mProducerListener.onProducerEvent(
+                mProducerContext, PRODUCER_NAME, INTERMEDIATE_DECODE_FAILED_PRODUCER_EVENT);
+            return;
+          }
           Map<String, String> extraMap =
-              getExtraMap(
-                  image,
-                  queueTime,
-                  quality,
-                  isLast,
-                  imageFormatStr,
-                  encodedImageSize,
-                  requestedSizeStr,
-                  sampleSize);
+              getExtraMap(image, encodedImage, queueTime, quality, isLast);
           mProducerListener.onProducerFinishWithFailure(
               mProducerContext, PRODUCER_NAME, e, extraMap);
           handleError(e);
           return;
         }
+        if (mayWaitForMoreData) {
+          mProducerListener.onProducerStart(mProducerContext, PRODUCER_NAME);
+        }
         Map<String, String> extraMap =
-            getExtraMap(
-                image,
-                queueTime,
-                quality,
-                isLast,
-                imageFormatStr,
-                encodedImageSize,
-                requestedSizeStr,
-                sampleSize);
+            getExtraMap(image, encodedImage, queueTime, quality, isLast);
         mProducerListener.onProducerFinishWithSuccess(mProducerContext, PRODUCER_NAME, extraMap);
 
         if (image != null) {
@@ -376,48 +368,37 @@ public class DecodeProducer implements Producer<CloseableReference<CloseableImag
 
     private @Nullable Map<String, String> getExtraMap(
         @Nullable CloseableImage image,
+        EncodedImage encodedImage,
         long queueTime,
         QualityInfo quality,
-        boolean isFinal,
-        String imageFormatName,
-        String encodedImageSize,
-        String requestImageSize,
-        String sampleSize) {
+        boolean isFinal) {
       if (!mProducerListener.requiresExtraMap(mProducerContext, PRODUCER_NAME)) {
         return null;
       }
-      String queueStr = String.valueOf(queueTime);
-      String qualityStr = String.valueOf(quality.isOfGoodEnoughQuality());
-      String finalStr = String.valueOf(isFinal);
+      final ProducerExtras extras = new ProducerExtras(9);
       if (image instanceof CloseableStaticBitmap) {
         Bitmap bitmap = ((CloseableStaticBitmap) image).getUnderlyingBitmap();
-        String sizeStr = bitmap.getWidth() + "x" + bitmap.getHeight();
-        // We need this because the copyOf() utility method doesn't have a proper overload method
-        // for all these parameters
-        final Map<String, String> tmpMap = new HashMap<>(8);
-        tmpMap.put(EXTRA_BITMAP_SIZE, sizeStr);
-        tmpMap.put(JobScheduler.QUEUE_TIME_KEY, queueStr);
-        tmpMap.put(EXTRA_HAS_GOOD_QUALITY, qualityStr);
-        tmpMap.put(EXTRA_IS_FINAL, finalStr);
-        tmpMap.put(ENCODED_IMAGE_SIZE, encodedImageSize);
-        tmpMap.put(EXTRA_IMAGE_FORMAT_NAME, imageFormatName);
-        tmpMap.put(REQUESTED_IMAGE_SIZE, requestImageSize);
-        tmpMap.put(SAMPLE_SIZE, sampleSize);
+        extras.putSize(EXTRA_BITMAP_SIZE, bitmap.getWidth(), bitmap.getHeight());
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
-          tmpMap.put(EXTRA_BITMAP_BYTES, bitmap.getByteCount() + "");
+          extras.putLong(EXTRA_BITMAP_BYTES, bitmap.getByteCount());
         }
-        return ImmutableMap.copyOf(tmpMap);
+      }
+      final ImageFormat imageFormat = encodedImage.getImageFormat();
+      final ResizeOptions resizeOptions = mProducerContext.getImageRequest().getResizeOptions();
+      extras
+          .putLong(JobScheduler.QUEUE_TIME_KEY, queueTime)
+          .putBoolean(EXTRA_HAS_GOOD_QUALITY, quality.isOfGoodEnoughQuality())
+          .putBoolean(EXTRA_IS_FINAL, isFinal)
+          .putSize(ENCODED_IMAGE_SIZE, encodedImage.getWidth(), encodedImage.getHeight())
+          .putString(
+              EXTRA_IMAGE_FORMAT_NAME, imageFormat != null ? imageFormat.getName() : "unknown")
+          .putLong(SAMPLE_SIZE, encodedImage.getSampleSize());
+      if (resizeOptions != null) {
+        extras.putSize(REQUESTED_IMAGE_SIZE, resizeOptions.width, resizeOptions.height);
       } else {
-        final Map<String, String> tmpMap = new HashMap<>(7);
-        tmpMap.put(JobScheduler.QUEUE_TIME_KEY, queueStr);
-        tmpMap.put(EXTRA_HAS_GOOD_QUALITY, qualityStr);
-        tmpMap.put(EXTRA_IS_FINAL, finalStr);
-        tmpMap.put(ENCODED_IMAGE_SIZE, encodedImageSize);
-        tmpMap.put(EXTRA_IMAGE_FORMAT_NAME, imageFormatName);
-        tmpMap.put(REQUESTED_IMAGE_SIZE, requestImageSize);
-        tmpMap.put(SAMPLE_SIZE, sampleSize);
-        return ImmutableMap.copyOf(tmpMap);
+        extras.putString(REQUESTED_IMAGE_SIZE, "unknown");
       }
+      return extras;
     }
 
     /** @return true if producer is finished */
@@ -465,6 +446,11 @@ public class DecodeProducer implements Producer<CloseableReference<CloseableImag
       getConsumer().onCancellation();
     }
 
+    /** Whether intermediate results are decoded while the image is streamed in. */
+    protected boolean isStreamingDecode() {
+      return false;
+    }
+
     protected abstract int getIntermediateImageEndOffset(EncodedImage encodedImage);
 
     protected abstract QualityInfo getQualityInfo();
@@ -503,8 +489,18 @@ public class DecodeProducer implements Producer<CloseableReference<CloseableImag
 
     private final ProgressiveJpegParser mProgressiveJpegParser;
     private final ProgressiveJpegConfig mProgressiveJpegConfig;
+    private final boolean mStreamingDecodeEnabled;
     private int mLastScheduledScanNumber;
 
+    @GuardedBy("this")
+    private boolean mIsStreamingDecode;
+
+    @GuardedBy("this")
+    private int mLastStreamingDecodeSize;
+
+    @GuardedBy("this")
+    private int mStreamingDecodeCount;
+
     public NetworkImagesProgressiveDecoder(
         final Consumer<CloseableReference<CloseableImage>> consumer,
         final ProducerContext producerContext,
@@ -515,6 +511,8 @@ public class DecodeProducer implements Producer<CloseableReference<CloseableImag
       super(consumer, producerContext, decodeCancellationEnabled, maxBitmapSize);
       mProgressiveJpegParser = Preconditions.checkNotNull(progressiveJpegParser);
       mProgressiveJpegConfig = Preconditions.checkNotNull(progressiveJpegConfig);
+      mStreamingDecodeEnabled =
+          producerContext.getImagePipelineConfig().getExperiments().isStreamingDecodeEnabled();
       mLastScheduledScanNumber = 0;
     }
 
@@ -523,35 +521,83 @@ public class DecodeProducer implements Producer<CloseableReference<CloseableImag
       boolean ret = super.updateDecodeJob(encodedImage, status);
       if ((isNotLast(status) || statusHasFlag(status, IS_PARTIAL_RESULT))
           && !statusHasFlag(status, IS_PLACEHOLDER)
-          && EncodedImage.isValid(encodedImage)
-          && encodedImage.getImageFormat() == DefaultImageFormats.JPEG) {
-        if (!mProgressiveJpegParser.parseMoreData(encodedImage)) {
-          return false;
-        }
-        int scanNum = mProgressiveJpegParser.getBestScanNumber();
-        if (scanNum <= mLastScheduledScanNumber) {
-          // We have already decoded this scan, no need to do so again
-          return false;
+          && EncodedImage.isValid(encodedImage)) {
+        final ImageFormat imageFormat = encodedImage.getImageFormat();
+        if (imageFormat == DefaultImageFormats.JPEG) {
+          final boolean newScanFound = mProgressiveJpegParser.parseMoreData(encodedImage);
+          if (mStreamingDecodeEnabled
+              && mProgressiveJpegParser.isFirstScanStarted()
+              && !mProgressiveJpegParser.isProgressive()
+              && !mProgressiveJpegParser.isEndMarkerRead()) {
+            // A baseline JPEG has a single scan, decode the rows downloaded so far
+            return ret && updateStreamingDecode(encodedImage, status);
+          }
+          if (!newScanFound) {
+            return false;
+          }
+          int scanNum = mProgressiveJpegParser.getBestScanNumber();
+          if (scanNum <= mLastScheduledScanNumber) {
+            // We have already decoded this scan, no need to do so again
+            return false;
+          }
+          if (scanNum < mProgressiveJpegConfig.getNextScanNumberToDecode(mLastScheduledScanNumber)
+              && !mProgressiveJpegParser.isEndMarkerRead()) {
+            // We have not reached the minimum scan set by the configuration and there
+            // are still more scans to be read (the end marker is not reached)
+            return false;
+          }
+          mLastScheduledScanNumber = scanNum;
+        } else if (mStreamingDecodeEnabled && isStreamingDecodeSupported(imageFormat)) {
+          return ret && updateStreamingDecode(encodedImage, status);
         }
-        if (scanNum < mProgressiveJpegConfig.getNextScanNumberToDecode(mLastScheduledScanNumber)
-            && !mProgressiveJpegParser.isEndMarkerRead()) {
-          // We have not reached the minimum scan set by the configuration and there
-          // are still more scans to be read (the end marker is not reached)
+      }
+      return ret;
+    }
+
+    /** Returns whether enough new data has arrived to decode the image again. */
+    @GuardedBy("this")
+    private boolean updateStreamingDecode(EncodedImage encodedImage, @Status int status) {
+      if (isNotLast(status)) {
+        final int size = encodedImage.getSize();
+        if (encodedImage.getWidth() <= 0
+            || encodedImage.getHeight() <= 0
+            || size < MIN_STREAMING_DECODE_BYTES
+            || size < mLastStreamingDecodeSize + mLastStreamingDecodeSize / 2) {
           return false;
         }
-        mLastScheduledScanNumber = scanNum;
+        mLastStreamingDecodeSize = size;
       }
-      return ret;
+      mIsStreamingDecode = true;
+      mStreamingDecodeCount++;
+      return true;
+    }
+
+    @Override
+    protected synchronized boolean isStreamingDecode() {
+      return mIsStreamingDecode;
     }
 
     @Override
     protected int getIntermediateImageEndOffset(EncodedImage encodedImage) {
+      if (isStreamingDecode()) {
+        return encodedImage.getSize();
+      }
       return mProgressiveJpegParser.getBestScanEndOffset();
     }
 
     @Override
     protected QualityInfo getQualityInfo() {
+      synchronized (this) {
+        if (mIsStreamingDecode) {
+          return ImmutableQualityInfo.of(mStreamingDecodeCount, false, false);
+        }
+      }
       return mProgressiveJpegConfig.getQualityInfo(mProgressiveJpegParser.getBestScanNumber());
     }
   }
+
+  private static boolean isStreamingDecodeSupported(ImageFormat imageFormat) {
+    return imageFormat == DefaultImageFormats.PNG
+        || DefaultImageFormats.isStaticWebpFormat(imageFormat);
+  }
 }
@@ -10,7 +10,6 @@ package com.facebook.imagepipeline.producers;
 import bolts.Continuation;
 import bolts.Task;
 import com.facebook.cache.common.CacheKey;
-import com.facebook.common.internal.ImmutableMap;
 import com.facebook.common.internal.VisibleForTesting;
 import com.facebook.imagepipeline.cache.BufferedDiskCache;
 import com.facebook.imagepipeline.cache.CacheKeyFactory;
@@ -141,13 +140,11 @@ public class DiskCacheReadProducer implements Producer<EncodedImage> {
       return null;
     }
     if (valueFound) {
-      return ImmutableMap.of(
-          EXTRA_CACHED_VALUE_FOUND,
-          String.valueOf(valueFound),
-          ENCODED_IMAGE_SIZE,
-          String.valueOf(sizeInBytes));
+      return new ProducerExtras(2)
+          .putBoolean(EXTRA_CACHED_VALUE_FOUND, true)
+          .putLong(ENCODED_IMAGE_SIZE, sizeInBytes);
     } else {
-      return ImmutableMap.of(EXTRA_CACHED_VALUE_FOUND, String.valueOf(valueFound));
+      return new ProducerExtras(1).putBoolean(EXTRA_CACHED_VALUE_FOUND, false);
     }
   }
 
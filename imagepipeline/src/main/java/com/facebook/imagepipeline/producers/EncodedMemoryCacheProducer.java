@@ -14,6 +14,7 @@ import com.facebook.common.references.CloseableReference;
 import com.facebook.imageformat.ImageFormat;
 import com.facebook.imagepipeline.cache.CacheKeyFactory;
 import com.facebook.imagepipeline.cache.MemoryCache;
+import com.facebook.imagepipeline.cache.PrefetchAwareMemoryCache;
 import com.facebook.imagepipeline.image.EncodedImage;
 import com.facebook.imagepipeline.request.ImageRequest;
 import com.facebook.imagepipeline.systrace.FrescoSystrace;
@@ -50,7 +51,11 @@ public class EncodedMemoryCacheProducer implements Producer<EncodedImage> {
       final CacheKey cacheKey =
           mCacheKeyFactory.getEncodedCacheKey(imageRequest, producerContext.getCallerContext());
 
-      CloseableReference<PooledByteBuffer> cachedReference = mMemoryCache.get(cacheKey);
+      CloseableReference<PooledByteBuffer> cachedReference =
+          producerContext.isPrefetch() && mMemoryCache instanceof PrefetchAwareMemoryCache
+              ? ((PrefetchAwareMemoryCache<CacheKey, PooledByteBuffer>) mMemoryCache)
+                  .getForPrefetch(cacheKey)
+              : mMemoryCache.get(cacheKey);
       try {
         if (cachedReference != null) {
           EncodedImage cachedEncodedImage = new EncodedImage(cachedReference);
@@ -90,6 +95,7 @@ public class EncodedMemoryCacheProducer implements Producer<EncodedImage> {
         Consumer consumerOfInputProducer =
             new EncodedMemoryCacheConsumer(
                 consumer,
+                producerContext,
                 mMemoryCache,
                 cacheKey,
                 isMemoryCacheEnabled,
@@ -115,6 +121,7 @@ public class EncodedMemoryCacheProducer implements Producer<EncodedImage> {
   private static class EncodedMemoryCacheConsumer
       extends DelegatingConsumer<EncodedImage, EncodedImage> {
 
+    private final ProducerContext mProducerContext;
     private final MemoryCache<CacheKey, PooledByteBuffer> mMemoryCache;
     private final CacheKey mRequestedCacheKey;
     private final boolean mIsMemoryCacheEnabled;
@@ -122,11 +129,13 @@ public class EncodedMemoryCacheProducer implements Producer<EncodedImage> {
 
     public EncodedMemoryCacheConsumer(
         Consumer<EncodedImage> consumer,
+        ProducerContext producerContext,
         MemoryCache<CacheKey, PooledByteBuffer> memoryCache,
         CacheKey requestedCacheKey,
         boolean isMemoryCacheEnabled,
         boolean encodedCacheEnabled) {
       super(consumer);
+      mProducerContext = producerContext;
       mMemoryCache = memoryCache;
       mRequestedCacheKey = requestedCacheKey;
       mIsMemoryCacheEnabled = isMemoryCacheEnabled;
@@ -155,7 +164,12 @@ public class EncodedMemoryCacheProducer implements Producer<EncodedImage> {
           CloseableReference<PooledByteBuffer> cachedResult = null;
           try {
             if (mEncodedCacheEnabled && mIsMemoryCacheEnabled) {
-              cachedResult = mMemoryCache.cache(mRequestedCacheKey, ref);
+              // A prefetch can have become a request for an image that is shown meanwhile
+              cachedResult =
+                  mProducerContext.isPrefetch() && mMemoryCache instanceof PrefetchAwareMemoryCache
+                      ? ((PrefetchAwareMemoryCache<CacheKey, PooledByteBuffer>) mMemoryCache)
+                          .cacheForPrefetch(mRequestedCacheKey, ref)
+                      : mMemoryCache.cache(mRequestedCacheKey, ref);
             }
           } finally {
             CloseableReference.closeSafely(ref);
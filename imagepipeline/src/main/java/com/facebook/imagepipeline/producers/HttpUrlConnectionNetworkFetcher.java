@@ -12,7 +12,9 @@ import com.facebook.common.internal.VisibleForTesting;
 import com.facebook.common.time.MonotonicClock;
 import com.facebook.common.time.RealtimeSinceBootClock;
 import com.facebook.common.util.UriUtil;
+import com.facebook.imagepipeline.common.BytesRange;
 import com.facebook.imagepipeline.image.EncodedImage;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
@@ -28,6 +30,12 @@ import javax.annotation.Nullable;
 /**
  * Network fetcher that uses the simplest Android stack.
  *
+ * <p>The {@link BytesRange} of the request is sent as a "Range" header. If the server answers with
+ * part of the image, the range of the response is passed on so that it can be merged with the
+ * cached start of the image. If partial image caching is enabled, a download that is cancelled
+ * while the body is being read is stopped, and the bytes read so far are passed on as a partial
+ * result so that the download can be resumed later.
+ *
  * <p>Apps requiring more sophisticated networking should implement their own {@link
  * NetworkFetcher}.
  */
@@ -37,20 +45,32 @@ public class HttpUrlConnectionNetworkFetcher
   public static class HttpUrlConnectionNetworkFetchState extends FetchState {
 
     private long submitTime;
+    private long fetchStartTime;
     private long responseTime;
     private long fetchCompleteTime;
+    private volatile boolean cancelled;
 
     public HttpUrlConnectionNetworkFetchState(
         Consumer<EncodedImage> consumer, ProducerContext producerContext) {
       super(consumer, producerContext);
     }
+
+    /** Lets the body stop early if it is being read, see {@link CancellableInputStream}. */
+    void cancel() {
+      cancelled = true;
+    }
   }
 
   private static final String QUEUE_TIME = "queue_time";
+  /** Time from the submission of the fetch to the executor until it started running. */
+  public static final String EXECUTOR_QUEUE_TIME = "executor_queue_time";
   private static final String FETCH_TIME = "fetch_time";
   private static final String TOTAL_TIME = "total_time";
   private static final String IMAGE_SIZE = "image_size";
 
+  private static final String RANGE_HEADER = "Range";
+  private static final String CONTENT_RANGE_HEADER = "Content-Range";
+
   private static final int NUM_NETWORK_THREADS = 3;
   private static final int MAX_REDIRECTS = 5;
 
@@ -79,9 +99,26 @@ public class HttpUrlConnectionNetworkFetcher
     mHttpConnectionTimeout = httpConnectionTimeout;
   }
 
+  /**
+   * @param executorService runs the blocking connections, for example one that runs every fetch
+   *     on its own virtual thread
+   */
+  public HttpUrlConnectionNetworkFetcher(
+      @Nullable String userAgent, int httpConnectionTimeout, ExecutorService executorService) {
+    this(userAgent, RealtimeSinceBootClock.get(), executorService);
+    mHttpConnectionTimeout = httpConnectionTimeout;
+  }
+
   @VisibleForTesting
   HttpUrlConnectionNetworkFetcher(@Nullable String userAgent, MonotonicClock monotonicClock) {
-    mExecutorService = Executors.newFixedThreadPool(NUM_NETWORK_THREADS);
+    this(userAgent, monotonicClock, Executors.newFixedThreadPool(NUM_NETWORK_THREADS));
+  }
+
+  private HttpUrlConnectionNetworkFetcher(
+      @Nullable String userAgent,
+      MonotonicClock monotonicClock,
+      ExecutorService executorService) {
+    mExecutorService = executorService;
     mMonotonicClock = monotonicClock;
     mUserAgent = userAgent;
   }
@@ -111,6 +148,8 @@ public class HttpUrlConnectionNetworkFetcher
               public void onCancellationRequested() {
                 if (future.cancel(false)) {
                   callback.onCancellation();
+                } else {
+                  fetchState.cancel();
                 }
               }
             });
@@ -118,18 +157,32 @@ public class HttpUrlConnectionNetworkFetcher
 
   @VisibleForTesting
   void fetchSync(HttpUrlConnectionNetworkFetchState fetchState, Callback callback) {
+    fetchState.fetchStartTime = mMonotonicClock.now();
     HttpURLConnection connection = null;
     InputStream is = null;
     try {
-      connection = downloadFrom(fetchState.getUri(), MAX_REDIRECTS);
+      final BytesRange bytesRange = fetchState.getContext().getImageRequest().getBytesRange();
+      connection = downloadFrom(fetchState.getUri(), bytesRange, MAX_REDIRECTS);
       fetchState.responseTime = mMonotonicClock.now();
 
       if (connection != null) {
+        final BytesRange responseRange = getResponseBytesRange(connection);
+        if (responseRange != null) {
+          fetchState.setResponseBytesRange(responseRange);
+          fetchState.setOnNewResultStatusFlags(Consumer.IS_PARTIAL_RESULT);
+        }
         is = connection.getInputStream();
+        if (isPartialImageCachingEnabled(fetchState)) {
+          is = new CancellableInputStream(is, fetchState, responseRange);
+        }
         callback.onResponse(is, -1);
       }
     } catch (IOException e) {
-      callback.onFailure(e);
+      if (fetchState.cancelled) {
+        callback.onCancellation();
+      } else {
+        callback.onFailure(e);
+      }
     } finally {
       if (is != null) {
         try {
@@ -144,11 +197,15 @@ public class HttpUrlConnectionNetworkFetcher
     }
   }
 
-  private HttpURLConnection downloadFrom(Uri uri, int maxRedirects) throws IOException {
+  private HttpURLConnection downloadFrom(
+      Uri uri, @Nullable BytesRange bytesRange, int maxRedirects) throws IOException {
     HttpURLConnection connection = openConnectionTo(uri);
     if (mUserAgent != null) {
       connection.setRequestProperty("User-Agent", mUserAgent);
     }
+    if (bytesRange != null) {
+      connection.setRequestProperty(RANGE_HEADER, bytesRange.toHttpRangeHeaderValue());
+    }
     connection.setConnectTimeout(mHttpConnectionTimeout);
     int responseCode = connection.getResponseCode();
 
@@ -163,7 +220,7 @@ public class HttpUrlConnectionNetworkFetcher
       String originalScheme = uri.getScheme();
 
       if (maxRedirects > 0 && nextUri != null && !nextUri.getScheme().equals(originalScheme)) {
-        return downloadFrom(nextUri, maxRedirects - 1);
+        return downloadFrom(nextUri, bytesRange, maxRedirects - 1);
       } else {
         String message =
             maxRedirects == 0
@@ -180,6 +237,36 @@ public class HttpUrlConnectionNetworkFetcher
     }
   }
 
+  /** Returns the range of the image the response is for, or null if it is for the whole image. */
+  private static @Nullable BytesRange getResponseBytesRange(HttpURLConnection connection)
+      throws IOException {
+    if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+      // The server ignored the range and sends the whole image
+      return null;
+    }
+    final BytesRange responseRange;
+    try {
+      responseRange =
+          BytesRange.fromContentRangeHeader(connection.getHeaderField(CONTENT_RANGE_HEADER));
+    } catch (IllegalArgumentException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+    if (responseRange == null
+        || (responseRange.from == 0 && responseRange.to == BytesRange.TO_END_OF_CONTENT)) {
+      // Only treat as a partial image if the range is not all of the content
+      return null;
+    }
+    return responseRange;
+  }
+
+  private static boolean isPartialImageCachingEnabled(FetchState fetchState) {
+    return fetchState
+        .getContext()
+        .getImagePipelineConfig()
+        .getExperiments()
+        .isPartialImageCachingEnabled();
+  }
+
   @VisibleForTesting
   static HttpURLConnection openConnectionTo(Uri uri) throws IOException {
     URL url = UriUtil.uriToUrl(uri);
@@ -217,11 +304,73 @@ public class HttpUrlConnectionNetworkFetcher
   @Override
   public Map<String, String> getExtraMap(
       HttpUrlConnectionNetworkFetchState fetchState, int byteSize) {
-    Map<String, String> extraMap = new HashMap<>(4);
+    Map<String, String> extraMap = new HashMap<>(5);
     extraMap.put(QUEUE_TIME, Long.toString(fetchState.responseTime - fetchState.submitTime));
+    extraMap.put(
+        EXECUTOR_QUEUE_TIME, Long.toString(fetchState.fetchStartTime - fetchState.submitTime));
     extraMap.put(FETCH_TIME, Long.toString(fetchState.fetchCompleteTime - fetchState.responseTime));
     extraMap.put(TOTAL_TIME, Long.toString(fetchState.fetchCompleteTime - fetchState.submitTime));
     extraMap.put(IMAGE_SIZE, Integer.toString(byteSize));
     return extraMap;
   }
+
+  /**
+   * Stream that ends as soon as the fetch is cancelled.
+   *
+   * <p>The bytes read so far are then marked as a partial result for the range of the image they
+   * cover, so that they can be cached and the rest of the image requested later. If nothing has
+   * been read yet, the fetch is cancelled instead.
+   */
+  @VisibleForTesting
+  static class CancellableInputStream extends FilterInputStream {
+
+    private final HttpUrlConnectionNetworkFetchState mFetchState;
+    private final int mRangeStart;
+    private int mBytesRead;
+
+    CancellableInputStream(
+        InputStream inputStream,
+        HttpUrlConnectionNetworkFetchState fetchState,
+        @Nullable BytesRange responseRange) {
+      super(inputStream);
+      mFetchState = fetchState;
+      mRangeStart = responseRange == null ? 0 : responseRange.from;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (checkCancelled()) {
+        return -1;
+      }
+      final int result = super.read();
+      if (result >= 0) {
+        mBytesRead++;
+      }
+      return result;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+      if (checkCancelled()) {
+        return -1;
+      }
+      final int result = super.read(buffer, offset, count);
+      if (result > 0) {
+        mBytesRead += result;
+      }
+      return result;
+    }
+
+    private boolean checkCancelled() throws IOException {
+      if (!mFetchState.cancelled) {
+        return false;
+      }
+      if (mBytesRead == 0) {
+        throw new IOException("Fetch cancelled before any data was read");
+      }
+      mFetchState.setResponseBytesRange(new BytesRange(mRangeStart, mRangeStart + mBytesRead - 1));
+      mFetchState.setOnNewResultStatusFlags(Consumer.IS_PARTIAL_RESULT);
+      return true;
+    }
+  }
 }
@@ -23,7 +23,7 @@ import javax.annotation.concurrent.GuardedBy;
  */
 public class JobScheduler {
 
-  static final String QUEUE_TIME_KEY = "queueTime";
+  public static final String QUEUE_TIME_KEY = "queueTime";
 
   @VisibleForTesting
   static class JobStartExecutorSupplier {
@@ -137,6 +137,14 @@ public class PartialDiskCacheProducer implements Producer<EncodedImage> {
                       .build();
               final SettableProducerContext contextForRemainingRequest =
                   new SettableProducerContext(remainingRequest, producerContext);
+              producerContext.addCallbacks(
+                  new BaseProducerContextCallbacks() {
+                    @Override
+                    public void onCancellationRequested() {
+                      // Lets the fetch of the remaining bytes stop early as well
+                      contextForRemainingRequest.cancel();
+                    }
+                  });
 
               startInputProducer(
                   consumer, contextForRemainingRequest, partialImageCacheKey, cachedReference);
@@ -220,8 +228,10 @@ public class PartialDiskCacheProducer implements Producer<EncodedImage> {
    * <p>If the consumer receives a partial result, it caches it on disk with an appropriate key to
    * differentiate from the full image.
    *
-   * <p>If a partial image is already held, it combines new results with that partial data and
-   * passes the combination to the next consumer.
+   * <p>If a partial image is already held, it combines new results with that partial data. If the
+   * new result reaches the end of the image, the combination is passed to the next consumer.
+   * Otherwise the new bytes are appended to the cached partial image, so that a download that has
+   * been interrupted more than once does not lose what it has read before.
    */
   private static class PartialDiskCacheConsumer
       extends DelegatingConsumer<EncodedImage, EncodedImage> {
@@ -256,11 +266,14 @@ public class PartialDiskCacheProducer implements Producer<EncodedImage> {
         return;
       }
 
-      if (mPartialEncodedImageFromCache != null && newResult.getBytesRange() != null) {
+      if (mPartialEncodedImageFromCache != null
+          && newResult != null
+          && newResult.getBytesRange() != null) {
+        final boolean isComplete = newResult.getBytesRange().to == BytesRange.TO_END_OF_CONTENT;
         try {
           final PooledByteBufferOutputStream pooledOutputStream =
               merge(mPartialEncodedImageFromCache, newResult);
-          sendFinalResultToConsumer(pooledOutputStream);
+          sendFinalResultToConsumer(pooledOutputStream, isComplete);
         } catch (IOException e) {
           // TODO 19247425 Delete cached file and request full image
           FLog.e(PRODUCER_NAME, "Error while merging image data", e);
@@ -270,17 +283,39 @@ public class PartialDiskCacheProducer implements Producer<EncodedImage> {
           mPartialEncodedImageFromCache.close();
         }
 
-        mDefaultBufferedDiskCache.remove(mPartialImageCacheKey);
+        if (isComplete) {
+          mDefaultBufferedDiskCache.remove(mPartialImageCacheKey);
+        }
       } else if (statusHasFlag(status, IS_PARTIAL_RESULT)
           && isLast(status)
           && newResult.getImageFormat() != ImageFormat.UNKNOWN) {
+        EncodedImage.closeSafely(mPartialEncodedImageFromCache);
         mDefaultBufferedDiskCache.put(mPartialImageCacheKey, newResult);
         getConsumer().onNewResult(newResult, status);
       } else {
+        if (mPartialEncodedImageFromCache != null) {
+          // The whole image has been fetched again, the cached part is not needed anymore
+          mPartialEncodedImageFromCache.close();
+          if (newResult != null) {
+            mDefaultBufferedDiskCache.remove(mPartialImageCacheKey);
+          }
+        }
         getConsumer().onNewResult(newResult, status);
       }
     }
 
+    @Override
+    protected void onFailureImpl(Throwable t) {
+      EncodedImage.closeSafely(mPartialEncodedImageFromCache);
+      super.onFailureImpl(t);
+    }
+
+    @Override
+    protected void onCancellationImpl() {
+      EncodedImage.closeSafely(mPartialEncodedImageFromCache);
+      super.onCancellationImpl();
+    }
+
     private PooledByteBufferOutputStream merge(EncodedImage initialData, EncodedImage remainingData)
         throws IOException {
       final int totalLength = remainingData.getSize() + remainingData.getBytesRange().from;
@@ -321,14 +356,20 @@ public class PartialDiskCacheProducer implements Producer<EncodedImage> {
       }
     }
 
-    private void sendFinalResultToConsumer(PooledByteBufferOutputStream pooledOutputStream) {
+    private void sendFinalResultToConsumer(
+        PooledByteBufferOutputStream pooledOutputStream, boolean isComplete) {
       CloseableReference<PooledByteBuffer> result =
           CloseableReference.of(pooledOutputStream.toByteBuffer());
       EncodedImage encodedImage = null;
       try {
         encodedImage = new EncodedImage(result);
         encodedImage.parseMetaData();
-        getConsumer().onNewResult(encodedImage, IS_LAST);
+        if (isComplete) {
+          getConsumer().onNewResult(encodedImage, IS_LAST);
+        } else {
+          mDefaultBufferedDiskCache.put(mPartialImageCacheKey, encodedImage);
+          getConsumer().onNewResult(encodedImage, IS_LAST | IS_PARTIAL_RESULT);
+        }
       } finally {
         EncodedImage.closeSafely(encodedImage);
         CloseableReference.closeSafely(result);
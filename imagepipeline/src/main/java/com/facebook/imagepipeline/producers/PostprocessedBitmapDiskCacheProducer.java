@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.producers;
+
+import android.graphics.Bitmap;
+import android.media.ExifInterface;
+import android.os.Build;
+import bolts.Continuation;
+import bolts.Task;
+import com.facebook.cache.common.CacheKey;
+import com.facebook.cache.common.SimpleCacheKey;
+import com.facebook.common.internal.VisibleForTesting;
+import com.facebook.common.logging.FLog;
+import com.facebook.common.memory.PooledByteBuffer;
+import com.facebook.common.memory.PooledByteBufferFactory;
+import com.facebook.common.memory.PooledByteBufferOutputStream;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imagepipeline.cache.BufferedDiskCache;
+import com.facebook.imagepipeline.cache.CacheKeyFactory;
+import com.facebook.imagepipeline.decoder.ImageDecoder;
+import com.facebook.imagepipeline.image.CloseableImage;
+import com.facebook.imagepipeline.image.CloseableStaticBitmap;
+import com.facebook.imagepipeline.image.EncodedImage;
+import com.facebook.imagepipeline.image.ImmutableQualityInfo;
+import com.facebook.imagepipeline.request.ImageRequest;
+import com.facebook.imagepipeline.request.Postprocessor;
+import com.facebook.imagepipeline.request.RepeatedPostprocessor;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * Disk cache producer for postprocessed bitmaps.
+ *
+ * <p>This producer looks in the disk cache for the postprocessed version of the requested image,
+ * keyed by the source and {@link Postprocessor#getPostprocessorCacheKey()}. If it is found, it is
+ * decoded and passed to the consumer, skipping both the decode of the original image and the
+ * postprocessor. Otherwise the request is passed to the next producer in the sequence and the
+ * final postprocessed bitmap is compressed and written to the disk cache in the background.
+ *
+ * <p>Postprocessors without a cache key, repeated postprocessors and requests with the disk cache
+ * disabled are passed through. Rotated bitmaps are not written, as the rotation is not stored.
+ */
+public class PostprocessedBitmapDiskCacheProducer
+    implements Producer<CloseableReference<CloseableImage>> {
+
+  public static final String PRODUCER_NAME = "PostprocessedBitmapDiskCacheProducer";
+  public static final String EXTRA_CACHED_VALUE_FOUND = ProducerConstants.EXTRA_CACHED_VALUE_FOUND;
+  public static final String ENCODED_IMAGE_SIZE = ProducerConstants.ENCODED_IMAGE_SIZE;
+
+  private static final Class<?> TAG = PostprocessedBitmapDiskCacheProducer.class;
+  private static final int COMPRESSION_QUALITY = 90;
+
+  private final BufferedDiskCache mDefaultBufferedDiskCache;
+  private final BufferedDiskCache mSmallImageBufferedDiskCache;
+  private final CacheKeyFactory mCacheKeyFactory;
+  private final PooledByteBufferFactory mPooledByteBufferFactory;
+  private final ImageDecoder mImageDecoder;
+  private final Executor mDecodeExecutor;
+  private final Executor mEncodeExecutor;
+  private final Producer<CloseableReference<CloseableImage>> mInputProducer;
+
+  public PostprocessedBitmapDiskCacheProducer(
+      BufferedDiskCache defaultBufferedDiskCache,
+      BufferedDiskCache smallImageBufferedDiskCache,
+      CacheKeyFactory cacheKeyFactory,
+      PooledByteBufferFactory pooledByteBufferFactory,
+      ImageDecoder imageDecoder,
+      Executor decodeExecutor,
+      Executor encodeExecutor,
+      Producer<CloseableReference<CloseableImage>> inputProducer) {
+    mDefaultBufferedDiskCache = defaultBufferedDiskCache;
+    mSmallImageBufferedDiskCache = smallImageBufferedDiskCache;
+    mCacheKeyFactory = cacheKeyFactory;
+    mPooledByteBufferFactory = pooledByteBufferFactory;
+    mImageDecoder = imageDecoder;
+    mDecodeExecutor = decodeExecutor;
+    mEncodeExecutor = encodeExecutor;
+    mInputProducer = inputProducer;
+  }
+
+  @Override
+  public void produceResults(
+      final Consumer<CloseableReference<CloseableImage>> consumer,
+      final ProducerContext producerContext) {
+    final ImageRequest imageRequest = producerContext.getImageRequest();
+    final Postprocessor postprocessor = imageRequest.getPostprocessor();
+    if (postprocessor == null
+        || postprocessor.getPostprocessorCacheKey() == null
+        || postprocessor instanceof RepeatedPostprocessor
+        || !imageRequest.isDiskCacheEnabled()) {
+      mInputProducer.produceResults(consumer, producerContext);
+      return;
+    }
+
+    producerContext.getProducerListener().onProducerStart(producerContext, PRODUCER_NAME);
+
+    final CacheKey cacheKey =
+        getDiskCacheKey(
+            mCacheKeyFactory.getEncodedCacheKey(imageRequest, producerContext.getCallerContext()),
+            imageRequest,
+            postprocessor.getPostprocessorCacheKey());
+    final BufferedDiskCache preferredCache =
+        imageRequest.getCacheChoice() == ImageRequest.CacheChoice.SMALL
+            ? mSmallImageBufferedDiskCache
+            : mDefaultBufferedDiskCache;
+    final AtomicBoolean isCancelled = new AtomicBoolean(false);
+    preferredCache
+        .get(cacheKey, isCancelled)
+        .continueWith(
+            onFinishDiskReads(consumer, producerContext, preferredCache, cacheKey),
+            mDecodeExecutor);
+    producerContext.addCallbacks(
+        new BaseProducerContextCallbacks() {
+          @Override
+          public void onCancellationRequested() {
+            isCancelled.set(true);
+          }
+        });
+  }
+
+  private Continuation<EncodedImage, Void> onFinishDiskReads(
+      final Consumer<CloseableReference<CloseableImage>> consumer,
+      final ProducerContext producerContext,
+      final BufferedDiskCache diskCache,
+      final CacheKey cacheKey) {
+    final ProducerListener2 listener = producerContext.getProducerListener();
+    return new Continuation<EncodedImage, Void>() {
+      @Override
+      public Void then(Task<EncodedImage> task) throws Exception {
+        if (isTaskCancelled(task)) {
+          listener.onProducerFinishWithCancellation(producerContext, PRODUCER_NAME, null);
+          consumer.onCancellation();
+          return null;
+        }
+        final CloseableImage cachedImage =
+            task.isFaulted() ? null : decodeCachedImage(task.getResult(), producerContext);
+        if (cachedImage != null) {
+          listener.onProducerFinishWithSuccess(
+              producerContext,
+              PRODUCER_NAME,
+              getExtraMap(listener, producerContext, true, task.getResult().getSize()));
+          listener.onUltimateProducerReached(producerContext, PRODUCER_NAME, true);
+          producerContext.setExtra(ProducerContext.ExtraKeys.ORIGIN, "disk");
+          final CloseableReference<CloseableImage> cachedReference =
+              CloseableReference.of(cachedImage);
+          try {
+            consumer.onProgressUpdate(1f);
+            consumer.onNewResult(cachedReference, Consumer.IS_LAST);
+          } finally {
+            CloseableReference.closeSafely(cachedReference);
+          }
+        } else {
+          if (task.isFaulted()) {
+            listener.onProducerFinishWithFailure(
+                producerContext, PRODUCER_NAME, task.getError(), null);
+          } else {
+            listener.onProducerFinishWithSuccess(
+                producerContext, PRODUCER_NAME, getExtraMap(listener, producerContext, false, 0));
+          }
+          mInputProducer.produceResults(
+              new DiskCacheWriteConsumer(consumer, diskCache, cacheKey), producerContext);
+        }
+        EncodedImage.closeSafely(task.isFaulted() ? null : task.getResult());
+        return null;
+      }
+    };
+  }
+
+  @Nullable
+  private CloseableImage decodeCachedImage(
+      @Nullable EncodedImage encodedImage, ProducerContext producerContext) {
+    if (encodedImage == null) {
+      return null;
+    }
+    try {
+      encodedImage.parseMetaData();
+      return mImageDecoder.decode(
+          encodedImage,
+          encodedImage.getSize(),
+          ImmutableQualityInfo.FULL_QUALITY,
+          producerContext.getImageRequest().getImageDecodeOptions());
+    } catch (Exception e) {
+      // Treat broken entries like a cache miss, the image is postprocessed again and overwritten
+      FLog.w(TAG, e, "Failed to decode cached postprocessed image %s", producerContext.getId());
+      return null;
+    }
+  }
+
+  /**
+   * The key of the postprocessed image in the disk cache. It must differ from the encoded cache key
+   * of the source so that the original encoded image is not overwritten.
+   */
+  @VisibleForTesting
+  static CacheKey getDiskCacheKey(
+      CacheKey encodedCacheKey, ImageRequest imageRequest, CacheKey postprocessorCacheKey) {
+    return new SimpleCacheKey(
+        String.format(
+            (Locale) null,
+            "%s#postprocessed;%s;%s;%s",
+            encodedCacheKey.getUriString(),
+            imageRequest.getResizeOptions(),
+            imageRequest.getRotationOptions(),
+            postprocessorCacheKey.getUriString()));
+  }
+
+  @VisibleForTesting
+  static @Nullable Map<String, String> getExtraMap(
+      final ProducerListener2 listener,
+      final ProducerContext producerContext,
+      final boolean valueFound,
+      final int sizeInBytes) {
+    if (!listener.requiresExtraMap(producerContext, PRODUCER_NAME)) {
+      return null;
+    }
+    if (valueFound) {
+      return new ProducerExtras(2)
+          .putBoolean(EXTRA_CACHED_VALUE_FOUND, true)
+          .putLong(ENCODED_IMAGE_SIZE, sizeInBytes);
+    } else {
+      return new ProducerExtras(1).putBoolean(EXTRA_CACHED_VALUE_FOUND, false);
+    }
+  }
+
+  private static boolean isTaskCancelled(Task<?> task) {
+    return task.isCancelled()
+        || (task.isFaulted() && task.getError() instanceof CancellationException);
+  }
+
+  /** Lossy WebP keeps the entries small, older versions cannot encode it (with alpha). */
+  private static Bitmap.CompressFormat getCompressFormat() {
+    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+        ? Bitmap.CompressFormat.WEBP
+        : Bitmap.CompressFormat.PNG;
+  }
+
+  /**
+   * Consumer that forwards the postprocessed result and writes the final bitmap to the disk cache.
+   */
+  private class DiskCacheWriteConsumer
+      extends DelegatingConsumer<
+          CloseableReference<CloseableImage>, CloseableReference<CloseableImage>> {
+
+    private final BufferedDiskCache mDiskCache;
+    private final CacheKey mCacheKey;
+
+    DiskCacheWriteConsumer(
+        Consumer<CloseableReference<CloseableImage>> consumer,
+        BufferedDiskCache diskCache,
+        CacheKey cacheKey) {
+      super(consumer);
+      mDiskCache = diskCache;
+      mCacheKey = cacheKey;
+    }
+
+    @Override
+    protected void onNewResultImpl(
+        @Nullable CloseableReference<CloseableImage> newResult, @Status int status) {
+      getConsumer().onNewResult(newResult, status);
+      if (isLast(status) && shouldWriteToDiskCache(newResult)) {
+        final CloseableReference<CloseableImage> resultToWrite = newResult.clone();
+        mEncodeExecutor.execute(
+            new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  writeToDiskCache((CloseableStaticBitmap) resultToWrite.get());
+                } finally {
+                  CloseableReference.closeSafely(resultToWrite);
+                }
+              }
+            });
+      }
+    }
+
+    private boolean shouldWriteToDiskCache(
+        @Nullable CloseableReference<CloseableImage> result) {
+      if (!CloseableReference.isValid(result)
+          || !(result.get() instanceof CloseableStaticBitmap)) {
+        return false;
+      }
+      final CloseableStaticBitmap staticBitmap = (CloseableStaticBitmap) result.get();
+      final int exifOrientation = staticBitmap.getExifOrientation();
+      return staticBitmap.getRotationAngle() == 0
+          && (exifOrientation == ExifInterface.ORIENTATION_UNDEFINED
+              || exifOrientation == ExifInterface.ORIENTATION_NORMAL);
+    }
+
+    private void writeToDiskCache(CloseableStaticBitmap staticBitmap) {
+      final PooledByteBufferOutputStream outputStream =
+          mPooledByteBufferFactory.newOutputStream();
+      CloseableReference<PooledByteBuffer> bufferReference = null;
+      EncodedImage encodedImage = null;
+      try {
+        if (!staticBitmap
+            .getUnderlyingBitmap()
+            .compress(getCompressFormat(), COMPRESSION_QUALITY, outputStream)) {
+          return;
+        }
+        bufferReference = CloseableReference.of(outputStream.toByteBuffer());
+        encodedImage = new EncodedImage(bufferReference);
+        mDiskCache.put(mCacheKey, encodedImage);
+      } catch (RuntimeException e) {
+        FLog.w(TAG, e, "Failed to encode postprocessed image for %s", mCacheKey.getUriString());
+      } finally {
+        EncodedImage.closeSafely(encodedImage);
+        CloseableReference.closeSafely(bufferReference);
+        try {
+          outputStream.close();
+        } catch (IOException ioe) {
+          // Closing a pooled output stream never throws
+        }
+      }
+    }
+  }
+}
@@ -47,6 +47,9 @@ public class PriorityNetworkFetcher<FETCH_STATE extends FetchState>
     implements NetworkFetcher<PriorityNetworkFetcher.PriorityFetchState<FETCH_STATE>> {
   public static final String TAG = PriorityNetworkFetcher.class.getSimpleName();
 
+  /** Extra with the time in ms that the fetch waited in the priority queues. */
+  public static final String PRIORITY_QUEUE_TIME = "pri_queue_time";
+
   private final NetworkFetcher<FETCH_STATE> mDelegate;
 
   private final boolean mIsHiPriFifo;
@@ -306,9 +309,10 @@ public class PriorityNetworkFetcher<FETCH_STATE extends FetchState>
     HashMap<String, String> extras =
         delegateExtras != null ? new HashMap<>(delegateExtras) : new HashMap<String, String>();
     extras.put(
-        "pri_queue_time", "" + (fetchState.dequeuedTimestamp - fetchState.enqueuedTimestamp));
-    extras.put("hipri_queue_size", "" + fetchState.hiPriCountWhenCreated);
-    extras.put("lowpri_queue_size", "" + fetchState.lowPriCountWhenCreated);
+        PRIORITY_QUEUE_TIME,
+        Long.toString(fetchState.dequeuedTimestamp - fetchState.enqueuedTimestamp));
+    extras.put("hipri_queue_size", Integer.toString(fetchState.hiPriCountWhenCreated));
+    extras.put("lowpri_queue_size", Integer.toString(fetchState.lowPriCountWhenCreated));
     return extras;
   }
 }
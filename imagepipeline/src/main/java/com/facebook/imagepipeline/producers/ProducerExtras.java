@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.producers;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Typed extras of a producer event, passed to {@link ProducerListener2} in place of a map of
+ * strings.
+ *
+ * <p>Values are stored in primitive slots keyed by the extra constants of the producers, so
+ * filling in the extras does not format numbers or allocate per value. Listeners that know the
+ * keys read the values with the typed getters, for example {@link #getLong}. For all other
+ * listeners this is an immutable {@code Map<String, String>}: the strings are only created, once,
+ * when the map is first read through the {@link Map} interface.
+ *
+ * <p>Producers still only create extras if a listener {@link
+ * ProducerListener2#requiresExtraMap requires} them.
+ */
+public class ProducerExtras extends AbstractMap<String, String> {
+
+  private static final byte TYPE_LONG = 0;
+  private static final byte TYPE_BOOLEAN = 1;
+  private static final byte TYPE_SIZE = 2;
+  private static final byte TYPE_STRING = 3;
+
+  private String[] mKeys;
+  private byte[] mTypes;
+  private long[] mValues;
+  private @Nullable Object[] mStrings;
+  private int mSize;
+
+  private @Nullable Map<String, String> mMap;
+
+  /** @param capacity the expected number of extras */
+  public ProducerExtras(int capacity) {
+    mKeys = new String[capacity];
+    mTypes = new byte[capacity];
+    mValues = new long[capacity];
+  }
+
+  public ProducerExtras putLong(String key, long value) {
+    return put(key, TYPE_LONG, value);
+  }
+
+  public ProducerExtras putBoolean(String key, boolean value) {
+    return put(key, TYPE_BOOLEAN, value ? 1 : 0);
+  }
+
+  /** Puts a size, which reads as "{width}x{height}" in the map. */
+  public ProducerExtras putSize(String key, int width, int height) {
+    return put(key, TYPE_SIZE, ((long) width << 32) | (height & 0xFFFFFFFFL));
+  }
+
+  /** Puts a string, which should be a constant such as the name of an image format. */
+  public ProducerExtras putString(String key, @Nullable String value) {
+    put(key, TYPE_STRING, 0);
+    if (mStrings == null) {
+      mStrings = new Object[mKeys.length];
+    }
+    mStrings[indexOf(key)] = value;
+    return this;
+  }
+
+  /** Copies all extras of {@code other}, for example those of a delegate. */
+  public ProducerExtras putExtras(ProducerExtras other) {
+    for (int i = 0; i < other.mSize; i++) {
+      if (other.mTypes[i] == TYPE_STRING) {
+        putString(other.mKeys[i], (String) other.mStrings[i]);
+      } else {
+        put(other.mKeys[i], other.mTypes[i], other.mValues[i]);
+      }
+    }
+    return this;
+  }
+
+  /** Returns the number value of the given extra, or the default value if there is none. */
+  public long getLong(String key, long defaultValue) {
+    final int index = indexOf(key);
+    return index >= 0 && mTypes[index] == TYPE_LONG ? mValues[index] : defaultValue;
+  }
+
+  public boolean getBoolean(String key, boolean defaultValue) {
+    final int index = indexOf(key);
+    return index >= 0 && mTypes[index] == TYPE_BOOLEAN ? mValues[index] != 0 : defaultValue;
+  }
+
+  /** Returns the width of the given size extra, or the default value if there is none. */
+  public int getWidth(String key, int defaultValue) {
+    final int index = indexOf(key);
+    return index >= 0 && mTypes[index] == TYPE_SIZE ? (int) (mValues[index] >> 32) : defaultValue;
+  }
+
+  /** Returns the height of the given size extra, or the default value if there is none. */
+  public int getHeight(String key, int defaultValue) {
+    final int index = indexOf(key);
+    return index >= 0 && mTypes[index] == TYPE_SIZE ? (int) mValues[index] : defaultValue;
+  }
+
+  @Override
+  public int size() {
+    return mSize;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof String && indexOf((String) key) >= 0;
+  }
+
+  @Override
+  public @Nullable String get(Object key) {
+    return asMap().get(key);
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    return asMap().entrySet();
+  }
+
+  private ProducerExtras put(String key, byte type, long value) {
+    int index = indexOf(key);
+    if (index < 0) {
+      if (mSize == mKeys.length) {
+        grow();
+      }
+      index = mSize++;
+      mKeys[index] = key;
+    }
+    mTypes[index] = type;
+    mValues[index] = value;
+    mMap = null;
+    return this;
+  }
+
+  private int indexOf(String key) {
+    // The keys are constants, so they are usually the same instances
+    for (int i = 0; i < mSize; i++) {
+      if (mKeys[i] == key) {
+        return i;
+      }
+    }
+    for (int i = 0; i < mSize; i++) {
+      if (mKeys[i].equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void grow() {
+    final int capacity = Math.max(4, mKeys.length * 2);
+    mKeys = Arrays.copyOf(mKeys, capacity);
+    mTypes = Arrays.copyOf(mTypes, capacity);
+    mValues = Arrays.copyOf(mValues, capacity);
+    if (mStrings != null) {
+      mStrings = Arrays.copyOf(mStrings, capacity);
+    }
+  }
+
+  private synchronized Map<String, String> asMap() {
+    if (mMap == null) {
+      final Map<String, String> map = new HashMap<>(mSize * 2);
+      for (int i = 0; i < mSize; i++) {
+        map.put(mKeys[i], format(i));
+      }
+      mMap = Collections.unmodifiableMap(map);
+    }
+    return mMap;
+  }
+
+  private @Nullable String format(int index) {
+    final long value = mValues[index];
+    switch (mTypes[index]) {
+      case TYPE_BOOLEAN:
+        return String.valueOf(value != 0);
+      case TYPE_SIZE:
+        return (int) (value >> 32) + "x" + (int) value;
+      case TYPE_STRING:
+        return (String) mStrings[index];
+      default:
+        return String.valueOf(value);
+    }
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.producers;
+
+import bolts.Continuation;
+import bolts.Task;
+import com.facebook.cache.common.CacheKey;
+import com.facebook.cache.common.SimpleCacheKey;
+import com.facebook.common.internal.VisibleForTesting;
+import com.facebook.common.logging.FLog;
+import com.facebook.common.memory.ByteArrayPool;
+import com.facebook.common.memory.PooledByteBuffer;
+import com.facebook.common.memory.PooledByteBufferFactory;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imageformat.DefaultImageFormats;
+import com.facebook.imagepipeline.cache.BufferedDiskCache;
+import com.facebook.imagepipeline.cache.CacheKeyFactory;
+import com.facebook.imagepipeline.cache.MemoryCache;
+import com.facebook.imagepipeline.common.ResizeOptions;
+import com.facebook.imagepipeline.decoder.ProgressiveJpegConfig;
+import com.facebook.imagepipeline.decoder.ProgressiveJpegScanIndex;
+import com.facebook.imagepipeline.image.EncodedImage;
+import com.facebook.imagepipeline.request.ImageRequest;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * Reads only the first scans of progressive JPEGs from the disk cache for small targets.
+ *
+ * <p>Whenever a complete JPEG passes through this producer, a {@link ProgressiveJpegScanIndex} is
+ * stored in the disk cache next to the image. Requests with {@link ResizeOptions} that are small
+ * compared to the image look up the index first and, if the first scans are enough for the target
+ * size, only read these scans from the disk cache. The truncated image is passed on as the final
+ * result and is not put in the encoded memory cache.
+ *
+ * <p>Requests that find the image in the encoded memory cache, requests without resize options and
+ * requests for which there is no index are passed to the next producer.
+ */
+public class ProgressiveJpegDiskCacheProducer implements Producer<EncodedImage> {
+
+  public static final String PRODUCER_NAME = "ProgressiveJpegDiskCacheProducer";
+  public static final String EXTRA_CACHED_VALUE_FOUND = ProducerConstants.EXTRA_CACHED_VALUE_FOUND;
+  public static final String ENCODED_IMAGE_SIZE = ProducerConstants.ENCODED_IMAGE_SIZE;
+
+  private static final Class<?> TAG = ProgressiveJpegDiskCacheProducer.class;
+
+  private final MemoryCache<CacheKey, PooledByteBuffer> mEncodedMemoryCache;
+  private final BufferedDiskCache mDefaultBufferedDiskCache;
+  private final BufferedDiskCache mSmallImageBufferedDiskCache;
+  private final CacheKeyFactory mCacheKeyFactory;
+  private final PooledByteBufferFactory mPooledByteBufferFactory;
+  private final ByteArrayPool mByteArrayPool;
+  private final ProgressiveJpegConfig mProgressiveJpegConfig;
+  private final Executor mBackgroundExecutor;
+  private final Producer<EncodedImage> mInputProducer;
+
+  public ProgressiveJpegDiskCacheProducer(
+      MemoryCache<CacheKey, PooledByteBuffer> encodedMemoryCache,
+      BufferedDiskCache defaultBufferedDiskCache,
+      BufferedDiskCache smallImageBufferedDiskCache,
+      CacheKeyFactory cacheKeyFactory,
+      PooledByteBufferFactory pooledByteBufferFactory,
+      ByteArrayPool byteArrayPool,
+      ProgressiveJpegConfig progressiveJpegConfig,
+      Executor backgroundExecutor,
+      Producer<EncodedImage> inputProducer) {
+    mEncodedMemoryCache = encodedMemoryCache;
+    mDefaultBufferedDiskCache = defaultBufferedDiskCache;
+    mSmallImageBufferedDiskCache = smallImageBufferedDiskCache;
+    mCacheKeyFactory = cacheKeyFactory;
+    mPooledByteBufferFactory = pooledByteBufferFactory;
+    mByteArrayPool = byteArrayPool;
+    mProgressiveJpegConfig = progressiveJpegConfig;
+    mBackgroundExecutor = backgroundExecutor;
+    mInputProducer = inputProducer;
+  }
+
+  @Override
+  public void produceResults(
+      final Consumer<EncodedImage> consumer, final ProducerContext producerContext) {
+    final ImageRequest imageRequest = producerContext.getImageRequest();
+    if (!imageRequest.isDiskCacheEnabled()) {
+      mInputProducer.produceResults(consumer, producerContext);
+      return;
+    }
+
+    final CacheKey encodedCacheKey =
+        mCacheKeyFactory.getEncodedCacheKey(imageRequest, producerContext.getCallerContext());
+    final BufferedDiskCache diskCache =
+        imageRequest.getCacheChoice() == ImageRequest.CacheChoice.SMALL
+            ? mSmallImageBufferedDiskCache
+            : mDefaultBufferedDiskCache;
+    final ResizeOptions resizeOptions = imageRequest.getResizeOptions();
+    if (resizeOptions == null
+        || producerContext.getLowestPermittedRequestLevel().getValue()
+            > ImageRequest.RequestLevel.DISK_CACHE.getValue()
+        || mEncodedMemoryCache.contains(encodedCacheKey)) {
+      mInputProducer.produceResults(
+          new ScanIndexWriteConsumer(consumer, diskCache, encodedCacheKey), producerContext);
+      return;
+    }
+
+    producerContext.getProducerListener().onProducerStart(producerContext, PRODUCER_NAME);
+    final AtomicBoolean isCancelled = new AtomicBoolean(false);
+    diskCache
+        .get(getScanIndexCacheKey(encodedCacheKey), isCancelled)
+        .continueWithTask(
+            new Continuation<EncodedImage, Task<EncodedImage>>() {
+              @Override
+              public Task<EncodedImage> then(Task<EncodedImage> task) throws Exception {
+                final int prefixLength = getPrefixLength(task, resizeOptions);
+                if (prefixLength <= 0) {
+                  return Task.forResult(null);
+                }
+                return diskCache.getPrefix(encodedCacheKey, prefixLength, isCancelled);
+              }
+            })
+        .continueWith(
+            onFinishPrefixRead(consumer, producerContext, diskCache, encodedCacheKey));
+    producerContext.addCallbacks(
+        new BaseProducerContextCallbacks() {
+          @Override
+          public void onCancellationRequested() {
+            isCancelled.set(true);
+          }
+        });
+  }
+
+  private int getPrefixLength(Task<EncodedImage> indexTask, ResizeOptions resizeOptions) {
+    if (isTaskCancelled(indexTask) || indexTask.isFaulted() || indexTask.getResult() == null) {
+      return 0;
+    }
+    final EncodedImage indexImage = indexTask.getResult();
+    try {
+      final InputStream inputStream = indexImage.getInputStream();
+      final ProgressiveJpegScanIndex index =
+          inputStream == null ? null : ProgressiveJpegScanIndex.fromInputStream(inputStream);
+      return index == null
+          ? 0
+          : index.getPrefixLength(
+              resizeOptions.width, resizeOptions.height, mProgressiveJpegConfig);
+    } catch (Exception e) {
+      FLog.w(TAG, e, "Failed to read scan index");
+      return 0;
+    } finally {
+      EncodedImage.closeSafely(indexImage);
+    }
+  }
+
+  private Continuation<EncodedImage, Void> onFinishPrefixRead(
+      final Consumer<EncodedImage> consumer,
+      final ProducerContext producerContext,
+      final BufferedDiskCache diskCache,
+      final CacheKey encodedCacheKey) {
+    final ProducerListener2 listener = producerContext.getProducerListener();
+    return new Continuation<EncodedImage, Void>() {
+      @Override
+      public Void then(Task<EncodedImage> task) throws Exception {
+        if (isTaskCancelled(task)) {
+          listener.onProducerFinishWithCancellation(producerContext, PRODUCER_NAME, null);
+          consumer.onCancellation();
+          return null;
+        }
+        final EncodedImage prefix = task.isFaulted() ? null : task.getResult();
+        if (prefix != null) {
+          prefix.parseMetaData();
+          listener.onProducerFinishWithSuccess(
+              producerContext,
+              PRODUCER_NAME,
+              getExtraMap(listener, producerContext, true, prefix.getSize()));
+          listener.onUltimateProducerReached(producerContext, PRODUCER_NAME, true);
+          producerContext.setExtra(ProducerContext.ExtraKeys.ORIGIN, "disk");
+          try {
+            consumer.onProgressUpdate(1f);
+            consumer.onNewResult(prefix, Consumer.IS_LAST | Consumer.DO_NOT_CACHE_ENCODED);
+          } finally {
+            prefix.close();
+          }
+        } else {
+          listener.onProducerFinishWithSuccess(
+              producerContext, PRODUCER_NAME, getExtraMap(listener, producerContext, false, 0));
+          mInputProducer.produceResults(
+              new ScanIndexWriteConsumer(consumer, diskCache, encodedCacheKey), producerContext);
+        }
+        return null;
+      }
+    };
+  }
+
+  /** The key of the scan index of the image with the given key in the disk cache. */
+  @VisibleForTesting
+  static CacheKey getScanIndexCacheKey(CacheKey encodedCacheKey) {
+    return new SimpleCacheKey(encodedCacheKey.getUriString() + "#scans");
+  }
+
+  @VisibleForTesting
+  static @Nullable Map<String, String> getExtraMap(
+      final ProducerListener2 listener,
+      final ProducerContext producerContext,
+      final boolean valueFound,
+      final int sizeInBytes) {
+    if (!listener.requiresExtraMap(producerContext, PRODUCER_NAME)) {
+      return null;
+    }
+    if (valueFound) {
+      return new ProducerExtras(2)
+          .putBoolean(EXTRA_CACHED_VALUE_FOUND, true)
+          .putLong(ENCODED_IMAGE_SIZE, sizeInBytes);
+    } else {
+      return new ProducerExtras(1).putBoolean(EXTRA_CACHED_VALUE_FOUND, false);
+    }
+  }
+
+  private static boolean isTaskCancelled(Task<?> task) {
+    return task.isCancelled()
+        || (task.isFaulted() && task.getError() instanceof CancellationException);
+  }
+
+  /** Consumer that stores the scan index of complete JPEGs in the disk cache. */
+  private class ScanIndexWriteConsumer extends DelegatingConsumer<EncodedImage, EncodedImage> {
+
+    private final BufferedDiskCache mDiskCache;
+    private final CacheKey mScanIndexCacheKey;
+
+    ScanIndexWriteConsumer(
+        Consumer<EncodedImage> consumer, BufferedDiskCache diskCache, CacheKey encodedCacheKey) {
+      super(consumer);
+      mDiskCache = diskCache;
+      mScanIndexCacheKey = getScanIndexCacheKey(encodedCacheKey);
+    }
+
+    @Override
+    protected void onNewResultImpl(@Nullable EncodedImage newResult, @Status int status) {
+      if (isLast(status)
+          && !statusHasAnyFlag(status, DO_NOT_CACHE_ENCODED | IS_PARTIAL_RESULT)
+          && EncodedImage.isValid(newResult)
+          && newResult.getImageFormat() == DefaultImageFormats.JPEG) {
+        final EncodedImage image = EncodedImage.cloneOrNull(newResult);
+        mBackgroundExecutor.execute(
+            new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  writeScanIndex(image);
+                } finally {
+                  EncodedImage.closeSafely(image);
+                }
+              }
+            });
+      }
+      getConsumer().onNewResult(newResult, status);
+    }
+
+    private void writeScanIndex(EncodedImage image) {
+      if (mDiskCache.containsSync(mScanIndexCacheKey)) {
+        return;
+      }
+      final ProgressiveJpegScanIndex index = ProgressiveJpegScanIndex.create(image, mByteArrayPool);
+      // A single scan has no prefix to read, so baseline JPEGs do not get an index
+      if (index == null || index.getScanCount() < 2) {
+        return;
+      }
+      final CloseableReference<PooledByteBuffer> bufferReference =
+          CloseableReference.of(mPooledByteBufferFactory.newByteBuffer(index.toByteArray()));
+      final EncodedImage indexImage = new EncodedImage(bufferReference);
+      try {
+        mDiskCache.put(mScanIndexCacheKey, indexImage);
+      } finally {
+        EncodedImage.closeSafely(indexImage);
+        CloseableReference.closeSafely(bufferReference);
+      }
+    }
+  }
+}
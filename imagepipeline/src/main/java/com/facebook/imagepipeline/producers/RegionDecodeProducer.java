@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.producers;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.os.Build;
+import com.facebook.common.internal.Preconditions;
+import com.facebook.common.internal.VisibleForTesting;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imagepipeline.bitmaps.SimpleBitmapReleaser;
+import com.facebook.imagepipeline.common.TileOptions;
+import com.facebook.imagepipeline.image.CloseableImage;
+import com.facebook.imagepipeline.image.CloseableStaticBitmap;
+import com.facebook.imagepipeline.image.EncodedImage;
+import com.facebook.imagepipeline.image.ImmutableQualityInfo;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Decodes a single tile of an image, as described by the {@link TileOptions} of the request.
+ *
+ * <p>Only the final encoded image is decoded. The region is decoded with a {@link
+ * BitmapRegionDecoder} at the requested sample size, so the size of the resulting bitmap only
+ * depends on the size of the tile and never on the size of the image. The rotation of the encoded
+ * image is kept on the resulting bitmap and applied when it is drawn, like for full decodes.
+ *
+ * <p>Creating a region decoder means parsing the whole encoded image, so the decoders of the last
+ * few images are kept around for the following tiles of the same image.
+ */
+@TargetApi(Build.VERSION_CODES.GINGERBREAD_MR1)
+public class RegionDecodeProducer implements Producer<CloseableReference<CloseableImage>> {
+
+  public static final String PRODUCER_NAME = "RegionDecodeProducer";
+
+  // keys for extra map
+  public static final String EXTRA_BITMAP_SIZE = ProducerConstants.EXTRA_BITMAP_SIZE;
+  public static final String SAMPLE_SIZE = ProducerConstants.SAMPLE_SIZE;
+  public static final String EXTRA_TILE = "tile";
+
+  private static final int MAX_CACHED_DECODERS = 2;
+
+  private final Executor mExecutor;
+  private final Producer<EncodedImage> mInputProducer;
+
+  @GuardedBy("mRegionDecoders")
+  private final LinkedHashMap<String, BitmapRegionDecoder> mRegionDecoders =
+      new LinkedHashMap<>(MAX_CACHED_DECODERS, 0.75f, true);
+
+  public RegionDecodeProducer(Executor executor, Producer<EncodedImage> inputProducer) {
+    mExecutor = Preconditions.checkNotNull(executor);
+    mInputProducer = Preconditions.checkNotNull(inputProducer);
+  }
+
+  @Override
+  public void produceResults(
+      final Consumer<CloseableReference<CloseableImage>> consumer,
+      final ProducerContext producerContext) {
+    mInputProducer.produceResults(
+        new RegionDecodeConsumer(consumer, producerContext), producerContext);
+  }
+
+  private class RegionDecodeConsumer
+      extends DelegatingConsumer<EncodedImage, CloseableReference<CloseableImage>> {
+
+    private final ProducerContext mProducerContext;
+    private final AtomicBoolean mIsCancelled = new AtomicBoolean(false);
+
+    RegionDecodeConsumer(
+        Consumer<CloseableReference<CloseableImage>> consumer, ProducerContext producerContext) {
+      super(consumer);
+      mProducerContext = producerContext;
+      mProducerContext.addCallbacks(
+          new BaseProducerContextCallbacks() {
+            @Override
+            public void onCancellationRequested() {
+              mIsCancelled.set(true);
+            }
+          });
+    }
+
+    @Override
+    protected void onNewResultImpl(@Nullable EncodedImage newResult, @Status int status) {
+      if (isNotLast(status)) {
+        // Intermediate results are not worth a region decode, wait for the complete image
+        return;
+      }
+      if (!EncodedImage.isValid(newResult)) {
+        getConsumer().onNewResult(null, status);
+        return;
+      }
+      final EncodedImage encodedImage = EncodedImage.cloneOrNull(newResult);
+      mExecutor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              try {
+                decodeTile(encodedImage);
+              } finally {
+                EncodedImage.closeSafely(encodedImage);
+              }
+            }
+          });
+    }
+
+    private void decodeTile(EncodedImage encodedImage) {
+      final ProducerListener2 listener = mProducerContext.getProducerListener();
+      if (mIsCancelled.get()) {
+        getConsumer().onCancellation();
+        return;
+      }
+      listener.onProducerStart(mProducerContext, PRODUCER_NAME);
+      final TileOptions tileOptions =
+          Preconditions.checkNotNull(mProducerContext.getImageRequest().getTileOptions());
+      final Bitmap bitmap;
+      try {
+        bitmap = decodeRegion(encodedImage, mProducerContext, tileOptions);
+      } catch (Exception e) {
+        listener.onProducerFinishWithFailure(mProducerContext, PRODUCER_NAME, e, null);
+        getConsumer().onFailure(e);
+        return;
+      }
+      listener.onProducerFinishWithSuccess(
+          mProducerContext,
+          PRODUCER_NAME,
+          getExtraMap(listener, mProducerContext, tileOptions, bitmap));
+      final CloseableReference<CloseableImage> imageReference =
+          CloseableReference.<CloseableImage>of(
+              new CloseableStaticBitmap(
+                  bitmap,
+                  SimpleBitmapReleaser.getInstance(),
+                  ImmutableQualityInfo.FULL_QUALITY,
+                  encodedImage.getRotationAngle(),
+                  encodedImage.getExifOrientation()));
+      try {
+        getConsumer().onProgressUpdate(1f);
+        getConsumer().onNewResult(imageReference, Consumer.IS_LAST);
+      } finally {
+        CloseableReference.closeSafely(imageReference);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  Bitmap decodeRegion(
+      EncodedImage encodedImage, ProducerContext producerContext, TileOptions tileOptions)
+      throws IOException {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.GINGERBREAD_MR1) {
+      throw new UnsupportedOperationException("Region decoding requires API level 10");
+    }
+    final String key = producerContext.getImageRequest().getSourceUri().toString();
+    BitmapRegionDecoder regionDecoder = getRegionDecoder(key, encodedImage);
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inSampleSize = tileOptions.sampleSize;
+    options.inPreferredConfig =
+        producerContext.getImageRequest().getImageDecodeOptions().bitmapConfig;
+    Bitmap bitmap;
+    try {
+      bitmap = regionDecoder.decodeRegion(getRegion(regionDecoder, tileOptions), options);
+    } catch (IllegalStateException e) {
+      // The decoder has been recycled after being evicted by another image, recreate it
+      removeRegionDecoder(key, regionDecoder);
+      regionDecoder = getRegionDecoder(key, encodedImage);
+      bitmap = regionDecoder.decodeRegion(getRegion(regionDecoder, tileOptions), options);
+    }
+    if (bitmap == null) {
+      throw new IllegalStateException("Region decoder returned null for " + tileOptions);
+    }
+    return bitmap;
+  }
+
+  private static Rect getRegion(BitmapRegionDecoder regionDecoder, TileOptions tileOptions) {
+    final Rect region =
+        new Rect(tileOptions.left, tileOptions.top, tileOptions.right, tileOptions.bottom);
+    if (!region.intersect(0, 0, regionDecoder.getWidth(), regionDecoder.getHeight())) {
+      throw new IllegalArgumentException(
+          "Tile " + tileOptions + " is outside of the image bounds");
+    }
+    return region;
+  }
+
+  private BitmapRegionDecoder getRegionDecoder(String key, EncodedImage encodedImage)
+      throws IOException {
+    synchronized (mRegionDecoders) {
+      final BitmapRegionDecoder cachedDecoder = mRegionDecoders.get(key);
+      if (cachedDecoder != null && !cachedDecoder.isRecycled()) {
+        return cachedDecoder;
+      }
+    }
+    final BitmapRegionDecoder regionDecoder = createRegionDecoder(encodedImage);
+    synchronized (mRegionDecoders) {
+      final BitmapRegionDecoder previousDecoder = mRegionDecoders.put(key, regionDecoder);
+      if (previousDecoder != null && previousDecoder != regionDecoder) {
+        previousDecoder.recycle();
+      }
+      final Iterator<Map.Entry<String, BitmapRegionDecoder>> iterator =
+          mRegionDecoders.entrySet().iterator();
+      while (mRegionDecoders.size() > MAX_CACHED_DECODERS && iterator.hasNext()) {
+        final BitmapRegionDecoder evictedDecoder = iterator.next().getValue();
+        iterator.remove();
+        evictedDecoder.recycle();
+      }
+    }
+    return regionDecoder;
+  }
+
+  private void removeRegionDecoder(String key, BitmapRegionDecoder regionDecoder) {
+    synchronized (mRegionDecoders) {
+      if (mRegionDecoders.get(key) == regionDecoder) {
+        mRegionDecoders.remove(key);
+      }
+    }
+  }
+
+  private static BitmapRegionDecoder createRegionDecoder(EncodedImage encodedImage)
+      throws IOException {
+    final InputStream inputStream = Preconditions.checkNotNull(encodedImage.getInputStream());
+    try {
+      return Preconditions.checkNotNull(BitmapRegionDecoder.newInstance(inputStream, false));
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  @VisibleForTesting
+  static @Nullable Map<String, String> getExtraMap(
+      ProducerListener2 listener,
+      ProducerContext producerContext,
+      TileOptions tileOptions,
+      Bitmap bitmap) {
+    if (!listener.requiresExtraMap(producerContext, PRODUCER_NAME)) {
+      return null;
+    }
+    return new ProducerExtras(3)
+        .putString(EXTRA_TILE, tileOptions.toString())
+        .putLong(SAMPLE_SIZE, tileOptions.sampleSize)
+        .putSize(EXTRA_BITMAP_SIZE, bitmap.getWidth(), bitmap.getHeight());
+  }
+}
@@ -26,11 +26,15 @@ import com.facebook.imagepipeline.common.ResizeOptions;
 import com.facebook.imagepipeline.common.RotationOptions;
 import com.facebook.imagepipeline.image.EncodedImage;
 import com.facebook.imagepipeline.request.ImageRequest;
+import com.facebook.imagepipeline.transcoder.DownsampleUtil;
 import com.facebook.imagepipeline.transcoder.ImageTranscodeResult;
 import com.facebook.imagepipeline.transcoder.ImageTranscoder;
 import com.facebook.imagepipeline.transcoder.ImageTranscoderFactory;
 import com.facebook.imagepipeline.transcoder.JpegTranscoderUtils;
+import com.facebook.imagepipeline.transcoder.ResizePlan;
+import com.facebook.imagepipeline.transcoder.ResizePlanner;
 import com.facebook.imagepipeline.transcoder.TranscodeStatus;
+import com.facebook.imageutils.BitmapUtil;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Executor;
@@ -40,16 +44,21 @@ import javax.annotation.Nullable;
  * Resizes and rotates images according to the EXIF orientation data or a specified rotation angle.
  *
  * <p>If the image is not supported by the {@link ImageTranscoder}, no transformation is applied.
+ * Static images that cannot be transcoded, like PNG and WebP, are resized at decode time instead:
+ * the {@link ResizePlanner} picks a sample size that is set on the forwarded image and the strategy
+ * is reported through the extras of the {@link ProducerListener2}.
  *
  * <p>This can be used even if downsampling is enabled as long as resizing is disabled.
  */
 public class ResizeAndRotateProducer implements Producer<EncodedImage> {
-  private static final String PRODUCER_NAME = "ResizeAndRotateProducer";
+  public static final String PRODUCER_NAME = "ResizeAndRotateProducer";
   private static final String INPUT_IMAGE_FORMAT = "Image format";
   private static final String ORIGINAL_SIZE_KEY = "Original size";
   private static final String REQUESTED_SIZE_KEY = "Requested size";
   private static final String TRANSCODING_RESULT = "Transcoding result";
   private static final String TRANSCODER_ID = "Transcoder id";
+  private static final String RESIZE_STRATEGY = "Resize strategy";
+  private static final String SAMPLE_SIZE = "Sample size";
 
   @VisibleForTesting static final int MIN_TRANSFORM_INTERVAL_MS = 100;
 
@@ -152,19 +161,18 @@ public class ResizeAndRotateProducer implements Producer<EncodedImage> {
         return;
       }
       ImageFormat imageFormat = newResult.getImageFormat();
+      ImageTranscoder imageTranscoder =
+          Preconditions.checkNotNull(
+              mImageTranscoderFactory.createImageTranscoder(imageFormat, mIsResizingEnabled));
       TriState shouldTransform =
-          shouldTransform(
-              mProducerContext.getImageRequest(),
-              newResult,
-              Preconditions.checkNotNull(
-                  mImageTranscoderFactory.createImageTranscoder(imageFormat, mIsResizingEnabled)));
+          shouldTransform(mProducerContext.getImageRequest(), newResult, imageTranscoder);
       // ignore the intermediate result if we don't know what to do with it
       if (!isLast && shouldTransform == TriState.UNSET) {
         return;
       }
       // just forward the result if we know that it shouldn't be transformed
       if (shouldTransform != TriState.YES) {
-        forwardNewResult(newResult, status, imageFormat);
+        forwardNewResult(newResult, status, imageFormat, imageTranscoder);
         return;
       }
       // we know that the result should be transformed, hence schedule it
@@ -177,13 +185,62 @@ public class ResizeAndRotateProducer implements Producer<EncodedImage> {
     }
 
     private void forwardNewResult(
-        EncodedImage newResult, @Status int status, ImageFormat imageFormat) {
+        EncodedImage newResult,
+        @Status int status,
+        ImageFormat imageFormat,
+        ImageTranscoder imageTranscoder) {
       if (imageFormat == JPEG || imageFormat == HEIF) {
         newResult = getNewResultsForJpegOrHeif(newResult);
       } else {
         newResult = getNewResultForImagesWithoutExifData(newResult);
       }
-      getConsumer().onNewResult(newResult, status);
+      final ResizePlan resizePlan = getResizePlan(newResult, imageTranscoder);
+      if (isLast(status) && resizePlan.isResizedByDecoder()) {
+        onResizePlanned(newResult, resizePlan);
+      }
+      if (resizePlan.getSampleSize() <= DownsampleUtil.DEFAULT_SAMPLE_SIZE) {
+        getConsumer().onNewResult(newResult, status);
+        return;
+      }
+      // the decoder applies the sample size, so the image is not decoded at full size
+      final EncodedImage sampledResult = EncodedImage.cloneOrNull(newResult);
+      try {
+        if (sampledResult != null) {
+          sampledResult.setSampleSize(resizePlan.getSampleSize());
+        }
+        getConsumer().onNewResult(sampledResult, status | Consumer.IS_RESIZING_DONE);
+      } finally {
+        EncodedImage.closeSafely(sampledResult);
+      }
+    }
+
+    private ResizePlan getResizePlan(
+        @Nullable EncodedImage encodedImage, ImageTranscoder imageTranscoder) {
+      if (encodedImage == null) {
+        return ResizePlan.NONE;
+      }
+      final ImageRequest imageRequest = mProducerContext.getImageRequest();
+      return ResizePlanner.plan(
+          encodedImage,
+          imageRequest.getRotationOptions(),
+          imageRequest.getResizeOptions(),
+          imageTranscoder,
+          mIsResizingEnabled,
+          (int) BitmapUtil.MAX_BITMAP_SIZE);
+    }
+
+    private void onResizePlanned(EncodedImage encodedImage, ResizePlan resizePlan) {
+      final ProducerListener2 listener = mProducerContext.getProducerListener();
+      listener.onProducerStart(mProducerContext, PRODUCER_NAME);
+      listener.onProducerFinishWithSuccess(
+          mProducerContext,
+          PRODUCER_NAME,
+          getExtraMap(
+              encodedImage,
+              mProducerContext.getImageRequest().getResizeOptions(),
+              resizePlan,
+              null,
+              null));
     }
 
     private @Nullable EncodedImage getNewResultForImagesWithoutExifData(EncodedImage encodedImage) {
@@ -237,6 +294,9 @@ public class ResizeAndRotateProducer implements Producer<EncodedImage> {
             getExtraMap(
                 encodedImage,
                 imageRequest.getResizeOptions(),
+                result.getTranscodeStatus() == TranscodeStatus.TRANSCODING_NO_RESIZING
+                    ? ResizePlan.NONE
+                    : ResizePlan.TRANSCODE,
                 result,
                 imageTranscoder.getIdentifier());
 
@@ -276,6 +336,7 @@ public class ResizeAndRotateProducer implements Producer<EncodedImage> {
     private @Nullable Map<String, String> getExtraMap(
         EncodedImage encodedImage,
         @Nullable ResizeOptions resizeOptions,
+        ResizePlan resizePlan,
         @Nullable ImageTranscodeResult transcodeResult,
         @Nullable String transcoderId) {
       if (!mProducerContext
@@ -296,9 +357,13 @@ public class ResizeAndRotateProducer implements Producer<EncodedImage> {
       map.put(INPUT_IMAGE_FORMAT, String.valueOf(encodedImage.getImageFormat()));
       map.put(ORIGINAL_SIZE_KEY, originalSize);
       map.put(REQUESTED_SIZE_KEY, requestedSize);
-      map.put(JobScheduler.QUEUE_TIME_KEY, String.valueOf(mJobScheduler.getQueuedTime()));
-      map.put(TRANSCODER_ID, transcoderId);
-      map.put(TRANSCODING_RESULT, String.valueOf(transcodeResult));
+      map.put(RESIZE_STRATEGY, resizePlan.getStrategyName());
+      map.put(SAMPLE_SIZE, String.valueOf(resizePlan.getSampleSize()));
+      if (transcodeResult != null) {
+        map.put(JobScheduler.QUEUE_TIME_KEY, String.valueOf(mJobScheduler.getQueuedTime()));
+        map.put(TRANSCODER_ID, transcoderId);
+        map.put(TRANSCODING_RESULT, String.valueOf(transcodeResult));
+      }
       return ImmutableMap.copyOf(map);
     }
   }
@@ -27,6 +27,7 @@ import com.facebook.imagepipeline.common.ImageDecodeOptions;
 import com.facebook.imagepipeline.common.Priority;
 import com.facebook.imagepipeline.common.ResizeOptions;
 import com.facebook.imagepipeline.common.RotationOptions;
+import com.facebook.imagepipeline.common.TileOptions;
 import com.facebook.imagepipeline.common.SourceUriType;
 import com.facebook.imagepipeline.listener.RequestListener;
 import com.facebook.imageutils.BitmapUtil;
@@ -62,6 +63,9 @@ public class ImageRequest {
   /** resize options */
   private final @Nullable ResizeOptions mResizeOptions;
 
+  /** Tile options, decode only the given region of the image if set */
+  private final @Nullable TileOptions mTileOptions;
+
   /** rotation options */
   private final RotationOptions mRotationOptions;
 
@@ -122,6 +126,7 @@ public class ImageRequest {
     mImageDecodeOptions = builder.getImageDecodeOptions();
 
     mResizeOptions = builder.getResizeOptions();
+    mTileOptions = builder.getTileOptions();
     mRotationOptions =
         builder.getRotationOptions() == null
             ? RotationOptions.autoRotate()
@@ -165,6 +170,10 @@ public class ImageRequest {
     return mResizeOptions;
   }
 
+  public @Nullable TileOptions getTileOptions() {
+    return mTileOptions;
+  }
+
   public RotationOptions getRotationOptions() {
     return mRotationOptions;
   }
@@ -246,6 +255,7 @@ public class ImageRequest {
         || !Objects.equal(mBytesRange, request.mBytesRange)
         || !Objects.equal(mImageDecodeOptions, request.mImageDecodeOptions)
         || !Objects.equal(mResizeOptions, request.mResizeOptions)
+        || !Objects.equal(mTileOptions, request.mTileOptions)
         || !Objects.equal(mRequestPriority, request.mRequestPriority)
         || !Objects.equal(mLowestPermittedRequestLevel, request.mLowestPermittedRequestLevel)
         || !Objects.equal(mDecodePrefetches, request.mDecodePrefetches)
@@ -276,6 +286,7 @@ public class ImageRequest {
         mImageDecodeOptions,
         mDecodePrefetches,
         mResizeOptions,
+        mTileOptions,
         mRotationOptions,
         postprocessorCacheKey,
         mResizingAllowedOverride);
@@ -290,6 +301,7 @@ public class ImageRequest {
         .add("postprocessor", mPostprocessor)
         .add("priority", mRequestPriority)
         .add("resizeOptions", mResizeOptions)
+        .add("tileOptions", mTileOptions)
         .add("rotationOptions", mRotationOptions)
         .add("bytesRange", mBytesRange)
         .add("resizingAllowedOverride", mResizingAllowedOverride)
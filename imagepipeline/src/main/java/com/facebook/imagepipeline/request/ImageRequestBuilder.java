@@ -11,13 +11,16 @@ import static com.facebook.imagepipeline.request.ImageRequest.CacheChoice;
 import static com.facebook.imagepipeline.request.ImageRequest.RequestLevel;
 
 import android.net.Uri;
+import android.os.Build;
 import com.facebook.common.internal.Preconditions;
+import com.facebook.common.media.MediaUtils;
 import com.facebook.common.util.UriUtil;
 import com.facebook.imagepipeline.common.BytesRange;
 import com.facebook.imagepipeline.common.ImageDecodeOptions;
 import com.facebook.imagepipeline.common.Priority;
 import com.facebook.imagepipeline.common.ResizeOptions;
 import com.facebook.imagepipeline.common.RotationOptions;
+import com.facebook.imagepipeline.common.TileOptions;
 import com.facebook.imagepipeline.core.ImagePipelineConfig;
 import com.facebook.imagepipeline.core.ImagePipelineExperiments;
 import com.facebook.imagepipeline.listener.RequestListener;
@@ -29,6 +32,7 @@ public class ImageRequestBuilder {
   private Uri mSourceUri = null;
   private RequestLevel mLowestPermittedRequestLevel = RequestLevel.FULL_FETCH;
   private @Nullable ResizeOptions mResizeOptions = null;
+  private @Nullable TileOptions mTileOptions = null;
   private @Nullable RotationOptions mRotationOptions = null;
   private ImageDecodeOptions mImageDecodeOptions = ImageDecodeOptions.defaults();
   private CacheChoice mCacheChoice = CacheChoice.DEFAULT;
@@ -92,6 +96,7 @@ public class ImageRequestBuilder {
         .setProgressiveRenderingEnabled(imageRequest.getProgressiveRenderingEnabled())
         .setRequestPriority(imageRequest.getPriority())
         .setResizeOptions(imageRequest.getResizeOptions())
+        .setTileOptions(imageRequest.getTileOptions())
         .setRequestListener(imageRequest.getRequestListener())
         .setRotationOptions(imageRequest.getRotationOptions())
         .setShouldDecodePrefetches(imageRequest.shouldDecodePrefetches());
@@ -166,6 +171,24 @@ public class ImageRequestBuilder {
     return mResizeOptions;
   }
 
+  /**
+   * Sets tile options in case only a region of the image should be decoded. Tiles are decoded with
+   * a region decoder and cached separately in the bitmap memory cache. Requires API level 10. Only
+   * supported for network and local image file uris, and cannot be combined with resize options.
+   *
+   * @param tileOptions tile options
+   * @return the modified builder instance
+   */
+  public ImageRequestBuilder setTileOptions(@Nullable TileOptions tileOptions) {
+    mTileOptions = tileOptions;
+    return this;
+  }
+
+  /** Gets the tile options if set, null otherwise. */
+  public @Nullable TileOptions getTileOptions() {
+    return mTileOptions;
+  }
+
   /**
    * Sets rotation options for the image, whether to rotate by a multiple of 90 degrees, use the
    * EXIF metadata (relevant to JPEGs only) or to not rotate. This also specifies whether the
@@ -399,5 +422,22 @@ public class ImageRequestBuilder {
     if (UriUtil.isLocalAssetUri(mSourceUri) && !mSourceUri.isAbsolute()) {
       throw new BuilderException("Asset URI path must be absolute.");
     }
+
+    // Tiles are decoded from the full-size encoded image, which we only keep for these sources.
+    if (mTileOptions != null) {
+      if (Build.VERSION.SDK_INT < Build.VERSION_CODES.GINGERBREAD_MR1) {
+        throw new BuilderException("Tiled decoding requires API level 10.");
+      }
+      if (!UriUtil.isNetworkUri(mSourceUri) && !UriUtil.isLocalFileUri(mSourceUri)) {
+        throw new BuilderException("Tiled decoding requires a network or local file URI.");
+      }
+      if (UriUtil.isLocalFileUri(mSourceUri)
+          && MediaUtils.isVideo(MediaUtils.extractMime(mSourceUri.getPath()))) {
+        throw new BuilderException("Tiled decoding is not supported for videos.");
+      }
+      if (mResizeOptions != null) {
+        throw new BuilderException("Tile options cannot be combined with resize options.");
+      }
+    }
   }
 }
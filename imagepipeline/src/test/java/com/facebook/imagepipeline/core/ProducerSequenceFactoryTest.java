@@ -28,6 +28,7 @@ import com.facebook.common.memory.PooledByteBuffer;
 import com.facebook.common.references.CloseableReference;
 import com.facebook.common.util.UriUtil;
 import com.facebook.imageformat.ImageFormat;
+import com.facebook.imagepipeline.common.TileOptions;
 import com.facebook.imagepipeline.image.CloseableImage;
 import com.facebook.imagepipeline.producers.Producer;
 import com.facebook.imagepipeline.request.ImageRequest;
@@ -103,6 +104,30 @@ public class ProducerSequenceFactoryTest {
     assertSame(producer, mProducerSequenceFactory.mNetworkFetchSequence);
   }
 
+  @Test
+  public void testNetworkTileFetch() {
+    PowerMockito.when(mImageRequest.getSourceUriType()).thenReturn(SOURCE_TYPE_NETWORK);
+    when(mImageRequest.getTileOptions()).thenReturn(new TileOptions(0, 0, 256, 256, 1));
+    Producer producer = mProducerSequenceFactory.getDecodedImageProducerSequence(mImageRequest);
+    assertSame(producer, mProducerSequenceFactory.mNetworkTileFetchSequence);
+    assertNotSame(producer, mProducerSequenceFactory.mNetworkFetchSequence);
+  }
+
+  @Test
+  public void testLocalImageFileTileFetch() {
+    PowerMockito.when(mImageRequest.getSourceUriType()).thenReturn(SOURCE_TYPE_LOCAL_IMAGE_FILE);
+    when(mImageRequest.getTileOptions()).thenReturn(new TileOptions(0, 0, 256, 256, 1));
+    Producer producer = mProducerSequenceFactory.getDecodedImageProducerSequence(mImageRequest);
+    assertSame(producer, mProducerSequenceFactory.mLocalImageFileTileFetchSequence);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTileFetchUnsupportedSource() {
+    PowerMockito.when(mImageRequest.getSourceUriType()).thenReturn(SOURCE_TYPE_LOCAL_ASSET);
+    when(mImageRequest.getTileOptions()).thenReturn(new TileOptions(0, 0, 256, 256, 1));
+    mProducerSequenceFactory.getDecodedImageProducerSequence(mImageRequest);
+  }
+
   @Test
   public void testNetworkFullPrefetch() {
     PowerMockito.when(mImageRequest.getSourceUriType()).thenReturn(SOURCE_TYPE_NETWORK);
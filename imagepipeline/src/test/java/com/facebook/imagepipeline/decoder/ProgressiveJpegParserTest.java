@@ -114,6 +114,49 @@ public class ProgressiveJpegParserTest {
     testFirstNBytes(mJpegBytes, mJpegBytes.length, true, 10, 32844);
   }
 
+  @Test
+  public void testIsProgressive() {
+    mProgressiveJpegParser.parseMoreData(
+        buildEncodedImage(new TrivialPooledByteBuffer(Arrays.copyOf(mJpegBytes, 800))));
+    assertTrue(mProgressiveJpegParser.isProgressive());
+    assertFalse(mProgressiveJpegParser.isFirstScanStarted());
+
+    mProgressiveJpegParser.parseMoreData(
+        buildEncodedImage(new TrivialPooledByteBuffer(Arrays.copyOf(mJpegBytes, 1000))));
+    assertTrue(mProgressiveJpegParser.isFirstScanStarted());
+  }
+
+  @Test
+  public void testIsNotProgressive() {
+    byte[] baselineJpeg =
+        new byte[] {
+          (byte) 0xff, (byte) 0xd8, (byte) 0xff, (byte) 0xc0, (byte) 0x00, (byte) 0x03,
+          (byte) 0x00, (byte) 0xff, (byte) 0xda, (byte) 0x00, (byte) 0x03, (byte) 0x00
+        };
+    mProgressiveJpegParser.parseMoreData(
+        buildEncodedImage(new TrivialPooledByteBuffer(baselineJpeg)));
+    assertTrue(mProgressiveJpegParser.isFirstScanStarted());
+    assertFalse(mProgressiveJpegParser.isProgressive());
+  }
+
+  @Test
+  public void testScanBoundaryOffsets() {
+    ByteArrayPool byteArrayPool = mock(ByteArrayPool.class);
+    when(byteArrayPool.get(anyInt())).thenReturn(new byte[10]);
+    ProgressiveJpegParser parser = new ProgressiveJpegParser(byteArrayPool, true);
+
+    parser.parseMoreData(buildEncodedImage(new TrivialPooledByteBuffer(mJpegBytes)));
+
+    assertArrayEquals(
+        new int[] {832, 4332, 8633, 9401, 10106, 12982, 20641, 21490, 22587, 23658, 32844},
+        parser.getScanBoundaryOffsets());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testScanBoundaryOffsetsNotRecorded() {
+    mProgressiveJpegParser.getScanBoundaryOffsets();
+  }
+
   /**
    * Feeds mProgressiveJpegParser with n initial bytes from byteArray and checks that
    *
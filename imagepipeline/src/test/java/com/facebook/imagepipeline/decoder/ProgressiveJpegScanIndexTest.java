@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.decoder;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.*;
+
+import com.facebook.common.internal.ByteStreams;
+import com.facebook.common.memory.ByteArrayPool;
+import com.facebook.common.memory.PooledByteBuffer;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imagepipeline.image.EncodedImage;
+import com.facebook.imagepipeline.testing.TrivialPooledByteBuffer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.*;
+import org.junit.runner.*;
+import org.robolectric.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProgressiveJpegScanIndexTest {
+
+  // The test image is 550x468 and has the 10 scans of the default libjpeg progression: the DC
+  // coefficients and all AC bands are first sent without their low-order bits (Al > 0) and only
+  // refined to full precision by scans 7 to 10
+  private static final int IMAGE_WIDTH = 550;
+  private static final int IMAGE_HEIGHT = 468;
+
+  private ByteArrayPool mByteArrayPool;
+  private ProgressiveJpegConfig mProgressiveJpegConfig;
+  private byte[] mJpegBytes;
+  private EncodedImage mEncodedImage;
+
+  @Before
+  public void setUp() throws IOException {
+    mByteArrayPool = mock(ByteArrayPool.class);
+    when(mByteArrayPool.get(anyInt())).thenReturn(new byte[10]);
+    mProgressiveJpegConfig = new SimpleProgressiveJpegConfig();
+    mJpegBytes =
+        ByteStreams.toByteArray(
+            ProgressiveJpegScanIndexTest.class.getResourceAsStream("images/image.jpg"));
+    mEncodedImage = buildEncodedImage(mJpegBytes);
+  }
+
+  @After
+  public void tearDown() {
+    EncodedImage.closeSafely(mEncodedImage);
+  }
+
+  @Test
+  public void testCreate() {
+    ProgressiveJpegScanIndex index = ProgressiveJpegScanIndex.create(mEncodedImage, mByteArrayPool);
+
+    assertNotNull(index);
+    assertEquals(10, index.getScanCount());
+  }
+
+  @Test
+  public void testCreate_incompleteImage() {
+    EncodedImage partialImage = buildEncodedImage(Arrays.copyOf(mJpegBytes, 20000));
+
+    assertNull(ProgressiveJpegScanIndex.create(partialImage, mByteArrayPool));
+    partialImage.close();
+  }
+
+  @Test
+  public void testCreate_baselineImage() {
+    byte[] baselineBytes = Arrays.copyOf(mJpegBytes, mJpegBytes.length);
+    for (int i = 0; i < baselineBytes.length - 1; i++) {
+      if ((baselineBytes[i] & 0xFF) == 0xFF && (baselineBytes[i + 1] & 0xFF) == 0xC2) {
+        // SOF2 (progressive) to SOF0 (baseline)
+        baselineBytes[i + 1] = (byte) 0xC0;
+        break;
+      }
+    }
+    EncodedImage baselineImage = buildEncodedImage(baselineBytes);
+
+    assertNull(ProgressiveJpegScanIndex.create(baselineImage, mByteArrayPool));
+    baselineImage.close();
+  }
+
+  @Test
+  public void testCreate_metaDataNotParsed() {
+    EncodedImage image =
+        new EncodedImage(
+            CloseableReference.<PooledByteBuffer>of(new TrivialPooledByteBuffer(mJpegBytes)));
+
+    assertNull(ProgressiveJpegScanIndex.create(image, mByteArrayPool));
+    image.close();
+  }
+
+  @Test
+  public void testGetPrefixLength() {
+    ProgressiveJpegScanIndex index = ProgressiveJpegScanIndex.create(mEncodedImage, mByteArrayPool);
+
+    // 1/8 of the size only needs the DC coefficients, refined to full precision in scan 7
+    assertEquals(21490, index.getPrefixLength(58, 50, mProgressiveJpegConfig));
+    // 1/4 and 1/2 of the size need AC coefficients of the luma, refined only by the last scan
+    assertEquals(0, index.getPrefixLength(117, 100, mProgressiveJpegConfig));
+    assertEquals(0, index.getPrefixLength(234, 200, mProgressiveJpegConfig));
+    // Larger targets read the whole image
+    assertEquals(0, index.getPrefixLength(300, 200, mProgressiveJpegConfig));
+    assertEquals(0, index.getPrefixLength(0, 0, mProgressiveJpegConfig));
+  }
+
+  @Test
+  public void testGetPrefixLength_ignoresScansWithoutLowOrderBits() {
+    ProgressiveJpegScanIndex index = ProgressiveJpegScanIndex.create(mEncodedImage, mByteArrayPool);
+
+    // The first scan sends all DC coefficients, but with a point transform of 1, so decoding only
+    // the first scan would give a full quality image with reduced precision
+    for (int targetSize = 1; targetSize <= 234; targetSize++) {
+      final int prefixLength =
+          index.getPrefixLength(targetSize, targetSize, mProgressiveJpegConfig);
+      assertTrue(prefixLength == 0 || prefixLength >= 21490);
+    }
+  }
+
+  @Test
+  public void testGetPrefixLength_respectsGoodEnoughScanNumber() {
+    ProgressiveJpegScanIndex index = ProgressiveJpegScanIndex.create(mEncodedImage, mByteArrayPool);
+    ProgressiveJpegConfig config =
+        new SimpleProgressiveJpegConfig(
+            new SimpleProgressiveJpegConfig.DynamicValueConfig() {
+              @Override
+              public List<Integer> getScansToDecode() {
+                return Collections.emptyList();
+              }
+
+              @Override
+              public int getGoodEnoughScanNumber() {
+                return 8;
+              }
+            });
+
+    assertEquals(22587, index.getPrefixLength(58, 50, config));
+  }
+
+  @Test
+  public void testSerialization() throws IOException {
+    ProgressiveJpegScanIndex index = ProgressiveJpegScanIndex.create(mEncodedImage, mByteArrayPool);
+
+    ProgressiveJpegScanIndex readIndex =
+        ProgressiveJpegScanIndex.fromInputStream(new ByteArrayInputStream(index.toByteArray()));
+
+    assertEquals(index, readIndex);
+  }
+
+  @Test
+  public void testSerialization_invalidData() throws IOException {
+    assertNull(ProgressiveJpegScanIndex.fromInputStream(new ByteArrayInputStream(new byte[16])));
+  }
+
+  private static EncodedImage buildEncodedImage(byte[] bytes) {
+    EncodedImage encodedImage =
+        new EncodedImage(
+            CloseableReference.<PooledByteBuffer>of(new TrivialPooledByteBuffer(bytes)));
+    encodedImage.setWidth(IMAGE_WIDTH);
+    encodedImage.setHeight(IMAGE_HEIGHT);
+    return encodedImage;
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.filter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import android.graphics.Bitmap;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class AreaAveragingDownscalerTest {
+
+  @Test
+  public void testUniformColorIsKept() {
+    final int[] pixels = new int[300 * 200];
+    Arrays.fill(pixels, 0xFF336699);
+
+    final int[] scaled = AreaAveragingDownscaler.downscalePixels(pixels, 300, 200, 77, 31, false);
+
+    final int[] expected = new int[77 * 31];
+    Arrays.fill(expected, 0xFF336699);
+    assertArrayEquals(expected, scaled);
+  }
+
+  @Test
+  public void testAveragesCoveredPixels() {
+    final int[] pixels = {
+      0xFF000000, 0xFFFFFFFF, 0xFF102030, 0xFF102030,
+      0xFFFFFFFF, 0xFF000000, 0xFF102030, 0xFF102030
+    };
+
+    final int[] scaled = AreaAveragingDownscaler.downscalePixels(pixels, 4, 2, 2, 1, false);
+
+    assertArrayEquals(new int[] {0xFF808080, 0xFF102030}, scaled);
+  }
+
+  @Test
+  public void testWeightsPartiallyCoveredPixels() {
+    final int[] pixels = {0xFF000000, 0xFF000000, 0xFFFFFFFF};
+
+    final int[] scaled = AreaAveragingDownscaler.downscalePixels(pixels, 3, 1, 2, 1, false);
+
+    // the middle pixel is split between both destination pixels
+    assertArrayEquals(new int[] {0xFF000000, 0xFFAAAAAA}, scaled);
+  }
+
+  @Test
+  public void testTransparentPixelsDoNotBleed() {
+    final int[] pixels = {0x00FF0000, 0xFF0000FF};
+
+    final int[] scaled = AreaAveragingDownscaler.downscalePixels(pixels, 2, 1, 1, 1, true);
+
+    assertArrayEquals(new int[] {0x800000FF}, scaled);
+  }
+
+  @Test
+  public void testDownscaleBitmap() {
+    final Bitmap source = Bitmap.createBitmap(400, 300, Bitmap.Config.ARGB_8888);
+    final Bitmap destination = Bitmap.createBitmap(130, 97, Bitmap.Config.ARGB_8888);
+
+    AreaAveragingDownscaler.downscale(source, destination);
+
+    assertEquals(130, destination.getWidth());
+    assertEquals(97, destination.getHeight());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDoesNotUpscale() {
+    AreaAveragingDownscaler.downscale(
+        Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888),
+        Bitmap.createBitmap(200, 50, Bitmap.Config.ARGB_8888));
+  }
+}
@@ -7,11 +7,17 @@
 
 package com.facebook.imagepipeline.filter;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import android.graphics.Bitmap;
 import com.facebook.imageutils.BitmapUtil;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
@@ -24,6 +30,12 @@ public class IterativeBoxBlurFilterTest {
   private final int BITMAP_SIZE = (int) BitmapUtil.MAX_BITMAP_SIZE;
   private final Bitmap mBitmap =
       Bitmap.createBitmap(BITMAP_SIZE, BITMAP_SIZE, Bitmap.Config.ARGB_8888);
+  private final ExecutorService mExecutor = Executors.newFixedThreadPool(3);
+
+  @After
+  public void tearDown() {
+    mExecutor.shutdownNow();
+  }
 
   @Test
   public void testBitmapBlurInPlace() {
@@ -58,4 +70,106 @@ public class IterativeBoxBlurFilterTest {
     IterativeBoxBlurFilter.boxBlurBitmapInPlace(
         mBitmap, 1, RenderScriptBlurFilter.BLUR_MAX_RADIUS + 1);
   }
+
+  @Test
+  public void testParallelBitmapBlurInPlace() {
+    IterativeBoxBlurFilter.boxBlurBitmapInPlace(mBitmap, 2, 4, mExecutor, 4);
+    assertNotNull(mBitmap);
+    assertEquals(mBitmap.getWidth(), BITMAP_SIZE);
+    assertEquals(mBitmap.getHeight(), BITMAP_SIZE);
+    assertEquals(mBitmap.getConfig(), Bitmap.Config.ARGB_8888);
+  }
+
+  @Test
+  public void testParallelBlurMatchesSerialBlur() {
+    final int width = 301;
+    final int height = 97;
+    final int[] serial = createRandomPixels(width, height);
+    final int[] parallel = serial.clone();
+
+    IterativeBoxBlurFilter.boxBlurPixels(serial, width, height, 3, 10, null, 1);
+    IterativeBoxBlurFilter.boxBlurPixels(parallel, width, height, 3, 10, mExecutor, 4);
+
+    assertArrayEquals(serial, parallel);
+  }
+
+  @Test
+  public void testParallelBlurWithBusyExecutorMatchesSerialBlur() {
+    final int width = 64;
+    final int height = 200;
+    final int[] serial = createRandomPixels(width, height);
+    final int[] parallel = serial.clone();
+    final ExecutorService busyExecutor = Executors.newSingleThreadExecutor();
+    // The calling thread picks up all stripes that the busy executor does not get to
+    busyExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              Thread.sleep(Long.MAX_VALUE);
+            } catch (InterruptedException e) {
+              // Test is done
+            }
+          }
+        });
+
+    IterativeBoxBlurFilter.boxBlurPixels(serial, width, height, 2, 25, null, 1);
+    IterativeBoxBlurFilter.boxBlurPixels(parallel, width, height, 2, 25, busyExecutor, 8);
+    busyExecutor.shutdownNow();
+
+    assertArrayEquals(serial, parallel);
+  }
+
+  @Test(expected = ArrayIndexOutOfBoundsException.class)
+  public void testParallelBlurRethrowsWorkerFailure() {
+    final int width = 64;
+    final int height = 200;
+    // The last row is one pixel short, so only the stripe containing it fails
+    final int[] pixels = new int[width * height - 1];
+    // Every worker finishes before execute() returns, so the calling thread gets no stripe
+    final Executor blockingExecutor =
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            final Thread worker = new Thread(command);
+            worker.start();
+            try {
+              worker.join();
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+          }
+        };
+
+    IterativeBoxBlurFilter.boxBlurPixels(pixels, width, height, 1, 4, blockingExecutor, 2);
+  }
+
+  @Test
+  public void testParallelBlurWithRejectingExecutorMatchesSerialBlur() {
+    final int width = 64;
+    final int height = 200;
+    final int[] serial = createRandomPixels(width, height);
+    final int[] parallel = serial.clone();
+    final ExecutorService shutDownExecutor = Executors.newSingleThreadExecutor();
+    shutDownExecutor.shutdown();
+
+    IterativeBoxBlurFilter.boxBlurPixels(serial, width, height, 2, 25, null, 1);
+    IterativeBoxBlurFilter.boxBlurPixels(parallel, width, height, 2, 25, shutDownExecutor, 4);
+
+    assertArrayEquals(serial, parallel);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidParallelismBlurInPlace() {
+    IterativeBoxBlurFilter.boxBlurBitmapInPlace(mBitmap, 1, 4, mExecutor, 0);
+  }
+
+  private static int[] createRandomPixels(int width, int height) {
+    final Random random = new Random(42);
+    final int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt();
+    }
+    return pixels;
+  }
 }
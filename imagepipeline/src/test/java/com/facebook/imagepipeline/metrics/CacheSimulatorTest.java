@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.facebook.cache.common.SimpleCacheKey;
+import com.facebook.imagepipeline.cache.MemoryCacheParams;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class CacheSimulatorTest {
+
+  private static final double DELTA = 1e-9;
+
+  @Test
+  public void testReplaysLookupsOfTier() {
+    final CacheTraceRecorder recorder = new CacheTraceRecorder(100);
+    // a b a c b a, every key 1 byte
+    for (String key : new String[] {"a", "b", "a", "c", "b", "a"}) {
+      recorder.onBitmapCacheMiss(new SimpleCacheKey(key));
+      recorder.onBitmapCachePut(new SimpleCacheKey(key));
+      recorder.onDiskCacheHit(new SimpleCacheKey(key));
+    }
+    final CacheSimulator simulator =
+        new CacheSimulator(recorder.getTrace(), CacheTier.BITMAP_MEMORY, 1);
+    assertEquals(6, simulator.getAccessCount());
+
+    final HitRatioCurve lru = simulator.simulate("lru", CacheSimulator.lru(), new long[] {1, 2, 3});
+    assertEquals(3, lru.getPointCount());
+    assertEquals(0, lru.getHitRatio(0), DELTA);
+    assertEquals(1.0 / 6, lru.getHitRatio(1), DELTA);
+    assertEquals(3.0 / 6, lru.getHitRatio(2), DELTA);
+    assertEquals(3, lru.getCapacityForHitRatio(0.5));
+    assertEquals(-1, lru.getCapacityForHitRatio(0.6));
+
+    final HitRatioCurve fifo = simulator.simulate("fifo", CacheSimulator.fifo(), new long[] {2});
+    // c evicts a although it was used after b, so b hits
+    assertEquals(2.0 / 6, fifo.getHitRatio(0), DELTA);
+    assertEquals("policy,capacity,hit_ratio,byte_hit_ratio\nfifo,2,0.3333,0.3333\n", fifo.toCsv());
+  }
+
+  @Test
+  public void testCountsTwoProbesOfRequestOnce() {
+    final CacheTraceRecorder recorder = new CacheTraceRecorder(100);
+    // Every request misses before and after the thread handoff, a b a b
+    for (String key : new String[] {"a", "b", "a", "b"}) {
+      recorder.onBitmapCacheMiss(new SimpleCacheKey(key));
+      recorder.onBitmapCacheMiss(new SimpleCacheKey(key));
+      recorder.onBitmapCachePut(new SimpleCacheKey(key));
+    }
+    // A miss, then a hit of the second probe, as another request cached the image meanwhile
+    recorder.onBitmapCacheMiss(new SimpleCacheKey("c"));
+    recorder.onBitmapCacheHit(new SimpleCacheKey("c"));
+    // Requests that hit right away are only looked up once
+    recorder.onBitmapCacheHit(new SimpleCacheKey("c"));
+    recorder.onBitmapCacheHit(new SimpleCacheKey("c"));
+    final CacheSimulator simulator =
+        new CacheSimulator(recorder.getTrace(), CacheTier.BITMAP_MEMORY, 1);
+    assertEquals(7, simulator.getAccessCount());
+
+    final HitRatioCurve lru = simulator.simulate("lru", CacheSimulator.lru(), new long[] {1, 2});
+    assertEquals(2.0 / 7, lru.getHitRatio(0), DELTA);
+    assertEquals(4.0 / 7, lru.getHitRatio(1), DELTA);
+  }
+
+  @Test
+  public void testReplaysRepeatedMissesOfOtherTiers() {
+    final CacheTraceRecorder recorder = new CacheTraceRecorder(100);
+    // Two requests for the same image that both miss the disk cache
+    recorder.onDiskCacheMiss(new SimpleCacheKey("a"));
+    recorder.onDiskCacheMiss(new SimpleCacheKey("a"));
+    final CacheSimulator simulator = new CacheSimulator(recorder.getTrace(), CacheTier.DISK, 1);
+    assertEquals(2, simulator.getAccessCount());
+
+    final HitRatioCurve lru = simulator.simulate("lru", CacheSimulator.lru(), new long[] {1});
+    assertEquals(0.5, lru.getHitRatio(0), DELTA);
+  }
+
+  @Test
+  public void testCountsBytes() {
+    final CacheTraceRecorder recorder = new CacheTraceRecorder(100);
+    for (String key : new String[] {"small", "large", "small", "large"}) {
+      recorder.onDiskCacheMiss(new SimpleCacheKey(key));
+    }
+    recorder.onWriteSuccess(CacheTraceRecorderTest.writeEvent(new SimpleCacheKey("large"), 30));
+    final CacheSimulator simulator = new CacheSimulator(recorder.getTrace(), CacheTier.DISK, 10);
+
+    final HitRatioCurve curve = simulator.simulate("lru", CacheSimulator.lru(), new long[] {20});
+    // The large entry does not fit
+    assertEquals(0.25, curve.getHitRatio(0), DELTA);
+    assertEquals(10.0 / 80, curve.getByteHitRatio(0), DELTA);
+  }
+
+  @Test
+  public void testDiskStorageCacheEvictsBelowLimit() {
+    final CacheTraceRecorder recorder = new CacheTraceRecorder(100);
+    for (String key : new String[] {"a", "b", "c", "d", "c", "a"}) {
+      recorder.onDiskCacheMiss(new SimpleCacheKey(key));
+    }
+    final CacheSimulator simulator = new CacheSimulator(recorder.getTrace(), CacheTier.DISK, 1);
+
+    // a b c go over the limit of 2, so d first evicts a and b down to 90% of it
+    final HitRatioCurve curve =
+        simulator.simulate("disk", CacheSimulator.diskStorageCache(), new long[] {2});
+    assertEquals(1.0 / 6, curve.getHitRatio(0), DELTA);
+  }
+
+  @Test
+  public void testCountingMemoryCacheEvictsLeastRecentlyUsed() {
+    final CacheTraceRecorder recorder = new CacheTraceRecorder(10000);
+    final Random random = new Random(42);
+    for (int i = 0; i < 5000; i++) {
+      final int keyNumber = (int) Math.abs(random.nextGaussian() * 100);
+      final SimpleCacheKey key = new SimpleCacheKey(String.valueOf(keyNumber));
+      recorder.onMemoryCacheHit(key);
+      recorder.onWriteSuccess(CacheTraceRecorderTest.writeEvent(key, 1 + keyNumber % 7));
+    }
+    final CacheSimulator simulator =
+        new CacheSimulator(recorder.getTrace(), CacheTier.ENCODED_MEMORY, 1);
+    final long[] capacities = CacheSimulator.capacities(10, 1000, 5);
+    assertArrayEquals(new long[] {10, 32, 100, 316, 1000}, capacities);
+
+    final HitRatioCurve lru = simulator.simulate("lru", CacheSimulator.lru(), capacities);
+    final HitRatioCurve counting =
+        simulator.simulate("counting", CacheSimulator.countingMemoryCache(), capacities);
+    for (int i = 0; i < capacities.length; i++) {
+      assertEquals(lru.getHitRatio(i), counting.getHitRatio(i), DELTA);
+      assertEquals(lru.getByteHitRatio(i), counting.getByteHitRatio(i), DELTA);
+      if (i > 0) {
+        assertTrue(lru.getHitRatio(i) > lru.getHitRatio(i - 1));
+      }
+    }
+  }
+
+  @Test
+  public void testFrequencyAdmissionResistsScans() {
+    final CacheTraceRecorder recorder = new CacheTraceRecorder(10000);
+    // 10 images shown all the time, with a scroll through 50 images that are shown once in between
+    int scanKey = 0;
+    for (int round = 0; round < 20; round++) {
+      for (int i = 0; i < 10; i++) {
+        recorder.onBitmapCacheHit(new SimpleCacheKey("hot" + i));
+      }
+      for (int i = 0; i < 50; i++) {
+        recorder.onBitmapCacheMiss(new SimpleCacheKey("scan" + scanKey++));
+      }
+    }
+    final CacheSimulator simulator =
+        new CacheSimulator(recorder.getTrace(), CacheTier.BITMAP_MEMORY, 1);
+    final long[] capacities = {20, 40};
+
+    final HitRatioCurve lru =
+        simulator.simulate("lru", CacheSimulator.countingMemoryCache(), capacities);
+    final HitRatioCurve tinyLfu =
+        simulator.simulate(
+            "tiny_lfu",
+            CacheSimulator.countingMemoryCache(
+                new CacheSimulator.MemoryCacheParamsFactory() {
+                  @Override
+                  public MemoryCacheParams create(int capacity) {
+                    return new MemoryCacheParams(
+                        capacity,
+                        Integer.MAX_VALUE,
+                        capacity,
+                        Integer.MAX_VALUE,
+                        Integer.MAX_VALUE,
+                        TimeUnit.MINUTES.toMillis(5),
+                        4 * capacity);
+                  }
+                }),
+            capacities);
+
+    for (int i = 0; i < capacities.length; i++) {
+      // The scroll flushes the LRU cache. With the filter, the images shown all the time only
+      // miss until they were requested more often than the images of a scroll
+      assertEquals(0, lru.getHitRatio(i), DELTA);
+      assertEquals(180.0 / 1200, tinyLfu.getHitRatio(i), DELTA);
+    }
+  }
+}
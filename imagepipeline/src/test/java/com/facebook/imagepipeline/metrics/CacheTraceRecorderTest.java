@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.facebook.cache.common.CacheEvent;
+import com.facebook.cache.common.CacheKey;
+import com.facebook.cache.common.SimpleCacheKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CacheTraceRecorderTest {
+
+  private CacheTraceRecorder mRecorder;
+  private CacheKey mKey1;
+  private CacheKey mKey2;
+
+  @Before
+  public void setUp() {
+    mRecorder = new CacheTraceRecorder(5);
+    mKey1 = new SimpleCacheKey("http://fresco/1");
+    mKey2 = new SimpleCacheKey("http://fresco/2");
+  }
+
+  @Test
+  public void testRecordsEventsAndSizes() {
+    mRecorder.onBitmapCacheMiss(mKey1);
+    mRecorder.onMemoryCacheMiss(mKey1);
+    mRecorder.onDiskCacheHit(new SimpleCacheKey("http://fresco/1"));
+    mRecorder.onWriteSuccess(writeEvent(mKey2, 2048));
+    mRecorder.onMemoryCachePut(mKey2);
+
+    final CacheTrace trace = mRecorder.getTrace();
+    assertEquals(4, trace.getEventCount());
+    assertEquals(2, trace.getKeyCount());
+    assertEvent(trace, 0, CacheTier.BITMAP_MEMORY, CacheTrace.EVENT_MISS, 0);
+    assertEvent(trace, 1, CacheTier.ENCODED_MEMORY, CacheTrace.EVENT_MISS, 0);
+    assertEvent(trace, 2, CacheTier.DISK, CacheTrace.EVENT_HIT, 0);
+    assertEvent(trace, 3, CacheTier.ENCODED_MEMORY, CacheTrace.EVENT_PUT, 1);
+    assertEquals(CacheTrace.UNKNOWN_SIZE, trace.getSize(0));
+    assertEquals(2048, trace.getSize(1));
+  }
+
+  @Test
+  public void testDropsEventsOnceFull() {
+    for (int i = 0; i < 7; i++) {
+      mRecorder.onBitmapCacheHit(i % 2 == 0 ? mKey1 : mKey2);
+    }
+    assertEquals(5, mRecorder.getTrace().getEventCount());
+    assertEquals(2, mRecorder.getDroppedEventCount());
+
+    mRecorder.clear();
+    mRecorder.onBitmapCacheHit(mKey2);
+    assertEquals(0, mRecorder.getDroppedEventCount());
+    assertEquals(1, mRecorder.getTrace().getEventCount());
+    assertEquals(0, mRecorder.getTrace().getKeyId(0));
+  }
+
+  @Test
+  public void testWritesAndReadsTrace() throws IOException {
+    mRecorder.onStagingAreaMiss(mKey1);
+    mRecorder.onDiskCacheMiss(mKey1);
+    mRecorder.onWriteSuccess(writeEvent(mKey1, 100));
+    mRecorder.onDiskCachePut(mKey1);
+    mRecorder.onBitmapCachePut(mKey2);
+
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    mRecorder.getTrace().writeTo(outputStream);
+    final CacheTrace trace =
+        CacheTrace.readFrom(new ByteArrayInputStream(outputStream.toByteArray()));
+
+    assertEquals(4, trace.getEventCount());
+    assertEvent(trace, 0, CacheTier.STAGING_AREA, CacheTrace.EVENT_MISS, 0);
+    assertEvent(trace, 1, CacheTier.DISK, CacheTrace.EVENT_MISS, 0);
+    assertEvent(trace, 2, CacheTier.DISK, CacheTrace.EVENT_PUT, 0);
+    assertEvent(trace, 3, CacheTier.BITMAP_MEMORY, CacheTrace.EVENT_PUT, 1);
+    assertEquals(100, trace.getSize(0));
+    assertEquals(CacheTrace.UNKNOWN_SIZE, trace.getSize(1));
+  }
+
+  @Test(expected = IOException.class)
+  public void testRejectsOtherStreams() throws IOException {
+    CacheTrace.readFrom(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+  }
+
+  @Test(expected = IOException.class)
+  public void testRejectsNegativeEventCount() throws IOException {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    writeHeader(outputStream, -1);
+    CacheTrace.readFrom(new ByteArrayInputStream(outputStream.toByteArray()));
+  }
+
+  @Test(expected = IOException.class)
+  public void testRejectsTruncatedTraceWithHugeEventCount() throws IOException {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    final DataOutputStream out = writeHeader(outputStream, Integer.MAX_VALUE);
+    out.writeByte(CacheTrace.event(CacheTier.DISK, CacheTrace.EVENT_HIT));
+    out.writeInt(0);
+    CacheTrace.readFrom(new ByteArrayInputStream(outputStream.toByteArray()));
+  }
+
+  @Test(expected = IOException.class)
+  public void testRejectsInvalidTier() throws IOException {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    final DataOutputStream out = writeHeader(outputStream, 1);
+    out.writeByte(CacheTier.COUNT << 2);
+    out.writeInt(0);
+    out.writeInt(1);
+    out.writeInt(100);
+    CacheTrace.readFrom(new ByteArrayInputStream(outputStream.toByteArray()));
+  }
+
+  @Test(expected = IOException.class)
+  public void testRejectsNegativeKeyCount() throws IOException {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    final DataOutputStream out = writeHeader(outputStream, 0);
+    out.writeInt(-1);
+    CacheTrace.readFrom(new ByteArrayInputStream(outputStream.toByteArray()));
+  }
+
+  /** Writes the header of a trace with the given event count, followed by no events yet. */
+  private static DataOutputStream writeHeader(ByteArrayOutputStream outputStream, int eventCount)
+      throws IOException {
+    final DataOutputStream out = new DataOutputStream(outputStream);
+    final ByteArrayOutputStream emptyTrace = new ByteArrayOutputStream();
+    new CacheTraceRecorder(1).getTrace().writeTo(emptyTrace);
+    // The magic and the version
+    out.write(emptyTrace.toByteArray(), 0, 8);
+    out.writeInt(eventCount);
+    return out;
+  }
+
+  static CacheEvent writeEvent(CacheKey cacheKey, long itemSize) {
+    final CacheEvent cacheEvent = mock(CacheEvent.class);
+    when(cacheEvent.getCacheKey()).thenReturn(cacheKey);
+    when(cacheEvent.getItemSize()).thenReturn(itemSize);
+    return cacheEvent;
+  }
+
+  private static void assertEvent(
+      CacheTrace trace, int index, int tier, int eventType, int keyId) {
+    assertEquals(tier, trace.getTier(index));
+    assertEquals(eventType, trace.getEventType(index));
+    assertEquals(keyId, trace.getKeyId(index));
+  }
+}
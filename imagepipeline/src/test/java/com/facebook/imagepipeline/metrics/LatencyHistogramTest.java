@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBucketsAreContiguous() {
+    for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+      final long lowerBound = LatencyHistogram.getBucketLowerBound(i);
+      assertEquals(i, LatencyHistogram.getBucketIndex(lowerBound));
+      if (i > 0) {
+        assertEquals(i - 1, LatencyHistogram.getBucketIndex(lowerBound - 1));
+      }
+    }
+    assertEquals(
+        LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.getBucketIndex(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testRelativeErrorIsBounded() {
+    for (long value = 1; value < 1L << 30; value = value * 3 / 2 + 1) {
+      final int index = LatencyHistogram.getBucketIndex(value);
+      final long width =
+          LatencyHistogram.getBucketLowerBound(index + 1)
+              - LatencyHistogram.getBucketLowerBound(index);
+      assertTrue(width * 16 <= Math.max(16, value));
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 10);
+    }
+    final LatencyHistogram.Snapshot snapshot = histogram.getSnapshot(false);
+    assertEquals(1000, snapshot.getCount());
+    assertEquals(10000, snapshot.getMax());
+    assertEquals(5005.0, snapshot.getMean(), 0.001);
+    assertWithin(5000, snapshot.getValueAtPercentile(50));
+    assertWithin(9900, snapshot.getValueAtPercentile(99));
+    assertEquals(10000, snapshot.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testReset() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(42);
+    histogram.record(-1);
+    final LatencyHistogram.Snapshot snapshot = histogram.getSnapshot(true);
+    assertEquals(2, snapshot.getCount());
+    assertEquals(42, snapshot.getMax());
+    assertEquals(0, snapshot.getValueAtPercentile(50));
+
+    final LatencyHistogram.Snapshot empty = histogram.getSnapshot(true);
+    assertEquals(0, empty.getCount());
+    assertEquals(0, empty.getMax());
+    assertEquals(0, empty.getValueAtPercentile(50));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(
+        actual + " is not close to " + expected, Math.abs(actual - expected) * 16 <= expected);
+  }
+}
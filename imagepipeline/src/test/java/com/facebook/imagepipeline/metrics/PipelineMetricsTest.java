@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.facebook.cache.common.CacheKey;
+import com.facebook.cache.common.SimpleCacheKey;
+import com.facebook.common.internal.ImmutableMap;
+import com.facebook.common.time.MonotonicClock;
+import com.facebook.common.time.MonotonicNanoClock;
+import com.facebook.imagepipeline.cache.ImageCacheStatsTracker;
+import com.facebook.imagepipeline.core.InstrumentedExecutor;
+import com.facebook.imagepipeline.core.InstrumentedExecutorSupplier;
+import com.facebook.imagepipeline.listener.RequestListener2;
+import com.facebook.imagepipeline.memory.PoolStatsTracker;
+import com.facebook.imagepipeline.producers.DecodeProducer;
+import com.facebook.imagepipeline.producers.JobScheduler;
+import com.facebook.imagepipeline.producers.ProducerContext;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PipelineMetricsTest {
+
+  private static final String PRODUCER_NAME = "TestProducer";
+
+  private long mNowNanos;
+  private PipelineMetrics mMetrics;
+
+  @Before
+  public void setUp() {
+    mNowNanos = 0;
+    final MonotonicNanoClock nanoClock =
+        new MonotonicNanoClock() {
+          @Override
+          public long nowNanos() {
+            return mNowNanos;
+          }
+        };
+    final MonotonicClock clock =
+        new MonotonicClock() {
+          @Override
+          public long now() {
+            return mNowNanos / 1000000;
+          }
+        };
+    mMetrics = new PipelineMetrics(clock, nanoClock, 16);
+  }
+
+  @Test
+  public void testRecordsProducerAndRequestDurations() {
+    final RequestListener2 listener = mMetrics.createRequestListener();
+    final ProducerContext producerContext = mock(ProducerContext.class);
+    listener.onRequestStart(producerContext);
+    mNowNanos = 1000000;
+    listener.onProducerStart(producerContext, PRODUCER_NAME);
+    mNowNanos = 4000000;
+    listener.onProducerFinishWithSuccess(producerContext, PRODUCER_NAME, null);
+    mNowNanos = 5000000;
+    listener.onRequestSuccess(producerContext);
+
+    final PipelineMetricsSnapshot snapshot = mMetrics.getSnapshot(false);
+    final LatencyHistogram.Snapshot producer = snapshot.getProducerDurations().get(PRODUCER_NAME);
+    assertEquals(1, producer.getCount());
+    assertEquals(3000, producer.getMax());
+    final LatencyHistogram.Snapshot request =
+        snapshot.getLatencies().get(PipelineMetricsRequestListener.REQUEST);
+    assertEquals(1, request.getCount());
+    assertEquals(5000, request.getMax());
+    assertEquals(0, snapshot.getDroppedSampleCount());
+  }
+
+  @Test
+  public void testRecordsQueueTimeFromDecodeExtras() {
+    final RequestListener2 listener = mMetrics.createRequestListener();
+    final ProducerContext producerContext = mock(ProducerContext.class);
+    assertTrue(listener.requiresExtraMap(producerContext, DecodeProducer.PRODUCER_NAME));
+    assertFalse(listener.requiresExtraMap(producerContext, PRODUCER_NAME));
+
+    listener.onProducerStart(producerContext, DecodeProducer.PRODUCER_NAME);
+    listener.onProducerFinishWithSuccess(
+        producerContext,
+        DecodeProducer.PRODUCER_NAME,
+        ImmutableMap.of(JobScheduler.QUEUE_TIME_KEY, "7"));
+
+    final LatencyHistogram.Snapshot queueTime =
+        mMetrics.getSnapshot(false).getQueueTimes().get(DecodeProducer.PRODUCER_NAME);
+    assertEquals(1, queueTime.getCount());
+    assertEquals(7000, queueTime.getMax());
+  }
+
+  @Test
+  public void testUnfinishedProducersAreFreedAtRequestEnd() {
+    final RequestListener2 listener = mMetrics.createRequestListener();
+    for (int i = 0; i < 100; i++) {
+      final ProducerContext producerContext = mock(ProducerContext.class);
+      listener.onRequestStart(producerContext);
+      listener.onProducerStart(producerContext, PRODUCER_NAME);
+      listener.onRequestCancellation(producerContext);
+    }
+    final PipelineMetricsSnapshot snapshot = mMetrics.getSnapshot(false);
+    assertEquals(0, snapshot.getDroppedSampleCount());
+    assertNull(snapshot.getProducerDurations().get(PRODUCER_NAME));
+    assertEquals(
+        100, snapshot.getLatencies().get(PipelineMetricsRequestListener.REQUEST).getCount());
+  }
+
+  @Test
+  public void testCacheHitRatio() {
+    final ImageCacheStatsTracker tracker = mMetrics.createImageCacheStatsTracker();
+    final CacheKey cacheKey = new SimpleCacheKey("key");
+    tracker.onBitmapCacheMiss(cacheKey);
+    tracker.onMemoryCacheMiss(cacheKey);
+    tracker.onStagingAreaMiss(cacheKey);
+    tracker.onDiskCacheHit(cacheKey);
+    tracker.onBitmapCachePut(cacheKey);
+    tracker.onBitmapCacheHit(cacheKey);
+    tracker.onBitmapCacheHit(cacheKey);
+    tracker.onBitmapCacheHit(cacheKey);
+
+    final PipelineMetricsSnapshot snapshot = mMetrics.getSnapshot(true);
+    assertEquals(0.75f, snapshot.getCacheHitRatio(CacheTier.BITMAP_MEMORY), 0.001f);
+    assertEquals(1, snapshot.getCachePutCount(CacheTier.BITMAP_MEMORY));
+    assertEquals(0f, snapshot.getCacheHitRatio(CacheTier.ENCODED_MEMORY), 0.001f);
+    assertEquals(1f, snapshot.getCacheHitRatio(CacheTier.DISK), 0.001f);
+
+    final PipelineMetricsSnapshot next = mMetrics.getSnapshot(true);
+    assertEquals(0, next.getCacheHitCount(CacheTier.BITMAP_MEMORY));
+    assertEquals(0, next.getCacheMissCount(CacheTier.BITMAP_MEMORY));
+  }
+
+  @Test
+  public void testPoolStats() {
+    final PoolStatsTracker tracker = mMetrics.createPoolStatsTracker("bitmap");
+    tracker.onAlloc(100);
+    tracker.onAlloc(200);
+    tracker.onValueRelease(100);
+    tracker.onValueReuse(100);
+    tracker.onValueReuse(100);
+    tracker.onFree(200);
+
+    final PipelineMetricsSnapshot.PoolSnapshot pool =
+        mMetrics.getSnapshot(true).getPools().get("bitmap");
+    assertEquals(2, pool.getAllocCount());
+    assertEquals(2, pool.getReuseCount());
+    assertEquals(0.5f, pool.getHitRate(), 0.001f);
+    assertEquals(200, pool.getBytesInFlight());
+
+    final PipelineMetricsSnapshot.PoolSnapshot next =
+        mMetrics.getSnapshot(true).getPools().get("bitmap");
+    assertEquals(0, next.getAllocCount());
+    assertEquals(200, next.getBytesInFlight());
+  }
+
+  @Test
+  public void testExecutorStats() {
+    final InstrumentedExecutor.Listener listener = mMetrics.createExecutorListener();
+    listener.onTaskEnqueued(InstrumentedExecutorSupplier.DECODE, 3);
+    listener.onTaskStarted(InstrumentedExecutorSupplier.DECODE, 2000000);
+    listener.onTaskFinished(InstrumentedExecutorSupplier.DECODE, 7000000);
+
+    final PipelineMetricsSnapshot snapshot = mMetrics.getSnapshot(false);
+    assertEquals(3, snapshot.getQueueDepths().get(InstrumentedExecutorSupplier.DECODE).getMax());
+    assertEquals(2000, snapshot.getQueueTimes().get(InstrumentedExecutorSupplier.DECODE).getMax());
+    assertEquals(7000, snapshot.getRunTimes().get(InstrumentedExecutorSupplier.DECODE).getMax());
+  }
+
+  @Test
+  public void testCounterSources() {
+    mMetrics.addCounterSource(
+        new PipelineMetrics.CounterSource() {
+          private long mCount = 5;
+
+          @Override
+          public Map<String, Long> getCounters(boolean reset) {
+            final Map<String, Long> counters = ImmutableMap.of("frames", mCount);
+            if (reset) {
+              mCount = 0;
+            }
+            return counters;
+          }
+        });
+
+    assertEquals(5L, (long) mMetrics.getSnapshot(true).getCounters().get("frames"));
+    assertEquals(0L, (long) mMetrics.getSnapshot(true).getCounters().get("frames"));
+  }
+}
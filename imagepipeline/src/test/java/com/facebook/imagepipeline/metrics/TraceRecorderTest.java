@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.facebook.common.time.MonotonicNanoClock;
+import com.facebook.imagepipeline.producers.ProducerContext;
+import com.facebook.imagepipeline.systrace.FrescoSystrace;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TraceRecorderTest {
+
+  private long mNowNanos;
+  private TraceRecorder mRecorder;
+  private ProducerContext mProducerContext;
+
+  @Before
+  public void setUp() {
+    mNowNanos = 0;
+    mRecorder =
+        new TraceRecorder(
+            new MonotonicNanoClock() {
+              @Override
+              public long nowNanos() {
+                return mNowNanos;
+              }
+            },
+            16);
+    mProducerContext = mock(ProducerContext.class);
+    when(mProducerContext.getId()).thenReturn("1");
+  }
+
+  @Test
+  public void testRecordsRequestAndProducerSpans() {
+    mRecorder.onRequestStart(mProducerContext);
+    mNowNanos = 1000;
+    mRecorder.onProducerStart(mProducerContext, "DecodeProducer");
+    mNowNanos = 3000;
+    mRecorder.onProducerFinishWithSuccess(mProducerContext, "DecodeProducer", null);
+    mRecorder.onRequestSuccess(mProducerContext);
+
+    assertEquals(
+        "{\"displayTimeUnit\":\"ms\",\"traceEvents\":["
+            + asyncEvent('b', "request", "request", 0)
+            + ","
+            + asyncEvent('b', "producer", "DecodeProducer", 1)
+            + ","
+            + asyncEvent('e', "producer", "DecodeProducer", 3)
+            + ","
+            + asyncEvent('e', "request", "request", 3)
+            + "]}",
+        mRecorder.toChromeTrace(null));
+  }
+
+  @Test
+  public void testAttributesSectionsAndWorkToRequest() {
+    mRecorder.onProducerStart(mProducerContext, "DiskCacheReadProducer");
+    final Object token = mRecorder.onBeforeSubmitWork("BufferedDiskCache_getAsync");
+    final Object currentToken = mRecorder.onBeginWork(token, null);
+    final FrescoSystrace.ArgsBuilder builder = mRecorder.beginSectionWithArgs("Disk \"read\"");
+    builder.arg("bytes", 42).arg("key", "a\nb").flush();
+    mRecorder.endSection();
+    mRecorder.onEndWork(currentToken);
+
+    final String trace = mRecorder.toChromeTrace("1");
+    assertTrue(trace, trace.contains("\"ph\":\"s\",\"cat\":\"work\""));
+    assertTrue(trace, trace.contains("\"bp\":\"e\",\"id\":1"));
+    assertTrue(
+        trace,
+        trace.contains(
+            "\"name\":\"Disk \\\"read\\\"\",\"ts\":0,\"pid\":0,\"tid\":"
+                + Thread.currentThread().getId()
+                + ",\"args\":{\"request_id\":\"1\",\"bytes\":42,\"key\":\"a\\nb\"}}"));
+    assertEquals("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[]}", mRecorder.toChromeTrace("2"));
+  }
+
+  @Test
+  public void testDecoratedRunnableCarriesRequestId() throws InterruptedException {
+    mRecorder.onProducerStart(mProducerContext, "ThreadHandoffProducer");
+    final Runnable runnable =
+        mRecorder.decorateRunnable(
+            new Runnable() {
+              @Override
+              public void run() {
+                mRecorder.beginSection("work");
+                mRecorder.endSection();
+              }
+            },
+            "ThreadHandoffProducer_produceResults");
+    final Thread thread = new Thread(runnable);
+    thread.start();
+    thread.join();
+
+    final String trace = mRecorder.toChromeTrace("1");
+    assertTrue(trace, trace.contains("\"tid\":" + thread.getId()));
+    assertTrue(trace, trace.contains("\"name\":\"work\""));
+  }
+
+  @Test
+  public void testOverwritesOldestEvents() {
+    for (int i = 0; i < 20; i++) {
+      mNowNanos = i * 1000;
+      mRecorder.beginSection("section");
+    }
+    final String trace = mRecorder.toChromeTrace(null);
+    assertFalse(trace, trace.contains("\"ts\":3,"));
+    assertTrue(trace, trace.contains("\"ts\":4,"));
+    assertTrue(trace, trace.contains("\"ts\":19,"));
+
+    mRecorder.clear();
+    assertEquals("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[]}", mRecorder.toChromeTrace(null));
+  }
+
+  @Test
+  public void testDoesNotRecordWhenPaused() {
+    mRecorder.setTracing(false);
+    assertFalse(mRecorder.isTracing());
+    assertNull(mRecorder.onBeforeSubmitWork("tag"));
+    assertSame(FrescoSystrace.NO_OP_ARGS_BUILDER, mRecorder.beginSectionWithArgs("section"));
+    final Runnable runnable = mock(Runnable.class);
+    assertSame(runnable, mRecorder.decorateRunnable(runnable, "tag"));
+    mRecorder.onRequestStart(mProducerContext);
+    assertEquals("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[]}", mRecorder.toChromeTrace(null));
+  }
+
+  private static String asyncEvent(char phase, String category, String name, long timestampUs) {
+    return "{\"ph\":\""
+        + phase
+        + "\",\"cat\":\""
+        + category
+        + "\",\"name\":\""
+        + name
+        + "\",\"ts\":"
+        + timestampUs
+        + ",\"pid\":0,\"tid\":"
+        + Thread.currentThread().getId()
+        + ",\"id\":\"1\",\"args\":{\"request_id\":\"1\"}}";
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.postprocessors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.common.references.ResourceReleaser;
+import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
+import com.facebook.imagepipeline.request.Postprocessor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class DownscalingBlurUtilTest {
+
+  private PlatformBitmapFactory mBitmapFactory;
+  private Postprocessor mScaledBlurPostprocessor;
+  private ResourceReleaser<Bitmap> mBitmapReleaser;
+
+  @Before
+  public void setUp() {
+    mBitmapFactory = mock(PlatformBitmapFactory.class);
+    mScaledBlurPostprocessor = mock(Postprocessor.class);
+    mBitmapReleaser = mock(ResourceReleaser.class);
+  }
+
+  @Test
+  public void testDownscaleFactor() {
+    assertEquals(1, DownscalingBlurUtil.getDownscaleFactor(1));
+    assertEquals(1, DownscalingBlurUtil.getDownscaleFactor(7));
+    assertEquals(2, DownscalingBlurUtil.getDownscaleFactor(8));
+    assertEquals(6, DownscalingBlurUtil.getDownscaleFactor(25));
+  }
+
+  @Test
+  public void testScaledBlurRadius() {
+    assertEquals(4, DownscalingBlurUtil.getScaledBlurRadius(25, 6));
+    assertEquals(5, DownscalingBlurUtil.getScaledBlurRadius(10, 2));
+    assertEquals(1, DownscalingBlurUtil.getScaledBlurRadius(1, 6));
+  }
+
+  @Test
+  public void testProcess_blursDownscaledBitmapAndScalesBackUp() {
+    Bitmap sourceBitmap = Bitmap.createBitmap(600, 301, Bitmap.Config.ARGB_8888);
+    Bitmap scaledBitmap = Bitmap.createBitmap(100, 50, Bitmap.Config.ARGB_8888);
+    Bitmap blurredBitmap = Bitmap.createBitmap(100, 50, Bitmap.Config.ARGB_8888);
+    Bitmap resultBitmap = Bitmap.createBitmap(600, 301, Bitmap.Config.ARGB_8888);
+    CloseableReference<Bitmap> scaledBitmapRef =
+        CloseableReference.of(scaledBitmap, mBitmapReleaser);
+    CloseableReference<Bitmap> blurredBitmapRef =
+        CloseableReference.of(blurredBitmap, mBitmapReleaser);
+    CloseableReference<Bitmap> resultBitmapRef =
+        CloseableReference.of(resultBitmap, mBitmapReleaser);
+    when(mBitmapFactory.createScaledBitmap(sourceBitmap, 100, 50, true))
+        .thenReturn(scaledBitmapRef);
+    when(mScaledBlurPostprocessor.process(scaledBitmap, mBitmapFactory))
+        .thenReturn(blurredBitmapRef);
+    when(mBitmapFactory.createScaledBitmap(blurredBitmap, 600, 301, true))
+        .thenReturn(resultBitmapRef);
+
+    CloseableReference<Bitmap> result =
+        DownscalingBlurUtil.process(sourceBitmap, mBitmapFactory, 6, mScaledBlurPostprocessor);
+
+    assertSame(resultBitmap, result.get());
+    assertFalse(scaledBitmapRef.isValid());
+    assertFalse(blurredBitmapRef.isValid());
+  }
+
+  @Test
+  public void testBlurPostProcessorCacheKeyIncludesDownscaling() {
+    Context context = mock(Context.class);
+
+    assertNotEquals(
+        new BlurPostProcessor(25, context, 3).getPostprocessorCacheKey(),
+        new BlurPostProcessor(25, context, 3, true).getPostprocessorCacheKey());
+    assertEquals(
+        new BlurPostProcessor(25, context, 3).getPostprocessorCacheKey(),
+        new BlurPostProcessor(25, context, 3, false).getPostprocessorCacheKey());
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.producers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.common.references.ResourceReleaser;
+import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
+import com.facebook.imagepipeline.common.ResizeOptions;
+import com.facebook.imagepipeline.image.CloseableImage;
+import com.facebook.imagepipeline.image.CloseableStaticBitmap;
+import com.facebook.imagepipeline.image.ImmutableQualityInfo;
+import com.facebook.imagepipeline.request.ImageRequest;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class BitmapResizeProducerTest {
+
+  @Mock public Producer<CloseableReference<CloseableImage>> mInputProducer;
+  @Mock public Consumer<CloseableReference<CloseableImage>> mConsumer;
+  @Mock public ProducerContext mProducerContext;
+  @Mock public ProducerListener2 mProducerListener;
+  @Mock public ImageRequest mImageRequest;
+  @Mock public PlatformBitmapFactory mPlatformBitmapFactory;
+  @Mock public ResourceReleaser<Bitmap> mResourceReleaser;
+  @Mock private CloseableStaticBitmap mCloseableStaticBitmap;
+  @Mock private Bitmap mBitmap;
+  @Mock private Bitmap mResizedBitmap;
+
+  private CloseableReference<CloseableImage> mImageReference;
+  private BitmapResizeProducer mBitmapResizeProducer;
+
+  @Before
+  public void setup() {
+    MockitoAnnotations.initMocks(this);
+    mBitmapResizeProducer = new BitmapResizeProducer(mInputProducer, mPlatformBitmapFactory);
+
+    mImageReference = CloseableReference.of((CloseableImage) mCloseableStaticBitmap);
+    when(mCloseableStaticBitmap.getUnderlyingBitmap()).thenReturn(mBitmap);
+    when(mCloseableStaticBitmap.getQualityInfo()).thenReturn(ImmutableQualityInfo.FULL_QUALITY);
+    when(mBitmap.getWidth()).thenReturn(1000);
+    when(mBitmap.getHeight()).thenReturn(500);
+    when(mBitmap.getConfig()).thenReturn(Bitmap.Config.ARGB_8888);
+    when(mResizedBitmap.isMutable()).thenReturn(true);
+    when(mProducerContext.getImageRequest()).thenReturn(mImageRequest);
+    when(mProducerContext.getProducerListener()).thenReturn(mProducerListener);
+    when(mPlatformBitmapFactory.createBitmap(anyInt(), anyInt(), any(Bitmap.Config.class)))
+        .thenAnswer(
+            new Answer<CloseableReference<Bitmap>>() {
+              @Override
+              public CloseableReference<Bitmap> answer(InvocationOnMock invocation) {
+                Object[] args = invocation.getArguments();
+                when(mResizedBitmap.getWidth()).thenReturn((Integer) args[0]);
+                when(mResizedBitmap.getHeight()).thenReturn((Integer) args[1]);
+                return CloseableReference.of(mResizedBitmap, mResourceReleaser);
+              }
+            });
+
+    doAnswer(
+            new Answer() {
+              @Override
+              public Object answer(InvocationOnMock invocation) throws Throwable {
+                Consumer<CloseableReference<CloseableImage>> consumer =
+                    (Consumer<CloseableReference<CloseableImage>>) invocation.getArguments()[0];
+                consumer.onNewResult(mImageReference, Consumer.IS_LAST);
+                return null;
+              }
+            })
+        .when(mInputProducer)
+        .produceResults(any(Consumer.class), any(ProducerContext.class));
+  }
+
+  @Test
+  public void testPassesThroughWithoutResizeOptions() {
+    mBitmapResizeProducer.produceResults(mConsumer, mProducerContext);
+
+    verify(mInputProducer).produceResults(mConsumer, mProducerContext);
+    verify(mConsumer).onNewResult(mImageReference, Consumer.IS_LAST);
+  }
+
+  @Test
+  public void testDoesNotResizeSmallBitmaps() {
+    when(mImageRequest.getResizeOptions()).thenReturn(new ResizeOptions(950, 475));
+
+    mBitmapResizeProducer.produceResults(mConsumer, mProducerContext);
+
+    verify(mConsumer).onNewResult(mImageReference, Consumer.IS_LAST);
+    verify(mProducerListener, never()).onProducerStart(eq(mProducerContext), anyString());
+  }
+
+  @Test
+  public void testResizesLargeBitmaps() {
+    when(mImageRequest.getResizeOptions()).thenReturn(new ResizeOptions(300, 100));
+
+    final Bitmap[] resizedBitmap = new Bitmap[1];
+    doAnswer(
+            new Answer() {
+              @Override
+              public Object answer(InvocationOnMock invocation) throws Throwable {
+                CloseableReference<CloseableImage> result =
+                    (CloseableReference<CloseableImage>) invocation.getArguments()[0];
+                resizedBitmap[0] = ((CloseableStaticBitmap) result.get()).getUnderlyingBitmap();
+                return null;
+              }
+            })
+        .when(mConsumer)
+        .onNewResult(any(CloseableReference.class), anyInt());
+
+    mBitmapResizeProducer.produceResults(mConsumer, mProducerContext);
+
+    verify(mConsumer)
+        .onNewResult(
+            any(CloseableReference.class), eq(Consumer.IS_LAST | Consumer.IS_RESIZING_DONE));
+    assertEquals(mResizedBitmap, resizedBitmap[0]);
+    verify(mPlatformBitmapFactory).createBitmap(300, 150, Bitmap.Config.ARGB_8888);
+    verify(mProducerListener)
+        .onProducerFinishWithSuccess(eq(mProducerContext), anyString(), any(Map.class));
+    assertTrue(mImageReference.isValid());
+  }
+
+  @Test
+  public void testGetResizedSize() {
+    assertArrayEquals(
+        new int[] {300, 150},
+        BitmapResizeProducer.getResizedSize(1000, 500, 0, new ResizeOptions(300, 100)));
+    assertArrayEquals(
+        new int[] {400, 200},
+        BitmapResizeProducer.getResizedSize(1000, 500, 0, new ResizeOptions(100, 200)));
+    // the resize options apply to the rotated bitmap
+    assertArrayEquals(
+        new int[] {600, 300},
+        BitmapResizeProducer.getResizedSize(1000, 500, 90, new ResizeOptions(300, 100)));
+    assertNull(BitmapResizeProducer.getResizedSize(1000, 500, 0, new ResizeOptions(950, 100)));
+    assertNull(BitmapResizeProducer.getResizedSize(1000, 500, 0, new ResizeOptions(2000, 1000)));
+  }
+}
@@ -29,6 +29,7 @@ import com.facebook.imagepipeline.decoder.ProgressiveJpegParser;
 import com.facebook.imagepipeline.decoder.SimpleProgressiveJpegConfig;
 import com.facebook.imagepipeline.image.EncodedImage;
 import com.facebook.imagepipeline.image.ImmutableQualityInfo;
+import com.facebook.imagepipeline.image.QualityInfo;
 import com.facebook.imagepipeline.request.ImageRequest;
 import com.facebook.imagepipeline.request.ImageRequestBuilder;
 import java.util.Arrays;
@@ -292,6 +293,105 @@ public class DecodeProducerTest {
         ref5.getUnderlyingReferenceTestOnly());
   }
 
+  @Test
+  public void testNewResult_Intermediate_StreamingBaselineJPEG() {
+    when(mPipelineExperiments.isStreamingDecodeEnabled()).thenReturn(true);
+    setupNetworkUri();
+    Consumer<EncodedImage> consumer = produceResults();
+    when(mProgressiveJpegParser.isFirstScanStarted()).thenReturn(true);
+    when(mProgressiveJpegParser.isProgressive()).thenReturn(false);
+
+    // not enough data yet; ignore
+    EncodedImage encodedImage1 = mockEncodedJpeg(CloseableReference.of(mockPooledByteBuffer(100)));
+    when(mJobScheduler.updateJob(encodedImage1, Consumer.NO_FLAGS)).thenReturn(true);
+    consumer.onNewResult(encodedImage1, Consumer.NO_FLAGS);
+    verify(mJobScheduler, never()).scheduleJob();
+
+    // enough data; schedule
+    EncodedImage encodedImage2 =
+        mockEncodedJpeg(CloseableReference.of(mockPooledByteBuffer(20 * 1024)));
+    when(mJobScheduler.updateJob(encodedImage2, Consumer.NO_FLAGS)).thenReturn(true);
+    consumer.onNewResult(encodedImage2, Consumer.NO_FLAGS);
+    verify(mJobScheduler, times(1)).scheduleJob();
+
+    // not grown enough since the last decode; ignore
+    EncodedImage encodedImage3 =
+        mockEncodedJpeg(CloseableReference.of(mockPooledByteBuffer(25 * 1024)));
+    when(mJobScheduler.updateJob(encodedImage3, Consumer.NO_FLAGS)).thenReturn(true);
+    consumer.onNewResult(encodedImage3, Consumer.NO_FLAGS);
+    verify(mJobScheduler, times(1)).scheduleJob();
+
+    // grown by half; schedule
+    EncodedImage encodedImage4 =
+        mockEncodedJpeg(CloseableReference.of(mockPooledByteBuffer(30 * 1024)));
+    when(mJobScheduler.updateJob(encodedImage4, Consumer.NO_FLAGS)).thenReturn(true);
+    consumer.onNewResult(encodedImage4, Consumer.NO_FLAGS);
+    verify(mJobScheduler, times(2)).scheduleJob();
+    verify(mProgressiveJpegParser, never()).getBestScanNumber();
+  }
+
+  @Test
+  public void testNewResult_Intermediate_StreamingPNG() {
+    when(mPipelineExperiments.isStreamingDecodeEnabled()).thenReturn(true);
+    setupNetworkUri();
+    Consumer<EncodedImage> consumer = produceResults();
+
+    EncodedImage encodedImage =
+        new EncodedImage(CloseableReference.of(mockPooledByteBuffer(20 * 1024)));
+    encodedImage.setImageFormat(DefaultImageFormats.PNG);
+    encodedImage.setWidth(IMAGE_WIDTH);
+    encodedImage.setHeight(IMAGE_HEIGHT);
+    when(mJobScheduler.updateJob(encodedImage, Consumer.NO_FLAGS)).thenReturn(true);
+    consumer.onNewResult(encodedImage, Consumer.NO_FLAGS);
+
+    verify(mJobScheduler).scheduleJob();
+    verifyZeroInteractions(mProgressiveJpegParser);
+  }
+
+  @Test
+  public void testDecode_Intermediate_StreamingPNG() throws Exception {
+    when(mPipelineExperiments.isStreamingDecodeEnabled()).thenReturn(true);
+    setupNetworkUri();
+    Consumer<EncodedImage> consumer = produceResults();
+    JobScheduler.JobRunnable jobRunnable = getJobRunnable();
+
+    EncodedImage encodedImage =
+        new EncodedImage(CloseableReference.of(mockPooledByteBuffer(20 * 1024)));
+    encodedImage.setImageFormat(DefaultImageFormats.PNG);
+    encodedImage.setWidth(IMAGE_WIDTH);
+    encodedImage.setHeight(IMAGE_HEIGHT);
+    when(mJobScheduler.updateJob(encodedImage, Consumer.NO_FLAGS)).thenReturn(true);
+    consumer.onNewResult(encodedImage, Consumer.NO_FLAGS);
+
+    // the data downloaded so far can not be decoded yet, which is not an error
+    Exception exception = new RuntimeException();
+    when(mImageDecoder.decode(
+            eq(encodedImage),
+            eq(20 * 1024),
+            any(QualityInfo.class),
+            eq(IMAGE_DECODE_OPTIONS)))
+        .thenThrow(exception);
+    jobRunnable.run(encodedImage, Consumer.NO_FLAGS);
+
+    ArgumentCaptor<QualityInfo> qualityInfoCaptor = ArgumentCaptor.forClass(QualityInfo.class);
+    verify(mImageDecoder)
+        .decode(
+            eq(encodedImage), eq(20 * 1024), qualityInfoCaptor.capture(), eq(IMAGE_DECODE_OPTIONS));
+    assertFalse(qualityInfoCaptor.getValue().isOfFullQuality());
+    verify(mConsumer, never()).onFailure(any(Throwable.class));
+    verify(mProducerListener)
+        .onProducerEvent(
+            mProducerContext,
+            DecodeProducer.PRODUCER_NAME,
+            DecodeProducer.INTERMEDIATE_DECODE_FAILED_PRODUCER_EVENT);
+    // A failed attempt must not leave a start without a finish
+    verify(mProducerListener, never())
+        .onProducerStart(mProducerContext, DecodeProducer.PRODUCER_NAME);
+    verify(mProducerListener, never())
+        .onProducerFinishWithFailure(
+            any(ProducerContext.class), anyString(), any(Throwable.class), any(Map.class));
+  }
+
   @Test
   public void testFailure() {
     setupNetworkUri();
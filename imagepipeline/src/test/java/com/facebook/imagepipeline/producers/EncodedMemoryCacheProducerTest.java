@@ -20,6 +20,7 @@ import com.facebook.common.references.CloseableReference;
 import com.facebook.imageformat.ImageFormat;
 import com.facebook.imagepipeline.cache.CacheKeyFactory;
 import com.facebook.imagepipeline.cache.MemoryCache;
+import com.facebook.imagepipeline.cache.PrefetchAwareMemoryCache;
 import com.facebook.imagepipeline.core.ImagePipelineConfig;
 import com.facebook.imagepipeline.core.ImagePipelineExperiments;
 import com.facebook.imagepipeline.image.EncodedImage;
@@ -258,6 +259,25 @@ public class EncodedMemoryCacheProducerTest {
     verifyNoMoreInteractions(mInputProducer);
   }
 
+  @Test
+  public void testPrefetchUsesPrefetchAwareMemoryCache() {
+    PrefetchAwareMemoryCache<CacheKey, PooledByteBuffer> memoryCache =
+        mock(PrefetchAwareMemoryCache.class);
+    mEncodedMemoryCacheProducer =
+        new EncodedMemoryCacheProducer(memoryCache, mCacheKeyFactory, mInputProducer);
+    when(memoryCache.getForPrefetch(mCacheKey)).thenReturn(null);
+    when(memoryCache.cacheForPrefetch(mCacheKey, mFinalImageReference))
+        .thenReturn(mFinalImageReferenceClone);
+    when(mProducerContext.isPrefetch()).thenReturn(true);
+    setupInputProducerStreamingSuccess();
+    mEncodedMemoryCacheProducer.produceResults(mConsumer, mProducerContext);
+    verify(memoryCache).getForPrefetch(mCacheKey);
+    verify(memoryCache).cacheForPrefetch(eq(mCacheKey), any(CloseableReference.class));
+    verify(memoryCache, never()).get(any(CacheKey.class));
+    verify(memoryCache, never()).cache(any(CacheKey.class), any(CloseableReference.class));
+    verify(mConsumer).onNewResult(mFinalEncodedImage, Consumer.IS_LAST);
+  }
+
   private void setupEncodedMemoryCacheGetSuccess() {
     when(mMemoryCache.get(eq(mCacheKey))).thenReturn(mFinalImageReference);
   }
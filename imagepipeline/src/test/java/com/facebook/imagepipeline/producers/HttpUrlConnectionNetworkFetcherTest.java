@@ -7,11 +7,16 @@
 
 package com.facebook.imagepipeline.producers;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -20,14 +25,22 @@ import static org.mockito.Mockito.when;
 import android.net.Uri;
 import com.facebook.common.time.MonotonicClock;
 import com.facebook.common.util.UriUtil;
+import com.facebook.imagepipeline.common.BytesRange;
+import com.facebook.imagepipeline.core.ImagePipelineConfig;
+import com.facebook.imagepipeline.core.ImagePipelineExperiments;
 import com.facebook.imagepipeline.producers.HttpUrlConnectionNetworkFetcher.HttpUrlConnectionNetworkFetchState;
+import com.facebook.imagepipeline.request.ImageRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.Locale;
 import java.util.Queue;
 import org.junit.Before;
 import org.junit.Test;
@@ -51,9 +64,15 @@ public class HttpUrlConnectionNetworkFetcherTest {
   @Mock private HttpUrlConnectionNetworkFetchState mMockFetchState;
   @Mock private ProducerContext mMockProducerContext;
   @Mock private NetworkFetcher.Callback mMockCallback;
+  @Mock private ImageRequest mMockImageRequest;
+  @Mock private ImagePipelineConfig mMockConfig;
+  @Mock private ImagePipelineExperiments mMockExperiments;
 
   private HttpUrlConnectionNetworkFetcher mFetcher;
   private Queue<HttpURLConnection> mConnectionsQueue;
+  private byte[] mResponseBytes;
+  private HttpUrlConnectionNetworkFetchState mFetchStateToCancel;
+  private int mBytesBeforeCancellation;
 
   @Before
   public void setUp() throws Exception {
@@ -119,6 +138,11 @@ public class HttpUrlConnectionNetworkFetcherTest {
   }
 
   private void mockFetchState() {
+    Uri sourceUri = mockUri(INITIAL_TEST_URL);
+    when(mMockImageRequest.getSourceUri()).thenReturn(sourceUri);
+    when(mMockProducerContext.getImageRequest()).thenReturn(mMockImageRequest);
+    when(mMockProducerContext.getImagePipelineConfig()).thenReturn(mMockConfig);
+    when(mMockConfig.getExperiments()).thenReturn(mMockExperiments);
     when(mMockFetchState.getContext()).thenReturn(mMockProducerContext);
     when(mMockFetchState.getUri())
         .then(
@@ -231,6 +255,185 @@ public class HttpUrlConnectionNetworkFetcherTest {
     verify(mockConnection).setRequestProperty(eq("User-Agent"), eq("user-agent-blabla"));
   }
 
+  @Test
+  public void testRangeRequest() throws IOException {
+    byte[] image = newImage(1000);
+    HttpURLConnection mockConnection = mockServerWithImage(image);
+    when(mMockImageRequest.getBytesRange()).thenReturn(BytesRange.from(400));
+
+    runFetch();
+
+    verify(mockConnection).setRequestProperty("Range", "bytes=400-");
+    verify(mMockFetchState).setResponseBytesRange(BytesRange.from(400));
+    verify(mMockFetchState).setOnNewResultStatusFlags(Consumer.IS_PARTIAL_RESULT);
+    assertArrayEquals(Arrays.copyOfRange(image, 400, 1000), mResponseBytes);
+  }
+
+  @Test
+  public void testRangeIgnoredByServer() throws IOException {
+    byte[] image = newImage(1000);
+    mockSuccessWithStream(new ByteArrayInputStream(image));
+    when(mMockImageRequest.getBytesRange()).thenReturn(BytesRange.from(400));
+
+    runFetch();
+
+    verify(mMockFetchState, never()).setResponseBytesRange(any(BytesRange.class));
+    verify(mMockFetchState, never()).setOnNewResultStatusFlags(anyInt());
+    verify(mMockCallback).onResponse(any(InputStream.class), eq(-1));
+  }
+
+  @Test
+  public void testNoRangeHeaderWithoutBytesRange() throws IOException {
+    HttpURLConnection mockConnection = mockServerWithImage(newImage(1000));
+
+    runFetch();
+
+    verify(mockConnection, never()).setRequestProperty(eq("Range"), anyString());
+    verify(mMockFetchState, never()).setResponseBytesRange(any(BytesRange.class));
+    assertEquals(1000, mResponseBytes.length);
+  }
+
+  @Test
+  public void testCancelledDownloadIsPassedOnAsPartialResult() throws IOException {
+    when(mMockExperiments.isPartialImageCachingEnabled()).thenReturn(true);
+    mockServerWithImage(newImage(1000));
+    HttpUrlConnectionNetworkFetchState fetchState = newFetchState();
+    cancelAfter(fetchState, 300);
+
+    mFetcher.fetchSync(fetchState, mMockCallback);
+
+    assertEquals(300, mResponseBytes.length);
+    assertEquals(new BytesRange(0, 299), fetchState.getResponseBytesRange());
+    assertEquals(Consumer.IS_PARTIAL_RESULT, fetchState.getOnNewResultStatusFlags());
+  }
+
+  @Test
+  public void testCancelledRangeDownloadIsPassedOnAsPartialResult() throws IOException {
+    when(mMockExperiments.isPartialImageCachingEnabled()).thenReturn(true);
+    when(mMockImageRequest.getBytesRange()).thenReturn(BytesRange.from(400));
+    mockServerWithImage(newImage(1000));
+    HttpUrlConnectionNetworkFetchState fetchState = newFetchState();
+    cancelAfter(fetchState, 200);
+
+    mFetcher.fetchSync(fetchState, mMockCallback);
+
+    assertEquals(200, mResponseBytes.length);
+    assertEquals(new BytesRange(400, 599), fetchState.getResponseBytesRange());
+  }
+
+  @Test
+  public void testCancellationBeforeAnyDataIsRead() throws IOException {
+    when(mMockExperiments.isPartialImageCachingEnabled()).thenReturn(true);
+    mockServerWithImage(newImage(1000));
+    HttpUrlConnectionNetworkFetchState fetchState = newFetchState();
+    fetchState.cancel();
+
+    mFetcher.fetchSync(fetchState, mMockCallback);
+
+    verify(mMockCallback).onCancellation();
+    verify(mMockCallback, never()).onFailure(any(Throwable.class));
+    assertNull(fetchState.getResponseBytesRange());
+  }
+
+  private HttpUrlConnectionNetworkFetchState newFetchState() {
+    return new HttpUrlConnectionNetworkFetchState(mock(Consumer.class), mMockProducerContext);
+  }
+
+  private void cancelAfter(HttpUrlConnectionNetworkFetchState fetchState, int bytes) {
+    mFetchStateToCancel = fetchState;
+    mBytesBeforeCancellation = bytes;
+  }
+
+  private static byte[] newImage(int size) {
+    byte[] image = new byte[size];
+    for (int i = 0; i < size; i++) {
+      image[i] = (byte) i;
+    }
+    return image;
+  }
+
+  /**
+   * Stands in for an HTTP server serving the given image: honors the "Range" header of the request
+   * with a 206 response, and records the body read by the callback in {@link #mResponseBytes}.
+   *
+   * <p>Fetches can be cancelled once part of the body has been read, see {@link #cancelAfter}.
+   */
+  private HttpURLConnection mockServerWithImage(final byte[] image) throws IOException {
+    final HttpURLConnection mockResponse = mock(HttpURLConnection.class);
+    final int[] requestedStart = new int[1];
+    doAnswer(
+            new Answer<Void>() {
+              @Override
+              public Void answer(InvocationOnMock invocation) throws Throwable {
+                String value = (String) invocation.getArguments()[1];
+                requestedStart[0] =
+                    Integer.parseInt(value.substring("bytes=".length(), value.indexOf('-')));
+                return null;
+              }
+            })
+        .when(mockResponse)
+        .setRequestProperty(eq("Range"), anyString());
+    when(mockResponse.getResponseCode())
+        .then(
+            new Answer<Integer>() {
+              @Override
+              public Integer answer(InvocationOnMock invocation) throws Throwable {
+                return requestedStart[0] > 0
+                    ? HttpURLConnection.HTTP_PARTIAL
+                    : HttpURLConnection.HTTP_OK;
+              }
+            });
+    when(mockResponse.getHeaderField("Content-Range"))
+        .then(
+            new Answer<String>() {
+              @Override
+              public String answer(InvocationOnMock invocation) throws Throwable {
+                return String.format(
+                    (Locale) null,
+                    "bytes %d-%d/%d",
+                    requestedStart[0],
+                    image.length - 1,
+                    image.length);
+              }
+            });
+    when(mockResponse.getInputStream())
+        .then(
+            new Answer<InputStream>() {
+              @Override
+              public InputStream answer(InvocationOnMock invocation) throws Throwable {
+                return new ByteArrayInputStream(
+                    image, requestedStart[0], image.length - requestedStart[0]);
+              }
+            });
+    doAnswer(
+            new Answer<Void>() {
+              @Override
+              public Void answer(InvocationOnMock invocation) throws Throwable {
+                readResponse((InputStream) invocation.getArguments()[0]);
+                return null;
+              }
+            })
+        .when(mMockCallback)
+        .onResponse(any(InputStream.class), anyInt());
+
+    queueConnection(mockResponse);
+
+    return mockResponse;
+  }
+
+  private void readResponse(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    byte[] buffer = new byte[100];
+    int length;
+    while ((length = inputStream.read(buffer)) >= 0) {
+      outputStream.write(buffer, 0, length);
+      if (mFetchStateToCancel != null && outputStream.size() == mBytesBeforeCancellation) {
+        mFetchStateToCancel.cancel();
+      }
+    }
+    mResponseBytes = outputStream.toByteArray();
+  }
+
   private HttpURLConnection mockSuccess() throws IOException {
     return mockSuccessWithStream(mock(InputStream.class));
   }
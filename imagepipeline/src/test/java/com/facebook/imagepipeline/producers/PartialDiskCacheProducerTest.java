@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.producers;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+import android.net.Uri;
+import android.util.Pair;
+import bolts.Task;
+import com.facebook.cache.common.CacheKey;
+import com.facebook.cache.common.SimpleCacheKey;
+import com.facebook.common.internal.ByteStreams;
+import com.facebook.common.memory.ByteArrayPool;
+import com.facebook.common.memory.PooledByteBuffer;
+import com.facebook.common.memory.PooledByteBufferFactory;
+import com.facebook.common.memory.PooledByteBufferOutputStream;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imagepipeline.cache.BufferedDiskCache;
+import com.facebook.imagepipeline.cache.CacheKeyFactory;
+import com.facebook.imagepipeline.common.BytesRange;
+import com.facebook.imagepipeline.common.Priority;
+import com.facebook.imagepipeline.core.ImagePipelineConfig;
+import com.facebook.imagepipeline.image.EncodedImage;
+import com.facebook.imagepipeline.request.ImageRequest;
+import com.facebook.imagepipeline.request.ImageRequestBuilder;
+import com.facebook.imagepipeline.testing.TrivialPooledByteBuffer;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.*;
+import org.junit.runner.*;
+import org.mockito.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.*;
+import org.robolectric.annotation.*;
+
+/**
+ * Checks that the {@link PartialDiskCacheProducer} resumes from the cached start of an image and
+ * appends interrupted downloads of the remaining bytes to the cached part.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PartialDiskCacheProducerTest {
+
+  private static final int IMAGE_SIZE = 1000;
+  private static final int CACHED_SIZE = 400;
+
+  @Mock public CacheKeyFactory mCacheKeyFactory;
+  @Mock public BufferedDiskCache mDiskCache;
+  @Mock public PooledByteBufferFactory mPooledByteBufferFactory;
+  @Mock public ByteArrayPool mByteArrayPool;
+  @Mock public Producer<EncodedImage> mInputProducer;
+  @Mock public Consumer<EncodedImage> mConsumer;
+  @Mock public ProducerListener2 mProducerListener;
+  @Mock public ImagePipelineConfig mConfig;
+  private final CacheKey mPartialCacheKey = new SimpleCacheKey("http://dummy.uri?partial");
+  private final byte[] mImageBytes = new byte[IMAGE_SIZE];
+  private SettableProducerContext mProducerContext;
+  private PartialDiskCacheProducer mPartialDiskCacheProducer;
+  private byte[] mPutBytes;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    mPartialDiskCacheProducer =
+        new PartialDiskCacheProducer(
+            mDiskCache, mCacheKeyFactory, mPooledByteBufferFactory, mByteArrayPool, mInputProducer);
+    for (int i = 0; i < IMAGE_SIZE; i++) {
+      mImageBytes[i] = (byte) i;
+    }
+    ImageRequest imageRequest =
+        ImageRequestBuilder.newBuilderWithSource(Uri.parse("http://dummy.uri")).build();
+    mProducerContext =
+        new SettableProducerContext(
+            imageRequest,
+            "mRequestId",
+            mProducerListener,
+            mock(Object.class),
+            ImageRequest.RequestLevel.FULL_FETCH,
+            false,
+            true,
+            Priority.MEDIUM,
+            mConfig);
+    when(mCacheKeyFactory.getEncodedCacheKey(
+            any(ImageRequest.class), any(Uri.class), any(Object.class)))
+        .thenReturn(mPartialCacheKey);
+    when(mDiskCache.get(eq(mPartialCacheKey), any(AtomicBoolean.class)))
+        .thenReturn(Task.forResult(newEncodedImage(0, CACHED_SIZE, null)));
+    when(mByteArrayPool.get(anyInt()))
+        .then(
+            new Answer<byte[]>() {
+              @Override
+              public byte[] answer(InvocationOnMock invocation) throws Throwable {
+                return new byte[(Integer) invocation.getArguments()[0]];
+              }
+            });
+    when(mPooledByteBufferFactory.newOutputStream(anyInt()))
+        .then(
+            new Answer<PooledByteBufferOutputStream>() {
+              @Override
+              public PooledByteBufferOutputStream answer(InvocationOnMock invocation) {
+                return new TestPooledByteBufferOutputStream();
+              }
+            });
+    doAnswer(
+            new Answer<Void>() {
+              @Override
+              public Void answer(InvocationOnMock invocation) throws Throwable {
+                EncodedImage encodedImage = (EncodedImage) invocation.getArguments()[1];
+                mPutBytes = ByteStreams.toByteArray(encodedImage.getInputStream());
+                return null;
+              }
+            })
+        .when(mDiskCache)
+        .put(eq(mPartialCacheKey), any(EncodedImage.class));
+  }
+
+  @Test
+  public void testRequestsRemainingBytes() {
+    ProducerContext remainingContext = startProducer().second;
+
+    assertEquals(
+        BytesRange.from(CACHED_SIZE - 1), remainingContext.getImageRequest().getBytesRange());
+    verify(mConsumer).onNewResult(any(EncodedImage.class), eq(Consumer.IS_PARTIAL_RESULT));
+  }
+
+  @Test
+  public void testMergesCompleteRemainder() {
+    Consumer<EncodedImage> consumer = startProducer().first;
+
+    EncodedImage remainder =
+        newEncodedImage(CACHED_SIZE - 1, IMAGE_SIZE, BytesRange.from(CACHED_SIZE - 1));
+    consumer.onNewResult(remainder, Consumer.IS_LAST | Consumer.IS_PARTIAL_RESULT);
+
+    verify(mConsumer).onNewResult(any(EncodedImage.class), eq(Consumer.IS_LAST));
+    verify(mDiskCache).remove(mPartialCacheKey);
+    verify(mDiskCache, never()).put(any(CacheKey.class), any(EncodedImage.class));
+  }
+
+  @Test
+  public void testAppendsInterruptedRemainderToCachedPart() {
+    Consumer<EncodedImage> consumer = startProducer().first;
+
+    EncodedImage remainder =
+        newEncodedImage(CACHED_SIZE - 1, 700, new BytesRange(CACHED_SIZE - 1, 699));
+    consumer.onNewResult(remainder, Consumer.IS_LAST | Consumer.IS_PARTIAL_RESULT);
+
+    verify(mConsumer)
+        .onNewResult(any(EncodedImage.class), eq(Consumer.IS_LAST | Consumer.IS_PARTIAL_RESULT));
+    verify(mDiskCache, never()).remove(any(CacheKey.class));
+    assertArrayEquals(Arrays.copyOfRange(mImageBytes, 0, 700), mPutBytes);
+  }
+
+  @Test
+  public void testRemovesCachedPartWhenWholeImageIsFetched() {
+    Consumer<EncodedImage> consumer = startProducer().first;
+
+    consumer.onNewResult(newEncodedImage(0, IMAGE_SIZE, null), Consumer.IS_LAST);
+
+    verify(mConsumer).onNewResult(any(EncodedImage.class), eq(Consumer.IS_LAST));
+    verify(mDiskCache).remove(mPartialCacheKey);
+  }
+
+  @Test
+  public void testCancellationIsPassedToRemainingRequest() {
+    ProducerContext remainingContext = startProducer().second;
+
+    mProducerContext.cancel();
+
+    assertTrue(((SettableProducerContext) remainingContext).isCancelled());
+  }
+
+  private Pair<Consumer<EncodedImage>, ProducerContext> startProducer() {
+    mPartialDiskCacheProducer.produceResults(mConsumer, mProducerContext);
+    ArgumentCaptor<Consumer> consumerCaptor = ArgumentCaptor.forClass(Consumer.class);
+    ArgumentCaptor<ProducerContext> contextCaptor = ArgumentCaptor.forClass(ProducerContext.class);
+    verify(mInputProducer).produceResults(consumerCaptor.capture(), contextCaptor.capture());
+    return Pair.create(
+        (Consumer<EncodedImage>) consumerCaptor.getValue(), contextCaptor.getValue());
+  }
+
+  private EncodedImage newEncodedImage(int from, int to, BytesRange bytesRange) {
+    EncodedImage encodedImage =
+        new EncodedImage(
+            CloseableReference.<PooledByteBuffer>of(
+                new TrivialPooledByteBuffer(Arrays.copyOfRange(mImageBytes, from, to))));
+    encodedImage.setBytesRange(bytesRange);
+    return encodedImage;
+  }
+
+  private static class TestPooledByteBufferOutputStream extends PooledByteBufferOutputStream {
+
+    private final ByteArrayOutputStream mOutputStream = new ByteArrayOutputStream();
+
+    @Override
+    public void write(int oneByte) {
+      mOutputStream.write(oneByte);
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int count) {
+      mOutputStream.write(buffer, offset, count);
+    }
+
+    @Override
+    public PooledByteBuffer toByteBuffer() {
+      return new TrivialPooledByteBuffer(mOutputStream.toByteArray());
+    }
+
+    @Override
+    public int size() {
+      return mOutputStream.size();
+    }
+  }
+}
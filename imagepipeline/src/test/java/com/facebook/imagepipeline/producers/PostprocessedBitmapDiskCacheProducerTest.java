@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.producers;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+import android.graphics.Bitmap;
+import bolts.Task;
+import com.facebook.cache.common.CacheKey;
+import com.facebook.cache.common.SimpleCacheKey;
+import com.facebook.common.executors.CallerThreadExecutor;
+import com.facebook.common.memory.PooledByteBuffer;
+import com.facebook.common.memory.PooledByteBufferFactory;
+import com.facebook.common.memory.PooledByteBufferOutputStream;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.common.references.ResourceReleaser;
+import com.facebook.imagepipeline.cache.BufferedDiskCache;
+import com.facebook.imagepipeline.cache.CacheKeyFactory;
+import com.facebook.imagepipeline.common.ImageDecodeOptions;
+import com.facebook.imagepipeline.common.Priority;
+import com.facebook.imagepipeline.core.ImagePipelineConfig;
+import com.facebook.imagepipeline.decoder.ImageDecoder;
+import com.facebook.imagepipeline.image.CloseableImage;
+import com.facebook.imagepipeline.image.CloseableStaticBitmap;
+import com.facebook.imagepipeline.image.EncodedImage;
+import com.facebook.imagepipeline.image.ImmutableQualityInfo;
+import com.facebook.imagepipeline.image.QualityInfo;
+import com.facebook.imagepipeline.request.ImageRequest;
+import com.facebook.imagepipeline.request.Postprocessor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.*;
+import org.junit.runner.*;
+import org.mockito.*;
+import org.robolectric.*;
+import org.robolectric.annotation.*;
+
+/**
+ * Checks that the {@link PostprocessedBitmapDiskCacheProducer} decodes postprocessed images found
+ * in the disk cache and writes new postprocessed images to it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PostprocessedBitmapDiskCacheProducerTest {
+  private static final String PRODUCER_NAME = PostprocessedBitmapDiskCacheProducer.PRODUCER_NAME;
+
+  @Mock public CacheKeyFactory mCacheKeyFactory;
+  @Mock public Producer<CloseableReference<CloseableImage>> mInputProducer;
+  @Mock public Consumer<CloseableReference<CloseableImage>> mConsumer;
+  @Mock public ImageRequest mImageRequest;
+  @Mock public Postprocessor mPostprocessor;
+  @Mock public Object mCallerContext;
+  @Mock public ProducerListener2 mProducerListener;
+  @Mock public ImagePipelineConfig mConfig;
+  @Mock public PooledByteBufferFactory mPooledByteBufferFactory;
+  @Mock public PooledByteBufferOutputStream mOutputStream;
+  @Mock public ImageDecoder mImageDecoder;
+  @Mock public ResourceReleaser<Bitmap> mBitmapReleaser;
+  private final BufferedDiskCache mDefaultBufferedDiskCache = mock(BufferedDiskCache.class);
+  private final BufferedDiskCache mSmallImageBufferedDiskCache = mock(BufferedDiskCache.class);
+  private SettableProducerContext mProducerContext;
+  private CacheKey mDiskCacheKey;
+  private PostprocessedBitmapDiskCacheProducer mProducer;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    mProducer =
+        new PostprocessedBitmapDiskCacheProducer(
+            mDefaultBufferedDiskCache,
+            mSmallImageBufferedDiskCache,
+            mCacheKeyFactory,
+            mPooledByteBufferFactory,
+            mImageDecoder,
+            CallerThreadExecutor.getInstance(),
+            CallerThreadExecutor.getInstance(),
+            mInputProducer);
+    mProducerContext =
+        new SettableProducerContext(
+            mImageRequest,
+            "mRequestId",
+            mProducerListener,
+            mCallerContext,
+            ImageRequest.RequestLevel.FULL_FETCH,
+            false,
+            true,
+            Priority.MEDIUM,
+            mConfig);
+
+    CacheKey postprocessorCacheKey = new SimpleCacheKey("blur");
+    CacheKey encodedCacheKey = new SimpleCacheKey("http://dummy.uri");
+    mDiskCacheKey =
+        PostprocessedBitmapDiskCacheProducer.getDiskCacheKey(
+            encodedCacheKey, mImageRequest, postprocessorCacheKey);
+    when(mImageRequest.getPostprocessor()).thenReturn(mPostprocessor);
+    when(mImageRequest.getCacheChoice()).thenReturn(ImageRequest.CacheChoice.DEFAULT);
+    when(mImageRequest.isDiskCacheEnabled()).thenReturn(true);
+    when(mImageRequest.getImageDecodeOptions()).thenReturn(ImageDecodeOptions.defaults());
+    when(mPostprocessor.getPostprocessorCacheKey()).thenReturn(postprocessorCacheKey);
+    when(mCacheKeyFactory.getEncodedCacheKey(mImageRequest, mCallerContext))
+        .thenReturn(encodedCacheKey);
+    when(mPooledByteBufferFactory.newOutputStream()).thenReturn(mOutputStream);
+    when(mOutputStream.toByteBuffer()).thenReturn(mock(PooledByteBuffer.class));
+  }
+
+  @Test
+  public void testDiskCacheKeyDiffersFromEncodedCacheKey() {
+    assertNotEquals(new SimpleCacheKey("http://dummy.uri"), mDiskCacheKey);
+    assertTrue(mDiskCacheKey.getUriString().startsWith("http://dummy.uri"));
+    assertTrue(mDiskCacheKey.getUriString().endsWith("blur"));
+  }
+
+  @Test
+  public void testNoPostprocessorCacheKey() {
+    when(mPostprocessor.getPostprocessorCacheKey()).thenReturn(null);
+    mProducer.produceResults(mConsumer, mProducerContext);
+    verify(mInputProducer).produceResults(mConsumer, mProducerContext);
+    verifyNoMoreInteractions(mProducerListener, mDefaultBufferedDiskCache, mImageDecoder);
+  }
+
+  @Test
+  public void testDiskCacheDisabled() {
+    when(mImageRequest.isDiskCacheEnabled()).thenReturn(false);
+    mProducer.produceResults(mConsumer, mProducerContext);
+    verify(mInputProducer).produceResults(mConsumer, mProducerContext);
+    verifyNoMoreInteractions(mProducerListener, mDefaultBufferedDiskCache, mImageDecoder);
+  }
+
+  @Test
+  public void testDiskCacheHit_decodesCachedImage() {
+    EncodedImage encodedImage =
+        new EncodedImage(CloseableReference.of(mock(PooledByteBuffer.class)));
+    CloseableStaticBitmap decodedImage = createStaticBitmap();
+    ImageDecodeOptions decodeOptions =
+        ImageDecodeOptions.newBuilder().setForceStaticImage(true).build();
+    when(mImageRequest.getImageDecodeOptions()).thenReturn(decodeOptions);
+    when(mDefaultBufferedDiskCache.get(eq(mDiskCacheKey), any(AtomicBoolean.class)))
+        .thenReturn(Task.forResult(encodedImage));
+    when(mImageDecoder.decode(
+            eq(encodedImage), anyInt(), eq(ImmutableQualityInfo.FULL_QUALITY), eq(decodeOptions)))
+        .thenReturn(decodedImage);
+
+    mProducer.produceResults(mConsumer, mProducerContext);
+
+    ArgumentCaptor<CloseableReference> captor = ArgumentCaptor.forClass(CloseableReference.class);
+    verify(mConsumer).onNewResult(captor.capture(), eq(Consumer.IS_LAST));
+    assertSame(decodedImage, captor.getValue().get());
+    verify(mProducerListener).onUltimateProducerReached(mProducerContext, PRODUCER_NAME, true);
+    verify(mInputProducer, never()).produceResults(any(Consumer.class), any(ProducerContext.class));
+    assertFalse(EncodedImage.isValid(encodedImage));
+  }
+
+  @Test
+  public void testDiskCacheMiss_writesPostprocessedImage() {
+    when(mDefaultBufferedDiskCache.get(eq(mDiskCacheKey), any(AtomicBoolean.class)))
+        .thenReturn(Task.<EncodedImage>forResult(null));
+
+    mProducer.produceResults(mConsumer, mProducerContext);
+
+    ArgumentCaptor<Consumer> consumerCaptor = ArgumentCaptor.forClass(Consumer.class);
+    verify(mInputProducer).produceResults(consumerCaptor.capture(), eq(mProducerContext));
+    CloseableReference<CloseableImage> result =
+        CloseableReference.<CloseableImage>of(createStaticBitmap());
+    consumerCaptor.getValue().onNewResult(result, Consumer.IS_LAST);
+
+    verify(mConsumer).onNewResult(result, Consumer.IS_LAST);
+    verify(mDefaultBufferedDiskCache).put(eq(mDiskCacheKey), any(EncodedImage.class));
+    verify(mImageDecoder, never())
+        .decode(
+            any(EncodedImage.class),
+            anyInt(),
+            any(QualityInfo.class),
+            any(ImageDecodeOptions.class));
+    result.close();
+  }
+
+  @Test
+  public void testDiskCacheMiss_doesNotWriteIntermediateOrRotatedImages() {
+    when(mDefaultBufferedDiskCache.get(eq(mDiskCacheKey), any(AtomicBoolean.class)))
+        .thenReturn(Task.<EncodedImage>forResult(null));
+
+    mProducer.produceResults(mConsumer, mProducerContext);
+
+    ArgumentCaptor<Consumer> consumerCaptor = ArgumentCaptor.forClass(Consumer.class);
+    verify(mInputProducer).produceResults(consumerCaptor.capture(), eq(mProducerContext));
+    CloseableReference<CloseableImage> intermediateResult =
+        CloseableReference.<CloseableImage>of(createStaticBitmap());
+    CloseableReference<CloseableImage> rotatedResult =
+        CloseableReference.<CloseableImage>of(
+            new CloseableStaticBitmap(
+                Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888),
+                mBitmapReleaser,
+                ImmutableQualityInfo.FULL_QUALITY,
+                90));
+    consumerCaptor.getValue().onNewResult(intermediateResult, Consumer.NO_FLAGS);
+    consumerCaptor.getValue().onNewResult(rotatedResult, Consumer.IS_LAST);
+
+    verify(mConsumer).onNewResult(intermediateResult, Consumer.NO_FLAGS);
+    verify(mConsumer).onNewResult(rotatedResult, Consumer.IS_LAST);
+    verify(mDefaultBufferedDiskCache, never()).put(any(CacheKey.class), any(EncodedImage.class));
+    intermediateResult.close();
+    rotatedResult.close();
+  }
+
+  private CloseableStaticBitmap createStaticBitmap() {
+    return new CloseableStaticBitmap(
+        Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888),
+        mBitmapReleaser,
+        ImmutableQualityInfo.FULL_QUALITY,
+        0);
+  }
+}
@@ -288,6 +288,22 @@ public class PriorityNetworkFetcherTest {
     assertThat(fetcher.getExtraMap(one, 123)).containsEntry("foo", "bar");
   }
 
+  /** Scenario: callers such as subclasses add their own extras to the returned map. */
+  @Test
+  public void extraMapIsMutable() {
+    PriorityNetworkFetcher<FetchState> fetcher =
+        new PriorityNetworkFetcher<>(delegate, false, 2, 1);
+
+    PriorityFetchState<FetchState> one = fetch(fetcher, "1", callback, true);
+
+    when(delegate.getExtraMap(eq(one.delegatedState), anyInt()))
+        .thenReturn(Collections.singletonMap("foo", "bar"));
+
+    Map<String, String> extraMap = fetcher.getExtraMap(one, 123);
+    extraMap.put("baz", "qux");
+    assertThat(extraMap).containsEntry("foo", "bar").containsEntry("baz", "qux");
+  }
+
   @Test
   public void queueTimeIsReturnedInExtraMap() {
     FakeClock clock = new FakeClock();
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.producers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.facebook.common.internal.ImmutableMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ProducerExtrasTest {
+
+  @Test
+  public void testTypedValues() {
+    final ProducerExtras extras =
+        new ProducerExtras(1)
+            .putLong(JobScheduler.QUEUE_TIME_KEY, 42)
+            .putBoolean(DecodeProducer.EXTRA_IS_FINAL, true)
+            .putSize(DecodeProducer.ENCODED_IMAGE_SIZE, 640, 480)
+            .putString(DecodeProducer.EXTRA_IMAGE_FORMAT_NAME, "jpeg");
+    assertEquals(4, extras.size());
+    assertEquals(42, extras.getLong(JobScheduler.QUEUE_TIME_KEY, -1));
+    assertTrue(extras.getBoolean(DecodeProducer.EXTRA_IS_FINAL, false));
+    assertEquals(640, extras.getWidth(DecodeProducer.ENCODED_IMAGE_SIZE, -1));
+    assertEquals(480, extras.getHeight(DecodeProducer.ENCODED_IMAGE_SIZE, -1));
+    assertEquals(-1, extras.getLong(DecodeProducer.SAMPLE_SIZE, -1));
+    assertEquals(-1, extras.getLong(DecodeProducer.EXTRA_IS_FINAL, -1));
+    assertTrue(extras.containsKey(new String(JobScheduler.QUEUE_TIME_KEY)));
+    assertFalse(extras.containsKey(DecodeProducer.SAMPLE_SIZE));
+  }
+
+  @Test
+  public void testReadsAsStringMap() {
+    final ProducerExtras extras =
+        new ProducerExtras(4)
+            .putLong(JobScheduler.QUEUE_TIME_KEY, 1)
+            .putLong(JobScheduler.QUEUE_TIME_KEY, 42)
+            .putBoolean(DecodeProducer.EXTRA_IS_FINAL, false)
+            .putSize(DecodeProducer.ENCODED_IMAGE_SIZE, 640, 480)
+            .putString(DecodeProducer.EXTRA_IMAGE_FORMAT_NAME, null);
+    final Map<String, String> expected =
+        ImmutableMap.of(
+            JobScheduler.QUEUE_TIME_KEY,
+            "42",
+            DecodeProducer.EXTRA_IS_FINAL,
+            "false",
+            DecodeProducer.ENCODED_IMAGE_SIZE,
+            "640x480",
+            DecodeProducer.EXTRA_IMAGE_FORMAT_NAME,
+            null);
+    assertEquals(expected, extras);
+    assertEquals(extras, expected);
+    assertEquals("640x480", extras.get(DecodeProducer.ENCODED_IMAGE_SIZE));
+    assertNull(extras.get(DecodeProducer.SAMPLE_SIZE));
+  }
+
+  @Test
+  public void testPutExtras() {
+    final ProducerExtras delegate =
+        new ProducerExtras(2)
+            .putLong(JobScheduler.QUEUE_TIME_KEY, 42)
+            .putString(DecodeProducer.EXTRA_IMAGE_FORMAT_NAME, "png");
+    final ProducerExtras extras = new ProducerExtras(0).putExtras(delegate).putLong("other", 1);
+    assertEquals(3, extras.size());
+    assertEquals(42, extras.getLong(JobScheduler.QUEUE_TIME_KEY, -1));
+    assertEquals("png", extras.get(DecodeProducer.EXTRA_IMAGE_FORMAT_NAME));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testMapIsImmutable() {
+    new ProducerExtras(1).putLong(JobScheduler.QUEUE_TIME_KEY, 42).put("key", "value");
+  }
+}
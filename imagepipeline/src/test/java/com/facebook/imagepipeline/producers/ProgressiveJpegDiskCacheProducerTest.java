@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.producers;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+import bolts.Task;
+import com.facebook.cache.common.CacheKey;
+import com.facebook.cache.common.SimpleCacheKey;
+import com.facebook.common.executors.CallerThreadExecutor;
+import com.facebook.common.memory.ByteArrayPool;
+import com.facebook.common.memory.PooledByteBuffer;
+import com.facebook.common.memory.PooledByteBufferFactory;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imagepipeline.cache.BufferedDiskCache;
+import com.facebook.imagepipeline.cache.CacheKeyFactory;
+import com.facebook.imagepipeline.cache.MemoryCache;
+import com.facebook.imagepipeline.common.Priority;
+import com.facebook.imagepipeline.common.ResizeOptions;
+import com.facebook.imagepipeline.core.ImagePipelineConfig;
+import com.facebook.imagepipeline.decoder.ProgressiveJpegConfig;
+import com.facebook.imagepipeline.decoder.SimpleProgressiveJpegConfig;
+import com.facebook.imagepipeline.image.EncodedImage;
+import com.facebook.imagepipeline.request.ImageRequest;
+import com.facebook.imagepipeline.testing.TrivialPooledByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.*;
+import org.junit.runner.*;
+import org.mockito.*;
+import org.robolectric.*;
+import org.robolectric.annotation.*;
+
+/**
+ * Checks that the {@link ProgressiveJpegDiskCacheProducer} only reads the first scans for small
+ * targets and passes other requests on.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ProgressiveJpegDiskCacheProducerTest {
+  private static final String PRODUCER_NAME = ProgressiveJpegDiskCacheProducer.PRODUCER_NAME;
+
+  // Scan index of a 550x468 image whose scans end at 4332 and 32844 bytes
+  private static final byte[] SCAN_INDEX =
+      new byte[] {
+        0x4a, 0x53, 0x49, 0x31, 0, 0, 2, 0x26, 0, 0, 1, (byte) 0xd4, 0, 0, 0, 2,
+        0, 0, 0x10, (byte) 0xec, 0, 0, 0, 0, 0, 0, (byte) 0x80, 0x4c, 0, 0, 0, 63
+      };
+
+  @Mock public MemoryCache<CacheKey, PooledByteBuffer> mEncodedMemoryCache;
+  @Mock public CacheKeyFactory mCacheKeyFactory;
+  @Mock public PooledByteBufferFactory mPooledByteBufferFactory;
+  @Mock public ByteArrayPool mByteArrayPool;
+  @Mock public Producer<EncodedImage> mInputProducer;
+  @Mock public Consumer<EncodedImage> mConsumer;
+  @Mock public ImageRequest mImageRequest;
+  @Mock public ProducerListener2 mProducerListener;
+  @Mock public ImagePipelineConfig mConfig;
+  private final BufferedDiskCache mDefaultBufferedDiskCache = mock(BufferedDiskCache.class);
+  private final BufferedDiskCache mSmallImageBufferedDiskCache = mock(BufferedDiskCache.class);
+  private final ProgressiveJpegConfig mProgressiveJpegConfig = new SimpleProgressiveJpegConfig();
+  private final CacheKey mEncodedCacheKey = new SimpleCacheKey("http://dummy.uri");
+  private final CacheKey mScanIndexCacheKey =
+      ProgressiveJpegDiskCacheProducer.getScanIndexCacheKey(mEncodedCacheKey);
+  private SettableProducerContext mProducerContext;
+  private ProgressiveJpegDiskCacheProducer mProducer;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    mProducer =
+        new ProgressiveJpegDiskCacheProducer(
+            mEncodedMemoryCache,
+            mDefaultBufferedDiskCache,
+            mSmallImageBufferedDiskCache,
+            mCacheKeyFactory,
+            mPooledByteBufferFactory,
+            mByteArrayPool,
+            mProgressiveJpegConfig,
+            CallerThreadExecutor.getInstance(),
+            mInputProducer);
+    mProducerContext =
+        new SettableProducerContext(
+            mImageRequest,
+            "mRequestId",
+            mProducerListener,
+            mock(Object.class),
+            ImageRequest.RequestLevel.FULL_FETCH,
+            false,
+            true,
+            Priority.MEDIUM,
+            mConfig);
+    when(mImageRequest.isDiskCacheEnabled()).thenReturn(true);
+    when(mImageRequest.getCacheChoice()).thenReturn(ImageRequest.CacheChoice.DEFAULT);
+    when(mImageRequest.getResizeOptions()).thenReturn(new ResizeOptions(50, 50));
+    when(mCacheKeyFactory.getEncodedCacheKey(eq(mImageRequest), any()))
+        .thenReturn(mEncodedCacheKey);
+  }
+
+  @Test
+  public void testScanIndexCacheKeyDiffersFromEncodedCacheKey() {
+    assertNotEquals(mEncodedCacheKey, mScanIndexCacheKey);
+    assertTrue(mScanIndexCacheKey.getUriString().startsWith(mEncodedCacheKey.getUriString()));
+  }
+
+  @Test
+  public void testReadsPrefixForSmallTarget() {
+    EncodedImage indexImage = buildEncodedImage(SCAN_INDEX);
+    EncodedImage prefix = buildEncodedImage(new byte[] {(byte) 0xff, (byte) 0xd8});
+    when(mDefaultBufferedDiskCache.get(eq(mScanIndexCacheKey), any(AtomicBoolean.class)))
+        .thenReturn(Task.forResult(indexImage));
+    when(mDefaultBufferedDiskCache.getPrefix(
+            eq(mEncodedCacheKey), eq(4332), any(AtomicBoolean.class)))
+        .thenReturn(Task.forResult(prefix));
+
+    mProducer.produceResults(mConsumer, mProducerContext);
+
+    verify(mConsumer).onNewResult(prefix, Consumer.IS_LAST | Consumer.DO_NOT_CACHE_ENCODED);
+    verify(mProducerListener).onUltimateProducerReached(mProducerContext, PRODUCER_NAME, true);
+    verify(mInputProducer, never()).produceResults(any(Consumer.class), any(ProducerContext.class));
+    assertFalse(EncodedImage.isValid(indexImage));
+  }
+
+  @Test
+  public void testFallsBackWithoutScanIndex() {
+    when(mDefaultBufferedDiskCache.get(eq(mScanIndexCacheKey), any(AtomicBoolean.class)))
+        .thenReturn(Task.<EncodedImage>forResult(null));
+
+    mProducer.produceResults(mConsumer, mProducerContext);
+
+    verify(mInputProducer).produceResults(any(Consumer.class), eq(mProducerContext));
+    verify(mDefaultBufferedDiskCache, never())
+        .getPrefix(any(CacheKey.class), anyInt(), any(AtomicBoolean.class));
+  }
+
+  @Test
+  public void testReadsWholeImageForLargeTarget() {
+    when(mImageRequest.getResizeOptions()).thenReturn(new ResizeOptions(400, 400));
+    when(mDefaultBufferedDiskCache.get(eq(mScanIndexCacheKey), any(AtomicBoolean.class)))
+        .thenReturn(Task.forResult(buildEncodedImage(SCAN_INDEX)));
+
+    mProducer.produceResults(mConsumer, mProducerContext);
+
+    verify(mInputProducer).produceResults(any(Consumer.class), eq(mProducerContext));
+    verify(mDefaultBufferedDiskCache, never())
+        .getPrefix(any(CacheKey.class), anyInt(), any(AtomicBoolean.class));
+  }
+
+  @Test
+  public void testPassesThroughWithoutResizeOptions() {
+    when(mImageRequest.getResizeOptions()).thenReturn(null);
+
+    mProducer.produceResults(mConsumer, mProducerContext);
+
+    verify(mInputProducer).produceResults(any(Consumer.class), eq(mProducerContext));
+    verify(mDefaultBufferedDiskCache, never()).get(any(CacheKey.class), any(AtomicBoolean.class));
+    verifyZeroInteractions(mProducerListener);
+  }
+
+  @Test
+  public void testPassesThroughIfInEncodedMemoryCache() {
+    when(mEncodedMemoryCache.contains(mEncodedCacheKey)).thenReturn(true);
+
+    mProducer.produceResults(mConsumer, mProducerContext);
+
+    verify(mInputProducer).produceResults(any(Consumer.class), eq(mProducerContext));
+    verify(mDefaultBufferedDiskCache, never()).get(any(CacheKey.class), any(AtomicBoolean.class));
+  }
+
+  @Test
+  public void testPassesThroughIfDiskCacheDisabled() {
+    when(mImageRequest.isDiskCacheEnabled()).thenReturn(false);
+
+    mProducer.produceResults(mConsumer, mProducerContext);
+
+    verify(mInputProducer).produceResults(mConsumer, mProducerContext);
+    verifyZeroInteractions(mDefaultBufferedDiskCache, mProducerListener);
+  }
+
+  private static EncodedImage buildEncodedImage(byte[] bytes) {
+    return new EncodedImage(
+        CloseableReference.<PooledByteBuffer>of(new TrivialPooledByteBuffer(bytes)));
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.producers;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+import android.graphics.Bitmap;
+import com.facebook.common.executors.CallerThreadExecutor;
+import com.facebook.common.memory.PooledByteBuffer;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imagepipeline.common.Priority;
+import com.facebook.imagepipeline.common.TileOptions;
+import com.facebook.imagepipeline.core.ImagePipelineConfig;
+import com.facebook.imagepipeline.image.CloseableImage;
+import com.facebook.imagepipeline.image.CloseableStaticBitmap;
+import com.facebook.imagepipeline.image.EncodedImage;
+import com.facebook.imagepipeline.request.ImageRequest;
+import java.io.IOException;
+import org.junit.*;
+import org.junit.runner.*;
+import org.mockito.*;
+import org.robolectric.*;
+import org.robolectric.annotation.*;
+
+/** Checks that the {@link RegionDecodeProducer} decodes the tile of the final encoded image. */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RegionDecodeProducerTest {
+  private static final String PRODUCER_NAME = RegionDecodeProducer.PRODUCER_NAME;
+
+  @Mock public Producer<EncodedImage> mInputProducer;
+  @Mock public Consumer<CloseableReference<CloseableImage>> mConsumer;
+  @Mock public ImageRequest mImageRequest;
+  @Mock public ProducerListener2 mProducerListener;
+  @Mock public ImagePipelineConfig mConfig;
+  private final TileOptions mTileOptions = new TileOptions(256, 512, 512, 768, 2);
+  private SettableProducerContext mProducerContext;
+  private EncodedImage mEncodedImage;
+  private TestRegionDecodeProducer mProducer;
+  private Consumer<EncodedImage> mRegionDecodeConsumer;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    mProducer = new TestRegionDecodeProducer(mInputProducer);
+    mProducerContext =
+        new SettableProducerContext(
+            mImageRequest,
+            "mRequestId",
+            mProducerListener,
+            mock(Object.class),
+            ImageRequest.RequestLevel.FULL_FETCH,
+            false,
+            true,
+            Priority.MEDIUM,
+            mConfig);
+    when(mImageRequest.getTileOptions()).thenReturn(mTileOptions);
+    mEncodedImage = new EncodedImage(CloseableReference.of(mock(PooledByteBuffer.class)));
+    mEncodedImage.setRotationAngle(90);
+
+    mProducer.produceResults(mConsumer, mProducerContext);
+    ArgumentCaptor<Consumer> consumerCaptor = ArgumentCaptor.forClass(Consumer.class);
+    verify(mInputProducer).produceResults(consumerCaptor.capture(), eq(mProducerContext));
+    mRegionDecodeConsumer = consumerCaptor.getValue();
+  }
+
+  @After
+  public void tearDown() {
+    EncodedImage.closeSafely(mEncodedImage);
+  }
+
+  @Test
+  public void testDecodesFinalResult() {
+    mRegionDecodeConsumer.onNewResult(mEncodedImage, Consumer.IS_LAST);
+
+    ArgumentCaptor<CloseableReference> captor = ArgumentCaptor.forClass(CloseableReference.class);
+    verify(mConsumer).onNewResult(captor.capture(), eq(Consumer.IS_LAST));
+    CloseableStaticBitmap tile = (CloseableStaticBitmap) captor.getValue().get();
+    assertEquals(128, tile.getWidth());
+    assertEquals(128, tile.getHeight());
+    assertEquals(90, tile.getRotationAngle());
+    assertSame(mTileOptions, mProducer.mDecodedTile);
+    verify(mProducerListener).onProducerStart(mProducerContext, PRODUCER_NAME);
+    verify(mProducerListener)
+        .onProducerFinishWithSuccess(eq(mProducerContext), eq(PRODUCER_NAME), anyMap());
+  }
+
+  @Test
+  public void testIgnoresIntermediateResults() {
+    mRegionDecodeConsumer.onNewResult(mEncodedImage, Consumer.NO_FLAGS);
+
+    assertNull(mProducer.mDecodedTile);
+    verifyZeroInteractions(mConsumer, mProducerListener);
+  }
+
+  @Test
+  public void testForwardsNullFinalResult() {
+    mRegionDecodeConsumer.onNewResult(null, Consumer.IS_LAST);
+
+    verify(mConsumer).onNewResult(null, Consumer.IS_LAST);
+    assertNull(mProducer.mDecodedTile);
+  }
+
+  @Test
+  public void testDecodeFailure() {
+    mProducer.mException = new IOException();
+    mRegionDecodeConsumer.onNewResult(mEncodedImage, Consumer.IS_LAST);
+
+    verify(mConsumer).onFailure(mProducer.mException);
+    verify(mConsumer, never()).onNewResult(any(CloseableReference.class), anyInt());
+    verify(mProducerListener)
+        .onProducerFinishWithFailure(mProducerContext, PRODUCER_NAME, mProducer.mException, null);
+  }
+
+  @Test
+  public void testCancellation() {
+    mProducerContext.cancel();
+    mRegionDecodeConsumer.onNewResult(mEncodedImage, Consumer.IS_LAST);
+
+    verify(mConsumer).onCancellation();
+    assertNull(mProducer.mDecodedTile);
+  }
+
+  private static class TestRegionDecodeProducer extends RegionDecodeProducer {
+
+    private TileOptions mDecodedTile;
+    private IOException mException;
+
+    TestRegionDecodeProducer(Producer<EncodedImage> inputProducer) {
+      super(CallerThreadExecutor.getInstance(), inputProducer);
+    }
+
+    @Override
+    Bitmap decodeRegion(
+        EncodedImage encodedImage, ProducerContext producerContext, TileOptions tileOptions)
+        throws IOException {
+      if (mException != null) {
+        throw mException;
+      }
+      mDecodedTile = tileOptions;
+      return Bitmap.createBitmap(
+          tileOptions.getWidth() / tileOptions.sampleSize,
+          tileOptions.getHeight() / tileOptions.sampleSize,
+          Bitmap.Config.ARGB_8888);
+    }
+  }
+}
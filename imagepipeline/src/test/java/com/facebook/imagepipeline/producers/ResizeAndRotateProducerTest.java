@@ -48,6 +48,7 @@ import com.facebook.imagepipeline.transcoder.JpegTranscoderUtils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Rule;
@@ -242,6 +243,57 @@ public class ResizeAndRotateProducerTest {
     verifyZeroJpegTranscoderInteractions();
   }
 
+  @Test
+  public void testDecodesPngWithSampleSize() {
+    whenResizingEnabled();
+    whenRequestWidthAndHeight(200, 200);
+    whenRequestsRotationFromMetadataWithoutDeferring();
+
+    provideFinalResult(DefaultImageFormats.PNG, 800, 800, 0, ExifInterface.ORIENTATION_UNDEFINED);
+
+    ArgumentCaptor<EncodedImage> captor = ArgumentCaptor.forClass(EncodedImage.class);
+    verify(mConsumer)
+        .onNewResult(captor.capture(), eq(Consumer.IS_LAST | Consumer.IS_RESIZING_DONE));
+    assertEquals(4, captor.getValue().getSampleSize());
+    assertEquals(EncodedImage.DEFAULT_SAMPLE_SIZE, mFinalEncodedImage.getSampleSize());
+    assertEquals(2, mFinalResult.getUnderlyingReferenceTestOnly().getRefCountTestOnly());
+    assertResizeStrategyExtra("decode_sample");
+    verifyZeroJpegTranscoderInteractions();
+  }
+
+  @Test
+  public void testDoesNotSampleWebpIfResizingDisabled() {
+    whenResizingDisabled();
+    whenRequestWidthAndHeight(200, 200);
+    whenRequestsRotationFromMetadataWithoutDeferring();
+
+    provideFinalResult(
+        DefaultImageFormats.WEBP_SIMPLE, 800, 800, 0, ExifInterface.ORIENTATION_UNDEFINED);
+
+    verifyFinalResultPassedThroughUnchanged();
+    verify(mProducerListener, never()).onProducerStart(eq(mProducerContext), anyString());
+  }
+
+  @Test
+  public void testReportsPostDecodeDownscaleForWebp() {
+    whenResizingEnabled();
+    whenRequestWidthAndHeight(600, 600);
+    whenRequestsRotationFromMetadataWithoutDeferring();
+
+    provideFinalResult(
+        DefaultImageFormats.WEBP_SIMPLE, 800, 800, 0, ExifInterface.ORIENTATION_UNDEFINED);
+
+    verifyFinalResultPassedThroughUnchanged();
+    assertResizeStrategyExtra("post_decode");
+  }
+
+  private void assertResizeStrategyExtra(String expectedStrategy) {
+    ArgumentCaptor<Map> extrasCaptor = ArgumentCaptor.forClass(Map.class);
+    verify(mProducerListener)
+        .onProducerFinishWithSuccess(eq(mProducerContext), anyString(), extrasCaptor.capture());
+    assertEquals(expectedStrategy, extrasCaptor.getValue().get("Resize strategy"));
+  }
+
   @Test
   public void testDoesRotateIfJpegAndCannotDeferRotationAndResizingDisabled() throws Exception {
     whenResizingDisabled();
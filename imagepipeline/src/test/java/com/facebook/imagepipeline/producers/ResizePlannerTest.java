@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.imagepipeline.producers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.media.ExifInterface;
+import com.facebook.common.memory.PooledByteBuffer;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imageformat.DefaultImageFormats;
+import com.facebook.imageformat.ImageFormat;
+import com.facebook.imagepipeline.common.ResizeOptions;
+import com.facebook.imagepipeline.common.RotationOptions;
+import com.facebook.imagepipeline.image.EncodedImage;
+import com.facebook.imagepipeline.transcoder.ImageTranscoder;
+import com.facebook.imagepipeline.transcoder.ResizePlan;
+import com.facebook.imagepipeline.transcoder.ResizePlanner;
+import com.facebook.imagepipeline.transcoder.ResizeStrategy;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ResizePlannerTest {
+
+  private static final int MAX_BITMAP_SIZE = 2048;
+  private ImageTranscoder mImageTranscoder;
+
+  @Before
+  public void setUp() {
+    mImageTranscoder = mock(ImageTranscoder.class);
+    when(mImageTranscoder.canTranscode(DefaultImageFormats.JPEG)).thenReturn(true);
+    when(mImageTranscoder.canResize(
+            any(EncodedImage.class), any(RotationOptions.class), any(ResizeOptions.class)))
+        .thenReturn(true);
+  }
+
+  @Test
+  public void testTranscodesSupportedFormats() {
+    assertSame(
+        ResizePlan.TRANSCODE,
+        plan(DefaultImageFormats.JPEG, 800, 800, new ResizeOptions(200, 200)));
+  }
+
+  @Test
+  public void testDecodesPngAndWebpWithSampleSize() {
+    assertPlan(
+        ResizeStrategy.RESIZE_DECODE_SAMPLE,
+        4,
+        plan(DefaultImageFormats.PNG, 800, 800, new ResizeOptions(200, 200)));
+    assertPlan(
+        ResizeStrategy.RESIZE_DECODE_SAMPLE,
+        2,
+        plan(DefaultImageFormats.WEBP_LOSSLESS, 800, 400, new ResizeOptions(400, 200)));
+  }
+
+  @Test
+  public void testDownscalesAfterDecodingIfSampleSizeIsNotEnough() {
+    assertPlan(
+        ResizeStrategy.RESIZE_POST_DECODE,
+        1,
+        plan(DefaultImageFormats.PNG, 800, 800, new ResizeOptions(600, 600)));
+    assertPlan(
+        ResizeStrategy.RESIZE_POST_DECODE,
+        3,
+        plan(DefaultImageFormats.WEBP_SIMPLE, 1000, 1000, new ResizeOptions(300, 300)));
+  }
+
+  @Test
+  public void testDoesNotResizeWhenNotNeeded() {
+    assertSame(ResizePlan.NONE, plan(DefaultImageFormats.PNG, 800, 800, null));
+    assertSame(
+        ResizePlan.NONE, plan(DefaultImageFormats.PNG, 100, 100, new ResizeOptions(200, 200)));
+    assertSame(
+        ResizePlan.NONE, plan(DefaultImageFormats.PNG, 210, 210, new ResizeOptions(200, 200)));
+  }
+
+  @Test
+  public void testDoesNotResizeAnimatedImages() {
+    assertSame(
+        ResizePlan.NONE, plan(DefaultImageFormats.GIF, 800, 800, new ResizeOptions(200, 200)));
+    assertSame(
+        ResizePlan.NONE,
+        plan(DefaultImageFormats.WEBP_ANIMATED, 800, 800, new ResizeOptions(200, 200)));
+  }
+
+  @Test
+  public void testDoesNotResizeIfResizingDisabled() {
+    final EncodedImage encodedImage = buildEncodedImage(DefaultImageFormats.PNG, 800, 800);
+    assertSame(
+        ResizePlan.NONE,
+        ResizePlanner.plan(
+            encodedImage,
+            RotationOptions.autoRotate(),
+            new ResizeOptions(200, 200),
+            mImageTranscoder,
+            false,
+            MAX_BITMAP_SIZE));
+  }
+
+  @Test
+  public void testIsDecodeSamplingSupported() {
+    assertTrue(ResizePlanner.isDecodeSamplingSupported(DefaultImageFormats.PNG));
+    assertTrue(ResizePlanner.isDecodeSamplingSupported(DefaultImageFormats.WEBP_EXTENDED));
+    assertFalse(ResizePlanner.isDecodeSamplingSupported(DefaultImageFormats.GIF));
+    assertFalse(ResizePlanner.isDecodeSamplingSupported(ImageFormat.UNKNOWN));
+  }
+
+  private ResizePlan plan(ImageFormat imageFormat, int width, int height, ResizeOptions options) {
+    return ResizePlanner.plan(
+        buildEncodedImage(imageFormat, width, height),
+        RotationOptions.autoRotate(),
+        options,
+        mImageTranscoder,
+        true,
+        MAX_BITMAP_SIZE);
+  }
+
+  private static void assertPlan(
+      @ResizeStrategy int expectedStrategy, int expectedSampleSize, ResizePlan plan) {
+    assertEquals(expectedStrategy, plan.getStrategy());
+    assertEquals(expectedSampleSize, plan.getSampleSize());
+  }
+
+  private static EncodedImage buildEncodedImage(ImageFormat imageFormat, int width, int height) {
+    final EncodedImage encodedImage =
+        new EncodedImage(CloseableReference.of(mock(PooledByteBuffer.class)));
+    encodedImage.setImageFormat(imageFormat);
+    encodedImage.setWidth(width);
+    encodedImage.setHeight(height);
+    encodedImage.setRotationAngle(0);
+    encodedImage.setExifOrientation(ExifInterface.ORIENTATION_NORMAL);
+    return encodedImage;
+  }
+}
@@ -14,6 +14,7 @@ import com.facebook.imagepipeline.common.ImageDecodeOptionsBuilder;
 import com.facebook.imagepipeline.common.Priority;
 import com.facebook.imagepipeline.common.ResizeOptions;
 import com.facebook.imagepipeline.common.RotationOptions;
+import com.facebook.imagepipeline.common.TileOptions;
 import com.facebook.imagepipeline.listener.RequestLoggingListener;
 import java.io.File;
 import org.junit.Test;
@@ -76,4 +77,21 @@ public class ImageRequestTest {
     assertThat(imageRequest.getSourceFile()).isNotNull();
     assertThat(imageRequest.getSourceFile().getAbsolutePath()).isEqualTo(file.getAbsolutePath());
   }
+
+  @Test
+  public void testTileRequestForLocalImageFile() {
+    final ImageRequest imageRequest =
+        ImageRequestBuilder.newBuilderWithSource(Uri.fromFile(new File("/foo/photos/map.jpg")))
+            .setTileOptions(new TileOptions(0, 0, 256, 256, 1))
+            .build();
+
+    assertThat(imageRequest.getTileOptions()).isNotNull();
+  }
+
+  @Test(expected = ImageRequestBuilder.BuilderException.class)
+  public void testTileRequestForLocalVideoFile_isRejected() {
+    ImageRequestBuilder.newBuilderWithSource(Uri.fromFile(new File("/foo/videos/clip.mp4")))
+        .setTileOptions(new TileOptions(0, 0, 256, 256, 1))
+        .build();
+  }
 }
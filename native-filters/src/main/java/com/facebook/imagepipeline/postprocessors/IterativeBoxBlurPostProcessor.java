@@ -11,6 +11,8 @@ import android.graphics.Bitmap;
 import com.facebook.cache.common.CacheKey;
 import com.facebook.cache.common.SimpleCacheKey;
 import com.facebook.common.internal.Preconditions;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
 import com.facebook.imagepipeline.nativecode.NativeBlurFilter;
 import com.facebook.imagepipeline.request.BasePostprocessor;
 import java.util.Locale;
@@ -19,6 +21,8 @@ import javax.annotation.Nullable;
 /**
  * A fast and memory-efficient post processor performing an iterative box blur. For details see
  * {@link NativeBlurFilter#iterativeBoxBlur(Bitmap, int, int)}.
+ *
+ * <p>Optionally the bitmap is downscaled before blurring, see {@link DownscalingBlurUtil}.
  */
 public class IterativeBoxBlurPostProcessor extends BasePostprocessor {
 
@@ -26,6 +30,8 @@ public class IterativeBoxBlurPostProcessor extends BasePostprocessor {
 
   private final int mIterations;
   private final int mBlurRadius;
+  private final int mDownscaleFactor;
+  @Nullable private final IterativeBoxBlurPostProcessor mScaledBlurPostProcessor;
 
   private CacheKey mCacheKey;
 
@@ -34,10 +40,37 @@ public class IterativeBoxBlurPostProcessor extends BasePostprocessor {
   }
 
   public IterativeBoxBlurPostProcessor(int iterations, int blurRadius) {
+    this(iterations, blurRadius, false);
+  }
+
+  /**
+   * @param iterations the number of iterations of the blurring algorithm > 0
+   * @param blurRadius the radius of the blur > 0
+   * @param downscaleBeforeBlur whether to blur a downscaled copy of the bitmap, which is much
+   *     faster for big radii. See {@link DownscalingBlurUtil}.
+   */
+  public IterativeBoxBlurPostProcessor(
+      int iterations, int blurRadius, boolean downscaleBeforeBlur) {
     Preconditions.checkArgument(iterations > 0);
     Preconditions.checkArgument(blurRadius > 0);
     mIterations = iterations;
     mBlurRadius = blurRadius;
+    mDownscaleFactor = downscaleBeforeBlur ? DownscalingBlurUtil.getDownscaleFactor(blurRadius) : 1;
+    mScaledBlurPostProcessor =
+        mDownscaleFactor > 1
+            ? new IterativeBoxBlurPostProcessor(
+                iterations, DownscalingBlurUtil.getScaledBlurRadius(blurRadius, mDownscaleFactor))
+            : null;
+  }
+
+  @Override
+  public CloseableReference<Bitmap> process(
+      Bitmap sourceBitmap, PlatformBitmapFactory bitmapFactory) {
+    if (mScaledBlurPostProcessor != null) {
+      return DownscalingBlurUtil.process(
+          sourceBitmap, bitmapFactory, mDownscaleFactor, mScaledBlurPostProcessor);
+    }
+    return super.process(sourceBitmap, bitmapFactory);
   }
 
   @Override
@@ -50,7 +83,7 @@ public class IterativeBoxBlurPostProcessor extends BasePostprocessor {
   public CacheKey getPostprocessorCacheKey() {
     if (mCacheKey == null) {
       final String key = String.format((Locale) null, "i%dr%d", mIterations, mBlurRadius);
-      mCacheKey = new SimpleCacheKey(key);
+      mCacheKey = new SimpleCacheKey(mDownscaleFactor > 1 ? key + ";downscaled" : key);
     }
     return mCacheKey;
   }
@@ -21,6 +21,7 @@ import android.widget.ToggleButton;
 import androidx.annotation.ColorInt;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import com.facebook.drawee.backends.pipeline.Fresco;
 import com.facebook.fresco.animation.backend.AnimationBackend;
 import com.facebook.fresco.animation.bitmap.BitmapAnimationBackend;
 import com.facebook.fresco.animation.bitmap.BitmapFrameCache;
@@ -37,6 +38,9 @@ import com.facebook.samples.animation2.utils.AnimationControlsManager;
  */
 public class BitmapAnimationDebugFragment extends Fragment {
 
+  private static final int BENCHMARK_FRAME_SIZE = 500;
+  private static final int BENCHMARK_LOOP_COUNT = 10;
+
   private LinearLayout mFrameInformationContainer;
 
   private final SparseArray<FrameInformationHolder> mFrameInfoMap = new SparseArray<>();
@@ -130,6 +134,16 @@ public class BitmapAnimationDebugFragment extends Fragment {
               }
             });
 
+    final TextView benchmarkResult = (TextView) view.findViewById(R.id.benchmark_result);
+    view.findViewById(R.id.benchmark_button)
+        .setOnClickListener(
+            new View.OnClickListener() {
+              @Override
+              public void onClick(View v) {
+                runFrameCacheBenchmark(benchmarkResult);
+              }
+            });
+
     mAnimationControlsManager =
         new AnimationControlsManager(
             mAnimatedDrawable,
@@ -161,6 +175,32 @@ public class BitmapAnimationDebugFragment extends Fragment {
     mAnimatedDrawable.invalidateSelf();
   }
 
+  private void runFrameCacheBenchmark(final TextView resultView) {
+    resultView.setText(R.string.cache_benchmark_running);
+    final FrameCacheBenchmark benchmark =
+        new FrameCacheBenchmark(
+            Fresco.getImagePipelineFactory().getPlatformBitmapFactory(),
+            new ExampleBitmapAnimationFactory.ColorAndFrameNumberRenderer(SampleData.COLORS),
+            SampleData.COLORS.length,
+            BENCHMARK_FRAME_SIZE,
+            BENCHMARK_FRAME_SIZE);
+    new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                final String result = benchmark.run(BENCHMARK_LOOP_COUNT);
+                resultView.post(
+                    new Runnable() {
+                      @Override
+                      public void run() {
+                        resultView.setText(result);
+                      }
+                    });
+              }
+            })
+        .start();
+  }
+
   private void setupFrameInformationContainer(BitmapAnimationBackend bitmapAnimationBackend) {
     mFrameInformationContainer.removeAllViews();
     LayoutInflater layoutInflater = LayoutInflater.from(getContext());
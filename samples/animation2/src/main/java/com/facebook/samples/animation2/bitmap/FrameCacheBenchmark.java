@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.samples.animation2.bitmap;
+
+import android.graphics.Bitmap;
+import android.util.SparseIntArray;
+import com.facebook.common.memory.ByteArrayPool;
+import com.facebook.common.memory.NoOpMemoryTrimmableRegistry;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.common.util.ByteConstants;
+import com.facebook.fresco.animation.bitmap.BitmapAnimationBackend;
+import com.facebook.fresco.animation.bitmap.BitmapFrameCache;
+import com.facebook.fresco.animation.bitmap.BitmapFrameRenderer;
+import com.facebook.fresco.animation.bitmap.cache.CompressedFrameCache;
+import com.facebook.fresco.animation.bitmap.cache.FrameCompressor;
+import com.facebook.fresco.animation.bitmap.cache.KeepLastFrameCache;
+import com.facebook.fresco.animation.bitmap.cache.Lz4FrameCompressor;
+import com.facebook.fresco.animation.bitmap.cache.Rgb565FrameCompressor;
+import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
+import com.facebook.imagepipeline.memory.GenericByteArrayPool;
+import com.facebook.imagepipeline.memory.NoOpPoolStatsTracker;
+import com.facebook.imagepipeline.memory.PoolParams;
+import java.util.Locale;
+
+/**
+ * Simple benchmark that compares re-rendering every frame with caching all frames uncompressed and
+ * caching all frames in a {@link CompressedFrameCache}.
+ *
+ * <p>Every strategy is first warmed up by playing the animation once, then the animation is played
+ * for the given number of loops while measuring how long it takes to get each frame the same way
+ * {@link BitmapAnimationBackend} would get it.
+ */
+public class FrameCacheBenchmark {
+
+  private static final int MAX_COMPRESSED_CACHE_SIZE = 32 * ByteConstants.MB;
+
+  private final PlatformBitmapFactory mPlatformBitmapFactory;
+  private final BitmapFrameRenderer mBitmapFrameRenderer;
+  private final int mFrameCount;
+  private final int mWidth;
+  private final int mHeight;
+  private final ByteArrayPool mByteArrayPool;
+
+  public FrameCacheBenchmark(
+      PlatformBitmapFactory platformBitmapFactory,
+      BitmapFrameRenderer bitmapFrameRenderer,
+      int frameCount,
+      int width,
+      int height) {
+    mPlatformBitmapFactory = platformBitmapFactory;
+    mBitmapFrameRenderer = bitmapFrameRenderer;
+    mFrameCount = frameCount;
+    mWidth = width;
+    mHeight = height;
+    mByteArrayPool = createByteArrayPool();
+  }
+
+  /**
+   * Run the benchmark for all strategies.
+   *
+   * @param loopCount the number of animation loops to measure
+   * @return a human readable summary of the results
+   */
+  public String run(int loopCount) {
+    StringBuilder result = new StringBuilder();
+    result.append(String.format(Locale.US, "%d frames, %dx%d\n", mFrameCount, mWidth, mHeight));
+    result.append(measure("Re-render", new KeepLastFrameCache(), loopCount));
+    result.append(measure("Uncompressed", new NaiveCacheAllFramesCachingBackend(), loopCount));
+    result.append(measure("LZ4", createCompressedFrameCache(new Lz4FrameCompressor()), loopCount));
+    result.append(
+        measure("RGB565", createCompressedFrameCache(new Rgb565FrameCompressor()), loopCount));
+    return result.toString();
+  }
+
+  private CompressedFrameCache createCompressedFrameCache(FrameCompressor frameCompressor) {
+    return new CompressedFrameCache(
+        new KeepLastFrameCache(),
+        frameCompressor,
+        mByteArrayPool,
+        mPlatformBitmapFactory,
+        MAX_COMPRESSED_CACHE_SIZE);
+  }
+
+  private String measure(String name, BitmapFrameCache bitmapFrameCache, int loopCount) {
+    try {
+      // Warm up: prepare all frames, as a frame preparer would, and play the animation once so
+      // that all caches are filled
+      for (int frameNumber = 0; frameNumber < mFrameCount; frameNumber++) {
+        prepareFrame(bitmapFrameCache, frameNumber);
+      }
+      for (int frameNumber = 0; frameNumber < mFrameCount; frameNumber++) {
+        CloseableReference.closeSafely(getFrame(bitmapFrameCache, frameNumber));
+      }
+      int sizeInBytes = bitmapFrameCache.getSizeInBytes();
+
+      long startNs = System.nanoTime();
+      for (int loop = 0; loop < loopCount; loop++) {
+        for (int frameNumber = 0; frameNumber < mFrameCount; frameNumber++) {
+          CloseableReference.closeSafely(getFrame(bitmapFrameCache, frameNumber));
+        }
+      }
+      long averageUs = (System.nanoTime() - startNs) / 1000 / Math.max(1, loopCount * mFrameCount);
+
+      return String.format(
+          Locale.US,
+          "%s: %d us/frame, %d KB cached\n",
+          name,
+          averageUs,
+          sizeInBytes / ByteConstants.KB);
+    } finally {
+      bitmapFrameCache.clear();
+    }
+  }
+
+  private void prepareFrame(BitmapFrameCache bitmapFrameCache, int frameNumber) {
+    CloseableReference<Bitmap> bitmapReference =
+        mPlatformBitmapFactory.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+    try {
+      mBitmapFrameRenderer.renderFrame(frameNumber, bitmapReference.get());
+      bitmapFrameCache.onFramePrepared(
+          frameNumber, bitmapReference, BitmapAnimationBackend.FRAME_TYPE_CREATED);
+    } finally {
+      CloseableReference.closeSafely(bitmapReference);
+    }
+  }
+
+  private CloseableReference<Bitmap> getFrame(BitmapFrameCache bitmapFrameCache, int frameNumber) {
+    CloseableReference<Bitmap> bitmapReference = bitmapFrameCache.getCachedFrame(frameNumber);
+    if (CloseableReference.isValid(bitmapReference)) {
+      return bitmapReference;
+    }
+    @BitmapAnimationBackend.FrameType int frameType = BitmapAnimationBackend.FRAME_TYPE_REUSED;
+    bitmapReference = bitmapFrameCache.getBitmapToReuseForFrame(frameNumber, mWidth, mHeight);
+    if (!CloseableReference.isValid(bitmapReference)) {
+      CloseableReference.closeSafely(bitmapReference);
+      bitmapReference =
+          mPlatformBitmapFactory.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+      frameType = BitmapAnimationBackend.FRAME_TYPE_CREATED;
+    }
+    mBitmapFrameRenderer.renderFrame(frameNumber, bitmapReference.get());
+    bitmapFrameCache.onFrameRendered(frameNumber, bitmapReference, frameType);
+    return bitmapReference;
+  }
+
+  private static ByteArrayPool createByteArrayPool() {
+    SparseIntArray bucketSizes = new SparseIntArray();
+    for (int size = 16 * ByteConstants.KB; size <= 4 * ByteConstants.MB; size *= 2) {
+      bucketSizes.put(size, 4);
+    }
+    return new GenericByteArrayPool(
+        NoOpMemoryTrimmableRegistry.getInstance(),
+        new PoolParams(2 * MAX_COMPRESSED_CACHE_SIZE, bucketSizes),
+        NoOpPoolStatsTracker.getInstance());
+  }
+}
@@ -20,6 +20,7 @@ import android.widget.TextView;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.SwitchCompat;
 import com.facebook.animated.giflite.GifDecoder;
+import com.facebook.animated.giflite.StreamingGifDecoder;
 import com.facebook.drawee.backends.pipeline.Fresco;
 import com.facebook.drawee.backends.pipeline.PipelineDraweeControllerBuilder;
 import com.facebook.drawee.view.SimpleDraweeView;
@@ -29,6 +30,7 @@ import com.facebook.fresco.samples.showcase.misc.CheckerBoardDrawable;
 import com.facebook.fresco.samples.showcase.misc.ImageUriProvider;
 import com.facebook.imagepipeline.common.ImageDecodeOptions;
 import com.facebook.imagepipeline.common.ImageDecodeOptionsBuilder;
+import com.facebook.imagepipeline.decoder.ImageDecoder;
 import com.facebook.imagepipeline.request.ImageRequestBuilder;
 
 /** GIF example that illustrates how to display a simple GIF file */
@@ -38,7 +40,7 @@ public class ImageFormatGifFragment extends BaseShowcaseFragment {
 
   private Spinner mSpinner;
   private SimpleDraweeView mSimpleDraweeView;
-  private @Nullable GifDecoder mGifDecoder;
+  private @Nullable ImageDecoder mGifDecoder;
 
   @Nullable
   @Override
@@ -113,6 +115,9 @@ public class ImageFormatGifFragment extends BaseShowcaseFragment {
               case 1:
                 mGifDecoder = new GifDecoder();
                 break;
+              case 2:
+                mGifDecoder = new StreamingGifDecoder();
+                break;
               default:
                 throw new IllegalArgumentException("Unknown decoder selected");
             }
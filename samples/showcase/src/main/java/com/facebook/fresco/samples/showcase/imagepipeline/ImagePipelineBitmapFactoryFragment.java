@@ -25,6 +25,9 @@ import com.facebook.drawee.backends.pipeline.Fresco;
 import com.facebook.fresco.samples.showcase.BaseShowcaseFragment;
 import com.facebook.fresco.samples.showcase.R;
 import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
+import com.facebook.imagepipeline.core.MemoryChunkType;
+import com.facebook.imagepipeline.memory.PoolConfig;
+import com.facebook.imagepipeline.memory.PoolFactory;
 
 /**
  * Fragment demonstrating how to use the PlatformBitmapFactory. It also demonstrates how to manage a
@@ -34,6 +37,8 @@ import com.facebook.imagepipeline.bitmaps.PlatformBitmapFactory;
  */
 public class ImagePipelineBitmapFactoryFragment extends BaseShowcaseFragment {
 
+  private static final int META_DATA_BENCHMARK_RUN_COUNT = 100;
+
   private enum CreateOptions {
     BASIC(R.string.imagepipeline_bitmap_factory_case_create_basic),
     CROPPED(R.string.imagepipeline_bitmap_factory_case_create_cropped),
@@ -92,6 +97,50 @@ public class ImagePipelineBitmapFactoryFragment extends BaseShowcaseFragment {
           @Override
           public void onNothingSelected(AdapterView<?> parent) {}
         });
+
+    final TextView benchmarkResult = view.findViewById(R.id.benchmark_result);
+    view.findViewById(R.id.benchmark_button)
+        .setOnClickListener(
+            new View.OnClickListener() {
+              @Override
+              public void onClick(View v) {
+                runMetaDataParsingBenchmark(benchmarkResult);
+              }
+            });
+  }
+
+  private void runMetaDataParsingBenchmark(final TextView resultView) {
+    resultView.setText(R.string.imagepipeline_bitmap_factory_meta_data_benchmark_running);
+    // Buffer memory chunks, so that the in place parsing can read from their byte buffers
+    final MetaDataParsingBenchmark benchmark =
+        new MetaDataParsingBenchmark(
+            new PoolFactory(PoolConfig.newBuilder().build())
+                .getPooledByteBufferFactory(MemoryChunkType.BUFFER_MEMORY));
+    // The original bitmap is closed when the fragment stops, keep it for the benchmark
+    final CloseableReference<Bitmap> bitmap = CloseableReference.cloneOrNull(mOriginalBitmap);
+    if (bitmap == null) {
+      return;
+    }
+    new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                final String result;
+                try {
+                  result = benchmark.run(bitmap.get(), META_DATA_BENCHMARK_RUN_COUNT);
+                } finally {
+                  CloseableReference.closeSafely(bitmap);
+                }
+                resultView.post(
+                    new Runnable() {
+                      @Override
+                      public void run() {
+                        resultView.setText(result);
+                      }
+                    });
+              }
+            })
+        .start();
   }
 
   @Override
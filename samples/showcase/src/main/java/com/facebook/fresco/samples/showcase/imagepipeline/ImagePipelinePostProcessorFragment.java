@@ -28,8 +28,10 @@ import com.facebook.fresco.samples.showcase.misc.ImageUriProvider;
 import com.facebook.fresco.samples.showcase.postprocessor.BenchmarkPostprocessorForDuplicatedBitmap;
 import com.facebook.fresco.samples.showcase.postprocessor.BenchmarkPostprocessorForDuplicatedBitmapInPlace;
 import com.facebook.fresco.samples.showcase.postprocessor.BenchmarkPostprocessorForManualBitmapHandling;
+import com.facebook.fresco.samples.showcase.postprocessor.BoxBlurBenchmark;
 import com.facebook.fresco.samples.showcase.postprocessor.CachedWatermarkPostprocessor;
 import com.facebook.fresco.samples.showcase.postprocessor.FasterGreyScalePostprocessor;
+import com.facebook.fresco.samples.showcase.postprocessor.ParallelBoxBlurPostprocessor;
 import com.facebook.fresco.samples.showcase.postprocessor.ScalingBlurPostprocessor;
 import com.facebook.fresco.samples.showcase.postprocessor.SlowGreyScalePostprocessor;
 import com.facebook.fresco.samples.showcase.postprocessor.WatermarkPostprocessor;
@@ -45,6 +47,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Fragment that illustrates how to use the image pipeline directly in order to create
@@ -55,6 +59,14 @@ public class ImagePipelinePostProcessorFragment extends BaseShowcaseFragment
 
   private static final int WATERMARK_COUNT = 10;
   private static final String WATERMARK_STRING = "WATERMARK";
+  private static final int BLUR_PARALLELISM =
+      Math.max(2, Runtime.getRuntime().availableProcessors());
+  private static final int BLUR_ITERATIONS = 3;
+  private static final int BLUR_BENCHMARK_RUN_COUNT = 3;
+
+  /** Additional threads for the parallel blur, the calling thread takes part in the work too */
+  private static final ExecutorService sBlurExecutor =
+      Executors.newFixedThreadPool(BLUR_PARALLELISM - 1);
 
   private List<Entry> mSpinnerEntries = new ArrayList<>();
 
@@ -101,6 +113,16 @@ public class ImagePipelinePostProcessorFragment extends BaseShowcaseFragment
             setPostprocessor(spinnerEntry.postprocessor);
           }
         });
+
+    final TextView benchmarkResult = (TextView) view.findViewById(R.id.benchmark_result);
+    view.findViewById(R.id.benchmark_button)
+        .setOnClickListener(
+            new View.OnClickListener() {
+              @Override
+              public void onClick(View v) {
+                runBoxBlurBenchmark(benchmarkResult);
+              }
+            });
   }
 
   @Override
@@ -122,6 +144,27 @@ public class ImagePipelinePostProcessorFragment extends BaseShowcaseFragment
             });
   }
 
+  private void runBoxBlurBenchmark(final TextView resultView) {
+    resultView.setText(R.string.imagepipeline_postprocessor_blur_benchmark_running);
+    final BoxBlurBenchmark benchmark =
+        new BoxBlurBenchmark(sBlurExecutor, BLUR_PARALLELISM, BLUR_ITERATIONS);
+    new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                final String result = benchmark.run(BLUR_BENCHMARK_RUN_COUNT);
+                resultView.post(
+                    new Runnable() {
+                      @Override
+                      public void run() {
+                        resultView.setText(result);
+                      }
+                    });
+              }
+            })
+        .start();
+  }
+
   private void setPostprocessor(Postprocessor postprocessor) {
     final ImageRequest imageRequest =
         ImageRequestBuilder.newBuilderWithSource(mUri).setPostprocessor(postprocessor).build();
@@ -192,10 +235,24 @@ public class ImagePipelinePostProcessorFragment extends BaseShowcaseFragment
             R.string.imagepipeline_postprocessor_set_native_blur,
             new BenchmarkPostprocessorForDuplicatedBitmapInPlace(
                 this, new IterativeBoxBlurPostProcessor(25, 3))),
+        new Entry(
+            R.string.imagepipeline_postprocessor_set_native_blur_downscaled,
+            new BenchmarkPostprocessorForManualBitmapHandling(
+                this, new IterativeBoxBlurPostProcessor(3, 25, true))),
         new Entry(
             R.string.imagepipeline_postprocessor_set_blur,
             new BenchmarkPostprocessorForDuplicatedBitmap(
                 this, new BlurPostProcessor(20, getContext()))),
+        new Entry(
+            R.string.imagepipeline_postprocessor_set_java_blur,
+            new BenchmarkPostprocessorForDuplicatedBitmapInPlace(
+                this, new ParallelBoxBlurPostprocessor(BLUR_ITERATIONS, 25, sBlurExecutor, 1))),
+        new Entry(
+            R.string.imagepipeline_postprocessor_set_parallel_java_blur,
+            new BenchmarkPostprocessorForDuplicatedBitmapInPlace(
+                this,
+                new ParallelBoxBlurPostprocessor(
+                    BLUR_ITERATIONS, 25, sBlurExecutor, BLUR_PARALLELISM))),
         new Entry(
             R.string.imagepipeline_postprocessor_set_scaling_blur,
             new BenchmarkPostprocessorForManualBitmapHandling(
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.samples.showcase.imagepipeline;
+
+import android.graphics.Bitmap;
+import android.os.Debug;
+import com.facebook.common.memory.PooledByteBuffer;
+import com.facebook.common.memory.PooledByteBufferFactory;
+import com.facebook.common.references.CloseableReference;
+import com.facebook.imageformat.DefaultImageFormats;
+import com.facebook.imageformat.ImageFormat;
+import com.facebook.imageformat.ImageFormatChecker;
+import com.facebook.imagepipeline.image.EncodedImage;
+import com.facebook.imageutils.BitmapUtil;
+import com.facebook.imageutils.JfifUtil;
+import com.facebook.imageutils.WebpUtil;
+import java.io.ByteArrayOutputStream;
+import java.util.Locale;
+
+/**
+ * Simple benchmark that compares reading the meta data of encoded images through input streams, as
+ * {@link EncodedImage#parseMetaData()} used to do, with reading it in place from the byte buffer.
+ *
+ * <p>The given bitmap is encoded in every format and the meta data of each encoded image is parsed
+ * the given number of times with both versions. The average number of allocations, allocated bytes
+ * and duration per parse are reported. Allocations are counted with {@link Debug}, which only works
+ * in debuggable builds.
+ */
+public class MetaDataParsingBenchmark {
+
+  private static final Bitmap.CompressFormat[] FORMATS = {
+    Bitmap.CompressFormat.JPEG, Bitmap.CompressFormat.PNG, Bitmap.CompressFormat.WEBP
+  };
+
+  private final PooledByteBufferFactory mPooledByteBufferFactory;
+
+  public MetaDataParsingBenchmark(PooledByteBufferFactory pooledByteBufferFactory) {
+    mPooledByteBufferFactory = pooledByteBufferFactory;
+  }
+
+  /**
+   * Run the benchmark for all formats.
+   *
+   * @param bitmap the bitmap to encode
+   * @param runCount the number of parses to measure per format and version
+   * @return a human readable summary of the results
+   */
+  public String run(Bitmap bitmap, int runCount) {
+    StringBuilder result = new StringBuilder();
+    result.append(
+        String.format(Locale.US, "%dx%d, per parse:\n", bitmap.getWidth(), bitmap.getHeight()));
+    for (Bitmap.CompressFormat format : FORMATS) {
+      CloseableReference<PooledByteBuffer> bufferRef =
+          CloseableReference.of(mPooledByteBufferFactory.newByteBuffer(encode(bitmap, format)));
+      EncodedImage encodedImage = new EncodedImage(bufferRef);
+      try {
+        Measurement streams = measure(encodedImage, true, runCount);
+        Measurement inPlace = measure(encodedImage, false, runCount);
+        result.append(
+            String.format(
+                Locale.US,
+                "%s: streams %s, in place %s\n",
+                format.name(),
+                streams,
+                inPlace));
+      } finally {
+        EncodedImage.closeSafely(encodedImage);
+        CloseableReference.closeSafely(bufferRef);
+      }
+    }
+    return result.toString();
+  }
+
+  private static Measurement measure(EncodedImage encodedImage, boolean streams, int runCount) {
+    // Warm up
+    parse(encodedImage, streams);
+    Debug.startAllocCounting();
+    Debug.resetThreadAllocCount();
+    Debug.resetThreadAllocSize();
+    long startNs = System.nanoTime();
+    for (int i = 0; i < runCount; i++) {
+      parse(encodedImage, streams);
+    }
+    long durationNs = System.nanoTime() - startNs;
+    Debug.stopAllocCounting();
+    int count = Math.max(1, runCount);
+    return new Measurement(
+        Debug.getThreadAllocCount() / (float) count,
+        Debug.getThreadAllocSize() / count,
+        durationNs / 1000 / count);
+  }
+
+  private static void parse(EncodedImage encodedImage, boolean streams) {
+    if (!streams) {
+      encodedImage.parseMetaData();
+      return;
+    }
+    // What EncodedImage#parseMetaData did before reading the headers in place
+    ImageFormat imageFormat =
+        ImageFormatChecker.getImageFormat_WrapIOException(encodedImage.getInputStream());
+    if (DefaultImageFormats.isWebpFormat(imageFormat)) {
+      WebpUtil.getSize(encodedImage.getInputStream());
+    } else {
+      BitmapUtil.decodeDimensionsAndColorSpace(encodedImage.getInputStream());
+      if (imageFormat == DefaultImageFormats.JPEG) {
+        JfifUtil.getOrientation(encodedImage.getInputStream());
+      }
+    }
+  }
+
+  private static byte[] encode(Bitmap bitmap, Bitmap.CompressFormat format) {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    bitmap.compress(format, 90, outputStream);
+    return outputStream.toByteArray();
+  }
+
+  private static class Measurement {
+
+    final float allocations;
+    final int bytes;
+    final long durationUs;
+
+    Measurement(float allocations, int bytes, long durationUs) {
+      this.allocations = allocations;
+      this.bytes = bytes;
+      this.durationUs = durationUs;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          Locale.US, "%.1f allocs / %d B / %d us", allocations, bytes, durationUs);
+    }
+  }
+}
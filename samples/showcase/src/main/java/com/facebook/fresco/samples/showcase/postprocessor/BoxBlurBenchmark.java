@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.samples.showcase.postprocessor;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import com.facebook.imagepipeline.filter.IterativeBoxBlurFilter;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+/**
+ * Simple benchmark that compares the single threaded {@link IterativeBoxBlurFilter} with the
+ * parallel version for several bitmap sizes and blur radii.
+ *
+ * <p>Every combination is warmed up once and then blurred the given number of times with each
+ * version, the average duration per blur is reported.
+ */
+public class BoxBlurBenchmark {
+
+  private static final int[] SIZES = {256, 512, 1024, 2048};
+  private static final int[] RADII = {4, 10, 25};
+
+  private final Executor mExecutor;
+  private final int mParallelism;
+  private final int mIterations;
+
+  public BoxBlurBenchmark(Executor executor, int parallelism, int iterations) {
+    mExecutor = executor;
+    mParallelism = parallelism;
+    mIterations = iterations;
+  }
+
+  /**
+   * Run the benchmark for all sizes and radii.
+   *
+   * @param runCount the number of blurs to measure per combination and version
+   * @return a human readable summary of the results
+   */
+  public String run(int runCount) {
+    StringBuilder result = new StringBuilder();
+    result.append(
+        String.format(Locale.US, "%d iterations, parallelism %d\n", mIterations, mParallelism));
+    for (int size : SIZES) {
+      Bitmap bitmap = createBitmap(size);
+      try {
+        for (int radius : RADII) {
+          long serialUs = measure(bitmap, radius, 1, runCount);
+          long parallelUs = measure(bitmap, radius, mParallelism, runCount);
+          result.append(
+              String.format(
+                  Locale.US,
+                  "%dx%d r=%d: %d ms serial, %d ms parallel (%.1fx)\n",
+                  size,
+                  size,
+                  radius,
+                  serialUs / 1000,
+                  parallelUs / 1000,
+                  serialUs / (float) Math.max(1, parallelUs)));
+        }
+      } finally {
+        bitmap.recycle();
+      }
+    }
+    return result.toString();
+  }
+
+  private long measure(Bitmap bitmap, int radius, int parallelism, int runCount) {
+    // Warm up
+    blur(bitmap, radius, parallelism);
+    long startNs = System.nanoTime();
+    for (int i = 0; i < runCount; i++) {
+      blur(bitmap, radius, parallelism);
+    }
+    return (System.nanoTime() - startNs) / 1000 / Math.max(1, runCount);
+  }
+
+  private void blur(Bitmap bitmap, int radius, int parallelism) {
+    if (parallelism > 1) {
+      IterativeBoxBlurFilter.boxBlurBitmapInPlace(
+          bitmap, mIterations, radius, mExecutor, parallelism);
+    } else {
+      IterativeBoxBlurFilter.boxBlurBitmapInPlace(bitmap, mIterations, radius);
+    }
+  }
+
+  private static Bitmap createBitmap(int size) {
+    Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+    // Vertical stripes so that there is something to blur
+    int[] row = new int[size];
+    for (int x = 0; x < size; x++) {
+      row[x] = (x / 8) % 2 == 0 ? Color.BLACK : Color.WHITE;
+    }
+    for (int y = 0; y < size; y++) {
+      bitmap.setPixels(row, 0, size, 0, y, size, 1);
+    }
+    return bitmap;
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.fresco.samples.showcase.postprocessor;
+
+import android.graphics.Bitmap;
+import com.facebook.imagepipeline.filter.IterativeBoxBlurFilter;
+import com.facebook.imagepipeline.request.BasePostprocessor;
+import java.util.concurrent.Executor;
+
+/**
+ * Applies a blur filter using {@link IterativeBoxBlurFilter#boxBlurBitmapInPlace(Bitmap, int, int,
+ * Executor, int)}, which blurs stripes of the bitmap on multiple threads. A parallelism of 1 runs
+ * the single threaded version.
+ */
+public class ParallelBoxBlurPostprocessor extends BasePostprocessor {
+
+  private final int mIterations;
+  private final int mBlurRadius;
+  private final Executor mExecutor;
+  private final int mParallelism;
+
+  public ParallelBoxBlurPostprocessor(
+      int iterations, int blurRadius, Executor executor, int parallelism) {
+    mIterations = iterations;
+    mBlurRadius = blurRadius;
+    mExecutor = executor;
+    mParallelism = parallelism;
+  }
+
+  @Override
+  public void process(Bitmap bitmap) {
+    IterativeBoxBlurFilter.boxBlurBitmapInPlace(
+        bitmap, mIterations, mBlurRadius, mExecutor, mParallelism);
+  }
+}